@@ -0,0 +1,144 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Base class for {@link Attribute} implementations, which checks indices and
+ * converts between value types. Subclasses only store the values.
+ */
+public abstract class AbstractAttribute implements Attribute {
+
+	private final String name;
+	private final Type type;
+	private final int components;
+	private final LongSupplier size;
+
+	/**
+	 * @param name Name of the channel.
+	 * @param type Type of the channel's values.
+	 * @param components Number of values per element.
+	 * @param size Number of elements of the owning collection.
+	 */
+	protected AbstractAttribute(final String name, final Type type,
+		final int components, final LongSupplier size)
+	{
+		if (components < 1) {
+			throw new IllegalArgumentException("Invalid component count: " +
+				components);
+		}
+		this.name = name;
+		this.type = type;
+		this.components = components;
+		this.size = size;
+	}
+
+	// -- Attribute methods --
+
+	@Override
+	public String name() {
+		return name;
+	}
+
+	@Override
+	public Type type() {
+		return type;
+	}
+
+	@Override
+	public int components() {
+		return components;
+	}
+
+	@Override
+	public float getf(final long index, final int component) {
+		checkIndex(index, component);
+		return type == Type.FLOAT ? readFloat(index, component) : //
+			readInt(index, component);
+	}
+
+	@Override
+	public int geti(final long index, final int component) {
+		checkIndex(index, component);
+		return type == Type.FLOAT ? (int) readFloat(index, component) : //
+			readInt(index, component);
+	}
+
+	@Override
+	public void setf(final long index, final int component, final float value) {
+		checkIndex(index, component);
+		if (type == Type.FLOAT) writeFloat(index, component, value);
+		else writeInt(index, component, (int) value);
+	}
+
+	@Override
+	public void seti(final long index, final int component, final int value) {
+		checkIndex(index, component);
+		if (type == Type.FLOAT) writeFloat(index, component, value);
+		else writeInt(index, component, value);
+	}
+
+	// -- Internal methods --
+
+	/**
+	 * Reads a value of a {@link Type#FLOAT} channel. Elements beyond those
+	 * written so far read as {@code 0}.
+	 */
+	protected abstract float readFloat(long index, int component);
+
+	/**
+	 * Reads a value of an {@link Type#INT} or {@link Type#BYTE} channel, the
+	 * latter as unsigned. Elements beyond those written so far read as
+	 * {@code 0}.
+	 */
+	protected abstract int readInt(long index, int component);
+
+	/** Writes a value of a {@link Type#FLOAT} channel. */
+	protected abstract void writeFloat(long index, int component, float value);
+
+	/**
+	 * Writes a value of an {@link Type#INT} or {@link Type#BYTE} channel, the
+	 * latter truncated to its lowest 8 bits.
+	 */
+	protected abstract void writeInt(long index, int component, int value);
+
+	// -- Helper methods --
+
+	private void checkIndex(final long index, final int component) {
+		if (index < 0 || index >= size.getAsLong()) {
+			throw new IndexOutOfBoundsException("Invalid index: " + index);
+		}
+		if (component < 0 || component >= components) {
+			throw new IndexOutOfBoundsException("Invalid component: " + component);
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Base class for {@link Attributes} implementations, which keeps track of the
+ * channels by name. Subclasses only create the channels.
+ */
+public abstract class AbstractAttributes implements Attributes {
+
+	private final Map<String, Attribute> channels = new LinkedHashMap<>();
+
+	// -- Attributes methods --
+
+	@Override
+	public Attribute get(final String name) {
+		return channels.get(name);
+	}
+
+	@Override
+	public Attribute add(final String name, final Attribute.Type type,
+		final int components)
+	{
+		final Attribute existing = channels.get(name);
+		if (existing != null) {
+			if (existing.type() != type || existing.components() != components) {
+				throw new IllegalArgumentException("Attribute '" + name +
+					"' exists with a different type: " + existing.type() + " x " +
+					existing.components());
+			}
+			return existing;
+		}
+		final Attribute channel = create(name, type, components);
+		channels.put(name, channel);
+		return channel;
+	}
+
+	@Override
+	public boolean remove(final String name) {
+		return channels.remove(name) != null;
+	}
+
+	@Override
+	public int size() {
+		return channels.size();
+	}
+
+	// -- Iterable methods --
+
+	@Override
+	public Iterator<Attribute> iterator() {
+		return Collections.unmodifiableCollection(channels.values()).iterator();
+	}
+
+	// -- Internal methods --
+
+	/** Creates a new channel, all of whose values are {@code 0}. */
+	protected abstract Attribute create(String name, Attribute.Type type,
+		int components);
+}
@@ -0,0 +1,383 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Compact connectivity index of a {@link Mesh}, in compressed sparse row (CSR)
+ * form: for each vertex, the triangles using it and its neighboring vertices.
+ * Optionally, a {@link HalfEdges half-edge} table links each directed triangle
+ * edge to its opposite twin.
+ * <p>
+ * All arrays are built in parallel in time linear in the size of the mesh,
+ * and are shared rather than copied by the accessors, so they must not be
+ * modified. The index is immutable and may be queried from many threads.
+ * </p>
+ * <p>
+ * Use {@link #of(Mesh)} to reuse the index of an unchanged mesh. Since
+ * triangles can only be appended, never modified, the index of a mesh stays
+ * valid as long as its vertex and triangle counts are the same.
+ * </p>
+ */
+public final class Adjacency {
+
+	private static final Map<Mesh, Adjacency> CACHE = new WeakHashMap<>();
+
+	private final int vertexCount;
+	private final int triangleCount;
+
+	/** Vertex indices of each triangle, three per triangle. */
+	private final int[] indices;
+
+	/** Start of each vertex's triangles in {@link #vertexTriangles}. */
+	private final int[] triangleOffsets;
+	private final int[] vertexTriangles;
+
+	/** Start of each vertex's neighbors in {@link #neighbors}. */
+	private final int[] neighborOffsets;
+	private final int[] neighbors;
+
+	private volatile HalfEdges halfEdges;
+
+	private Adjacency(final Mesh mesh) {
+		this(checkedSize(mesh.vertices().size(), 1, "vertices"), indices(mesh));
+	}
+
+	/**
+	 * Builds the index of triangles given by their vertex indices, three per
+	 * triangle, e.g. after renumbering the vertices of a mesh.
+	 */
+	Adjacency(final int vertexCount, final int[] indices) {
+		this.vertexCount = vertexCount;
+		this.indices = indices;
+		triangleCount = indices.length / 3;
+		IntStream.range(0, indices.length).parallel().forEach(c -> {
+			if (indices[c] < 0 || indices[c] >= vertexCount) {
+				throw new IndexOutOfBoundsException("Invalid vertex index: " +
+					indices[c]);
+			}
+		});
+
+		// Vertex -> triangles: count, prefix sum, fill, then sort each list.
+		final AtomicIntegerArray counts = new AtomicIntegerArray(vertexCount);
+		IntStream.range(0, indices.length).parallel().forEach(c -> counts
+			.incrementAndGet(indices[c]));
+		triangleOffsets = new int[vertexCount + 1];
+		for (int v = 0; v < vertexCount; v++)
+			triangleOffsets[v + 1] = triangleOffsets[v] + counts.get(v);
+		final AtomicIntegerArray cursors = new AtomicIntegerArray(triangleOffsets);
+		vertexTriangles = new int[indices.length];
+		IntStream.range(0, indices.length).parallel().forEach(
+			c -> vertexTriangles[cursors.getAndIncrement(indices[c])] = c / 3);
+		IntStream.range(0, vertexCount).parallel().forEach(v -> Arrays.sort(
+			vertexTriangles, triangleOffsets[v], triangleOffsets[v + 1]));
+
+		// Vertex -> vertices: collect the other corners of the incident
+		// triangles, sort and dedupe them; once to count, once to fill.
+		final ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[64]);
+		final int[] unique = new int[vertexCount];
+		IntStream.range(0, vertexCount).parallel().forEach(v -> unique[v] =
+			collectNeighbors(v, scratch));
+		neighborOffsets = new int[vertexCount + 1];
+		for (int v = 0; v < vertexCount; v++)
+			neighborOffsets[v + 1] = neighborOffsets[v] + unique[v];
+		neighbors = new int[neighborOffsets[vertexCount]];
+		IntStream.range(0, vertexCount).parallel().forEach(v -> {
+			final int n = collectNeighbors(v, scratch);
+			System.arraycopy(scratch.get(), 0, neighbors, neighborOffsets[v], n);
+		});
+	}
+
+	/**
+	 * Gets the adjacency index of a mesh, reusing the previously built index if
+	 * the mesh has not changed since.
+	 *
+	 * @throws IllegalArgumentException If the mesh has more than 2^31
+	 *           vertices, or its triangles have more than 2^31 corners.
+	 */
+	public static Adjacency of(final Mesh mesh) {
+		synchronized (CACHE) {
+			final Adjacency cached = CACHE.get(mesh);
+			if (cached != null && cached.matches(mesh)) return cached;
+		}
+		final Adjacency adjacency = new Adjacency(mesh);
+		synchronized (CACHE) {
+			CACHE.put(mesh, adjacency);
+		}
+		return adjacency;
+	}
+
+	/** Builds a new adjacency index of a mesh, bypassing the cache. */
+	public static Adjacency build(final Mesh mesh) {
+		return new Adjacency(mesh);
+	}
+
+	/** Number of vertices of the indexed mesh. */
+	public int vertexCount() {
+		return vertexCount;
+	}
+
+	/** Number of triangles of the indexed mesh. */
+	public int triangleCount() {
+		return triangleCount;
+	}
+
+	/** Gets the {@code k}-th (0, 1 or 2) vertex of a triangle. */
+	public int vertex(final int tIndex, final int k) {
+		return indices[3 * tIndex + k];
+	}
+
+	/** Vertex indices of all triangles, three per triangle. */
+	public int[] indices() {
+		return indices;
+	}
+
+	/** Number of triangles using a vertex. */
+	public int triangleCount(final int vIndex) {
+		return triangleOffsets[vIndex + 1] - triangleOffsets[vIndex];
+	}
+
+	/** Gets the {@code i}-th triangle using a vertex. */
+	public int triangle(final int vIndex, final int i) {
+		return vertexTriangles[triangleOffsets[vIndex] + i];
+	}
+
+	/**
+	 * CSR offsets of the triangles per vertex: the triangles of vertex
+	 * {@code v} are at {@code [offsets[v], offsets[v + 1])} of
+	 * {@link #vertexTriangles()}.
+	 */
+	public int[] triangleOffsets() {
+		return triangleOffsets;
+	}
+
+	/** Triangles of each vertex, in ascending order. */
+	public int[] vertexTriangles() {
+		return vertexTriangles;
+	}
+
+	/** Number of distinct vertices sharing an edge with a vertex. */
+	public int degree(final int vIndex) {
+		return neighborOffsets[vIndex + 1] - neighborOffsets[vIndex];
+	}
+
+	/** Gets the {@code i}-th neighbor of a vertex. */
+	public int neighbor(final int vIndex, final int i) {
+		return neighbors[neighborOffsets[vIndex] + i];
+	}
+
+	/**
+	 * CSR offsets of the neighbors per vertex: the neighbors of vertex
+	 * {@code v} are at {@code [offsets[v], offsets[v + 1])} of
+	 * {@link #neighbors()}.
+	 */
+	public int[] neighborOffsets() {
+		return neighborOffsets;
+	}
+
+	/** Neighbors of each vertex, in ascending order. */
+	public int[] neighbors() {
+		return neighbors;
+	}
+
+	/** Gets the half-edge table, building it on first use. */
+	public HalfEdges halfEdges() {
+		HalfEdges result = halfEdges;
+		if (result == null) {
+			synchronized (this) {
+				result = halfEdges;
+				if (result == null) halfEdges = result = new HalfEdges();
+			}
+		}
+		return result;
+	}
+
+	// -- Inner classes --
+
+	/**
+	 * Half-edge table. Half-edge {@code h = 3 * t + k} runs from vertex
+	 * {@code k} of triangle {@code t} to the next vertex of that triangle, so
+	 * the half-edges need no storage except the links to their twins.
+	 * <p>
+	 * The twin of a half-edge runs the opposite way along the same edge, in
+	 * the adjacent triangle. Boundary half-edges have no twin. On non-manifold
+	 * edges shared by more than two triangles, one of the candidates is chosen.
+	 * </p>
+	 */
+	public final class HalfEdges {
+
+		private final int[] twins;
+		private final boolean[] boundary;
+		private final int boundaryEdgeCount;
+
+		private HalfEdges() {
+			twins = new int[indices.length];
+			IntStream.range(0, twins.length).parallel().forEach(h -> twins[h] =
+				findTwin(h));
+			boundary = new boolean[vertexCount];
+			int count = 0;
+			for (int h = 0; h < twins.length; h++) {
+				if (twins[h] >= 0) continue;
+				boundary[origin(h)] = true;
+				boundary[target(h)] = true;
+				count++;
+			}
+			boundaryEdgeCount = count;
+		}
+
+		/** Twin of a half-edge, or -1 if it lies on the boundary. */
+		public int twin(final int h) {
+			return twins[h];
+		}
+
+		/** Twins of all half-edges, -1 for boundary half-edges. */
+		public int[] twins() {
+			return twins;
+		}
+
+		/** Vertex at which a half-edge starts. */
+		public int origin(final int h) {
+			return indices[h];
+		}
+
+		/** Vertex at which a half-edge ends. */
+		public int target(final int h) {
+			return indices[next(h)];
+		}
+
+		/** Whether a vertex lies on a boundary edge. */
+		public boolean isBoundary(final int vIndex) {
+			return boundary[vIndex];
+		}
+
+		/** Number of half-edges without a twin; 0 for a closed surface. */
+		public int boundaryEdgeCount() {
+			return boundaryEdgeCount;
+		}
+
+		private int findTwin(final int h) {
+			final int from = origin(h), to = target(h);
+			for (int i = triangleOffsets[to]; i < triangleOffsets[to + 1]; i++) {
+				final int t = vertexTriangles[i];
+				for (int k = 0; k < 3; k++) {
+					final int g = 3 * t + k;
+					if (g != h && indices[g] == to && target(g) == from) return g;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/** Next half-edge around the same triangle. */
+	public static int next(final int h) {
+		return h % 3 == 2 ? h - 2 : h + 1;
+	}
+
+	/** Previous half-edge around the same triangle. */
+	public static int prev(final int h) {
+		return h % 3 == 0 ? h + 2 : h - 1;
+	}
+
+	/** Triangle to which a half-edge belongs. */
+	public static int triangleOf(final int h) {
+		return h / 3;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Stores the sorted, distinct neighbors of a vertex at the start of the
+	 * thread's scratch array, growing it as needed.
+	 *
+	 * @return The number of neighbors.
+	 */
+	private int collectNeighbors(final int v, final ThreadLocal<int[]> scratch) {
+		final int candidates = 2 * triangleCount(v);
+		int[] buffer = scratch.get();
+		if (buffer.length < candidates) {
+			buffer = new int[Math.max(candidates, 2 * buffer.length)];
+			scratch.set(buffer);
+		}
+		int end = 0;
+		for (int i = triangleOffsets[v]; i < triangleOffsets[v + 1]; i++) {
+			final int t = vertexTriangles[i];
+			for (int k = 0; k < 3; k++) {
+				final int w = indices[3 * t + k];
+				if (w != v) buffer[end++] = w;
+			}
+		}
+		Arrays.sort(buffer, 0, end);
+		int n = 0;
+		for (int i = 0; i < end; i++) {
+			if (n == 0 || buffer[i] != buffer[n - 1]) buffer[n++] = buffer[i];
+		}
+		return n;
+	}
+
+	private boolean matches(final Mesh mesh) {
+		return mesh.vertices().size() == vertexCount && //
+			mesh.triangles().size() == triangleCount;
+	}
+
+	private static int[] indices(final Mesh mesh) {
+		final Triangles triangles = mesh.triangles();
+		final int triangleCount = checkedSize(triangles.size(), 3, "triangles");
+		final int[] indices = new int[3 * triangleCount];
+		IntStream.range(0, triangleCount).parallel().forEach(t -> {
+			indices[3 * t] = vertexIndex(triangles.vertex0(t));
+			indices[3 * t + 1] = vertexIndex(triangles.vertex1(t));
+			indices[3 * t + 2] = vertexIndex(triangles.vertex2(t));
+		});
+		return indices;
+	}
+
+	private static int vertexIndex(final long vIndex) {
+		// NB: Indices beyond the vertex count are rejected later.
+		if (vIndex < 0 || vIndex > Integer.MAX_VALUE) {
+			throw new IndexOutOfBoundsException("Invalid vertex index: " + vIndex);
+		}
+		return (int) vIndex;
+	}
+
+	private static int checkedSize(final long size, final int factor,
+		final String what)
+	{
+		if (size * factor > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many " + what + ": " + size);
+		}
+		return (int) size;
+	}
+}
@@ -0,0 +1,122 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.function.LongSupplier;
+
+import org.scijava.util.ByteArray;
+import org.scijava.util.FloatArray;
+import org.scijava.util.IntArray;
+
+/**
+ * {@link Attributes} stored on the Java heap, in primitive arrays which grow
+ * as elements are written.
+ */
+public class ArrayAttributes extends AbstractAttributes {
+
+	private final LongSupplier size;
+
+	/** @param size Number of elements of the owning collection. */
+	public ArrayAttributes(final LongSupplier size) {
+		this.size = size;
+	}
+
+	@Override
+	protected Attribute create(final String name, final Attribute.Type type,
+		final int components)
+	{
+		return new ArrayAttribute(name, type, components, size);
+	}
+
+	// -- Helper classes --
+
+	private static class ArrayAttribute extends AbstractAttribute {
+
+		// NB: Exactly one of these is used, depending on the type.
+		private final FloatArray floats;
+		private final IntArray ints;
+		private final ByteArray bytes;
+
+		private ArrayAttribute(final String name, final Type type,
+			final int components, final LongSupplier size)
+		{
+			super(name, type, components, size);
+			floats = type == Type.FLOAT ? new FloatArray() : null;
+			ints = type == Type.INT ? new IntArray() : null;
+			bytes = type == Type.BYTE ? new ByteArray() : null;
+		}
+
+		@Override
+		protected float readFloat(final long index, final int component) {
+			final int i = offset(index, component);
+			return i < floats.size() ? floats.getValue(i) : 0;
+		}
+
+		@Override
+		protected int readInt(final long index, final int component) {
+			final int i = offset(index, component);
+			if (ints != null) return i < ints.size() ? ints.getValue(i) : 0;
+			return i < bytes.size() ? bytes.getValue(i) & 0xff : 0;
+		}
+
+		@Override
+		protected void writeFloat(final long index, final int component,
+			final float value)
+		{
+			final int i = offset(index, component);
+			if (i >= floats.size()) floats.setSize(i + 1);
+			floats.setValue(i, value);
+		}
+
+		@Override
+		protected void writeInt(final long index, final int component,
+			final int value)
+		{
+			final int i = offset(index, component);
+			if (ints != null) {
+				if (i >= ints.size()) ints.setSize(i + 1);
+				ints.setValue(i, value);
+			}
+			else {
+				if (i >= bytes.size()) bytes.setSize(i + 1);
+				bytes.setValue(i, (byte) value);
+			}
+		}
+
+		private int offset(final long index, final int component) {
+			final long offset = index * components() + component;
+			if (offset > Integer.MAX_VALUE) {
+				throw new IndexOutOfBoundsException("Index too large: " + index);
+			}
+			return (int) offset;
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+/**
+ * A named channel of primitive values attached to each vertex or each
+ * triangle of a {@link Mesh}, such as a measurement or a label.
+ * <p>
+ * Each element holds {@link #components()} values of the channel's
+ * {@link Type}. Elements which were never written read as {@code 0}. Values
+ * are converted as needed, so e.g. {@link #getf} may be used on an
+ * {@link Type#INT} channel.
+ * </p>
+ *
+ * @see Attributes
+ */
+public interface Attribute {
+
+	/** Primitive type of the values in an attribute channel. */
+	enum Type {
+
+		/** 32-bit floating point values. */
+		FLOAT(4),
+
+		/** 32-bit signed integer values. */
+		INT(4),
+
+		/** 8-bit unsigned integer values. */
+		BYTE(1);
+
+		private final int bytes;
+
+		Type(final int bytes) {
+			this.bytes = bytes;
+		}
+
+		/** Size of one value, in bytes. */
+		public int bytes() {
+			return bytes;
+		}
+	}
+
+	/** Name of the channel, unique among the channels of its collection. */
+	String name();
+
+	/** Type of the values. */
+	Type type();
+
+	/** Number of values per element, e.g. 1 for a scalar or 3 for a vector. */
+	int components();
+
+	/** Gets a component of an element, as a float. */
+	float getf(long index, int component);
+
+	/** Gets a component of an element, as an int. */
+	int geti(long index, int component);
+
+	/** Sets a component of an element from a float. */
+	void setf(long index, int component, float value);
+
+	/** Sets a component of an element from an int. */
+	void seti(long index, int component, int value);
+
+	/** Gets the first component of an element, as a float. */
+	default float getf(final long index) {
+		return getf(index, 0);
+	}
+
+	/** Gets the first component of an element, as an int. */
+	default int geti(final long index) {
+		return geti(index, 0);
+	}
+
+	/** Sets the first component of an element from a float. */
+	default void setf(final long index, final float value) {
+		setf(index, 0, value);
+	}
+
+	/** Sets the first component of an element from an int. */
+	default void seti(final long index, final int value) {
+		seti(index, 0, value);
+	}
+}
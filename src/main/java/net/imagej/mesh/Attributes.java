@@ -0,0 +1,111 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * The named {@link Attribute} channels of a {@link Vertices} or
+ * {@link Triangles} collection.
+ * <p>
+ * Channels always cover the whole collection: elements appended after a
+ * channel was added read as {@code 0} until written.
+ * </p>
+ */
+public interface Attributes extends Iterable<Attribute> {
+
+	/** Gets the channel of the given name, or null if there is none. */
+	Attribute get(String name);
+
+	/**
+	 * Adds a channel, all of whose values are initially {@code 0}. If a channel
+	 * of the same name, type and number of components exists already, it is
+	 * returned instead.
+	 *
+	 * @param name Name of the channel.
+	 * @param type Type of the channel's values.
+	 * @param components Number of values per element.
+	 * @return The channel.
+	 * @throws IllegalArgumentException If a different channel of the same name
+	 *           exists.
+	 * @throws UnsupportedOperationException If the collection cannot store
+	 *           attributes.
+	 */
+	Attribute add(String name, Attribute.Type type, int components);
+
+	/**
+	 * Removes the channel of the given name.
+	 *
+	 * @return Whether there was such a channel.
+	 */
+	boolean remove(String name);
+
+	/** Number of channels. */
+	int size();
+
+	/**
+	 * Gets an empty container which does not support adding channels, for
+	 * collections which cannot store attributes.
+	 */
+	static Attributes none() {
+		return new Attributes() {
+
+			@Override
+			public Iterator<Attribute> iterator() {
+				return Collections.emptyIterator();
+			}
+
+			@Override
+			public Attribute get(final String name) {
+				return null;
+			}
+
+			@Override
+			public Attribute add(final String name, final Attribute.Type type,
+				final int components)
+			{
+				throw new UnsupportedOperationException(
+					"Attributes are not supported");
+			}
+
+			@Override
+			public boolean remove(final String name) {
+				return false;
+			}
+
+			@Override
+			public int size() {
+				return 0;
+			}
+		};
+	}
+}
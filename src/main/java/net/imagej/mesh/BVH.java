@@ -0,0 +1,974 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Bounding volume hierarchy over the triangles of a {@link Mesh}, for fast
+ * ray casting, closest point and signed distance queries.
+ * <p>
+ * The hierarchy is built top-down in parallel, splitting each node where the
+ * binned surface area heuristic (SAH) predicts the cheapest traversal. It is
+ * then flattened into primitive arrays, with the triangle coordinates copied
+ * in leaf order for locality; later changes to the mesh are not seen. The
+ * hierarchy is immutable, so queries may run concurrently from many threads.
+ * The batched queries additionally run in parallel themselves.
+ * </p>
+ */
+public final class BVH {
+
+	/** Number of bins per axis when evaluating the SAH. */
+	private static final int BINS = 16;
+
+	/** Nodes with at most this many triangles are never split. */
+	private static final int MIN_SPLIT_SIZE = 4;
+
+	/** Nodes with more triangles than this are always split, if possible. */
+	private static final int MAX_LEAF_SIZE = 16;
+
+	/** Subtrees with more triangles than this are built in parallel. */
+	private static final int PARALLEL_SIZE = 1 << 12;
+
+	/** Number of points or rays per task of the batched queries. */
+	private static final int BATCH_SIZE = 256;
+
+	private final int triangleCount;
+
+	/** Triangle vertex coordinates, nine per triangle, in leaf order. */
+	private final float[] coords;
+
+	/** Mesh triangle index of each triangle, in leaf order. */
+	private final int[] triangles;
+
+	/** Node bounds: min x, y, z, then max x, y, z. */
+	private final float[] bounds;
+
+	/**
+	 * Two per node. Leaves: first triangle and (positive) triangle count. Inner
+	 * nodes: index of the second child, and 0. The first child directly
+	 * follows its parent.
+	 */
+	private final int[] nodes;
+
+	private volatile Pseudonormals pseudonormals;
+
+	private BVH(final Mesh mesh) {
+		if (mesh.triangles().size() > Integer.MAX_VALUE / 9) {
+			throw new IllegalArgumentException("Too many triangles: " + mesh
+				.triangles().size());
+		}
+		triangleCount = (int) mesh.triangles().size();
+
+		// Gather the triangle coordinates and bounding boxes.
+		final float[] unsorted = new float[9 * triangleCount];
+		final float[] boxes = new float[6 * triangleCount];
+		final Vertices vertices = mesh.vertices();
+		final Triangles meshTriangles = mesh.triangles();
+		IntStream.range(0, triangleCount).parallel().forEach(t -> {
+			final long[] corners = { meshTriangles.vertex0(t), meshTriangles
+				.vertex1(t), meshTriangles.vertex2(t) };
+			for (int k = 0; k < 3; k++) {
+				unsorted[9 * t + 3 * k] = vertices.xf(corners[k]);
+				unsorted[9 * t + 3 * k + 1] = vertices.yf(corners[k]);
+				unsorted[9 * t + 3 * k + 2] = vertices.zf(corners[k]);
+			}
+			for (int d = 0; d < 3; d++) {
+				final float a = unsorted[9 * t + d], b = unsorted[9 * t + 3 + d],
+						c = unsorted[9 * t + 6 + d];
+				boxes[6 * t + d] = Math.min(a, Math.min(b, c));
+				boxes[6 * t + d + 3] = Math.max(a, Math.max(b, c));
+			}
+		});
+
+		triangles = new int[triangleCount];
+		Arrays.setAll(triangles, t -> t);
+		final Node root = triangleCount == 0 ? null : ForkJoinPool.commonPool()
+			.invoke(new Build(boxes, 0, triangleCount));
+
+		final int nodeCount = root == null ? 0 : root.size();
+		bounds = new float[6 * nodeCount];
+		nodes = new int[2 * nodeCount];
+		if (root != null) flatten(root, 0);
+
+		coords = new float[9 * triangleCount];
+		IntStream.range(0, triangleCount).parallel().forEach(i -> System
+			.arraycopy(unsorted, 9 * triangles[i], coords, 9 * i, 9));
+	}
+
+	/** Builds the hierarchy of a mesh's triangles. */
+	public static BVH build(final Mesh mesh) {
+		return new BVH(mesh);
+	}
+
+	/** Number of triangles in the hierarchy. */
+	public int triangleCount() {
+		return triangleCount;
+	}
+
+	// -- Ray casting --
+
+	/**
+	 * Finds the first triangle hit by a ray.
+	 *
+	 * @param ox X coordinate of the ray origin.
+	 * @param oy Y coordinate of the ray origin.
+	 * @param oz Z coordinate of the ray origin.
+	 * @param dx X coordinate of the ray direction.
+	 * @param dy Y coordinate of the ray direction.
+	 * @param dz Z coordinate of the ray direction.
+	 * @param tMax Maximum ray parameter to consider; hits are at
+	 *          {@code origin + t * direction} for {@code 0 <= t <= tMax}.
+	 * @param hit Receives the hit, if any.
+	 * @return Whether a triangle was hit.
+	 */
+	public boolean intersect(final double ox, final double oy, final double oz,
+		final double dx, final double dy, final double dz, final double tMax,
+		final Hit hit)
+	{
+		return intersect(ox, oy, oz, dx, dy, dz, tMax, hit, new int[64]);
+	}
+
+	/**
+	 * Casts many rays in parallel.
+	 *
+	 * @param origins Ray origins, three coordinates per ray.
+	 * @param directions Ray directions, three coordinates per ray.
+	 * @param distances Receives the ray parameter {@code t} of each hit, or
+	 *          {@link Double#POSITIVE_INFINITY} if the ray misses.
+	 * @param hitTriangles Receives the triangle hit by each ray, or -1. May be
+	 *          null.
+	 */
+	public void intersect(final double[] origins, final double[] directions,
+		final double[] distances, final long[] hitTriangles)
+	{
+		final int count = distances.length;
+		batches(count).forEach(b -> {
+			final Hit hit = new Hit();
+			final int[] stack = new int[64];
+			for (int i = b * BATCH_SIZE; i < Math.min(count, (b + 1) *
+				BATCH_SIZE); i++)
+			{
+				final boolean found = intersect(origins[3 * i], origins[3 * i + 1],
+					origins[3 * i + 2], directions[3 * i], directions[3 * i + 1],
+					directions[3 * i + 2], Double.POSITIVE_INFINITY, hit, stack);
+				distances[i] = found ? hit.t : Double.POSITIVE_INFINITY;
+				if (hitTriangles != null) hitTriangles[i] = found ? hit.triangle : -1;
+			}
+		});
+	}
+
+	// -- Closest point queries --
+
+	/**
+	 * Finds the point of the mesh closest to the given point.
+	 *
+	 * @param closest Receives the coordinates of the closest point. May be
+	 *          null.
+	 * @return The triangle containing the closest point, or -1 if the mesh has
+	 *         no triangles.
+	 */
+	public long closestPoint(final double x, final double y, final double z,
+		final double[] closest)
+	{
+		final Query query = new Query();
+		if (!query.closest(x, y, z)) return -1;
+		if (closest != null) {
+			closest[0] = query.qx;
+			closest[1] = query.qy;
+			closest[2] = query.qz;
+		}
+		return triangles[query.primitive];
+	}
+
+	/** Distance from a point to the mesh; infinite if it has no triangles. */
+	public double distance(final double x, final double y, final double z) {
+		return new Query().distance(x, y, z);
+	}
+
+	/**
+	 * Signed distance from a point to the mesh: negative inside, positive
+	 * outside. The sign is taken from the angle-weighted pseudonormal at the
+	 * closest point, which is exact for closed, consistently outward-oriented
+	 * meshes. Vertices at the same position are treated as one, so marching
+	 * cubes output works as is.
+	 */
+	public double signedDistance(final double x, final double y,
+		final double z)
+	{
+		return new Query().signedDistance(x, y, z);
+	}
+
+	/**
+	 * Computes the distances of many points in parallel.
+	 *
+	 * @param points Three coordinates per point.
+	 * @param distances Receives the distance of each point.
+	 */
+	public void distance(final double[] points, final double[] distances) {
+		distances(points, distances, false);
+	}
+
+	/**
+	 * Computes the signed distances of many points in parallel.
+	 *
+	 * @param points Three coordinates per point.
+	 * @param distances Receives the signed distance of each point.
+	 * @see #signedDistance(double, double, double)
+	 */
+	public void signedDistance(final double[] points, final double[] distances) {
+		distances(points, distances, true);
+	}
+
+	/**
+	 * Bounds of all triangles: min x, y, z, then max x, y, z. Empty (infinite)
+	 * bounds if there are no triangles.
+	 */
+	float[] bounds() {
+		return nodes.length == 0 ? emptyBox() : Arrays.copyOf(bounds, 6);
+	}
+
+	/** Triangle vertex coordinates, nine per triangle, in no particular order. */
+	float[] coordinates() {
+		return coords;
+	}
+
+	/**
+	 * Creates reusable state for a sequence of distance queries on one thread,
+	 * avoiding a new allocation per query.
+	 */
+	Query query() {
+		return new Query();
+	}
+
+	// -- Inner classes --
+
+	/** Result of a ray intersection. */
+	public static final class Hit {
+
+		/** Index of the hit triangle in the mesh. */
+		public long triangle = -1;
+
+		/** Ray parameter of the hit. */
+		public double t;
+
+		/**
+		 * Barycentric coordinates of the hit: the weights of the triangle's
+		 * second and third vertex.
+		 */
+		public double u, v;
+	}
+
+	// -- Helper methods --
+
+	private boolean intersect(final double ox, final double oy, final double oz,
+		final double dx, final double dy, final double dz, final double tMax,
+		final Hit hit, int[] stack)
+	{
+		if (nodes.length == 0) return false;
+		final double ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+		double best = tMax;
+		int bestPrimitive = -1;
+		double bestU = 0, bestV = 0;
+		int sp = 0;
+		stack[sp++] = 0;
+		while (sp > 0) {
+			final int node = stack[--sp];
+			if (rayBox(node, ox, oy, oz, ix, iy, iz, best) == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			final int count = nodes[2 * node + 1];
+			if (count > 0) {
+				final int first = nodes[2 * node];
+				for (int p = first; p < first + count; p++) {
+					final int c = 9 * p;
+					// Moeller-Trumbore.
+					final double e1x = coords[c + 3] - coords[c], e1y = coords[c + 4] -
+						coords[c + 1], e1z = coords[c + 5] - coords[c + 2];
+					final double e2x = coords[c + 6] - coords[c], e2y = coords[c + 7] -
+						coords[c + 1], e2z = coords[c + 8] - coords[c + 2];
+					final double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z,
+							pz = dx * e2y - dy * e2x;
+					final double det = e1x * px + e1y * py + e1z * pz;
+					if (det == 0) continue;
+					final double inv = 1 / det;
+					final double sx = ox - coords[c], sy = oy - coords[c + 1], sz = oz -
+						coords[c + 2];
+					final double u = (sx * px + sy * py + sz * pz) * inv;
+					if (u < 0 || u > 1) continue;
+					final double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z,
+							qz = sx * e1y - sy * e1x;
+					final double v = (dx * qx + dy * qy + dz * qz) * inv;
+					if (v < 0 || u + v > 1) continue;
+					final double t = (e2x * qx + e2y * qy + e2z * qz) * inv;
+					if (t < 0 || t > best) continue;
+					best = t;
+					bestPrimitive = p;
+					bestU = u;
+					bestV = v;
+				}
+				continue;
+			}
+			// Visit the nearer child first.
+			final int left = node + 1, right = nodes[2 * node];
+			final double tLeft = rayBox(left, ox, oy, oz, ix, iy, iz, best);
+			final double tRight = rayBox(right, ox, oy, oz, ix, iy, iz, best);
+			if (sp + 2 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+			if (tLeft <= tRight) {
+				if (tRight != Double.POSITIVE_INFINITY) stack[sp++] = right;
+				if (tLeft != Double.POSITIVE_INFINITY) stack[sp++] = left;
+			}
+			else {
+				if (tLeft != Double.POSITIVE_INFINITY) stack[sp++] = left;
+				stack[sp++] = right;
+			}
+		}
+		if (bestPrimitive < 0) return false;
+		hit.triangle = triangles[bestPrimitive];
+		hit.t = best;
+		hit.u = bestU;
+		hit.v = bestV;
+		return true;
+	}
+
+	/**
+	 * Entry parameter of a ray into a node's box, or infinity if the ray misses
+	 * it before {@code tMax}.
+	 */
+	private double rayBox(final int node, final double ox, final double oy,
+		final double oz, final double ix, final double iy, final double iz,
+		final double tMax)
+	{
+		final int b = 6 * node;
+		double t0 = 0, t1 = tMax;
+		double near = (bounds[b] - ox) * ix, far = (bounds[b + 3] - ox) * ix;
+		// NB: NaN (0 * infinity) comparisons are false, keeping t0 and t1.
+		if (near > far) {
+			final double tmp = near;
+			near = far;
+			far = tmp;
+		}
+		if (near > t0) t0 = near;
+		if (far < t1) t1 = far;
+		near = (bounds[b + 1] - oy) * iy;
+		far = (bounds[b + 4] - oy) * iy;
+		if (near > far) {
+			final double tmp = near;
+			near = far;
+			far = tmp;
+		}
+		if (near > t0) t0 = near;
+		if (far < t1) t1 = far;
+		near = (bounds[b + 2] - oz) * iz;
+		far = (bounds[b + 5] - oz) * iz;
+		if (near > far) {
+			final double tmp = near;
+			near = far;
+			far = tmp;
+		}
+		if (near > t0) t0 = near;
+		if (far < t1) t1 = far;
+		return t0 <= t1 ? t0 : Double.POSITIVE_INFINITY;
+	}
+
+	private void distances(final double[] points, final double[] distances,
+		final boolean signed)
+	{
+		if (signed) pseudonormals();
+		final int count = distances.length;
+		batches(count).forEach(b -> {
+			final Query query = new Query();
+			for (int i = b * BATCH_SIZE; i < Math.min(count, (b + 1) *
+				BATCH_SIZE); i++)
+			{
+				final double x = points[3 * i], y = points[3 * i + 1], z = points[3 *
+					i + 2];
+				distances[i] = signed ? query.signedDistance(x, y, z) : query.distance(
+					x, y, z);
+			}
+		});
+	}
+
+	private static IntStream batches(final int count) {
+		return IntStream.range(0, (count + BATCH_SIZE - 1) / BATCH_SIZE)
+			.parallel();
+	}
+
+	private Pseudonormals pseudonormals() {
+		Pseudonormals result = pseudonormals;
+		if (result == null) {
+			synchronized (this) {
+				result = pseudonormals;
+				if (result == null) pseudonormals = result = new Pseudonormals();
+			}
+		}
+		return result;
+	}
+
+	/** Squared distance from a point to a node's box; 0 inside. */
+	private double boxDistanceSquared(final int node, final double x,
+		final double y, final double z)
+	{
+		final int b = 6 * node;
+		final double dx = Math.max(0, Math.max(bounds[b] - x, x - bounds[b + 3]));
+		final double dy = Math.max(0, Math.max(bounds[b + 1] - y, y - bounds[b +
+			4]));
+		final double dz = Math.max(0, Math.max(bounds[b + 2] - z, z - bounds[b +
+			5]));
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/** Writes a subtree in depth-first order, returning the next free node. */
+	private int flatten(final Node node, final int index) {
+		System.arraycopy(node.bounds, 0, bounds, 6 * index, 6);
+		if (node.left == null) {
+			nodes[2 * index] = node.start;
+			nodes[2 * index + 1] = node.count;
+			return index + 1;
+		}
+		final int right = flatten(node.left, index + 1);
+		nodes[2 * index] = right;
+		nodes[2 * index + 1] = 0;
+		return flatten(node.right, right);
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Per-query state of a closest point search, reused across the points of a
+	 * batch. Not thread-safe.
+	 */
+	final class Query {
+
+		private int[] stack = new int[64];
+
+		/** Closest point so far, its squared distance, primitive and region. */
+		private double qx, qy, qz, distanceSquared;
+		private int primitive, region;
+
+		/** The query point. */
+		private double px, py, pz;
+
+		private Query() {}
+
+		double distance(final double x, final double y, final double z) {
+			return distance(x, y, z, Double.POSITIVE_INFINITY);
+		}
+
+		double signedDistance(final double x, final double y, final double z) {
+			return signedDistance(x, y, z, Double.POSITIVE_INFINITY);
+		}
+
+		/**
+		 * Distance from a point to the mesh, searching only up to the given
+		 * distance; infinite if the mesh is farther away. A tight bound makes the
+		 * search much faster.
+		 */
+		double distance(final double x, final double y, final double z,
+			final double maxDistance)
+		{
+			return closest(x, y, z, maxDistance) ? Math.sqrt(distanceSquared)
+				: Double.POSITIVE_INFINITY;
+		}
+
+		/**
+		 * Signed distance from a point to the mesh, searching only up to the
+		 * given distance; positive infinity if the mesh is farther away, whatever
+		 * the side of the point.
+		 */
+		double signedDistance(final double x, final double y, final double z,
+			final double maxDistance)
+		{
+			if (!closest(x, y, z, maxDistance)) return Double.POSITIVE_INFINITY;
+			final double distance = Math.sqrt(distanceSquared);
+			return pseudonormals().dot(primitive, region, px - qx, py - qy, pz -
+				qz) < 0 ? -distance : distance;
+		}
+
+		/**
+		 * The triangle, in internal order, closest to the point of the last
+		 * successful search.
+		 */
+		int primitive() {
+			return primitive;
+		}
+
+		/**
+		 * Distance from a point to one triangle, in internal order, as returned
+		 * by {@link #primitive()}. This is a cheap upper bound for searching
+		 * nearby points.
+		 */
+		double distanceTo(final int p, final double x, final double y,
+			final double z)
+		{
+			px = x;
+			py = y;
+			pz = z;
+			distanceSquared = Double.POSITIVE_INFINITY;
+			closestOnTriangle(p);
+			return Math.sqrt(distanceSquared);
+		}
+
+		/**
+		 * Signed distance from a point to one triangle, in internal order. This
+		 * is the signed distance to the mesh if the triangle is closest.
+		 */
+		double signedDistanceTo(final int p, final double x, final double y,
+			final double z)
+		{
+			final double distance = distanceTo(p, x, y, z);
+			return pseudonormals().dot(p, region, px - qx, py - qy, pz - qz) < 0
+				? -distance : distance;
+		}
+
+		private boolean closest(final double x, final double y, final double z) {
+			return closest(x, y, z, Double.POSITIVE_INFINITY);
+		}
+
+		/**
+		 * Finds the closest point within the given distance; false if there is
+		 * none.
+		 */
+		private boolean closest(final double x, final double y, final double z,
+			final double maxDistance)
+		{
+			px = x;
+			py = y;
+			pz = z;
+			// NB: Candidates must be strictly closer, so admit the bound itself.
+			distanceSquared = Math.nextUp(maxDistance * maxDistance);
+			primitive = -1;
+			if (nodes.length == 0) return false;
+			int sp = 0;
+			stack[sp++] = 0;
+			while (sp > 0) {
+				final int node = stack[--sp];
+				if (boxDistanceSquared(node, x, y, z) >= distanceSquared) continue;
+				final int count = nodes[2 * node + 1];
+				if (count > 0) {
+					final int first = nodes[2 * node];
+					for (int p = first; p < first + count; p++)
+						closestOnTriangle(p);
+					continue;
+				}
+				// Visit the nearer child first.
+				final int left = node + 1, right = nodes[2 * node];
+				final double dLeft = boxDistanceSquared(left, x, y, z);
+				final double dRight = boxDistanceSquared(right, x, y, z);
+				if (sp + 2 > stack.length) stack = Arrays.copyOf(stack, 2 *
+					stack.length);
+				if (dLeft <= dRight) {
+					stack[sp++] = right;
+					stack[sp++] = left;
+				}
+				else {
+					stack[sp++] = left;
+					stack[sp++] = right;
+				}
+			}
+			return primitive >= 0;
+		}
+
+		/**
+		 * Updates the closest point with the given triangle. After Ericson,
+		 * Real-Time Collision Detection, section 5.1.5, also recording which
+		 * feature of the triangle is closest.
+		 */
+		private void closestOnTriangle(final int p) {
+			final int c = 9 * p;
+			final double ax = coords[c], ay = coords[c + 1], az = coords[c + 2];
+			final double bx = coords[c + 3], by = coords[c + 4], bz = coords[c + 5];
+			final double cx = coords[c + 6], cy = coords[c + 7], cz = coords[c + 8];
+			final double abx = bx - ax, aby = by - ay, abz = bz - az;
+			final double acx = cx - ax, acy = cy - ay, acz = cz - az;
+			final double apx = px - ax, apy = py - ay, apz = pz - az;
+			final double d1 = abx * apx + aby * apy + abz * apz;
+			final double d2 = acx * apx + acy * apy + acz * apz;
+			if (d1 <= 0 && d2 <= 0) {
+				candidate(p, Pseudonormals.VERTEX_A, ax, ay, az);
+				return;
+			}
+			final double bpx = px - bx, bpy = py - by, bpz = pz - bz;
+			final double d3 = abx * bpx + aby * bpy + abz * bpz;
+			final double d4 = acx * bpx + acy * bpy + acz * bpz;
+			if (d3 >= 0 && d4 <= d3) {
+				candidate(p, Pseudonormals.VERTEX_B, bx, by, bz);
+				return;
+			}
+			final double vc = d1 * d4 - d3 * d2;
+			if (vc <= 0 && d1 >= 0 && d3 <= 0) {
+				final double v = d1 / (d1 - d3);
+				candidate(p, Pseudonormals.EDGE_AB, ax + v * abx, ay + v * aby, az +
+					v * abz);
+				return;
+			}
+			final double cpx = px - cx, cpy = py - cy, cpz = pz - cz;
+			final double d5 = abx * cpx + aby * cpy + abz * cpz;
+			final double d6 = acx * cpx + acy * cpy + acz * cpz;
+			if (d6 >= 0 && d5 <= d6) {
+				candidate(p, Pseudonormals.VERTEX_C, cx, cy, cz);
+				return;
+			}
+			final double vb = d5 * d2 - d1 * d6;
+			if (vb <= 0 && d2 >= 0 && d6 <= 0) {
+				final double w = d2 / (d2 - d6);
+				candidate(p, Pseudonormals.EDGE_CA, ax + w * acx, ay + w * acy, az +
+					w * acz);
+				return;
+			}
+			final double va = d3 * d6 - d5 * d4;
+			if (va <= 0 && (d4 - d3) >= 0 && (d5 - d6) >= 0) {
+				final double w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+				candidate(p, Pseudonormals.EDGE_BC, bx + w * (cx - bx), by + w * (cy -
+					by), bz + w * (cz - bz));
+				return;
+			}
+			final double denom = 1 / (va + vb + vc);
+			final double v = vb * denom, w = vc * denom;
+			candidate(p, Pseudonormals.FACE, ax + abx * v + acx * w, ay + aby * v +
+				acy * w, az + abz * v + acz * w);
+		}
+
+		private void candidate(final int p, final int feature, final double x,
+			final double y, final double z)
+		{
+			final double dx = px - x, dy = py - y, dz = pz - z;
+			final double d2 = dx * dx + dy * dy + dz * dz;
+			if (d2 >= distanceSquared) return;
+			distanceSquared = d2;
+			primitive = p;
+			region = feature;
+			qx = x;
+			qy = y;
+			qz = z;
+		}
+	}
+
+	/**
+	 * Angle-weighted pseudonormals of the mesh's faces, edges and vertices,
+	 * after Baerentzen and Aanaes, "Signed distance computation using the
+	 * angle weighted pseudonormal", IEEE TVCG 11(3), 2005. They are computed
+	 * from the copied {@link #coords}, with coincident triangle corners merged
+	 * into one vertex, so they match the hierarchy even if the mesh changed.
+	 */
+	private final class Pseudonormals {
+
+		private static final int FACE = 0;
+		private static final int VERTEX_A = 1, VERTEX_B = 2, VERTEX_C = 3;
+		private static final int EDGE_AB = 4, EDGE_BC = 5, EDGE_CA = 6;
+
+		/** Unit normal of each triangle, in leaf order. */
+		private final float[] faceNormals;
+
+		/** Pseudonormal of each representative corner. */
+		private final float[] vertexNormals;
+
+		private final Adjacency adjacency;
+
+		private Pseudonormals() {
+			// NB: Corner c of the triangles is at coords[3 * c], so the
+			// representative corners serve as vertex indices.
+			final int[] indices = CoincidentVertices.representatives(coords);
+			adjacency = new Adjacency(indices.length, indices);
+
+			faceNormals = new float[3 * triangleCount];
+			IntStream.range(0, triangleCount).parallel().forEach(t -> {
+				final double[] n = normal(indices, t);
+				final double length = Math.sqrt(n[0] * n[0] + n[1] * n[1] + n[2] *
+					n[2]);
+				if (length == 0) return;
+				for (int d = 0; d < 3; d++)
+					faceNormals[3 * t + d] = (float) (n[d] / length);
+			});
+
+			vertexNormals = new float[3 * indices.length];
+			IntStream.range(0, indices.length).parallel().forEach(v -> {
+				double nx = 0, ny = 0, nz = 0;
+				for (int i = 0; i < adjacency.triangleCount(v); i++) {
+					final int t = adjacency.triangle(v, i);
+					final double angle = angle(indices, t, v);
+					nx += angle * faceNormals[3 * t];
+					ny += angle * faceNormals[3 * t + 1];
+					nz += angle * faceNormals[3 * t + 2];
+				}
+				vertexNormals[3 * v] = (float) nx;
+				vertexNormals[3 * v + 1] = (float) ny;
+				vertexNormals[3 * v + 2] = (float) nz;
+			});
+		}
+
+		/** Dot product of a vector with the pseudonormal of a feature. */
+		private double dot(final int t, final int feature, final double x,
+			final double y, final double z)
+		{
+			switch (feature) {
+				case VERTEX_A:
+				case VERTEX_B:
+				case VERTEX_C:
+					final int v = 3 * adjacency.vertex(t, feature - VERTEX_A);
+					return x * vertexNormals[v] + y * vertexNormals[v + 1] + z *
+						vertexNormals[v + 2];
+				case EDGE_AB:
+				case EDGE_BC:
+				case EDGE_CA:
+					final int twin = adjacency.halfEdges().twin(3 * t + feature -
+						EDGE_AB);
+					final int other = twin < 0 ? t : Adjacency.triangleOf(twin);
+					return faceDot(t, x, y, z) + faceDot(other, x, y, z);
+				default:
+					return faceDot(t, x, y, z);
+			}
+		}
+
+		private double faceDot(final int t, final double x, final double y,
+			final double z)
+		{
+			return x * faceNormals[3 * t] + y * faceNormals[3 * t + 1] + z *
+				faceNormals[3 * t + 2];
+		}
+
+		private double[] normal(final int[] indices, final int t) {
+			final int a = 3 * indices[3 * t], b = 3 * indices[3 * t + 1], c = 3 *
+				indices[3 * t + 2];
+			final double abx = coords[b] - coords[a], aby = coords[b + 1] -
+				coords[a + 1], abz = coords[b + 2] - coords[a + 2];
+			final double acx = coords[c] - coords[a], acy = coords[c + 1] -
+				coords[a + 1], acz = coords[c + 2] - coords[a + 2];
+			return new double[] { aby * acz - abz * acy, abz * acx - abx * acz, abx *
+				acy - aby * acx };
+		}
+
+		/** Interior angle of a triangle at one of its corners. */
+		private double angle(final int[] indices, final int t, final int v) {
+			int k = 0;
+			while (indices[3 * t + k] != v)
+				k++;
+			final int a = 3 * v;
+			final int b = 3 * indices[3 * t + (k + 1) % 3];
+			final int c = 3 * indices[3 * t + (k + 2) % 3];
+			final double ux = coords[b] - coords[a], uy = coords[b + 1] - coords[a +
+				1], uz = coords[b + 2] - coords[a + 2];
+			final double wx = coords[c] - coords[a], wy = coords[c + 1] - coords[a +
+				1], wz = coords[c + 2] - coords[a + 2];
+			final double cx = uy * wz - uz * wy, cy = uz * wx - ux * wz, cz = ux *
+				wy - uy * wx;
+			return Math.atan2(Math.sqrt(cx * cx + cy * cy + cz * cz), ux * wx + uy *
+				wy + uz * wz);
+		}
+	}
+
+	/** Node of the hierarchy while it is being built. */
+	private static final class Node {
+
+		private final float[] bounds;
+		private final int start, count;
+		private Node left, right;
+
+		private Node(final float[] bounds, final int start, final int count) {
+			this.bounds = bounds;
+			this.start = start;
+			this.count = count;
+		}
+
+		/** Number of nodes in the subtree. */
+		private int size() {
+			return left == null ? 1 : 1 + left.size() + right.size();
+		}
+	}
+
+	/**
+	 * Builds the subtree over a range of {@link #triangles}. The bounding box of
+	 * each triangle is kept next to its index, and moved along with it while
+	 * partitioning, so that each level reads its range sequentially.
+	 */
+	private final class Build extends RecursiveTask<Node> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final float[] boxes;
+		private final int start, end;
+
+		private Build(final float[] boxes, final int start, final int end) {
+			this.boxes = boxes;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Node compute() {
+			final int count = end - start;
+			// NB: Centroids are box centers, scaled by 2 to save the division.
+			final float[] box = emptyBox();
+			final float[] centroidBox = emptyBox();
+			for (int i = start; i < end; i++) {
+				merge(box, boxes, 6 * i);
+				for (int d = 0; d < 3; d++) {
+					final float c = boxes[6 * i + d] + boxes[6 * i + d + 3];
+					if (c < centroidBox[d]) centroidBox[d] = c;
+					if (c > centroidBox[d + 3]) centroidBox[d + 3] = c;
+				}
+			}
+			final Node node = new Node(box, start, count);
+			if (count <= MIN_SPLIT_SIZE) return node;
+
+			// Bin the triangles along all axes at once.
+			final int[] binCounts = new int[3 * BINS];
+			final float[] binBoxes = new float[18 * BINS];
+			for (int b = 0; b < 3 * BINS; b++) {
+				Arrays.fill(binBoxes, 6 * b, 6 * b + 3, Float.POSITIVE_INFINITY);
+				Arrays.fill(binBoxes, 6 * b + 3, 6 * b + 6, Float.NEGATIVE_INFINITY);
+			}
+			final float[] scale = new float[3];
+			for (int axis = 0; axis < 3; axis++)
+				scale[axis] = scale(centroidBox, axis);
+			for (int i = start; i < end; i++) {
+				for (int axis = 0; axis < 3; axis++) {
+					final int b = axis * BINS + bin(boxes[6 * i + axis] + boxes[6 * i +
+						axis + 3], centroidBox[axis], scale[axis]);
+					binCounts[b]++;
+					merge(binBoxes, 6 * b, boxes, 6 * i);
+				}
+			}
+
+			// Evaluate the SAH at the bin boundaries along each axis, sweeping
+			// from the left, then from the right.
+			double bestCost = Double.POSITIVE_INFINITY;
+			int bestAxis = -1, bestSplit = -1;
+			final double[] leftCost = new double[BINS];
+			final float[] sweep = new float[6];
+			for (int axis = 0; axis < 3; axis++) {
+				if (scale[axis] == 0) continue;
+				System.arraycopy(emptyBox(), 0, sweep, 0, 6);
+				int n = 0;
+				for (int b = 0; b < BINS - 1; b++) {
+					n += binCounts[axis * BINS + b];
+					merge(sweep, 0, binBoxes, 6 * (axis * BINS + b));
+					leftCost[b] = n == 0 ? 0 : n * area(sweep);
+				}
+				System.arraycopy(emptyBox(), 0, sweep, 0, 6);
+				n = 0;
+				for (int b = BINS - 1; b > 0; b--) {
+					n += binCounts[axis * BINS + b];
+					merge(sweep, 0, binBoxes, 6 * (axis * BINS + b));
+					if (n == 0 || n == count) continue;
+					final double cost = leftCost[b - 1] + n * area(sweep);
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestAxis = axis;
+						bestSplit = b;
+					}
+				}
+			}
+			if (bestAxis < 0) return node;
+			// NB: Relative to a leaf, intersecting one triangle costs as much as
+			// traversing one node.
+			final double area = area(box);
+			final double splitCost = 1 + (area > 0 ? bestCost / area : 0);
+			if (count <= MAX_LEAF_SIZE && splitCost >= count) return node;
+
+			// Partition the triangles by bin.
+			int i = start, j = end - 1;
+			while (i <= j) {
+				if (bin(boxes[6 * i + bestAxis] + boxes[6 * i + bestAxis + 3],
+					centroidBox[bestAxis], scale[bestAxis]) < bestSplit) i++;
+				else swap(i, j--);
+			}
+			final Build left = new Build(boxes, start, i);
+			final Build right = new Build(boxes, i, end);
+			if (count > PARALLEL_SIZE) {
+				left.fork();
+				node.right = right.compute();
+				node.left = left.join();
+			}
+			else {
+				node.left = left.compute();
+				node.right = right.compute();
+			}
+			return node;
+		}
+
+		private void swap(final int i, final int j) {
+			final int t = triangles[i];
+			triangles[i] = triangles[j];
+			triangles[j] = t;
+			for (int d = 0; d < 6; d++) {
+				final float tmp = boxes[6 * i + d];
+				boxes[6 * i + d] = boxes[6 * j + d];
+				boxes[6 * j + d] = tmp;
+			}
+		}
+	}
+
+	/** Factor mapping centroids along an axis to bins; 0 if all are equal. */
+	private static float scale(final float[] centroidBox, final int axis) {
+		final float extent = centroidBox[axis + 3] - centroidBox[axis];
+		return extent > 0 ? BINS / extent : 0;
+	}
+
+	private static int bin(final float value, final float min,
+		final float scale)
+	{
+		return Math.min(BINS - 1, (int) ((value - min) * scale));
+	}
+
+	private static float[] emptyBox() {
+		return new float[] { Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+			Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY,
+			Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY };
+	}
+
+	private static void merge(final float[] box, final float[] boxes,
+		final int b)
+	{
+		merge(box, 0, boxes, b);
+	}
+
+	private static void merge(final float[] target, final int a,
+		final float[] boxes, final int b)
+	{
+		for (int d = 0; d < 3; d++) {
+			if (boxes[b + d] < target[a + d]) target[a + d] = boxes[b + d];
+			if (boxes[b + d + 3] > target[a + d + 3]) target[a + d + 3] = boxes[b +
+				d + 3];
+		}
+	}
+
+	/** Half the surface area of a box; 0 if it is empty. */
+	private static double area(final float[] box) {
+		final double dx = box[3] - box[0], dy = box[4] - box[1], dz = box[5] -
+			box[2];
+		if (!(dx >= 0)) return 0;
+		return dx * dy + dy * dz + dz * dx;
+	}
+}
@@ -0,0 +1,127 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Finds vertices at exactly the same position, such as the copies of each
+ * corner emitted by marching cubes, using a lock-free open addressing hash
+ * table of vertex indices filled in parallel.
+ */
+class CoincidentVertices {
+
+	private CoincidentVertices() {
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Maps each vertex to a representative vertex at the same position. All
+	 * vertices at one position share the same representative, which maps to
+	 * itself.
+	 *
+	 * @throws IllegalArgumentException If there are too many vertices.
+	 */
+	static int[] representatives(final Vertices vertices) {
+		if (vertices.size() >= 1 << 30) {
+			throw new IllegalArgumentException(
+				"Too many vertices to find coincident ones: " + vertices.size());
+		}
+		return representatives((int) vertices.size(), vertices::xf,
+			vertices::yf, vertices::zf);
+	}
+
+	/**
+	 * Maps each vertex to a representative vertex at the same position, as
+	 * {@link #representatives(Vertices)} does, for vertex positions given as
+	 * x, y, z triples.
+	 *
+	 * @throws IllegalArgumentException If there are too many vertices.
+	 */
+	static int[] representatives(final float[] positions) {
+		if (positions.length / 3 >= 1 << 30) {
+			throw new IllegalArgumentException(
+				"Too many vertices to find coincident ones: " + positions.length / 3);
+		}
+		return representatives(positions.length / 3, v -> positions[3 * v],
+			v -> positions[3 * v + 1], v -> positions[3 * v + 2]);
+	}
+
+	// -- Helper methods --
+
+	private static int[] representatives(final int vertexCount,
+		final Coordinate xs, final Coordinate ys, final Coordinate zs)
+	{
+		final int capacity = Integer.highestOneBit(Math.max(2, 2 * vertexCount -
+			1)) << 1;
+		final int mask = capacity - 1;
+		final AtomicIntegerArray table = new AtomicIntegerArray(capacity);
+		IntStream.range(0, capacity).parallel().forEach(i -> table.set(i, -1));
+		final int[] representatives = new int[vertexCount];
+		IntStream.range(0, vertexCount).parallel().forEach(v -> {
+			// NB: Adding 0 turns -0 into +0, which compares equal anyway.
+			final float x = xs.get(v) + 0f, y = ys.get(v) + 0f, z = zs.get(v) + 0f;
+			int slot = hash(x, y, z) & mask;
+			while (true) {
+				final int other = table.get(slot);
+				if (other < 0) {
+					if (!table.compareAndSet(slot, -1, v)) continue;
+					representatives[v] = v;
+					return;
+				}
+				if (xs.get(other) == x && ys.get(other) == y && zs.get(other) == z) {
+					representatives[v] = other;
+					return;
+				}
+				slot = (slot + 1) & mask;
+			}
+		});
+		return representatives;
+	}
+
+	private static int hash(final float x, final float y, final float z) {
+		int h = Float.floatToIntBits(x);
+		h = 31 * h + Float.floatToIntBits(y);
+		h = 31 * h + Float.floatToIntBits(z);
+		// NB: Spread the bits, since only the lowest ones select the slot.
+		h *= 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+	// -- Helper classes --
+
+	/** One coordinate of each vertex. */
+	private interface Coordinate {
+
+		float get(int v);
+	}
+}
@@ -0,0 +1,243 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+import net.imagej.mesh.nio.BufferMesh;
+
+/**
+ * Splits a mesh into its connected components: sets of triangles linked
+ * through shared vertices, and optionally through distinct vertices at the
+ * same position, as emitted by marching cubes.
+ * <p>
+ * Uses a lock-free union-find over vertex indices, which is updated from all
+ * triangles (and all {@link CoincidentVertices}) in parallel. Memory use is a few {@code int}s per vertex and
+ * triangle, without any per-vertex objects.
+ * </p>
+ */
+class ConnectedComponents {
+
+	private final Mesh mesh;
+	private final int vertexCount;
+	private final int triangleCount;
+
+	/** Union-find forest; each root is the smallest vertex of its set. */
+	private final AtomicIntegerArray parents;
+
+	private ConnectedComponents(final Mesh mesh) {
+		this.mesh = mesh;
+		vertexCount = checkedSize(mesh.vertices().size(), "vertices");
+		triangleCount = checkedSize(mesh.triangles().size(), "triangles");
+		parents = new AtomicIntegerArray(vertexCount);
+		IntStream.range(0, vertexCount).parallel().forEach(v -> parents.set(v, v));
+	}
+
+	/**
+	 * Labels the triangles of a mesh by connected component. Components are
+	 * numbered consecutively from 0, in the order of their smallest vertex
+	 * index.
+	 *
+	 * @param mesh The mesh to label.
+	 * @param mergeCoincident Whether distinct vertices at exactly the same
+	 *          position connect their triangles.
+	 * @return The component of each triangle.
+	 */
+	static int[] label(final Mesh mesh, final boolean mergeCoincident) {
+		return new ConnectedComponents(mesh).label(mergeCoincident);
+	}
+
+	/**
+	 * Splits a mesh into one mesh per connected component, ordered as by
+	 * {@link #label}. Each component keeps the normals and texture coordinates
+	 * of its vertices and the normals of its triangles.
+	 */
+	static List<Mesh> split(final Mesh mesh, final boolean mergeCoincident) {
+		final int[] labels = label(mesh, mergeCoincident);
+		final int count = IntStream.of(labels).max().orElse(-1) + 1;
+
+		// Sort the triangles by component.
+		final int[] offsets = new int[count + 1];
+		for (final int label : labels)
+			offsets[label + 1]++;
+		for (int c = 0; c < count; c++)
+			offsets[c + 1] += offsets[c];
+		final int[] order = new int[labels.length];
+		final int[] cursors = offsets.clone();
+		for (int t = 0; t < labels.length; t++)
+			order[cursors[labels[t]]++] = t;
+
+		// NB: Each vertex is in exactly one component, so the components can
+		// renumber their vertices in parallel within one shared array.
+		final Vertices vertices = mesh.vertices();
+		final Triangles triangles = mesh.triangles();
+		final int[] local = new int[(int) vertices.size()];
+		Arrays.fill(local, -1);
+		final Mesh[] components = new Mesh[count];
+		IntStream.range(0, count).parallel().forEach(c -> {
+			int vCount = 0;
+			for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+				final int t = order[i];
+				vCount += claim(local, triangles.vertex0(t));
+				vCount += claim(local, triangles.vertex1(t));
+				vCount += claim(local, triangles.vertex2(t));
+			}
+			final Mesh component = new BufferMesh(vCount, offsets[c + 1] -
+				offsets[c]);
+			for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+				final int t = order[i];
+				final long v0 = copyVertex(local, vertices, component, triangles
+					.vertex0(t));
+				final long v1 = copyVertex(local, vertices, component, triangles
+					.vertex1(t));
+				final long v2 = copyVertex(local, vertices, component, triangles
+					.vertex2(t));
+				component.triangles().addf(v0, v1, v2, triangles.nxf(t), triangles
+					.nyf(t), triangles.nzf(t));
+			}
+			components[c] = component;
+		});
+		final List<Mesh> result = new ArrayList<>(count);
+		for (final Mesh component : components)
+			result.add(component);
+		return result;
+	}
+
+	// -- Helper methods --
+
+	private int[] label(final boolean mergeCoincident) {
+		final Triangles triangles = mesh.triangles();
+		IntStream.range(0, triangleCount).parallel().forEach(t -> {
+			final int v0 = vertexIndex(triangles.vertex0(t));
+			union(v0, vertexIndex(triangles.vertex1(t)));
+			union(v0, vertexIndex(triangles.vertex2(t)));
+		});
+		if (mergeCoincident) mergeCoincident();
+
+		// Number the roots in use consecutively.
+		final int[] labels = new int[triangleCount];
+		IntStream.range(0, triangleCount).parallel().forEach(t -> labels[t] = find(
+			(int) triangles.vertex0(t)));
+		final boolean[] used = new boolean[vertexCount];
+		for (final int root : labels)
+			used[root] = true;
+		final int[] ids = new int[vertexCount];
+		int next = 0;
+		for (int v = 0; v < vertexCount; v++)
+			if (used[v]) ids[v] = next++;
+		IntStream.range(0, triangleCount).parallel().forEach(t -> labels[t] =
+			ids[labels[t]]);
+		return labels;
+	}
+
+	/** Unites all vertices with equal positions. */
+	private void mergeCoincident() {
+		final int[] representatives = CoincidentVertices.representatives(mesh
+			.vertices());
+		IntStream.range(0, vertexCount).parallel().forEach(v -> {
+			if (representatives[v] != v) union(v, representatives[v]);
+		});
+	}
+
+	/** Finds the root of a vertex's set, halving the path on the way. */
+	private int find(int v) {
+		while (true) {
+			final int parent = parents.get(v);
+			if (parent == v) return v;
+			final int grandparent = parents.get(parent);
+			if (parent != grandparent) parents.compareAndSet(v, parent, grandparent);
+			v = grandparent;
+		}
+	}
+
+	/** Unites the sets of two vertices, linking the larger root below. */
+	private void union(final int a, final int b) {
+		int ra = find(a), rb = find(b);
+		while (ra != rb) {
+			if (ra < rb) {
+				final int tmp = ra;
+				ra = rb;
+				rb = tmp;
+			}
+			// NB: Only succeeds if ra is still a root; otherwise retry.
+			if (parents.compareAndSet(ra, ra, rb)) return;
+			ra = find(ra);
+			rb = find(rb);
+		}
+	}
+
+	private int vertexIndex(final long vIndex) {
+		if (vIndex < 0 || vIndex >= vertexCount) {
+			throw new IndexOutOfBoundsException("Invalid vertex index: " + vIndex);
+		}
+		return (int) vIndex;
+	}
+
+	/**
+	 * Marks a vertex as used by the component, to be copied later.
+	 *
+	 * @return 1 if the vertex was not marked yet, 0 otherwise.
+	 */
+	private static int claim(final int[] local, final long vIndex) {
+		if (local[(int) vIndex] >= 0) return 0;
+		local[(int) vIndex] = Integer.MAX_VALUE;
+		return 1;
+	}
+
+	/**
+	 * Copies a marked vertex into the component, replacing the mark with its
+	 * index there.
+	 *
+	 * @return The index of the vertex in the component.
+	 */
+	private static long copyVertex(final int[] local, final Vertices vertices,
+		final Mesh component, final long vIndex)
+	{
+		final int v = (int) vIndex;
+		if (local[v] == Integer.MAX_VALUE) {
+			local[v] = (int) component.vertices().addf(vertices.xf(v), vertices.yf(
+				v), vertices.zf(v), vertices.nxf(v), vertices.nyf(v), vertices.nzf(v),
+				vertices.uf(v), vertices.vf(v));
+		}
+		return local[v];
+	}
+
+	private static int checkedSize(final long size, final String what) {
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many " + what + ": " + size);
+		}
+		return (int) size;
+	}
+}
@@ -0,0 +1,278 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Classifies points as inside or outside of a closed mesh.
+ * <p>
+ * A coarse voxel grid over the mesh bounds is precomputed: cells overlapped by
+ * the bounding box of some triangle are marked as near the surface, and all
+ * other cells are wholly inside or outside. As the surface does not pass
+ * between such cells, one exact test classifies each connected region of them.
+ * Most points are then classified by a single grid lookup, and only points in
+ * cells near the surface need an exact signed distance query against the
+ * mesh's {@link BVH}.
+ * </p>
+ * <p>
+ * The mesh should be closed and consistently oriented with outward-facing
+ * triangles, as produced by {@link Meshes#marchingCubes}. Points exactly on
+ * the surface may be classified either way. Instances are immutable and safe
+ * to use from many threads.
+ * </p>
+ */
+public final class Containment {
+
+	/** Target number of grid cells per triangle. */
+	private static final int CELLS_PER_TRIANGLE = 4;
+
+	/** Maximum number of grid cells along each axis. */
+	private static final int MAX_CELLS = 1024;
+
+	/** Maximum total number of grid cells. */
+	private static final long MAX_GRID_SIZE = 1 << 23;
+
+	/** Number of points per task of the batched queries. */
+	private static final int BATCH_SIZE = 4096;
+
+	private static final byte UNKNOWN = 0, INSIDE = 1, OUTSIDE = 2, SURFACE = 3;
+
+	private final BVH bvh;
+
+	/** Grid origin, cell sizes and dimensions. */
+	private final double minX, minY, minZ;
+	private final double cellX, cellY, cellZ;
+	private final int nx, ny, nz;
+
+	/** One of {@link #INSIDE}, {@link #OUTSIDE} or {@link #SURFACE} per cell. */
+	private final byte[] cells;
+
+	private Containment(final BVH bvh) {
+		this.bvh = bvh;
+		final float[] box = bvh.bounds();
+		final double ex = box[3] - box[0], ey = box[4] - box[1], ez = box[5] -
+			box[2];
+		if (bvh.triangleCount() == 0 || !(ex > 0 && ey > 0 && ez > 0)) {
+			// NB: Nothing is enclosed, so no point is inside.
+			minX = minY = minZ = 0;
+			cellX = cellY = cellZ = 0;
+			nx = ny = nz = 0;
+			cells = new byte[0];
+			return;
+		}
+		// NB: Pad the bounds, so that points on the boundary fall into the grid.
+		final double pad = 1e-6 * Math.max(ex, Math.max(ey, ez));
+		minX = box[0] - pad;
+		minY = box[1] - pad;
+		minZ = box[2] - pad;
+		final double sx = ex + 2 * pad, sy = ey + 2 * pad, sz = ez + 2 * pad;
+		final double target = Math.min(MAX_GRID_SIZE, (double) CELLS_PER_TRIANGLE *
+			bvh.triangleCount());
+		double cell = Math.cbrt(sx * sy * sz / target);
+		cell = Math.max(cell, Math.max(sx, Math.max(sy, sz)) / MAX_CELLS);
+		nx = dimension(sx, cell);
+		ny = dimension(sy, cell);
+		nz = dimension(sz, cell);
+		cellX = sx / nx;
+		cellY = sy / ny;
+		cellZ = sz / nz;
+		cells = new byte[nx * ny * nz];
+
+		markSurface();
+		classifyRegions();
+	}
+
+	/** Prepares the classification of points against a mesh. */
+	public static Containment build(final Mesh mesh) {
+		return new Containment(BVH.build(mesh));
+	}
+
+	/**
+	 * Prepares the classification of points against the mesh of an existing
+	 * hierarchy.
+	 */
+	public static Containment build(final BVH bvh) {
+		return new Containment(bvh);
+	}
+
+	/** Whether the given point lies inside the mesh. */
+	public boolean contains(final double x, final double y, final double z) {
+		return contains(x, y, z, null);
+	}
+
+	/**
+	 * Classifies many points in parallel.
+	 *
+	 * @param points Three coordinates per point.
+	 * @return Whether each point lies inside the mesh.
+	 */
+	public boolean[] contains(final double[] points) {
+		final boolean[] inside = new boolean[points.length / 3];
+		contains(points, inside);
+		return inside;
+	}
+
+	/**
+	 * Classifies many points in parallel.
+	 *
+	 * @param points Three coordinates per point.
+	 * @param inside Receives whether each point lies inside the mesh.
+	 */
+	public void contains(final double[] points, final boolean[] inside) {
+		final int count = inside.length;
+		IntStream.range(0, (count + BATCH_SIZE - 1) / BATCH_SIZE).parallel()
+			.forEach(b -> {
+				final BVH.Query query = bvh.query();
+				for (int i = b * BATCH_SIZE; i < Math.min(count, (b + 1) *
+					BATCH_SIZE); i++)
+				{
+					inside[i] = contains(points[3 * i], points[3 * i + 1], points[3 * i +
+						2], query);
+				}
+			});
+	}
+
+	// -- Helper methods --
+
+	private boolean contains(final double x, final double y, final double z,
+		final BVH.Query query)
+	{
+		final int cx = (int) Math.floor((x - minX) / cellX);
+		final int cy = (int) Math.floor((y - minY) / cellY);
+		final int cz = (int) Math.floor((z - minZ) / cellZ);
+		// NB: Also rejects NaN coordinates, and the empty grid.
+		if (!(cx >= 0 && cx < nx && cy >= 0 && cy < ny && cz >= 0 && cz < nz)) {
+			return false;
+		}
+		switch (cells[(cz * ny + cy) * nx + cx]) {
+			case INSIDE:
+				return true;
+			case SURFACE:
+				return (query == null ? bvh.signedDistance(x, y, z) : query
+					.signedDistance(x, y, z)) < 0;
+			default:
+				return false;
+		}
+	}
+
+	/** Marks the cells overlapped by the bounding box of any triangle. */
+	private void markSurface() {
+		final float[] coords = bvh.coordinates();
+		// NB: Concurrent writes of the same value to a byte array are safe.
+		IntStream.range(0, bvh.triangleCount()).parallel().forEach(t -> {
+			double x0 = Double.POSITIVE_INFINITY, y0 = x0, z0 = x0;
+			double x1 = Double.NEGATIVE_INFINITY, y1 = x1, z1 = x1;
+			for (int k = 9 * t; k < 9 * t + 9; k += 3) {
+				x0 = Math.min(x0, coords[k]);
+				x1 = Math.max(x1, coords[k]);
+				y0 = Math.min(y0, coords[k + 1]);
+				y1 = Math.max(y1, coords[k + 1]);
+				z0 = Math.min(z0, coords[k + 2]);
+				z1 = Math.max(z1, coords[k + 2]);
+			}
+			// NB: Pad the boxes, so that rounding cannot leave any gap.
+			x0 -= 1e-3 * cellX;
+			y0 -= 1e-3 * cellY;
+			z0 -= 1e-3 * cellZ;
+			x1 += 1e-3 * cellX;
+			y1 += 1e-3 * cellY;
+			z1 += 1e-3 * cellZ;
+			final int ax = cell(x0, minX, cellX, nx), bx = cell(x1, minX, cellX, nx);
+			final int ay = cell(y0, minY, cellY, ny), by = cell(y1, minY, cellY, ny);
+			final int az = cell(z0, minZ, cellZ, nz), bz = cell(z1, minZ, cellZ, nz);
+			for (int z = az; z <= bz; z++) {
+				for (int y = ay; y <= by; y++) {
+					final int row = (z * ny + y) * nx;
+					for (int x = ax; x <= bx; x++)
+						cells[row + x] = SURFACE;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Classifies the cells away from the surface. The surface does not pass
+	 * between two such neighboring cells, so each face-connected region of them
+	 * lies on one side of it: an exact test at one of its cells classifies the
+	 * whole region, which is then flood filled. Regions are seeded in scan
+	 * order, so that the seed lies at their border, where the closest point
+	 * search is fast.
+	 */
+	private void classifyRegions() {
+		final BVH.Query query = bvh.query();
+		final int planeSize = nx * ny;
+		int[] stack = new int[1024];
+		for (int seed = 0; seed < cells.length; seed++) {
+			if (cells[seed] != UNKNOWN) continue;
+			final int sx = seed % nx, sy = seed / nx % ny, sz = seed / planeSize;
+			final byte side = query.signedDistance(minX + (sx + 0.5) * cellX, minY +
+				(sy + 0.5) * cellY, minZ + (sz + 0.5) * cellZ) < 0 ? INSIDE : OUTSIDE;
+			cells[seed] = side;
+			int sp = 0;
+			stack[sp++] = seed;
+			while (sp > 0) {
+				final int c = stack[--sp];
+				if (sp + 6 > stack.length) stack = Arrays.copyOf(stack, 2 *
+					stack.length);
+				final int x = c % nx, y = c / nx % ny, z = c / planeSize;
+				if (x > 0 && cells[c - 1] == UNKNOWN) stack[sp++] = fill(c - 1, side);
+				if (x < nx - 1 && cells[c + 1] == UNKNOWN) stack[sp++] = fill(c + 1,
+					side);
+				if (y > 0 && cells[c - nx] == UNKNOWN) stack[sp++] = fill(c - nx,
+					side);
+				if (y < ny - 1 && cells[c + nx] == UNKNOWN) stack[sp++] = fill(c + nx,
+					side);
+				if (z > 0 && cells[c - planeSize] == UNKNOWN) stack[sp++] = fill(c -
+					planeSize, side);
+				if (z < nz - 1 && cells[c + planeSize] == UNKNOWN) stack[sp++] = fill(
+					c + planeSize, side);
+			}
+		}
+	}
+
+	private int fill(final int cell, final byte side) {
+		cells[cell] = side;
+		return cell;
+	}
+
+	private static int dimension(final double size, final double cell) {
+		return (int) Math.max(1, Math.min(MAX_CELLS, Math.ceil(size / cell)));
+	}
+
+	private static int cell(final double value, final double min,
+		final double size, final int n)
+	{
+		return Math.max(0, Math.min(n - 1, (int) Math.floor((value - min) /
+			size)));
+	}
+}
@@ -0,0 +1,601 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+
+/**
+ * Computes the convex hull of a point cloud, or of the vertices of a mesh, by
+ * quickhull.
+ * <p>
+ * Before the hull proper, points are culled in parallel against the convex
+ * polytope spanned by the extreme points along the axes and diagonals: an
+ * octahedron, refined by the corners of the bounding box. Points strictly
+ * inside of it cannot be hull vertices. For large inputs and with more than
+ * one thread, the remaining points are then reduced divide-and-conquer style:
+ * the hulls of chunks are computed in parallel, and only their vertices are
+ * passed on to the hull of their union.
+ * </p>
+ * <p>
+ * Points within a small tolerance of a face count as inside, so coplanar
+ * points do not become hull vertices. Inputs with fewer than four points not
+ * in a common plane have no volume, and yield an empty mesh.
+ * </p>
+ */
+class ConvexHull {
+
+	/** Inputs with more points than this are culled first. */
+	private static final int FILTER_SIZE = 1 << 8;
+
+	/** Chunks of at most this many points are reduced sequentially. */
+	private static final int PARALLEL_SIZE = 1 << 16;
+
+	/** Number of points per chunk when searching the extreme points. */
+	private static final int CHUNK_SIZE = 1 << 14;
+
+	/**
+	 * Number of directions of the extreme points spanning the culling
+	 * polytope: the axes and the diagonals, both ways.
+	 */
+	private static final int DIRECTIONS = 14;
+
+	private ConvexHull() {
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Computes the convex hull of the vertices of a mesh.
+	 *
+	 * @param mesh Source mesh; its triangles are ignored.
+	 * @return a new mesh of outward-oriented hull triangles
+	 */
+	static Mesh calculate(final Mesh mesh) {
+		final Vertices vertices = mesh.vertices();
+		// NB: Marching cubes emits each vertex several times; hull each once.
+		final int[] representatives = CoincidentVertices.representatives(
+			vertices);
+		final int[] unique = IntStream.range(0, representatives.length).filter(
+			v -> representatives[v] == v).toArray();
+		final double[] points = new double[3 * unique.length];
+		IntStream.range(0, unique.length).parallel().forEach(i -> {
+			points[3 * i] = vertices.x(unique[i]);
+			points[3 * i + 1] = vertices.y(unique[i]);
+			points[3 * i + 2] = vertices.z(unique[i]);
+		});
+		return calculate(points);
+	}
+
+	/**
+	 * Computes the convex hull of a point cloud.
+	 *
+	 * @param points Three coordinates per point
+	 * @return a new mesh of outward-oriented hull triangles
+	 */
+	static Mesh calculate(final double[] points) {
+		final int count = points.length / 3;
+		final Extremes extremes = extremes(points);
+		final double tolerance = extremes.tolerance();
+		int[] candidates = count > FILTER_SIZE ? //
+			cull(points, extremes, tolerance) : IntStream.range(0, count).toArray();
+		if (candidates.length > PARALLEL_SIZE && ForkJoinPool
+			.getCommonPoolParallelism() > 1)
+		{
+			candidates = ForkJoinPool.commonPool().invoke(new Reduce(points,
+				candidates, tolerance, 0, candidates.length));
+		}
+		final Hull hull = new Hull(points, candidates, tolerance);
+		hull.compute();
+		return hull.toMesh();
+	}
+
+	// -- Helper methods --
+
+	/** Finds the extreme points, in parallel chunks merged in order. */
+	private static Extremes extremes(final double[] points) {
+		final int count = points.length / 3;
+		final Extremes[] chunks = new Extremes[(count + CHUNK_SIZE - 1) /
+			CHUNK_SIZE];
+		IntStream.range(0, chunks.length).parallel().forEach(c -> {
+			final Extremes chunk = new Extremes();
+			final int end = Math.min(count, (c + 1) * CHUNK_SIZE);
+			for (int p = c * CHUNK_SIZE; p < end; p++) {
+				chunk.add(p, points[3 * p], points[3 * p + 1], points[3 * p + 2]);
+			}
+			chunks[c] = chunk;
+		});
+		final Extremes extremes = new Extremes();
+		for (final Extremes chunk : chunks) {
+			extremes.add(chunk);
+		}
+		return extremes;
+	}
+
+	/**
+	 * Drops the points strictly inside of the polytope spanned by the extreme
+	 * points.
+	 */
+	private static int[] cull(final double[] points, final Extremes extremes,
+		final double tolerance)
+	{
+		final int count = points.length / 3;
+		final Hull polytope = new Hull(points, Arrays.stream(extremes.points)
+			.distinct().toArray(), tolerance);
+		polytope.compute();
+		final List<Face> faces = polytope.faces();
+		if (faces.isEmpty()) return IntStream.range(0, count).toArray();
+		final double[] planes = new double[4 * faces.size()];
+		for (int f = 0; f < faces.size(); f++) {
+			final Face face = faces.get(f);
+			planes[4 * f] = face.nx;
+			planes[4 * f + 1] = face.ny;
+			planes[4 * f + 2] = face.nz;
+			planes[4 * f + 3] = face.offset - tolerance;
+		}
+		return IntStream.range(0, count).parallel().filter(p -> {
+			final double x = points[3 * p], y = points[3 * p + 1], z = points[3 * p +
+				2];
+			for (int f = 0; f < planes.length; f += 4) {
+				if (planes[f] * x + planes[f + 1] * y + planes[f + 2] * z >=
+					planes[f + 3]) return true;
+			}
+			return false;
+		}).toArray();
+	}
+
+	// -- Helper classes --
+
+	/** Extreme points along the axes and diagonals. */
+	private static final class Extremes {
+
+		private final double[] extents = new double[DIRECTIONS];
+		private final int[] points = new int[DIRECTIONS];
+
+		private Extremes() {
+			Arrays.fill(extents, Double.NEGATIVE_INFINITY);
+		}
+
+		private void add(final int p, final double x, final double y,
+			final double z)
+		{
+			update(0, x, p);
+			update(1, -x, p);
+			update(2, y, p);
+			update(3, -y, p);
+			update(4, z, p);
+			update(5, -z, p);
+			final double xpy = x + y, xmy = x - y;
+			update(6, xpy + z, p);
+			update(7, -xpy - z, p);
+			update(8, xpy - z, p);
+			update(9, z - xpy, p);
+			update(10, xmy + z, p);
+			update(11, -xmy - z, p);
+			update(12, xmy - z, p);
+			update(13, z - xmy, p);
+		}
+
+		private void add(final Extremes other) {
+			for (int d = 0; d < DIRECTIONS; d++) {
+				update(d, other.extents[d], other.points[d]);
+			}
+		}
+
+		private void update(final int d, final double extent, final int p) {
+			if (extent > extents[d]) {
+				extents[d] = extent;
+				points[d] = p;
+			}
+		}
+
+		/** Distance below which points count as lying on a plane. */
+		private double tolerance() {
+			double sum = 0;
+			for (int d = 0; d < 3; d++) {
+				sum += Math.max(Math.abs(extents[2 * d]), Math.abs(extents[2 * d +
+					1]));
+			}
+			// NB: The same rounding error bound as for computing plane offsets.
+			return 3 * Math.ulp(1.0) * sum;
+		}
+	}
+
+	/** Reduces points to the vertices of the hulls of chunks, in parallel. */
+	private static final class Reduce extends RecursiveTask<int[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] points;
+		private final int[] candidates;
+		private final double tolerance;
+		private final int start, end;
+
+		private Reduce(final double[] points, final int[] candidates,
+			final double tolerance, final int start, final int end)
+		{
+			this.points = points;
+			this.candidates = candidates;
+			this.tolerance = tolerance;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected int[] compute() {
+			final int[] union;
+			if (end - start <= PARALLEL_SIZE) {
+				union = Arrays.copyOfRange(candidates, start, end);
+			}
+			else {
+				final int mid = (start + end) >>> 1;
+				final Reduce left = new Reduce(points, candidates, tolerance, start,
+					mid);
+				left.fork();
+				final int[] right = new Reduce(points, candidates, tolerance, mid, end)
+					.compute();
+				final int[] leftVertices = left.join();
+				union = Arrays.copyOf(leftVertices, leftVertices.length +
+					right.length);
+				System.arraycopy(right, 0, union, leftVertices.length, right.length);
+			}
+			final Hull hull = new Hull(points, union, tolerance);
+			hull.compute();
+			// NB: A flat chunk has no hull; keep all of its points.
+			return hull.faces().isEmpty() ? union : hull.vertices();
+		}
+	}
+
+	/** One triangle of the hull under construction. */
+	private static final class Face {
+
+		/** Vertices, counterclockwise seen from outside. */
+		private final int[] vertices;
+
+		/** Face across each edge; edge {@code e} starts at vertex {@code e}. */
+		private final Face[] neighbors = new Face[3];
+
+		/** Outward unit normal, and the plane's distance from the origin. */
+		private final double nx, ny, nz, offset;
+
+		/** Points outside of this face, not yet on the hull. */
+		private int[] outside = new int[0];
+		private int outsideCount;
+		private int farthest = -1;
+		private double farthestDistance;
+
+		private boolean visible;
+
+		private Face(final double[] points, final int a, final int b,
+			final int c)
+		{
+			vertices = new int[] { a, b, c };
+			final double ux = points[3 * b] - points[3 * a];
+			final double uy = points[3 * b + 1] - points[3 * a + 1];
+			final double uz = points[3 * b + 2] - points[3 * a + 2];
+			final double vx = points[3 * c] - points[3 * a];
+			final double vy = points[3 * c + 1] - points[3 * a + 1];
+			final double vz = points[3 * c + 2] - points[3 * a + 2];
+			final double x = uy * vz - uz * vy;
+			final double y = uz * vx - ux * vz;
+			final double z = ux * vy - uy * vx;
+			final double length = Math.sqrt(x * x + y * y + z * z);
+			nx = x / length;
+			ny = y / length;
+			nz = z / length;
+			// NB: Through the centroid, which balances the rounding errors.
+			offset = (nx * (points[3 * a] + points[3 * b] + points[3 * c]) + //
+				ny * (points[3 * a + 1] + points[3 * b + 1] + points[3 * c + 1]) + //
+				nz * (points[3 * a + 2] + points[3 * b + 2] + points[3 * c + 2])) / 3;
+		}
+
+		private double distance(final double[] points, final int p) {
+			return nx * points[3 * p] + ny * points[3 * p + 1] + nz * points[3 * p +
+				2] - offset;
+		}
+
+		private void addOutside(final int p, final double distance) {
+			if (outsideCount == outside.length) {
+				outside = Arrays.copyOf(outside, Math.max(4, 2 * outsideCount));
+			}
+			outside[outsideCount++] = p;
+			if (distance > farthestDistance) {
+				farthest = p;
+				farthestDistance = distance;
+			}
+		}
+
+		/** Index of the edge shared with the given neighbor. */
+		private int edgeTo(final Face neighbor) {
+			for (int e = 0;; e++) {
+				if (neighbors[e] == neighbor) return e;
+			}
+		}
+	}
+
+	/** Position of the horizon search within one face. */
+	private static final class Frame {
+
+		private final Face face;
+		private final int start;
+		private int step;
+
+		private Frame(final Face face, final int start) {
+			this.face = face;
+			this.start = start;
+		}
+	}
+
+	/** Quickhull over a subset of the points. */
+	private static final class Hull {
+
+		private final double[] points;
+		private final int[] candidates;
+		private final double tolerance;
+
+		private final List<Face> faces = new ArrayList<>();
+		private final ArrayDeque<Face> pending = new ArrayDeque<>();
+
+		private Hull(final double[] points, final int[] candidates,
+			final double tolerance)
+		{
+			this.points = points;
+			this.candidates = candidates;
+			this.tolerance = tolerance;
+		}
+
+		private void compute() {
+			if (!createSimplex()) return;
+			final List<Face> visible = new ArrayList<>();
+			final List<Face> horizon = new ArrayList<>();
+			final List<Integer> horizonEdges = new ArrayList<>();
+			final ArrayDeque<Frame> stack = new ArrayDeque<>();
+			final List<Face> created = new ArrayList<>();
+			while (!pending.isEmpty()) {
+				final Face face = pending.poll();
+				if (face.visible || face.outsideCount == 0) continue;
+				final int eye = face.farthest;
+
+				// Find the faces visible from the eye, and the loop of edges
+				// around them, in order: a depth-first search which crosses into
+				// each neighbor at the edge after the one it came from.
+				visible.clear();
+				horizon.clear();
+				horizonEdges.clear();
+				face.visible = true;
+				visible.add(face);
+				stack.push(new Frame(face, 0));
+				while (!stack.isEmpty()) {
+					final Frame frame = stack.peek();
+					if (frame.step == 3) {
+						stack.pop();
+						continue;
+					}
+					final int e = (frame.start + frame.step++) % 3;
+					final Face neighbor = frame.face.neighbors[e];
+					if (neighbor.visible) continue;
+					if (neighbor.distance(points, eye) > tolerance) {
+						neighbor.visible = true;
+						visible.add(neighbor);
+						stack.push(new Frame(neighbor, neighbor.edgeTo(frame.face) + 1));
+					}
+					else {
+						horizon.add(frame.face);
+						horizonEdges.add(e);
+					}
+				}
+
+				// Cone the horizon to the eye.
+				created.clear();
+				for (int h = 0; h < horizon.size(); h++) {
+					final Face old = horizon.get(h);
+					final int e = horizonEdges.get(h);
+					final Face outer = old.neighbors[e];
+					final Face cone = new Face(points, old.vertices[e], old.vertices[(e +
+						1) % 3], eye);
+					cone.neighbors[0] = outer;
+					outer.neighbors[outer.edgeTo(old)] = cone;
+					created.add(cone);
+				}
+				for (int h = 0; h < created.size(); h++) {
+					final Face cone = created.get(h);
+					final Face next = created.get((h + 1) % created.size());
+					cone.neighbors[1] = next;
+					next.neighbors[2] = cone;
+				}
+				faces.addAll(created);
+
+				// Hand the outside points of the visible faces on.
+				for (final Face old : visible) {
+					for (int i = 0; i < old.outsideCount; i++) {
+						final int p = old.outside[i];
+						if (p != eye) assign(p, created);
+					}
+					old.outside = null;
+				}
+				for (final Face cone : created) {
+					if (cone.outsideCount > 0) pending.add(cone);
+				}
+			}
+		}
+
+		/**
+		 * Creates the initial tetrahedron from extreme points, and assigns all
+		 * other points to its faces.
+		 *
+		 * @return false if all points lie in a common plane
+		 */
+		private boolean createSimplex() {
+			if (candidates.length < 4) return false;
+			// Two points farthest apart along an axis.
+			int p0 = -1, p1 = -1;
+			double extent = -1;
+			for (int d = 0; d < 3; d++) {
+				int min = candidates[0], max = candidates[0];
+				for (final int p : candidates) {
+					if (points[3 * p + d] < points[3 * min + d]) min = p;
+					if (points[3 * p + d] > points[3 * max + d]) max = p;
+				}
+				if (points[3 * max + d] - points[3 * min + d] > extent) {
+					extent = points[3 * max + d] - points[3 * min + d];
+					p0 = min;
+					p1 = max;
+				}
+			}
+			if (extent <= tolerance) return false;
+
+			// The point farthest from their line.
+			final double[] u = direction(p0, p1);
+			int p2 = -1;
+			double lineDistance = tolerance;
+			for (final int p : candidates) {
+				final double[] w = direction(p0, p);
+				final double cx = u[1] * w[2] - u[2] * w[1];
+				final double cy = u[2] * w[0] - u[0] * w[2];
+				final double cz = u[0] * w[1] - u[1] * w[0];
+				final double distance = Math.sqrt(cx * cx + cy * cy + cz * cz) /
+					extent;
+				if (distance > lineDistance) {
+					lineDistance = distance;
+					p2 = p;
+				}
+			}
+			if (p2 < 0) return false;
+
+			// The point farthest from their plane.
+			final Face base = new Face(points, p0, p1, p2);
+			int p3 = -1;
+			double planeDistance = tolerance;
+			for (final int p : candidates) {
+				final double distance = Math.abs(base.distance(points, p));
+				if (distance > planeDistance) {
+					planeDistance = distance;
+					p3 = p;
+				}
+			}
+			if (p3 < 0) return false;
+
+			final Face[] simplex;
+			if (base.distance(points, p3) < 0) {
+				simplex = new Face[] { base, new Face(points, p0, p3, p1), //
+					new Face(points, p1, p3, p2), new Face(points, p2, p3, p0) };
+			}
+			else {
+				simplex = new Face[] { new Face(points, p0, p2, p1), //
+					new Face(points, p0, p1, p3), new Face(points, p1, p2, p3), //
+					new Face(points, p2, p0, p3) };
+			}
+			for (final Face face : simplex) {
+				for (int e = 0; e < 3; e++) {
+					face.neighbors[e] = across(simplex, face.vertices[e],
+						face.vertices[(e + 1) % 3]);
+				}
+			}
+			faces.addAll(Arrays.asList(simplex));
+			final List<Face> initial = Arrays.asList(simplex);
+			for (final int p : candidates) {
+				if (p != p0 && p != p1 && p != p2 && p != p3) assign(p, initial);
+			}
+			for (final Face face : simplex) {
+				if (face.outsideCount > 0) pending.add(face);
+			}
+			return true;
+		}
+
+		/** Assigns a point to the first face it lies outside of, if any. */
+		private void assign(final int p, final List<Face> candidateFaces) {
+			for (int f = 0; f < candidateFaces.size(); f++) {
+				final Face face = candidateFaces.get(f);
+				final double distance = face.distance(points, p);
+				if (distance > tolerance) {
+					face.addOutside(p, distance);
+					return;
+				}
+			}
+		}
+
+		/** The face with the edge from {@code b} to {@code a}. */
+		private Face across(final Face[] simplex, final int a, final int b) {
+			for (final Face face : simplex) {
+				for (int e = 0; e < 3; e++) {
+					if (face.vertices[e] == b && face.vertices[(e + 1) % 3] == a) {
+						return face;
+					}
+				}
+			}
+			throw new IllegalStateException("Open simplex");
+		}
+
+		private double[] direction(final int from, final int to) {
+			return new double[] { points[3 * to] - points[3 * from], //
+				points[3 * to + 1] - points[3 * from + 1], //
+				points[3 * to + 2] - points[3 * from + 2] };
+		}
+
+		/** The faces of the finished hull. */
+		private List<Face> faces() {
+			final List<Face> hull = new ArrayList<>();
+			for (final Face face : faces) {
+				if (!face.visible) hull.add(face);
+			}
+			return hull;
+		}
+
+		/** The distinct vertices of the finished hull. */
+		private int[] vertices() {
+			return faces().stream().flatMapToInt(face -> Arrays.stream(
+				face.vertices)).distinct().toArray();
+		}
+
+		private Mesh toMesh() {
+			final Mesh mesh = new NaiveDoubleMesh();
+			final List<Face> hull = faces();
+			final int[] vertexIndices = vertices();
+			final int[] local = new int[points.length / 3];
+			for (final int p : vertexIndices) {
+				// NB: The short add method would round the position to float.
+				local[p] = (int) mesh.vertices().add(points[3 * p], points[3 * p + 1],
+					points[3 * p + 2], 0, 0, 0, 0, 0);
+			}
+			for (final Face face : hull) {
+				mesh.triangles().add(local[face.vertices[0]], local[face.vertices[1]],
+					local[face.vertices[2]], face.nx, face.ny, face.nz);
+			}
+			return mesh;
+		}
+	}
+}
@@ -0,0 +1,450 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Discrete curvatures at the vertices of a {@link Mesh}: the mean curvature
+ * from the cotangent Laplacian, the Gaussian curvature from the angle deficit
+ * (both following Meyer et al. 2003, with mixed Voronoi areas), and the
+ * principal curvatures and directions.
+ * <p>
+ * The principal curvatures follow from the mean and Gaussian curvatures. The
+ * principal directions are those of a quadratic height field fitted to each
+ * vertex's neighbors in its tangent plane.
+ * </p>
+ * <p>
+ * Vertices at the same position, such as the copies emitted by marching
+ * cubes, are treated as one. The curvatures are computed once per position,
+ * in parallel over an {@link Adjacency} of the distinct positions, and stored
+ * in {@code float} arrays indexed like the mesh's {@link Vertices}. They can
+ * be copied into vertex {@link Attribute} channels with {@link #store(Mesh)}.
+ * </p>
+ * <p>
+ * Curvatures are positive where the surface bends away from its normals, as
+ * on a sphere with outward-oriented triangles. All values are NaN for
+ * vertices on the boundary of an open mesh, and for vertices without
+ * triangles of nonzero area.
+ * </p>
+ */
+public final class Curvature {
+
+	/** Name of the vertex channel of mean curvatures. */
+	public static final String MEAN = "meanCurvature";
+
+	/** Name of the vertex channel of Gaussian curvatures. */
+	public static final String GAUSSIAN = "gaussianCurvature";
+
+	/** Name of the vertex channel of maximum principal curvatures. */
+	public static final String MAXIMUM = "maxCurvature";
+
+	/** Name of the vertex channel of minimum principal curvatures. */
+	public static final String MINIMUM = "minCurvature";
+
+	/** Name of the vertex channel of maximum principal directions. */
+	public static final String MAXIMUM_DIRECTION = "maxCurvatureDirection";
+
+	/** Name of the vertex channel of minimum principal directions. */
+	public static final String MINIMUM_DIRECTION = "minCurvatureDirection";
+
+	/** Number of positions per parallel task. */
+	private static final int CHUNK_SIZE = 1 << 12;
+
+	private final float[] mean;
+	private final float[] gaussian;
+	private final float[] maximum;
+	private final float[] minimum;
+	private final float[] maximumDirection;
+	private final float[] minimumDirection;
+
+	private Curvature(final int vertexCount) {
+		mean = new float[vertexCount];
+		gaussian = new float[vertexCount];
+		maximum = new float[vertexCount];
+		minimum = new float[vertexCount];
+		maximumDirection = new float[3 * vertexCount];
+		minimumDirection = new float[3 * vertexCount];
+	}
+
+	/**
+	 * Computes the curvatures at all vertices of a mesh, in parallel.
+	 *
+	 * @param mesh Source mesh
+	 * @return the curvatures of the current vertices of the mesh
+	 * @throws IllegalArgumentException If the mesh has too many vertices or
+	 *           triangles.
+	 */
+	public static Curvature compute(final Mesh mesh) {
+		final Vertices vertices = mesh.vertices();
+		final Triangles triangles = mesh.triangles();
+		// NB: Number the distinct positions densely.
+		final int[] representatives = CoincidentVertices.representatives(
+			vertices);
+		final int[] ids = new int[representatives.length];
+		int n = 0;
+		for (int v = 0; v < ids.length; v++) {
+			if (representatives[v] == v) ids[v] = n++;
+		}
+		for (int v = 0; v < ids.length; v++) {
+			ids[v] = ids[representatives[v]];
+		}
+		final int count = n;
+		if (triangles.size() > Integer.MAX_VALUE / 3) {
+			throw new IllegalArgumentException("Too many triangles: " + triangles
+				.size());
+		}
+		final int[] indices = new int[3 * (int) triangles.size()];
+		IntStream.range(0, indices.length / 3).parallel().forEach(t -> {
+			indices[3 * t] = ids[(int) triangles.vertex0(t)];
+			indices[3 * t + 1] = ids[(int) triangles.vertex1(t)];
+			indices[3 * t + 2] = ids[(int) triangles.vertex2(t)];
+		});
+		final double[] positions = new double[3 * count];
+		IntStream.range(0, ids.length).parallel().forEach(v -> {
+			if (representatives[v] != v) return;
+			final int p = 3 * ids[v];
+			positions[p] = vertices.x(v);
+			positions[p + 1] = vertices.y(v);
+			positions[p + 2] = vertices.z(v);
+		});
+
+		final Curvature perPosition = new Curvature(count);
+		final Estimator estimator = new Estimator(new Adjacency(count, indices),
+			positions, perPosition);
+		IntStream.range(0, (count + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel()
+			.forEach(c -> {
+				final double[] scratch = new double[Estimator.SCRATCH_SIZE];
+				for (int i = c * CHUNK_SIZE; i < Math.min(count, (c + 1) *
+					CHUNK_SIZE); i++)
+				{
+					estimator.estimate(i, scratch);
+				}
+			});
+		if (count == ids.length) return perPosition;
+
+		final Curvature curvature = new Curvature(ids.length);
+		IntStream.range(0, ids.length).parallel().forEach(v -> {
+			final int i = ids[v];
+			curvature.mean[v] = perPosition.mean[i];
+			curvature.gaussian[v] = perPosition.gaussian[i];
+			curvature.maximum[v] = perPosition.maximum[i];
+			curvature.minimum[v] = perPosition.minimum[i];
+			for (int d = 0; d < 3; d++) {
+				curvature.maximumDirection[3 * v + d] = //
+					perPosition.maximumDirection[3 * i + d];
+				curvature.minimumDirection[3 * v + d] = //
+					perPosition.minimumDirection[3 * i + d];
+			}
+		});
+		return curvature;
+	}
+
+	/**
+	 * Mean curvature of each vertex: the mean of its principal curvatures.
+	 *
+	 * @return the backing array, indexed like the vertices
+	 */
+	public float[] mean() {
+		return mean;
+	}
+
+	/**
+	 * Gaussian curvature of each vertex: the product of its principal
+	 * curvatures.
+	 *
+	 * @return the backing array, indexed like the vertices
+	 */
+	public float[] gaussian() {
+		return gaussian;
+	}
+
+	/**
+	 * Maximum principal curvature of each vertex.
+	 *
+	 * @return the backing array, indexed like the vertices
+	 */
+	public float[] maximum() {
+		return maximum;
+	}
+
+	/**
+	 * Minimum principal curvature of each vertex.
+	 *
+	 * @return the backing array, indexed like the vertices
+	 */
+	public float[] minimum() {
+		return minimum;
+	}
+
+	/**
+	 * Tangent direction of maximum curvature at each vertex.
+	 *
+	 * @return the backing array of unit vectors, three values per vertex
+	 */
+	public float[] maximumDirection() {
+		return maximumDirection;
+	}
+
+	/**
+	 * Tangent direction of minimum curvature at each vertex, perpendicular to
+	 * the {@link #maximumDirection()}.
+	 *
+	 * @return the backing array of unit vectors, three values per vertex
+	 */
+	public float[] minimumDirection() {
+		return minimumDirection;
+	}
+
+	/**
+	 * Copies the curvatures into {@link Attribute.Type#FLOAT} channels of the
+	 * mesh's vertices, named {@link #MEAN}, {@link #GAUSSIAN},
+	 * {@link #MAXIMUM}, {@link #MINIMUM}, {@link #MAXIMUM_DIRECTION} and
+	 * {@link #MINIMUM_DIRECTION}, adding the channels as needed.
+	 *
+	 * @param mesh Mesh the curvatures were computed from
+	 * @throws IllegalArgumentException If the mesh has a different number of
+	 *           vertices.
+	 * @throws UnsupportedOperationException If the mesh cannot store
+	 *           attributes.
+	 */
+	public void store(final Mesh mesh) {
+		final Vertices vertices = mesh.vertices();
+		if (vertices.size() != mean.length) {
+			throw new IllegalArgumentException("Expected " + mean.length +
+				" vertices, but the mesh has " + vertices.size());
+		}
+		final Attributes attributes = vertices.attributes();
+		store(attributes.add(MEAN, Attribute.Type.FLOAT, 1), mean);
+		store(attributes.add(GAUSSIAN, Attribute.Type.FLOAT, 1), gaussian);
+		store(attributes.add(MAXIMUM, Attribute.Type.FLOAT, 1), maximum);
+		store(attributes.add(MINIMUM, Attribute.Type.FLOAT, 1), minimum);
+		store(attributes.add(MAXIMUM_DIRECTION, Attribute.Type.FLOAT, 3),
+			maximumDirection);
+		store(attributes.add(MINIMUM_DIRECTION, Attribute.Type.FLOAT, 3),
+			minimumDirection);
+	}
+
+	// -- Helper methods --
+
+	private static void store(final Attribute attribute, final float[] values) {
+		final int components = attribute.components();
+		IntStream.range(0, values.length / components).parallel().forEach(v -> {
+			for (int c = 0; c < components; c++) {
+				attribute.setf(v, c, values[components * v + c]);
+			}
+		});
+	}
+
+	// -- Helper classes --
+
+	/** Computes the curvatures of single positions. */
+	private static class Estimator {
+
+		/** Size of the per-thread scratch array. */
+		private static final int SCRATCH_SIZE = 9;
+
+		private final int[] indices;
+		private final int[] triangleOffsets;
+		private final int[] vertexTriangles;
+		private final int[] neighborOffsets;
+		private final int[] neighbors;
+		private final Adjacency.HalfEdges halfEdges;
+		private final double[] p;
+		private final Curvature result;
+
+		private Estimator(final Adjacency adjacency, final double[] positions,
+			final Curvature result)
+		{
+			indices = adjacency.indices();
+			triangleOffsets = adjacency.triangleOffsets();
+			vertexTriangles = adjacency.vertexTriangles();
+			neighborOffsets = adjacency.neighborOffsets();
+			neighbors = adjacency.neighbors();
+			halfEdges = adjacency.halfEdges();
+			p = positions;
+			this.result = result;
+		}
+
+		private void estimate(final int i, final double[] scratch) {
+			if (halfEdges.isBoundary(i)) {
+				undefined(i);
+				return;
+			}
+			final int a = 3 * i;
+			// Sums of the cotangent Laplacian, mixed area, corner angles and
+			// area-weighted normal over the triangles around the position.
+			double lx = 0, ly = 0, lz = 0, area = 0, angles = 0;
+			double nx = 0, ny = 0, nz = 0;
+			for (int k = triangleOffsets[i]; k < triangleOffsets[i + 1]; k++) {
+				final int t = 3 * vertexTriangles[k];
+				// NB: Rotate the corners so that the position comes first.
+				final int c = indices[t] == i ? 0 : indices[t + 1] == i ? 1 : 2;
+				final int b = 3 * indices[t + (c + 1) % 3];
+				final int d = 3 * indices[t + (c + 2) % 3];
+				final double abx = p[b] - p[a], aby = p[b + 1] - p[a + 1],
+						abz = p[b + 2] - p[a + 2];
+				final double adx = p[d] - p[a], ady = p[d + 1] - p[a + 1],
+						adz = p[d + 2] - p[a + 2];
+				final double bdx = p[d] - p[b], bdy = p[d + 1] - p[b + 1],
+						bdz = p[d + 2] - p[b + 2];
+				final double cx = aby * adz - abz * ady;
+				final double cy = abz * adx - abx * adz;
+				final double cz = abx * ady - aby * adx;
+				final double doubleArea = Math.sqrt(cx * cx + cy * cy + cz * cz);
+				if (doubleArea == 0) continue;
+				nx += cx;
+				ny += cy;
+				nz += cz;
+				final double dotA = abx * adx + aby * ady + abz * adz;
+				final double dotB = -(abx * bdx + aby * bdy + abz * bdz);
+				final double dotD = adx * bdx + ady * bdy + adz * bdz;
+				angles += Math.atan2(doubleArea, dotA);
+				final double cotB = dotB / doubleArea, cotD = dotD / doubleArea;
+				lx -= cotD * abx + cotB * adx;
+				ly -= cotD * aby + cotB * ady;
+				lz -= cotD * abz + cotB * adz;
+				if (dotA < 0) area += doubleArea / 4;
+				else if (dotB < 0 || dotD < 0) area += doubleArea / 8;
+				else area += (cotD * (abx * abx + aby * aby + abz * abz) + cotB *
+					(adx * adx + ady * ady + adz * adz)) / 8;
+			}
+			final double nLength = Math.sqrt(nx * nx + ny * ny + nz * nz);
+			if (area == 0 || nLength == 0) {
+				undefined(i);
+				return;
+			}
+			nx /= nLength;
+			ny /= nLength;
+			nz /= nLength;
+			final double h = (lx * nx + ly * ny + lz * nz) / (4 * area);
+			final double k = (2 * Math.PI - angles) / area;
+			final double root = Math.sqrt(Math.max(0, h * h - k));
+			result.mean[i] = (float) h;
+			result.gaussian[i] = (float) k;
+			result.maximum[i] = (float) (h + root);
+			result.minimum[i] = (float) (h - root);
+			directions(i, nx, ny, nz, scratch);
+		}
+
+		/**
+		 * Fits a height field {@code h = a u^2 + b uv + c v^2} to the neighbors
+		 * in the tangent plane, and stores the principal directions of its
+		 * second fundamental form.
+		 */
+		private void directions(final int i, final double nx, final double ny,
+			final double nz, final double[] m)
+		{
+			// Tangent frame: u perpendicular to the normal's largest component.
+			double ux, uy, uz;
+			if (Math.abs(nx) < Math.abs(ny) && Math.abs(nx) < Math.abs(nz)) {
+				ux = 0;
+				uy = nz;
+				uz = -ny;
+			}
+			else if (Math.abs(ny) < Math.abs(nz)) {
+				ux = -nz;
+				uy = 0;
+				uz = nx;
+			}
+			else {
+				ux = ny;
+				uy = -nx;
+				uz = 0;
+			}
+			final double uLength = Math.sqrt(ux * ux + uy * uy + uz * uz);
+			ux /= uLength;
+			uy /= uLength;
+			uz /= uLength;
+			final double vx = ny * uz - nz * uy;
+			final double vy = nz * ux - nx * uz;
+			final double vz = nx * uy - ny * ux;
+
+			// Normal equations of the least-squares fit, in m[0..8]: the
+			// symmetric matrix xx, xy, xz, yy, yz, zz and the right side.
+			Arrays.fill(m, 0);
+			final int a = 3 * i;
+			for (int k = neighborOffsets[i]; k < neighborOffsets[i + 1]; k++) {
+				final int q = 3 * neighbors[k];
+				final double dx = p[q] - p[a], dy = p[q + 1] - p[a + 1],
+						dz = p[q + 2] - p[a + 2];
+				final double u = dx * ux + dy * uy + dz * uz;
+				final double v = dx * vx + dy * vy + dz * vz;
+				final double height = -(dx * nx + dy * ny + dz * nz);
+				final double f0 = u * u, f1 = u * v, f2 = v * v;
+				m[0] += f0 * f0;
+				m[1] += f0 * f1;
+				m[2] += f0 * f2;
+				m[3] += f1 * f1;
+				m[4] += f1 * f2;
+				m[5] += f2 * f2;
+				m[6] += f0 * height;
+				m[7] += f1 * height;
+				m[8] += f2 * height;
+			}
+			final double c00 = m[3] * m[5] - m[4] * m[4];
+			final double c01 = m[2] * m[4] - m[1] * m[5];
+			final double c02 = m[1] * m[4] - m[2] * m[3];
+			final double det = m[0] * c00 + m[1] * c01 + m[2] * c02;
+			double angle = 0;
+			if (det != 0) {
+				final double c11 = m[0] * m[5] - m[2] * m[2];
+				final double c12 = m[1] * m[2] - m[0] * m[4];
+				final double c22 = m[0] * m[3] - m[1] * m[1];
+				final double fa = (c00 * m[6] + c01 * m[7] + c02 * m[8]) / det;
+				final double fb = (c01 * m[6] + c11 * m[7] + c12 * m[8]) / det;
+				final double fc = (c02 * m[6] + c12 * m[7] + c22 * m[8]) / det;
+				// NB: The shape operator is [[2a, b], [b, 2c]].
+				angle = 0.5 * Math.atan2(fb, fa - fc);
+			}
+			final double cos = Math.cos(angle), sin = Math.sin(angle);
+			final int o = 3 * i;
+			result.maximumDirection[o] = (float) (cos * ux + sin * vx);
+			result.maximumDirection[o + 1] = (float) (cos * uy + sin * vy);
+			result.maximumDirection[o + 2] = (float) (cos * uz + sin * vz);
+			result.minimumDirection[o] = (float) (cos * vx - sin * ux);
+			result.minimumDirection[o + 1] = (float) (cos * vy - sin * uy);
+			result.minimumDirection[o + 2] = (float) (cos * vz - sin * uz);
+		}
+
+		private void undefined(final int i) {
+			result.mean[i] = Float.NaN;
+			result.gaussian[i] = Float.NaN;
+			result.maximum[i] = Float.NaN;
+			result.minimum[i] = Float.NaN;
+			for (int d = 3 * i; d < 3 * i + 3; d++) {
+				result.maximumDirection[d] = Float.NaN;
+				result.minimumDirection[d] = Float.NaN;
+			}
+		}
+	}
+}
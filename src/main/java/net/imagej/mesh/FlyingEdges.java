@@ -0,0 +1,503 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static net.imagej.mesh.MarchingCubesRealType.TRIANGLE_TABLE;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
+
+import org.apache.commons.math3.util.MathArrays;
+
+/**
+ * Flying edges (Schroeder et al. 2015): extracts the same iso-surface as
+ * {@link MarchingCubesRealType}, in passes over rows of voxels along x which
+ * run in parallel and touch the image and each other's data in memory order.
+ * <ol>
+ * <li>Classify each voxel as inside or outside, reading each voxel once, and
+ * trim each row to the range between its first and last crossing.</li>
+ * <li>Count the vertices on the crossed edges owned by each row, and the
+ * triangles of its row of cubes, within the trimmed range.</li>
+ * <li>Turn the counts into offsets by prefix sums, and allocate the output
+ * arrays at their final size.</li>
+ * <li>Generate the vertices and triangles of each row directly into the
+ * arrays.</li>
+ * </ol>
+ * <p>
+ * Each crossed edge gets one vertex, shared by the triangles around it, and
+ * vertices get area-weighted normals. Otherwise, the output matches
+ * {@link MarchingCubesRealType}: the same interpolation, case tables and
+ * triangle orientation, and the image is padded with {@code 0} so surfaces
+ * are closed at its border.
+ * </p>
+ */
+class FlyingEdges<T extends RealType<?>> {
+
+	/** Tolerance of the interpolation, as in {@link MarchingCubesRealType}. */
+	private static final double EPSILON = 0.00001;
+
+	/** Number of slices processed in parallel between polls of the monitor. */
+	private static final int SLICES_PER_POLL = 4 * ForkJoinPool
+		.getCommonPoolParallelism();
+
+	private final RandomAccessibleInterval<T> input;
+	private final double isoLevel;
+	private final VertexTransform transform;
+
+	/** Size of the lattice, the image padded by one voxel on each side. */
+	private final int lx, ly, lz;
+
+	/** Inside (1) or outside (0) flag of each lattice point. */
+	private final byte[] inside;
+
+	/**
+	 * Per row of lattice points: first crossed x-edge, or {@code lx - 1} if
+	 * none, and end of the last one, or {@code 0} if none.
+	 */
+	private final int[] trimStart, trimEnd;
+
+	/** Per row: number of vertices on owned x-, y- and z-edges. */
+	private final int[] xCounts, yCounts, zCounts;
+
+	/** Per row: number of triangles of the row of cubes starting there. */
+	private final int[] triangleCounts;
+
+	/** Per row: index of the first vertex and triangle, and the totals. */
+	private final int[] vertexOffsets, triangleOffsets;
+
+	/** Lattice points from which cubes emit triangles, in each dimension. */
+	private final int[] cubeMin, cubeMax;
+
+	private double[] positions;
+	private int[] triangles;
+
+	private FlyingEdges(final RandomAccessibleInterval<T> input,
+		final double isoLevel, final VertexTransform transform,
+		final Interval cubes)
+	{
+		this.input = input;
+		this.isoLevel = isoLevel;
+		this.transform = transform;
+		lx = checkedSize(input.dimension(0) + 2);
+		ly = checkedSize(input.dimension(1) + 2);
+		lz = checkedSize(input.dimension(2) + 2);
+		final int rows = checkedSize((long) ly * lz);
+		inside = new byte[checkedSize((long) lx * rows)];
+		trimStart = new int[rows];
+		trimEnd = new int[rows];
+		xCounts = new int[rows];
+		yCounts = new int[rows];
+		zCounts = new int[rows];
+		triangleCounts = new int[rows];
+		vertexOffsets = new int[rows + 1];
+		triangleOffsets = new int[rows + 1];
+		final int[] size = { lx, ly, lz };
+		cubeMin = new int[3];
+		cubeMax = new int[3];
+		for (int d = 0; d < 3; d++) {
+			// NB: The cube at lattice point l has its origin at image
+			// coordinate min - 1 + l.
+			cubeMin[d] = cubes == null ? 0 : (int) Math.max(0, cubes.min(d) - input
+				.min(d) + 1);
+			cubeMax[d] = cubes == null ? size[d] - 2 : (int) Math.min(size[d] - 2,
+				cubes.max(d) - input.min(d) + 1);
+		}
+	}
+
+	static <T extends RealType<?>> Mesh calculate(
+		final RandomAccessibleInterval<T> input, final double isoLevel)
+	{
+		return calculate(input, isoLevel, MeshTaskMonitor.none());
+	}
+
+	static <T extends RealType<?>> Mesh calculate(
+		final RandomAccessibleInterval<T> input, final double isoLevel,
+		final MeshTaskMonitor monitor)
+	{
+		return calculate(input, isoLevel, VertexTransform.IDENTITY, monitor);
+	}
+
+	static <T extends RealType<?>> Mesh calculate(
+		final RandomAccessibleInterval<T> input, final double isoLevel,
+		final VertexTransform transform, final MeshTaskMonitor monitor)
+	{
+		final MeshArrays arrays = extract(input, isoLevel, transform, null,
+			monitor);
+		final PhaseTimer phase = PhaseTimer.start(monitor, "flyingEdges",
+			"output");
+		final Mesh output = arrays.toMesh();
+		phase.count("vertices", output.vertices().size()) //
+			.count("triangles", output.triangles().size()).finish();
+		return output;
+	}
+
+	/**
+	 * Extracts the iso-surface into arrays, without building a mesh.
+	 *
+	 * @param cubes Cubes which emit triangles, by the image coordinates of
+	 *          their first corner, from {@code min - 1} for the cubes reaching
+	 *          into the padding; or {@code null} for all. Blocks of an image
+	 *          extracted with adjacent ranges of cubes fit together seamlessly,
+	 *          as long as each input covers the corners of its cubes.
+	 */
+	static <T extends RealType<?>> MeshArrays extract(
+		final RandomAccessibleInterval<T> input, final double isoLevel,
+		final VertexTransform transform, final Interval cubes,
+		final MeshTaskMonitor monitor)
+	{
+		final FlyingEdges<T> edges = new FlyingEdges<>(input, isoLevel,
+			transform, cubes);
+		final int lz = edges.lz;
+		final long total = 3L * lz;
+
+		PhaseTimer phase = PhaseTimer.start(monitor, "flyingEdges", "classify");
+		forEachSlice(0, lz, monitor, 0, total, edges::classify);
+		phase.count("voxels", Intervals.numElements(input)).finish();
+
+		phase = PhaseTimer.start(monitor, "flyingEdges", "count");
+		forEachSlice(0, lz - 1, monitor, lz, total, edges::count);
+		edges.allocate();
+		phase.count("vertices", edges.positions.length / 3) //
+			.count("triangles", edges.triangles.length / 3).finish();
+
+		phase = PhaseTimer.start(monitor, "flyingEdges", "generate");
+		forEachSlice(0, lz - 1, monitor, 2L * lz, total, edges::generate);
+		final MeshArrays arrays = edges.result();
+		phase.finish();
+		monitor.update(total, total);
+		return arrays;
+	}
+
+	// -- Passes --
+
+	/** Pass 1: classifies the lattice points, and trims the rows of a slice. */
+	private void classify(final int z) {
+		final RandomAccess<T> access = input.randomAccess();
+		for (int y = 0; y < ly; y++) {
+			final int row = y + ly * z;
+			final int base = lx * row;
+			if (y > 0 && y < ly - 1 && z > 0 && z < lz - 1) {
+				position(access, 1, y, z);
+				for (int x = 1; x < lx - 1; x++) {
+					if (access.get().getRealDouble() >= isoLevel) inside[base + x] = 1;
+					if (x < lx - 2) access.fwd(0);
+				}
+			}
+			int start = lx - 1, end = 0, count = 0;
+			for (int x = 0; x < lx - 1; x++) {
+				if (inside[base + x] != inside[base + x + 1]) {
+					if (count == 0) start = x;
+					end = x + 1;
+					count++;
+				}
+			}
+			trimStart[row] = start;
+			trimEnd[row] = end;
+			xCounts[row] = count;
+		}
+	}
+
+	/**
+	 * Pass 2: counts the vertices on the y- and z-edges of each row of a slice,
+	 * and the triangles of the cubes between each row and the next ones.
+	 */
+	private void count(final int z) {
+		for (int y = 0; y < ly - 1; y++) {
+			final int r0 = y + ly * z, r1 = r0 + 1, r2 = r0 + ly, r3 = r2 + 1;
+			final int start = cubeStart(r0), end = cubeEnd(r0);
+			if (start >= end) continue;
+			final int b0 = lx * r0, b1 = lx * r1, b2 = lx * r2, b3 = lx * r3;
+			int ys = 0, zs = 0, ts = 0;
+			if (emits(y, 1) && emits(z, 2)) {
+				final int from = Math.max(start, cubeMin[0]), to = Math.min(end,
+					cubeMax[0] + 1);
+				for (int x = from; x < to; x++) {
+					ts += TRIANGLE_TABLE[cube(b0, b1, b2, b3, x)].length / 3;
+				}
+			}
+			// NB: Includes the edges at the far side of the last cube.
+			for (int x = start; x <= end; x++) {
+				if (inside[b0 + x] != inside[b1 + x]) ys++;
+				if (inside[b0 + x] != inside[b2 + x]) zs++;
+			}
+			yCounts[r0] = ys;
+			zCounts[r0] = zs;
+			triangleCounts[r0] = ts;
+		}
+	}
+
+	/** Pass 3: computes the offsets of the rows, and allocates the output. */
+	private void allocate() {
+		long vertexCount = 0, triangleCount = 0;
+		for (int row = 0; row < trimStart.length; row++) {
+			vertexOffsets[row] = (int) vertexCount;
+			triangleOffsets[row] = (int) triangleCount;
+			vertexCount += xCounts[row] + yCounts[row] + zCounts[row];
+			triangleCount += triangleCounts[row];
+			if (3 * vertexCount > Integer.MAX_VALUE ||
+				3 * triangleCount > Integer.MAX_VALUE)
+			{
+				throw new IllegalArgumentException("Iso-surface too large: " +
+					vertexCount + " vertices, " + triangleCount + " triangles");
+			}
+		}
+		vertexOffsets[trimStart.length] = (int) vertexCount;
+		triangleOffsets[trimStart.length] = (int) triangleCount;
+		positions = new double[3 * (int) vertexCount];
+		triangles = new int[3 * (int) triangleCount];
+	}
+
+	/**
+	 * Pass 4: generates the vertices owned by each row of a slice, and the
+	 * triangles of the cubes between each row and the next ones.
+	 */
+	private void generate(final int z) {
+		final RandomAccess<T> access = input.randomAccess();
+		final double[] v0 = new double[lx], v1 = new double[lx],
+				v2 = new double[lx];
+		final int[] ids = new int[12];
+		// NB: Reverses the triangles if the transform mirrors them.
+		final int second = transform.flips() ? 0 : 1;
+		final int third = transform.flips() ? 1 : 0;
+		for (int y = 0; y < ly - 1; y++) {
+			final int r0 = y + ly * z, r1 = r0 + 1, r2 = r0 + ly, r3 = r2 + 1;
+			final int start = cubeStart(r0), end = cubeEnd(r0);
+			if (start >= end) continue;
+			final int b0 = lx * r0, b1 = lx * r1, b2 = lx * r2, b3 = lx * r3;
+			read(access, y, z, start, end, v0);
+			read(access, y + 1, z, start, end, v1);
+			read(access, y, z + 1, start, end, v2);
+
+			// Vertices on the x-edges, then the y-edges, then the z-edges.
+			int p = vertexOffsets[r0];
+			for (int x = trimStart[r0]; x < trimEnd[r0]; x++) {
+				if (inside[b0 + x] == inside[b0 + x + 1]) continue;
+				vertex(p++, x + crossing(v0[x], v0[x + 1]), y, z);
+			}
+			for (int x = start; x <= end; x++) {
+				if (inside[b0 + x] == inside[b1 + x]) continue;
+				vertex(p++, x, y + crossing(v0[x], v1[x]), z);
+			}
+			for (int x = start; x <= end; x++) {
+				if (inside[b0 + x] == inside[b2 + x]) continue;
+				vertex(p++, x, y, z + crossing(v0[x], v2[x]));
+			}
+
+			// NB: The vertices of each row are numbered in the same order, so
+			// walking the four rows around the cubes in step yields the index of
+			// every crossed edge.
+			int x0 = vertexOffsets[r0], x1 = vertexOffsets[r1],
+					x2 = vertexOffsets[r2], x3 = vertexOffsets[r3];
+			int y0 = x0 + xCounts[r0], y2 = x2 + xCounts[r2];
+			int z0 = y0 + yCounts[r0], z1 = x1 + xCounts[r1] + yCounts[r1];
+			int t = 3 * triangleOffsets[r0];
+			final boolean emits = emits(y, 1) && emits(z, 2);
+			for (int x = start; x < end; x++) {
+				final int cx0 = inside[b0 + x] ^ inside[b0 + x + 1];
+				final int cx1 = inside[b1 + x] ^ inside[b1 + x + 1];
+				final int cx2 = inside[b2 + x] ^ inside[b2 + x + 1];
+				final int cx3 = inside[b3 + x] ^ inside[b3 + x + 1];
+				final int cy0 = inside[b0 + x] ^ inside[b1 + x];
+				final int cy2 = inside[b2 + x] ^ inside[b3 + x];
+				final int cz0 = inside[b0 + x] ^ inside[b2 + x];
+				final int cz1 = inside[b1 + x] ^ inside[b3 + x];
+				final byte[] table = TRIANGLE_TABLE[cube(b0, b1, b2, b3, x)];
+				if (table.length > 0 && emits && emits(x, 0)) {
+					// NB: Edge numbers as in MarchingCubesRealType.
+					ids[0] = x2;
+					ids[1] = z0 + cz0;
+					ids[2] = x0;
+					ids[3] = z0;
+					ids[4] = x3;
+					ids[5] = z1 + cz1;
+					ids[6] = x1;
+					ids[7] = z1;
+					ids[8] = y2;
+					ids[9] = y2 + cy2;
+					ids[10] = y0 + cy0;
+					ids[11] = y0;
+					for (int i = 0; i < table.length; i += 3) {
+						triangles[t++] = ids[table[i + 2]];
+						triangles[t++] = ids[table[i + second]];
+						triangles[t++] = ids[table[i + third]];
+					}
+				}
+				x0 += cx0;
+				x1 += cx1;
+				x2 += cx2;
+				x3 += cx3;
+				y0 += cy0;
+				y2 += cy2;
+				z0 += cz0;
+				z1 += cz1;
+			}
+		}
+	}
+
+	/**
+	 * Gets the vertices and triangles, without the triangles of zero area,
+	 * like {@link MarchingCubesRealType}, which occur where crossings snap to
+	 * the same lattice point, and without the vertices of cubes outside the
+	 * range.
+	 */
+	private MeshArrays result() {
+		final MeshArrays arrays = new MeshArrays(positions, triangles);
+		final boolean degenerate = IntStream.range(0, triangles.length / 3)
+			.parallel().anyMatch(t -> !positiveArea(t));
+		final boolean restricted = cubeMin[0] > 0 || cubeMin[1] > 0 ||
+			cubeMin[2] > 0 || cubeMax[0] < lx - 2 || cubeMax[1] < ly - 2 ||
+			cubeMax[2] < lz - 2;
+		return degenerate || restricted ? arrays.subset(this::positiveArea)
+			: arrays;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Runs a task for each slice in a range, in parallel, polling the monitor
+	 * from the calling thread in between.
+	 */
+	private static void forEachSlice(final int from, final int to,
+		final MeshTaskMonitor monitor, final long done, final long total,
+		final IntConsumer task)
+	{
+		for (int z = from; z < to; z += SLICES_PER_POLL) {
+			monitor.update(done + z - from, total);
+			IntStream.range(z, Math.min(to, z + SLICES_PER_POLL)).parallel()
+				.forEach(task);
+		}
+	}
+
+	/** Whether the cubes at a lattice coordinate emit triangles. */
+	private boolean emits(final int l, final int d) {
+		return l >= cubeMin[d] && l <= cubeMax[d];
+	}
+
+	/** Start of the cubes which may be crossed, between row r0 and the next. */
+	private int cubeStart(final int r0) {
+		// NB: Rows begin and end with padding, so ahead of its first crossing,
+		// each row is outside.
+		return Math.min(Math.min(trimStart[r0], trimStart[r0 + 1]), Math.min(
+			trimStart[r0 + ly], trimStart[r0 + ly + 1]));
+	}
+
+	/** End of the cubes which may be crossed, between row r0 and the next. */
+	private int cubeEnd(final int r0) {
+		return Math.max(Math.max(trimEnd[r0], trimEnd[r0 + 1]), Math.max(
+			trimEnd[r0 + ly], trimEnd[r0 + ly + 1]));
+	}
+
+	/**
+	 * Case of a cube of {@link MarchingCubesRealType}: one bit per corner, in
+	 * the order x, y, z.
+	 */
+	private int cube(final int b0, final int b1, final int b2, final int b3,
+		final int x)
+	{
+		return inside[b0 + x] | inside[b0 + x + 1] << 1 | inside[b1 + x] << 2 |
+			inside[b1 + x + 1] << 3 | inside[b2 + x] << 4 | inside[b2 + x + 1] << 5 |
+			inside[b3 + x] << 6 | inside[b3 + x + 1] << 7;
+	}
+
+	/** Places an access at a lattice point inside the image. */
+	private void position(final RandomAccess<T> access, final int x,
+		final int y, final int z)
+	{
+		access.setPosition(input.min(0) + x - 1, 0);
+		access.setPosition(input.min(1) + y - 1, 1);
+		access.setPosition(input.min(2) + z - 1, 2);
+	}
+
+	/** Reads the values of a row of lattice points, with {@code 0} padding. */
+	private void read(final RandomAccess<T> access, final int y, final int z,
+		final int start, final int end, final double[] values)
+	{
+		Arrays.fill(values, start, end + 1, 0);
+		if (y == 0 || y == ly - 1 || z == 0 || z == lz - 1) return;
+		final int from = Math.max(start, 1), to = Math.min(end, lx - 2);
+		if (from > to) return;
+		position(access, from, y, z);
+		for (int x = from; x <= to; x++) {
+			values[x] = access.get().getRealDouble();
+			if (x < to) access.fwd(0);
+		}
+	}
+
+	/**
+	 * Position of the iso level between two lattice points, as a fraction of
+	 * the distance, as in {@link MarchingCubesRealType}.
+	 */
+	private double crossing(final double a, final double b) {
+		if (Math.abs(isoLevel - a) < EPSILON) return 0;
+		if (Math.abs(isoLevel - b) < EPSILON) return 1;
+		if (Math.abs(a - b) < EPSILON) return 0;
+		return (isoLevel - a) / (b - a);
+	}
+
+	/** Stores a vertex, given in lattice coordinates. */
+	private void vertex(final int v, final double x, final double y,
+		final double z)
+	{
+		final double px = input.min(0) - 1 + x, py = input.min(1) - 1 + y,
+				pz = input.min(2) - 1 + z;
+		positions[3 * v] = transform.x(px, py, pz);
+		positions[3 * v + 1] = transform.y(px, py, pz);
+		positions[3 * v + 2] = transform.z(px, py, pz);
+	}
+
+	private boolean positiveArea(final int t) {
+		final int a = 3 * triangles[3 * t], b = 3 * triangles[3 * t + 1], c = 3 *
+			triangles[3 * t + 2];
+		final double[] p = positions;
+		final double p1x = p[a] - p[b], p1y = p[a + 1] - p[b + 1], p1z = p[a + 2] -
+			p[b + 2];
+		final double p2x = p[c] - p[a], p2y = p[c + 1] - p[a + 1], p2z = p[c + 2] -
+			p[a + 2];
+		return MathArrays.linearCombination(p1y, p2z, -p1z, p2y) != 0 || //
+			MathArrays.linearCombination(p1z, p2x, -p1x, p2z) != 0 || //
+			MathArrays.linearCombination(p1x, p2y, -p1y, p2x) != 0;
+	}
+
+	private static int checkedSize(final long size) {
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Image too large: " + size);
+		}
+		return (int) size;
+	}
+}
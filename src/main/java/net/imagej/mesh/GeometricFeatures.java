@@ -0,0 +1,401 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Geometric features of a {@link Mesh}: surface area, enclosed volume,
+ * centroids, second moments and bounds.
+ * <p>
+ * All features are computed in a single traversal of the triangles and
+ * vertices, split into chunks that are processed in parallel. Each chunk
+ * accumulates its sums with compensated (Kahan-Babu&#353;ka) summation,
+ * relative to the first vertex of the mesh, and the chunks are merged in
+ * order, so the results do not depend on the number of threads and stay
+ * accurate for meshes with millions of triangles far from the origin.
+ * </p>
+ * <p>
+ * The volume features follow from the divergence theorem, summing signed
+ * tetrahedra between each triangle and a common apex. They are meaningful
+ * for closed, outward-oriented meshes only; the volume is negative for
+ * inward-oriented ones.
+ * </p>
+ * <p>
+ * Use {@link #of(Mesh)} to reuse the features of an unchanged mesh. They are
+ * keyed on the mesh's {@link Mesh#stamp() modification stamp}: after vertices
+ * or triangles have been appended, only the new ones are added to the sums;
+ * after existing vertices have been modified, everything is recomputed.
+ * </p>
+ */
+public final class GeometricFeatures {
+
+	private static final Map<Mesh, GeometricFeatures> CACHE =
+		new WeakHashMap<>();
+
+	/** Number of triangles (and vertices) per parallel chunk. */
+	private static final int CHUNK_SIZE = 1 << 14;
+
+	private static final int AREA = 0;
+	private static final int AREA_MOMENT = 1;
+	private static final int VOLUME = 4;
+	private static final int VOLUME_MOMENT = 5;
+	private static final int SECOND_MOMENT = 8;
+	private static final int VERTEX_MOMENT = 14;
+	private static final int SUMS = 17;
+
+	/** Indices of the second moments xx, yy, zz, xy, xz, yz. */
+	private static final int[] ROWS = { 0, 1, 2, 0, 0, 1 };
+	private static final int[] COLUMNS = { 0, 1, 2, 1, 2, 2 };
+
+	/** State of the mesh the features were computed from. */
+	private final long stamp;
+	private final long vertexCount;
+	private final long triangleCount;
+
+	/** Reference point of the sums. */
+	private final double[] origin;
+	private final Sums sums;
+
+	private final double area;
+	private final double volume;
+	private final double[] surfaceCentroid;
+	private final double[] centroid;
+	private final double[] vertexCentroid;
+	private final double[] secondMoments;
+
+	private GeometricFeatures(final long stamp, final long vertexCount,
+		final long triangleCount, final double[] origin, final Sums sums)
+	{
+		this.stamp = stamp;
+		this.vertexCount = vertexCount;
+		this.triangleCount = triangleCount;
+		this.origin = origin;
+		this.sums = sums;
+		area = sums.get(AREA);
+		volume = sums.get(VOLUME);
+		surfaceCentroid = new double[3];
+		centroid = new double[3];
+		vertexCentroid = new double[3];
+		final double[] local = new double[3];
+		for (int d = 0; d < 3; d++) {
+			surfaceCentroid[d] = sums.get(AREA_MOMENT + d) / area + origin[d];
+			local[d] = sums.get(VOLUME_MOMENT + d) / volume;
+			centroid[d] = local[d] + origin[d];
+			vertexCentroid[d] = sums.get(VERTEX_MOMENT + d) / vertexCount +
+				origin[d];
+		}
+		// NB: Shift the second moments from the origin to the centroid.
+		secondMoments = new double[9];
+		for (int m = 0; m < 6; m++) {
+			final int i = ROWS[m], j = COLUMNS[m];
+			final double moment = sums.get(SECOND_MOMENT + m) - volume * local[i] *
+				local[j];
+			secondMoments[3 * i + j] = moment;
+			secondMoments[3 * j + i] = moment;
+		}
+	}
+
+	/**
+	 * Gets the geometric features of a mesh, reusing or updating the previously
+	 * computed features if the mesh has not been modified since. Meshes which
+	 * do not track their modifications are always computed anew.
+	 *
+	 * @param mesh Source mesh
+	 * @return the features of the current vertices and triangles of the mesh
+	 */
+	public static GeometricFeatures of(final Mesh mesh) {
+		// NB: Read the stamp first, so that concurrent changes are seen later.
+		final long stamp = mesh.stamp();
+		if (stamp == Mesh.UNTRACKED) return compute(mesh);
+		final GeometricFeatures cached;
+		synchronized (CACHE) {
+			cached = CACHE.get(mesh);
+		}
+		final long vertexCount = mesh.vertices().size();
+		final long triangleCount = mesh.triangles().size();
+		final GeometricFeatures features;
+		if (cached != null && cached.stamp == stamp &&
+			cached.vertexCount <= vertexCount &&
+			cached.triangleCount <= triangleCount)
+		{
+			if (cached.vertexCount == vertexCount &&
+				cached.triangleCount == triangleCount) return cached;
+			features = new GeometricFeatures(stamp, vertexCount, triangleCount,
+				cached.origin, accumulate(mesh, cached.origin, cached.sums,
+					cached.vertexCount, vertexCount, cached.triangleCount,
+					triangleCount));
+		}
+		else features = compute(mesh, stamp, vertexCount, triangleCount);
+		synchronized (CACHE) {
+			CACHE.put(mesh, features);
+		}
+		return features;
+	}
+
+	/**
+	 * Computes the geometric features of a mesh, bypassing the cache.
+	 *
+	 * @param mesh Source mesh
+	 * @return the features of the current vertices and triangles of the mesh
+	 */
+	public static GeometricFeatures compute(final Mesh mesh) {
+		return compute(mesh, mesh.stamp(), mesh.vertices().size(), mesh
+			.triangles().size());
+	}
+
+	/** Total surface area of the triangles. */
+	public double area() {
+		return area;
+	}
+
+	/** Signed volume enclosed by the triangles. */
+	public double volume() {
+		return volume;
+	}
+
+	/**
+	 * Centroid of the surface: the area-weighted mean of the triangle
+	 * centroids. Unlike the mean of the vertices, it does not depend on how
+	 * densely the surface is triangulated. NaN for a mesh without area.
+	 *
+	 * @return the x, y and z coordinates of the centroid
+	 */
+	public double[] surfaceCentroid() {
+		return surfaceCentroid.clone();
+	}
+
+	/**
+	 * Centroid of the enclosed volume, i.e., its center of mass at uniform
+	 * density. NaN for a mesh without volume.
+	 *
+	 * @return the x, y and z coordinates of the centroid
+	 */
+	public double[] centroid() {
+		return centroid.clone();
+	}
+
+	/**
+	 * Second moments of the enclosed volume about its {@link #centroid()}: the
+	 * integrals of {@code (p_i - c_i)(p_j - c_j)} over the volume. Divided by
+	 * the volume, they are the covariance matrix of the solid; the inertia
+	 * tensor at unit density is {@code trace(M) I - M}. NaN for a mesh
+	 * without volume.
+	 *
+	 * @return the symmetric 3x3 matrix, in row-major order
+	 */
+	public double[] secondMoments() {
+		return secondMoments.clone();
+	}
+
+	/**
+	 * Mean position of the vertices. Unlike the {@link #surfaceCentroid()}, it
+	 * depends on how the surface is triangulated. NaN for a mesh without
+	 * vertices.
+	 *
+	 * @return the x, y and z coordinates of the mean
+	 */
+	public double[] vertexCentroid() {
+		return vertexCentroid.clone();
+	}
+
+	/**
+	 * Bounds of the vertices, including any not referenced by a triangle.
+	 * Infinite (min &gt; max) for a mesh without vertices.
+	 *
+	 * @return the minimum x, y and z, then the maximum x, y and z
+	 */
+	public double[] bounds() {
+		return sums.bounds.clone();
+	}
+
+	// -- Helper methods --
+
+	private static GeometricFeatures compute(final Mesh mesh, final long stamp,
+		final long vertexCount, final long triangleCount)
+	{
+		final Vertices vertices = mesh.vertices();
+		final double[] origin = vertexCount == 0 ? new double[3] : //
+			new double[] { vertices.x(0), vertices.y(0), vertices.z(0) };
+		return new GeometricFeatures(stamp, vertexCount, triangleCount, origin,
+			accumulate(mesh, origin, new Sums(), 0, vertexCount, 0, triangleCount));
+	}
+
+	/**
+	 * Adds the contributions of ranges of vertices and triangles to a copy of
+	 * the given sums, in parallel chunks.
+	 */
+	private static Sums accumulate(final Mesh mesh, final double[] origin,
+		final Sums base, final long vStart, final long vEnd, final long tStart,
+		final long tEnd)
+	{
+		final long chunkCount = (Math.max(vEnd - vStart, tEnd - tStart) +
+			CHUNK_SIZE - 1) / CHUNK_SIZE;
+		if (chunkCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Mesh too large: " + (vEnd -
+				vStart) + " vertices, " + (tEnd - tStart) + " triangles");
+		}
+		final Sums[] chunks = new Sums[(int) chunkCount];
+		IntStream.range(0, chunks.length).parallel().forEach(c -> {
+			final long offset = (long) c * CHUNK_SIZE;
+			final Sums sums = new Sums();
+			sumVertices(mesh, origin, sums, Math.min(vEnd, vStart + offset), Math
+				.min(vEnd, vStart + offset + CHUNK_SIZE));
+			sumTriangles(mesh, origin, sums, Math.min(tEnd, tStart + offset), Math
+				.min(tEnd, tStart + offset + CHUNK_SIZE));
+			chunks[c] = sums;
+		});
+		final Sums total = base.copy();
+		for (final Sums chunk : chunks) {
+			total.add(chunk);
+		}
+		return total;
+	}
+
+	/** Sums the positions and bounds of a range of vertices. */
+	private static void sumVertices(final Mesh mesh, final double[] origin,
+		final Sums sums, final long start, final long end)
+	{
+		final Vertices vertices = mesh.vertices();
+		final double[] p = new double[3];
+		for (long v = start; v < end; v++) {
+			p[0] = vertices.x(v);
+			p[1] = vertices.y(v);
+			p[2] = vertices.z(v);
+			for (int d = 0; d < 3; d++) {
+				if (p[d] < sums.bounds[d]) sums.bounds[d] = p[d];
+				if (p[d] > sums.bounds[d + 3]) sums.bounds[d + 3] = p[d];
+				sums.add(VERTEX_MOMENT + d, p[d] - origin[d]);
+			}
+		}
+	}
+
+	/** Sums the contributions of a range of triangles. */
+	private static void sumTriangles(final Mesh mesh, final double[] origin,
+		final Sums sums, final long start, final long end)
+	{
+		final Vertices vertices = mesh.vertices();
+		final Triangles triangles = mesh.triangles();
+		final double[] a = new double[3], b = new double[3], c = new double[3];
+		for (long t = start; t < end; t++) {
+			load(vertices, triangles.vertex0(t), origin, a);
+			load(vertices, triangles.vertex1(t), origin, b);
+			load(vertices, triangles.vertex2(t), origin, c);
+
+			// Area, from the cross product of two edges.
+			final double ux = b[0] - a[0], uy = b[1] - a[1], uz = b[2] - a[2];
+			final double vx = c[0] - a[0], vy = c[1] - a[1], vz = c[2] - a[2];
+			final double nx = uy * vz - uz * vy;
+			final double ny = uz * vx - ux * vz;
+			final double nz = ux * vy - uy * vx;
+			final double area = 0.5 * Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+			// Signed volume of the tetrahedron with the origin.
+			final double volume = (a[0] * (b[1] * c[2] - b[2] * c[1]) + //
+				a[1] * (b[2] * c[0] - b[0] * c[2]) + //
+				a[2] * (b[0] * c[1] - b[1] * c[0])) / 6;
+
+			sums.add(AREA, area);
+			sums.add(VOLUME, volume);
+			for (int d = 0; d < 3; d++) {
+				final double s = a[d] + b[d] + c[d];
+				sums.add(AREA_MOMENT + d, area * s / 3);
+				sums.add(VOLUME_MOMENT + d, volume * s / 4);
+			}
+			// NB: For a tetrahedron with vertices p_k, the integral of
+			// x_i x_j is V / 20 * (sum_k p_ki p_kj + (sum_k p_ki)(sum_k p_kj)).
+			for (int m = 0; m < 6; m++) {
+				final int i = ROWS[m], j = COLUMNS[m];
+				final double si = a[i] + b[i] + c[i], sj = a[j] + b[j] + c[j];
+				sums.add(SECOND_MOMENT + m, volume / 20 * (a[i] * a[j] + b[i] * b[j] +
+					c[i] * c[j] + si * sj));
+			}
+		}
+	}
+
+	private static void load(final Vertices vertices, final long v,
+		final double[] origin, final double[] p)
+	{
+		p[0] = vertices.x(v) - origin[0];
+		p[1] = vertices.y(v) - origin[1];
+		p[2] = vertices.z(v) - origin[2];
+	}
+
+	// -- Helper classes --
+
+	/** Compensated sums of the contributions, and the vertex bounds. */
+	private static final class Sums {
+
+		private final double[] sums = new double[SUMS];
+		private final double[] compensations = new double[SUMS];
+		private final double[] bounds = { Double.POSITIVE_INFINITY,
+			Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+			Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+			Double.NEGATIVE_INFINITY };
+
+		private void add(final int index, final double value) {
+			final double sum = sums[index];
+			final double t = sum + value;
+			// NB: Keep the low-order bits lost by the addition, whichever of
+			// the two terms is larger (Neumaier's variant of Kahan summation).
+			if (Math.abs(sum) >= Math.abs(value)) {
+				compensations[index] += (sum - t) + value;
+			}
+			else compensations[index] += (value - t) + sum;
+			sums[index] = t;
+		}
+
+		private void add(final Sums other) {
+			for (int i = 0; i < SUMS; i++) {
+				add(i, other.sums[i]);
+				compensations[i] += other.compensations[i];
+			}
+			for (int d = 0; d < 3; d++) {
+				bounds[d] = Math.min(bounds[d], other.bounds[d]);
+				bounds[d + 3] = Math.max(bounds[d + 3], other.bounds[d + 3]);
+			}
+		}
+
+		private double get(final int index) {
+			return sums[index] + compensations[index];
+		}
+
+		private Sums copy() {
+			final Sums copy = new Sums();
+			System.arraycopy(sums, 0, copy.sums, 0, SUMS);
+			System.arraycopy(compensations, 0, copy.compensations, 0, SUMS);
+			System.arraycopy(bounds, 0, copy.bounds, 0, 6);
+			return copy;
+		}
+	}
+}
@@ -34,6 +34,7 @@ import net.imagej.mesh.naive.NaiveDoubleMesh;
 import net.imglib2.Cursor;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.type.BooleanType;
+import net.imglib2.util.Intervals;
 import net.imglib2.view.Views;
 import org.apache.commons.math3.util.MathArrays;
 
@@ -56,7 +57,7 @@ class MarchingCubesBooleanType {
 	private static final double[] p6 = {1, 1, 0};
 	private static final double[] p7 = {0, 1, 0};
 
-	private static <T extends BooleanType<T>> byte[] mask(final RandomAccessibleInterval<T> input) {
+	private static <T extends BooleanType<T>> byte[] mask(final RandomAccessibleInterval<T> input, final MeshTaskMonitor monitor, final long total) {
 		final int msx = (int) input.dimension(0);
 		final int msy = (int) input.dimension(1);
 		final int msz = (int) input.dimension(2);
@@ -70,6 +71,7 @@ class MarchingCubesBooleanType {
 		final Cursor<T> c = Views.flatIterable(input).cursor();
 		int j = isx * isy + isx + 1;
 		for (int z = 0; z < msz; ++z) {
+			monitor.update(z, total);
 			for (int y = 0; y < msy; ++y) {
 				for (int x = 0; x < msx; ++x) {
 					if (c.next().get())
@@ -98,6 +100,20 @@ class MarchingCubesBooleanType {
 	}
 
 	static <T extends BooleanType<T>> Mesh calculate(final RandomAccessibleInterval<T> input) {
+		return calculate(input, MeshTaskMonitor.none());
+	}
+
+	static <T extends BooleanType<T>> Mesh calculate(final RandomAccessibleInterval<T> input, final MeshTaskMonitor monitor) {
+		return calculate(input, VertexTransform.IDENTITY, monitor);
+	}
+
+	static <T extends BooleanType<T>> Mesh calculate(final RandomAccessibleInterval<T> input, final VertexTransform transform, final MeshTaskMonitor monitor) {
+		final Mesh output = new NaiveDoubleMesh();
+		calculate(input, transform, TriangleSink.of(output), monitor);
+		return output;
+	}
+
+	static <T extends BooleanType<T>> void calculate(final RandomAccessibleInterval<T> input, final VertexTransform transform, final TriangleSink sink, final MeshTaskMonitor monitor) {
 		final double[][] vertlist = new double[12][];
 
 		final int msx = (int) input.dimension(0);
@@ -106,9 +122,12 @@ class MarchingCubesBooleanType {
 		final int isx = msx + 2;
 		final int isy = msy + 2;
 		final int isz = msz + 2;
-		final byte[] mask = mask(input);
+		final long total = 2L * msz + 1;
+		final PhaseTimer maskPhase = PhaseTimer.start(monitor, "marchingCubes", "mask");
+		final byte[] mask = mask(input, monitor, total);
+		maskPhase.count("voxels", Intervals.numElements(input)).finish();
 
-		Mesh output = new NaiveDoubleMesh();
+		final TriangleBatch output = new TriangleBatch(sink);
 
 		final int minX = (int) input.min(0) - 1;
 		final int minY = (int) input.min(1) - 1;
@@ -117,7 +136,11 @@ class MarchingCubesBooleanType {
 		final int maxY = (int) input.max(1) + 1;
 		final int maxZ = (int) input.max(2) + 1;
 
+		final PhaseTimer cubesPhase = PhaseTimer.start(monitor, "marchingCubes", "cubes");
+		long activeCubes = 0;
 		for (int z = minZ; z < maxZ; ++z) {
+			// NB: Counts the mask slices first, then the cube slices.
+			monitor.update(msz + z - minZ, total);
 			for (int y = minY; y < maxY; ++y) {
 				for (int x = minX; x < maxX; ++x) {
 					final int mx = (x - minX);
@@ -127,6 +150,7 @@ class MarchingCubesBooleanType {
 
 					final int EDGE = MarchingCubesRealType.EDGE_TABLE[mindex];
 					if (EDGE != 0) {
+						++activeCubes;
 						/* Find the vertices where the surface intersects the cube */
 						if (0 != (EDGE & 1)) {
 							vertlist[0] = interpolatePoint(p0, p1,
@@ -190,14 +214,18 @@ class MarchingCubesBooleanType {
 							final double v0y = vertlist[TRIANGLE[i + 2]][1];
 							final double v0z = vertlist[TRIANGLE[i + 2]][2];
 							if (positiveArea(v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z)) {
-								output.triangles().add(x + v0x, y + v0y, z + v0z, x + v1x, y + v1y, z + v1z, x + v2x, y + v2y, z + v2z);
+								transform.addTriangle(output, x + v0x, y + v0y, z + v0z, x + v1x, y + v1y, z + v1z, x + v2x, y + v2y, z + v2z);
 							}
 						}
 					}
 				}
 			}
 		}
-		return output;
+		output.flush();
+		cubesPhase.count("cubes", (long) (maxX - minX) * (maxY - minY) * (maxZ - minZ))
+				.count("activeCubes", activeCubes)
+				.count("triangles", output.total()).finish();
+		monitor.update(total, total);
 	}
 
 	private static boolean positiveArea(double v0x, double v0y, double v0z, //
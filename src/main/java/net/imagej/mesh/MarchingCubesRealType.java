@@ -57,7 +57,7 @@ class MarchingCubesRealType {
 	private static final double[] p6 = {1, 1, 0};
 	private static final double[] p7 = {0, 1, 0};
 
-	private static <T extends RealType<T>> byte[] mask(final RandomAccessibleInterval<T> input, double isoLevel) {
+	private static <T extends RealType<T>> byte[] mask(final RandomAccessibleInterval<T> input, double isoLevel, final MeshTaskMonitor monitor, final long total) {
 		final int msx = (int) input.dimension(0);
 		final int msy = (int) input.dimension(1);
 		final int msz = (int) input.dimension(2);
@@ -71,6 +71,7 @@ class MarchingCubesRealType {
 		final Cursor<T> c = Views.flatIterable(input).cursor();
 		int j = isx * isy + isx + 1;
 		for (int z = 0; z < msz; ++z) {
+			monitor.update(z, total);
 			for (int y = 0; y < msy; ++y) {
 				for (int x = 0; x < msx; ++x) {
 					if (c.next().getRealDouble() >= isoLevel)
@@ -99,15 +100,33 @@ class MarchingCubesRealType {
 	}
 
 	static <T extends RealType<T>> Mesh calculate(final RandomAccessibleInterval<T> input, double isoLevel) {
+		return calculate(input, isoLevel, MeshTaskMonitor.none());
+	}
+
+	static <T extends RealType<T>> Mesh calculate(final RandomAccessibleInterval<T> input, double isoLevel, final MeshTaskMonitor monitor) {
+		return calculate(input, isoLevel, VertexTransform.IDENTITY, monitor);
+	}
+
+	static <T extends RealType<T>> Mesh calculate(final RandomAccessibleInterval<T> input, double isoLevel, final VertexTransform transform, final MeshTaskMonitor monitor) {
+		final Mesh output = new NaiveDoubleMesh();
+		calculate(input, isoLevel, transform, TriangleSink.of(output), monitor);
+		return output;
+	}
+
+	static <T extends RealType<T>> void calculate(final RandomAccessibleInterval<T> input, double isoLevel, final VertexTransform transform, final TriangleSink sink, final MeshTaskMonitor monitor) {
 		final double[][] vertlist = new double[12][3];
 		final double[] vertex_values = new double[8];
 		final int msx = (int) input.dimension(0);
 		final int msy = (int) input.dimension(1);
+		final int msz = (int) input.dimension(2);
 		final int isx = msx + 2;
 		final int isy = msy + 2;
-		final byte[] mask = mask(input, isoLevel);
+		final long total = 2L * msz + 1;
+		final PhaseTimer maskPhase = PhaseTimer.start(monitor, "marchingCubes", "mask");
+		final byte[] mask = mask(input, isoLevel, monitor, total);
+		maskPhase.count("voxels", Intervals.numElements(input)).finish();
 
-		Mesh output = new NaiveDoubleMesh();
+		final TriangleBatch output = new TriangleBatch(sink);
 		final RandomAccess<T> ra = Views.extendZero(input).randomAccess(Intervals.expand(input, 1));
 		final int[] pos = new int[3];
 
@@ -118,7 +137,11 @@ class MarchingCubesRealType {
 		final int maxY = (int) input.max(1) + 1;
 		final int maxZ = (int) input.max(2) + 1;
 
+		final PhaseTimer cubesPhase = PhaseTimer.start(monitor, "marchingCubes", "cubes");
+		long activeCubes = 0;
 		for (int z = minZ; z < maxZ; ++z) {
+			// NB: Counts the mask slices first, then the cube slices.
+			monitor.update(msz + z - minZ, total);
 			for (int y = minY; y < maxY; ++y) {
 				for (int x = minX; x < maxX; ++x) {
 					final int mx = (x - minX);
@@ -128,6 +151,7 @@ class MarchingCubesRealType {
 
 					final int EDGE = EDGE_TABLE[mindex];
 					if (EDGE != 0) {
+						++activeCubes;
 						pos[0] = x;
 						pos[1] = y;
 						pos[2] = z;
@@ -213,14 +237,18 @@ class MarchingCubesRealType {
 							final double v0y = vertlist[TRIANGLE[i + 2]][1];
 							final double v0z = vertlist[TRIANGLE[i + 2]][2];
 							if (positiveArea(v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z)) {
-								output.triangles().add(x + v0x, y + v0y, z + v0z, x + v1x, y + v1y, z + v1z, x + v2x, y + v2y, z + v2z);
+								transform.addTriangle(output, x + v0x, y + v0y, z + v0z, x + v1x, y + v1y, z + v1z, x + v2x, y + v2y, z + v2z);
 							}
 						}
 					}
 				}
 			}
 		}
-		return output;
+		output.flush();
+		cubesPhase.count("cubes", (long) (maxX - minX) * (maxY - minY) * (maxZ - minZ))
+				.count("activeCubes", activeCubes)
+				.count("triangles", output.total()).finish();
+		monitor.update(total, total);
 	}
 
 	private static boolean positiveArea(double v0x, double v0y, double v0z, //
@@ -85,9 +85,28 @@ package net.imagej.mesh;
  */
 public interface Mesh {
 
+	/** Stamp of meshes which do not track their modifications. */
+	long UNTRACKED = -1;
+
 	/** The mesh's collection of vertices. */
 	Vertices vertices();
 
 	/** The mesh's collection of triangles. */
 	Triangles triangles();
+
+	/**
+	 * Modification stamp of the mesh, which changes whenever the position,
+	 * normal or texture coordinates of an existing vertex are set. Vertices and
+	 * triangles can otherwise only be appended, which changes their counts, so
+	 * the stamp and the two counts together identify the state of the mesh,
+	 * e.g. for caching data derived from it. Changes to attribute channels are
+	 * not tracked.
+	 *
+	 * @return a nonnegative stamp, or {@link #UNTRACKED} if the mesh does not
+	 *         track its modifications, in which case derived data must not be
+	 *         cached
+	 */
+	default long stamp() {
+		return UNTRACKED;
+	}
 }
@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+
+/**
+ * Shared vertex positions and triangle indices in flat arrays, as generated by
+ * the iso-surface extractors, from which meshes are built.
+ */
+class MeshArrays {
+
+	/** Coordinates of the vertices, three per vertex. */
+	final double[] positions;
+
+	/**
+	 * Indices of the vertices of the triangles, three per triangle,
+	 * counterclockwise when seen from outside.
+	 */
+	final int[] triangles;
+
+	MeshArrays(final double[] positions, final int[] triangles) {
+		this.positions = positions;
+		this.triangles = triangles;
+	}
+
+	/** Keeps the given triangles, and the vertices they use. */
+	MeshArrays subset(final IntPredicate keepTriangle) {
+		final int[] kept = IntStream.range(0, triangles.length / 3).parallel()
+			.filter(keepTriangle).toArray();
+		final int[] ids = new int[positions.length / 3];
+		Arrays.fill(ids, -1);
+		int count = 0;
+		for (final int t : kept) {
+			for (int k = 0; k < 3; k++) {
+				final int v = triangles[3 * t + k];
+				if (ids[v] < 0) ids[v] = count++;
+			}
+		}
+		final double[] newPositions = new double[3 * count];
+		for (int v = 0; v < ids.length; v++) {
+			if (ids[v] >= 0) System.arraycopy(positions, 3 * v, newPositions, 3 *
+				ids[v], 3);
+		}
+		final int[] newTriangles = new int[3 * kept.length];
+		for (int i = 0; i < newTriangles.length; i++) {
+			newTriangles[i] = ids[triangles[3 * kept[i / 3] + i % 3]];
+		}
+		return new MeshArrays(newPositions, newTriangles);
+	}
+
+	/**
+	 * Creates a mesh with unit triangle normals and area-weighted vertex
+	 * normals.
+	 */
+	Mesh toMesh() {
+		final int vertexCount = positions.length / 3;
+		final double[] normals = new double[triangles.length];
+		IntStream.range(0, triangles.length / 3).parallel().forEach(t -> normal(
+			positions, triangles, 3 * t, normals));
+
+		// NB: Sums the area-weighted normals sequentially, since vertices are
+		// shared between triangles.
+		final double[] vertexNormals = new double[positions.length];
+		for (int t = 0; t < triangles.length; t++) {
+			final int n = 3 * (t / 3), v = 3 * triangles[t];
+			vertexNormals[v] += normals[n];
+			vertexNormals[v + 1] += normals[n + 1];
+			vertexNormals[v + 2] += normals[n + 2];
+		}
+
+		final Mesh mesh = new NaiveDoubleMesh();
+		final Vertices vertices = mesh.vertices();
+		for (int v = 0; v < vertexCount; v++) {
+			final int p = 3 * v;
+			final double length = Math.sqrt(sq(vertexNormals[p]) + sq(
+				vertexNormals[p + 1]) + sq(vertexNormals[p + 2]));
+			final double scale = length == 0 ? 0 : 1 / length;
+			vertices.add(positions[p], positions[p + 1], positions[p + 2], //
+				scale * vertexNormals[p], scale * vertexNormals[p + 1], scale *
+					vertexNormals[p + 2], 0, 0);
+		}
+		final Triangles output = mesh.triangles();
+		for (int t = 0; t < triangles.length; t += 3) {
+			final double length = Math.sqrt(sq(normals[t]) + sq(normals[t + 1]) +
+				sq(normals[t + 2]));
+			final double scale = length == 0 ? 0 : 1 / length;
+			output.add(triangles[t], triangles[t + 1], triangles[t + 2], scale *
+				normals[t], scale * normals[t + 1], scale * normals[t + 2]);
+		}
+		return mesh;
+	}
+
+	// -- Helper methods --
+
+	/** Stores the area-weighted normal of a triangle at its first index. */
+	private static void normal(final double[] p, final int[] triangles,
+		final int t, final double[] normals)
+	{
+		final int a = 3 * triangles[t], b = 3 * triangles[t + 1], c = 3 *
+			triangles[t + 2];
+		final double ux = p[b] - p[a], uy = p[b + 1] - p[a + 1], uz = p[b + 2] -
+			p[a + 2];
+		final double vx = p[c] - p[a], vy = p[c + 1] - p[a + 1], vz = p[c + 2] -
+			p[a + 2];
+		normals[t] = uy * vz - uz * vy;
+		normals[t + 1] = uz * vx - ux * vz;
+		normals[t + 2] = ux * vy - uy * vx;
+	}
+
+	private static double sq(final double value) {
+		return value * value;
+	}
+}
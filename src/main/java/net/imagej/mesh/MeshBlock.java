@@ -0,0 +1,97 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+
+/**
+ * One block of a mesh refined progressively, as delivered by
+ * {@link Meshes#meshProgressively}: the iso-surface within a box of the image,
+ * extracted at one level of resolution.
+ * <p>
+ * The blocks of one level fit together seamlessly. Where a block meets a block
+ * of another level, the two surfaces do not quite line up, so each block comes
+ * with a skirt: a strip of triangles hanging from its open border into the
+ * object, which covers the cracks between the levels.
+ * </p>
+ */
+public final class MeshBlock {
+
+	private final int level;
+	private final FinalInterval interval;
+	private final Mesh mesh;
+	private final Mesh skirt;
+
+	MeshBlock(final int level, final Interval interval, final Mesh mesh,
+		final Mesh skirt)
+	{
+		this.level = level;
+		this.interval = new FinalInterval(interval);
+		this.mesh = mesh;
+		this.skirt = skirt;
+	}
+
+	/** Level of resolution of the block, from {@code 0} for the finest. */
+	public int level() {
+		return level;
+	}
+
+	/** Voxels of the finest level covered by the block. */
+	public Interval interval() {
+		return interval;
+	}
+
+	/**
+	 * Iso-surface within the block, in voxel coordinates of the finest level,
+	 * with vertex and triangle normals.
+	 */
+	public Mesh mesh() {
+		return mesh;
+	}
+
+	/** Triangles covering the cracks along the open border of the mesh. */
+	public Mesh skirt() {
+		return skirt;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("level ").append(level);
+		sb.append(", [");
+		for (int d = 0; d < interval.numDimensions(); d++) {
+			if (d > 0) sb.append(", ");
+			sb.append(interval.min(d)).append('-').append(interval.max(d));
+		}
+		sb.append("], ").append(mesh.triangles().size()).append(" triangles");
+		return sb.toString();
+	}
+}
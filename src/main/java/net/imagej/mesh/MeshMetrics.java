@@ -0,0 +1,123 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link MeshTaskMonitor} which collects the {@link MeshPhase}s of the
+ * operations it is passed to, e.g. for forwarding to a monitoring system.
+ * <p>
+ * Progress and cancellation are passed on to another monitor, if given. One
+ * instance may be shared by operations running on several threads.
+ * </p>
+ */
+public class MeshMetrics implements MeshTaskMonitor {
+
+	private final MeshTaskMonitor delegate;
+	private final List<MeshPhase> phases = new ArrayList<>();
+
+	/** Creates a collector which ignores progress and never cancels. */
+	public MeshMetrics() {
+		this(MeshTaskMonitor.none());
+	}
+
+	/**
+	 * Creates a collector which passes progress and cancellation on.
+	 *
+	 * @param delegate Monitor receiving progress, and deciding cancellation
+	 */
+	public MeshMetrics(final MeshTaskMonitor delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void progress(final double fraction) {
+		delegate.progress(fraction);
+	}
+
+	@Override
+	public boolean isCanceled() {
+		return delegate.isCanceled();
+	}
+
+	@Override
+	public boolean measuresPhases() {
+		return true;
+	}
+
+	@Override
+	public void phase(final MeshPhase phase) {
+		synchronized (phases) {
+			phases.add(phase);
+		}
+		delegate.phase(phase);
+	}
+
+	/** Gets the phases collected so far, in the order they finished. */
+	public List<MeshPhase> phases() {
+		synchronized (phases) {
+			return new ArrayList<>(phases);
+		}
+	}
+
+	/**
+	 * Gets the total wall time of all collected phases of the given name, in
+	 * nanoseconds, e.g. of all iterations of a simplification.
+	 */
+	public long nanos(final String operation, final String name) {
+		long sum = 0;
+		for (final MeshPhase phase : phases()) {
+			if (phase.operation().equals(operation) && phase.name().equals(name)) {
+				sum += phase.nanos();
+			}
+		}
+		return sum;
+	}
+
+	/** Forgets all collected phases. */
+	public void clear() {
+		synchronized (phases) {
+			phases.clear();
+		}
+	}
+
+	/** Lists the collected phases, one per line. */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (final MeshPhase phase : phases()) {
+			sb.append(phase).append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,104 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measurements of one finished phase of a mesh operation, as reported to
+ * {@link MeshTaskMonitor#phase(MeshPhase)}.
+ */
+public final class MeshPhase {
+
+	private final String operation;
+	private final String name;
+	private final long nanos;
+	private final long allocatedBytes;
+	private final Map<String, Number> counts;
+
+	MeshPhase(final String operation, final String name, final long nanos,
+		final long allocatedBytes, final Map<String, Number> counts)
+	{
+		this.operation = operation;
+		this.name = name;
+		this.nanos = nanos;
+		this.allocatedBytes = allocatedBytes;
+		this.counts = Collections.unmodifiableMap(new LinkedHashMap<>(counts));
+	}
+
+	/** Name of the operation, e.g. {@code "marchingCubes"}. */
+	public String operation() {
+		return operation;
+	}
+
+	/** Name of the phase within the operation, e.g. {@code "mask"}. */
+	public String name() {
+		return name;
+	}
+
+	/** Wall time of the phase, in nanoseconds. */
+	public long nanos() {
+		return nanos;
+	}
+
+	/**
+	 * Bytes allocated on the heap by the operation's thread during the phase,
+	 * or -1 if the JVM cannot measure this or measuring is disabled.
+	 */
+	public long allocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * Work done in the phase, by name, in the order reported: e.g. the
+	 * numbers of voxels, active cubes or triangles emitted. Some phases also
+	 * report parameters, such as the threshold of a simplification iteration.
+	 */
+	public Map<String, Number> counts() {
+		return counts;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(operation).append('.').append(name).append(": ");
+		sb.append(String.format("%.3f ms", nanos / 1e6));
+		if (allocatedBytes >= 0) sb.append(", ").append(allocatedBytes).append(
+			" bytes");
+		for (final Map.Entry<String, Number> count : counts.entrySet()) {
+			sb.append(", ").append(count.getKey()).append('=').append(count
+				.getValue());
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,104 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Receives the progress of a long-running mesh operation, such as
+ * {@link Meshes#marchingCubes} or {@link Meshes#simplify}, and can ask it to
+ * stop.
+ * <p>
+ * Operations report progress and poll {@link #isCanceled()} at regular
+ * intervals, e.g. once per slice of the image or per simplification
+ * iteration, from the thread that called them. Once canceled, an operation
+ * stops at the next poll by throwing a {@link CancellationException}, and
+ * drops its partial result.
+ * </p>
+ * <p>
+ * Operations can also report the wall time, allocations and work done per
+ * phase, e.g. to find out which part of a pipeline slows it down. See
+ * {@link MeshMetrics}.
+ * </p>
+ */
+public interface MeshTaskMonitor {
+
+	/**
+	 * Called with the fraction of the operation which is done, in [0, 1]. The
+	 * fraction never decreases.
+	 */
+	default void progress(final double fraction) {
+		// NB: No action needed.
+	}
+
+	/** Whether the operation should stop. */
+	default boolean isCanceled() {
+		return false;
+	}
+
+	/**
+	 * Whether operations should measure their phases and report them to
+	 * {@link #phase(MeshPhase)}. Measuring costs a few system calls per phase;
+	 * it is off by default.
+	 */
+	default boolean measuresPhases() {
+		return false;
+	}
+
+	/**
+	 * Called when an operation has finished one of its phases, if
+	 * {@link #measuresPhases()}.
+	 *
+	 * @see MeshMetrics
+	 */
+	default void phase(final MeshPhase phase) {
+		// NB: No action needed.
+	}
+
+	/**
+	 * Reports progress, then stops the operation if it has been canceled.
+	 *
+	 * @param done Number of units of work done so far.
+	 * @param total Total number of units of work.
+	 * @throws CancellationException If the operation has been canceled.
+	 */
+	default void update(final long done, final long total) {
+		progress(total <= 0 ? 1 : Math.min(1, (double) done / total));
+		if (isCanceled()) throw new CancellationException();
+	}
+
+	/**
+	 * Gets a monitor which ignores progress and never cancels.
+	 */
+	static MeshTaskMonitor none() {
+		return new MeshTaskMonitor() {};
+	}
+}
@@ -0,0 +1,771 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongPredicate;
+import java.util.stream.LongStream;
+
+/**
+ * Read-only views of meshes, which compute their vertices and triangles from
+ * the viewed meshes on each access, without copying them: transformed meshes,
+ * subsets of the triangles of a mesh, and concatenations of meshes.
+ * <p>
+ * Reads through a view allocate nothing. Views reflect later changes to the
+ * positions, normals and texture coordinates of the viewed vertices, but have
+ * no attribute channels, and fail with an
+ * {@link UnsupportedOperationException} on any attempt to modify them.
+ * </p>
+ */
+class MeshViews {
+
+	private MeshViews() {
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Views a mesh through an affine transform. Normals are transformed and
+	 * normalized, and the triangles are reversed if the transform mirrors, so
+	 * that they stay counterclockwise when seen from outside.
+	 */
+	static Mesh transform(final Mesh source, final VertexTransform transform) {
+		return new AffineView(source, transform);
+	}
+
+	/**
+	 * Views some of the triangles of a mesh, in the given order, with all of its
+	 * vertices.
+	 *
+	 * @throws IndexOutOfBoundsException If a triangle index is out of range.
+	 */
+	static Mesh subset(final Mesh source, final long[] triangles) {
+		final long size = source.triangles().size();
+		for (final long t : triangles) {
+			if (t < 0 || t >= size) {
+				throw new IndexOutOfBoundsException("Triangle " + t + " of " + size);
+			}
+		}
+		return new SubsetView(source, triangles.clone());
+	}
+
+	/**
+	 * Views the triangles of a mesh which satisfy a predicate, with all of its
+	 * vertices. The predicate is tested once, for the current triangles.
+	 */
+	static Mesh subset(final Mesh source, final LongPredicate triangles) {
+		return new SubsetView(source, LongStream.range(0, source.triangles()
+			.size()).filter(triangles).toArray());
+	}
+
+	/**
+	 * Views meshes one after the other, as one mesh: the vertices and triangles
+	 * of the first mesh, then those of the second, and so on. Elements added to
+	 * the meshes later are not part of the view.
+	 */
+	static Mesh concatenate(final List<? extends Mesh> meshes) {
+		return new ConcatenatedView(meshes.toArray(new Mesh[0]));
+	}
+
+	// -- Helper methods --
+
+	/** Length of a transformed normal, or {@code 1} if it is zero. */
+	private static double normalLength(final VertexTransform transform,
+		final double nx, final double ny, final double nz)
+	{
+		final double tx = transform.nx(nx, ny, nz), ty = transform.ny(nx, ny,
+			nz), tz = transform.nz(nx, ny, nz);
+		final double length = Math.sqrt(tx * tx + ty * ty + tz * tz);
+		return length == 0 ? 1 : length;
+	}
+
+	private static int index(final long tIndex) {
+		if (tIndex < 0 || tIndex > Integer.MAX_VALUE) {
+			throw new IndexOutOfBoundsException("Triangle " + tIndex);
+		}
+		return (int) tIndex;
+	}
+
+	private static UnsupportedOperationException readOnly() {
+		return new UnsupportedOperationException("Mesh views are read-only");
+	}
+
+	// -- Helper classes --
+
+	/** Vertices which can only be read, through the {@code double} getters. */
+	private static abstract class ReadOnlyVertices implements Vertices {
+
+		private final Mesh mesh;
+
+		private ReadOnlyVertices(final Mesh mesh) {
+			this.mesh = mesh;
+		}
+
+		@Override
+		public Mesh mesh() {
+			return mesh;
+		}
+
+		@Override
+		public abstract double x(long vIndex);
+
+		@Override
+		public abstract double y(long vIndex);
+
+		@Override
+		public abstract double z(long vIndex);
+
+		@Override
+		public abstract double nx(long vIndex);
+
+		@Override
+		public abstract double ny(long vIndex);
+
+		@Override
+		public abstract double nz(long vIndex);
+
+		@Override
+		public abstract double u(long vIndex);
+
+		@Override
+		public abstract double v(long vIndex);
+
+		@Override
+		public float xf(final long vIndex) {
+			return (float) x(vIndex);
+		}
+
+		@Override
+		public float yf(final long vIndex) {
+			return (float) y(vIndex);
+		}
+
+		@Override
+		public float zf(final long vIndex) {
+			return (float) z(vIndex);
+		}
+
+		@Override
+		public float nxf(final long vIndex) {
+			return (float) nx(vIndex);
+		}
+
+		@Override
+		public float nyf(final long vIndex) {
+			return (float) ny(vIndex);
+		}
+
+		@Override
+		public float nzf(final long vIndex) {
+			return (float) nz(vIndex);
+		}
+
+		@Override
+		public float uf(final long vIndex) {
+			return (float) u(vIndex);
+		}
+
+		@Override
+		public float vf(final long vIndex) {
+			return (float) v(vIndex);
+		}
+
+		@Override
+		public long addf(final float x, final float y, final float z,
+			final float nx, final float ny, final float nz, final float u,
+			final float v)
+		{
+			throw readOnly();
+		}
+
+		@Override
+		public void setf(final long vIndex, final float x, final float y,
+			final float z, final float nx, final float ny, final float nz,
+			final float u, final float v)
+		{
+			throw readOnly();
+		}
+
+		@Override
+		public void setPositionf(final long vIndex, final float x, final float y,
+			final float z)
+		{
+			throw readOnly();
+		}
+
+		@Override
+		public void setNormalf(final long vIndex, final float nx, final float ny,
+			final float nz)
+		{
+			throw readOnly();
+		}
+
+		@Override
+		public void setTexturef(final long vIndex, final float u, final float v) {
+			throw readOnly();
+		}
+	}
+
+	/** Triangles which can only be read, through the {@code double} getters. */
+	private static abstract class ReadOnlyTriangles implements Triangles {
+
+		private final Mesh mesh;
+
+		private ReadOnlyTriangles(final Mesh mesh) {
+			this.mesh = mesh;
+		}
+
+		@Override
+		public Mesh mesh() {
+			return mesh;
+		}
+
+		@Override
+		public abstract double nx(long tIndex);
+
+		@Override
+		public abstract double ny(long tIndex);
+
+		@Override
+		public abstract double nz(long tIndex);
+
+		@Override
+		public float nxf(final long tIndex) {
+			return (float) nx(tIndex);
+		}
+
+		@Override
+		public float nyf(final long tIndex) {
+			return (float) ny(tIndex);
+		}
+
+		@Override
+		public float nzf(final long tIndex) {
+			return (float) nz(tIndex);
+		}
+
+		@Override
+		public long addf(final long v0, final long v1, final long v2,
+			final float nx, final float ny, final float nz)
+		{
+			throw readOnly();
+		}
+	}
+
+	private static class AffineView implements Mesh {
+
+		private final Mesh source;
+		private final VertexTransform transform;
+		private final Vertices vertices;
+		private final Triangles triangles;
+
+		private AffineView(final Mesh source, final VertexTransform transform) {
+			this.source = source;
+			this.transform = transform;
+			vertices = new AffineVertices();
+			triangles = new AffineTriangles();
+		}
+
+		@Override
+		public Vertices vertices() {
+			return vertices;
+		}
+
+		@Override
+		public Triangles triangles() {
+			return triangles;
+		}
+
+		@Override
+		public long stamp() {
+			return source.stamp();
+		}
+
+		private class AffineVertices extends ReadOnlyVertices {
+
+			private final Vertices src = source.vertices();
+
+			private AffineVertices() {
+				super(AffineView.this);
+			}
+
+			@Override
+			public long size() {
+				return src.size();
+			}
+
+			@Override
+			public boolean hasNormals() {
+				return src.hasNormals();
+			}
+
+			@Override
+			public boolean hasTexture() {
+				return src.hasTexture();
+			}
+
+			@Override
+			public double x(final long vIndex) {
+				return transform.x(src.x(vIndex), src.y(vIndex), src.z(vIndex));
+			}
+
+			@Override
+			public double y(final long vIndex) {
+				return transform.y(src.x(vIndex), src.y(vIndex), src.z(vIndex));
+			}
+
+			@Override
+			public double z(final long vIndex) {
+				return transform.z(src.x(vIndex), src.y(vIndex), src.z(vIndex));
+			}
+
+			@Override
+			public double nx(final long vIndex) {
+				final double nx = src.nx(vIndex), ny = src.ny(vIndex), nz = src.nz(
+					vIndex);
+				return transform.nx(nx, ny, nz) / normalLength(transform, nx, ny, nz);
+			}
+
+			@Override
+			public double ny(final long vIndex) {
+				final double nx = src.nx(vIndex), ny = src.ny(vIndex), nz = src.nz(
+					vIndex);
+				return transform.ny(nx, ny, nz) / normalLength(transform, nx, ny, nz);
+			}
+
+			@Override
+			public double nz(final long vIndex) {
+				final double nx = src.nx(vIndex), ny = src.ny(vIndex), nz = src.nz(
+					vIndex);
+				return transform.nz(nx, ny, nz) / normalLength(transform, nx, ny, nz);
+			}
+
+			@Override
+			public double u(final long vIndex) {
+				return src.u(vIndex);
+			}
+
+			@Override
+			public double v(final long vIndex) {
+				return src.v(vIndex);
+			}
+		}
+
+		private class AffineTriangles extends ReadOnlyTriangles {
+
+			private final Triangles src = source.triangles();
+
+			private AffineTriangles() {
+				super(AffineView.this);
+			}
+
+			@Override
+			public long size() {
+				return src.size();
+			}
+
+			@Override
+			public boolean hasNormals() {
+				return src.hasNormals();
+			}
+
+			@Override
+			public long vertex0(final long tIndex) {
+				return src.vertex0(tIndex);
+			}
+
+			@Override
+			public long vertex1(final long tIndex) {
+				return transform.flips() ? src.vertex2(tIndex) : src.vertex1(tIndex);
+			}
+
+			@Override
+			public long vertex2(final long tIndex) {
+				return transform.flips() ? src.vertex1(tIndex) : src.vertex2(tIndex);
+			}
+
+			@Override
+			public double nx(final long tIndex) {
+				final double nx = src.nx(tIndex), ny = src.ny(tIndex), nz = src.nz(
+					tIndex);
+				return transform.nx(nx, ny, nz) / normalLength(transform, nx, ny, nz);
+			}
+
+			@Override
+			public double ny(final long tIndex) {
+				final double nx = src.nx(tIndex), ny = src.ny(tIndex), nz = src.nz(
+					tIndex);
+				return transform.ny(nx, ny, nz) / normalLength(transform, nx, ny, nz);
+			}
+
+			@Override
+			public double nz(final long tIndex) {
+				final double nx = src.nx(tIndex), ny = src.ny(tIndex), nz = src.nz(
+					tIndex);
+				return transform.nz(nx, ny, nz) / normalLength(transform, nx, ny, nz);
+			}
+		}
+	}
+
+	private static class SubsetView implements Mesh {
+
+		private final Mesh source;
+		private final long[] indices;
+		private final Vertices vertices;
+		private final Triangles triangles;
+
+		private SubsetView(final Mesh source, final long[] indices) {
+			this.source = source;
+			this.indices = indices;
+			vertices = new SubsetVertices();
+			triangles = new SubsetTriangles();
+		}
+
+		@Override
+		public Vertices vertices() {
+			return vertices;
+		}
+
+		@Override
+		public Triangles triangles() {
+			return triangles;
+		}
+
+		@Override
+		public long stamp() {
+			return source.stamp();
+		}
+
+		private class SubsetVertices extends ReadOnlyVertices {
+
+			private final Vertices src = source.vertices();
+
+			private SubsetVertices() {
+				super(SubsetView.this);
+			}
+
+			@Override
+			public long size() {
+				return src.size();
+			}
+
+			@Override
+			public boolean hasNormals() {
+				return src.hasNormals();
+			}
+
+			@Override
+			public boolean hasTexture() {
+				return src.hasTexture();
+			}
+
+			@Override
+			public double x(final long vIndex) {
+				return src.x(vIndex);
+			}
+
+			@Override
+			public double y(final long vIndex) {
+				return src.y(vIndex);
+			}
+
+			@Override
+			public double z(final long vIndex) {
+				return src.z(vIndex);
+			}
+
+			@Override
+			public double nx(final long vIndex) {
+				return src.nx(vIndex);
+			}
+
+			@Override
+			public double ny(final long vIndex) {
+				return src.ny(vIndex);
+			}
+
+			@Override
+			public double nz(final long vIndex) {
+				return src.nz(vIndex);
+			}
+
+			@Override
+			public double u(final long vIndex) {
+				return src.u(vIndex);
+			}
+
+			@Override
+			public double v(final long vIndex) {
+				return src.v(vIndex);
+			}
+		}
+
+		private class SubsetTriangles extends ReadOnlyTriangles {
+
+			private final Triangles src = source.triangles();
+
+			private SubsetTriangles() {
+				super(SubsetView.this);
+			}
+
+			@Override
+			public long size() {
+				return indices.length;
+			}
+
+			@Override
+			public boolean hasNormals() {
+				return src.hasNormals();
+			}
+
+			@Override
+			public long vertex0(final long tIndex) {
+				return src.vertex0(indices[index(tIndex)]);
+			}
+
+			@Override
+			public long vertex1(final long tIndex) {
+				return src.vertex1(indices[index(tIndex)]);
+			}
+
+			@Override
+			public long vertex2(final long tIndex) {
+				return src.vertex2(indices[index(tIndex)]);
+			}
+
+			@Override
+			public double nx(final long tIndex) {
+				return src.nx(indices[index(tIndex)]);
+			}
+
+			@Override
+			public double ny(final long tIndex) {
+				return src.ny(indices[index(tIndex)]);
+			}
+
+			@Override
+			public double nz(final long tIndex) {
+				return src.nz(indices[index(tIndex)]);
+			}
+		}
+	}
+
+	private static class ConcatenatedView implements Mesh {
+
+		private final Vertices[] sourceVertices;
+		private final Triangles[] sourceTriangles;
+
+		/**
+		 * Index of the first vertex and triangle of each mesh, and the numbers
+		 * of vertices and triangles of the view.
+		 */
+		private final long[] vertexOffsets, triangleOffsets;
+
+		private final Vertices vertices;
+		private final Triangles triangles;
+
+		private ConcatenatedView(final Mesh[] meshes) {
+			sourceVertices = new Vertices[meshes.length];
+			sourceTriangles = new Triangles[meshes.length];
+			vertexOffsets = new long[meshes.length + 1];
+			triangleOffsets = new long[meshes.length + 1];
+			for (int m = 0; m < meshes.length; m++) {
+				sourceVertices[m] = meshes[m].vertices();
+				sourceTriangles[m] = meshes[m].triangles();
+				vertexOffsets[m + 1] = vertexOffsets[m] + sourceVertices[m].size();
+				triangleOffsets[m + 1] = triangleOffsets[m] + sourceTriangles[m]
+					.size();
+			}
+			vertices = new ConcatenatedVertices();
+			triangles = new ConcatenatedTriangles();
+		}
+
+		@Override
+		public Vertices vertices() {
+			return vertices;
+		}
+
+		@Override
+		public Triangles triangles() {
+			return triangles;
+		}
+
+		/** Index of the mesh holding an element, by binary search. */
+		private static int part(final long[] offsets, final long index) {
+			if (index < 0 || index >= offsets[offsets.length - 1]) {
+				throw new IndexOutOfBoundsException("Index " + index + " of " +
+					offsets[offsets.length - 1]);
+			}
+			final int i = Arrays.binarySearch(offsets, index);
+			// NB: Meshes without elements share their offset with the next
+			// mesh, so an exact match may hit any of them; take the last.
+			if (i < 0) return -i - 2;
+			int m = i;
+			while (offsets[m + 1] == index) m++;
+			return m;
+		}
+
+		private class ConcatenatedVertices extends ReadOnlyVertices {
+
+			private ConcatenatedVertices() {
+				super(ConcatenatedView.this);
+			}
+
+			@Override
+			public long size() {
+				return vertexOffsets[vertexOffsets.length - 1];
+			}
+
+			@Override
+			public boolean hasNormals() {
+				for (final Vertices src : sourceVertices) {
+					if (!src.hasNormals()) return false;
+				}
+				return true;
+			}
+
+			@Override
+			public boolean hasTexture() {
+				for (final Vertices src : sourceVertices) {
+					if (!src.hasTexture()) return false;
+				}
+				return true;
+			}
+
+			@Override
+			public double x(final long vIndex) {
+				final int m = part(vertexOffsets, vIndex);
+				return sourceVertices[m].x(vIndex - vertexOffsets[m]);
+			}
+
+			@Override
+			public double y(final long vIndex) {
+				final int m = part(vertexOffsets, vIndex);
+				return sourceVertices[m].y(vIndex - vertexOffsets[m]);
+			}
+
+			@Override
+			public double z(final long vIndex) {
+				final int m = part(vertexOffsets, vIndex);
+				return sourceVertices[m].z(vIndex - vertexOffsets[m]);
+			}
+
+			@Override
+			public double nx(final long vIndex) {
+				final int m = part(vertexOffsets, vIndex);
+				return sourceVertices[m].nx(vIndex - vertexOffsets[m]);
+			}
+
+			@Override
+			public double ny(final long vIndex) {
+				final int m = part(vertexOffsets, vIndex);
+				return sourceVertices[m].ny(vIndex - vertexOffsets[m]);
+			}
+
+			@Override
+			public double nz(final long vIndex) {
+				final int m = part(vertexOffsets, vIndex);
+				return sourceVertices[m].nz(vIndex - vertexOffsets[m]);
+			}
+
+			@Override
+			public double u(final long vIndex) {
+				final int m = part(vertexOffsets, vIndex);
+				return sourceVertices[m].u(vIndex - vertexOffsets[m]);
+			}
+
+			@Override
+			public double v(final long vIndex) {
+				final int m = part(vertexOffsets, vIndex);
+				return sourceVertices[m].v(vIndex - vertexOffsets[m]);
+			}
+		}
+
+		private class ConcatenatedTriangles extends ReadOnlyTriangles {
+
+			private ConcatenatedTriangles() {
+				super(ConcatenatedView.this);
+			}
+
+			@Override
+			public long size() {
+				return triangleOffsets[triangleOffsets.length - 1];
+			}
+
+			@Override
+			public boolean hasNormals() {
+				for (final Triangles src : sourceTriangles) {
+					if (!src.hasNormals()) return false;
+				}
+				return true;
+			}
+
+			@Override
+			public long vertex0(final long tIndex) {
+				final int m = part(triangleOffsets, tIndex);
+				return vertexOffsets[m] + sourceTriangles[m].vertex0(tIndex -
+					triangleOffsets[m]);
+			}
+
+			@Override
+			public long vertex1(final long tIndex) {
+				final int m = part(triangleOffsets, tIndex);
+				return vertexOffsets[m] + sourceTriangles[m].vertex1(tIndex -
+					triangleOffsets[m]);
+			}
+
+			@Override
+			public long vertex2(final long tIndex) {
+				final int m = part(triangleOffsets, tIndex);
+				return vertexOffsets[m] + sourceTriangles[m].vertex2(tIndex -
+					triangleOffsets[m]);
+			}
+
+			@Override
+			public double nx(final long tIndex) {
+				final int m = part(triangleOffsets, tIndex);
+				return sourceTriangles[m].nx(tIndex - triangleOffsets[m]);
+			}
+
+			@Override
+			public double ny(final long tIndex) {
+				final int m = part(triangleOffsets, tIndex);
+				return sourceTriangles[m].ny(tIndex - triangleOffsets[m]);
+			}
+
+			@Override
+			public double nz(final long tIndex) {
+				final int m = part(triangleOffsets, tIndex);
+				return sourceTriangles[m].nz(tIndex - triangleOffsets[m]);
+			}
+		}
+	}
+}
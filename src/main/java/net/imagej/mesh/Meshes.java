@@ -32,11 +32,20 @@ package net.imagej.mesh;
 
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.RealPoint;
+import net.imglib2.realtransform.AffineGet;
 import net.imglib2.type.BooleanType;
+import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.RealType;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.LongPredicate;
 
 /**
  * Utility methods for working with {@link Mesh} objects.
@@ -46,40 +55,121 @@ import java.util.Map;
  */
 public class Meshes {
 
+    /** Number of triangles between polls of the monitor in {@link #calculateNormals}. */
+    private static final int NORMALS_POLL_INTERVAL = 1 << 12;
+
     /**
-     * Finds the center of a mesh using vertices.
+     * Finds the center of a mesh using vertices. The result is cached until
+     * the mesh changes; see {@link GeometricFeatures#of(Mesh)}.
      *
-     * @return a RealPoint representing the mesh's center
+     * @return a RealPoint representing the mean position of the mesh's
+     * vertices
+     * @see GeometricFeatures#surfaceCentroid()
      */
     public static RealPoint center(final Mesh m) {
-        RealPoint p = new RealPoint(0, 0, 0);
-        for (final Vertex v: m.vertices()) {
-            p.move(v);
-        }
-        for (int d = 0; d < 3; d++) {
-            p.setPosition(p.getDoublePosition(d) / m.vertices().size(), d);
-        }
-        return p;
+        return new RealPoint(GeometricFeatures.of(m).vertexCentroid());
     }
 
+    /**
+     * Finds the bounding box of the vertices of a mesh. The result is cached
+     * until the mesh changes; see {@link GeometricFeatures#of(Mesh)}.
+     *
+     * @return the minimum x, y and z, then the maximum x, y and z
+     */
     public static float[] boundingBox(final net.imagej.mesh.Mesh mesh) {
-        final float[] boundingBox = new float[]{Float.POSITIVE_INFINITY,
-                Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY,
-                Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
-        for (final Vertex v: mesh.vertices()) {
-            final float x = v.xf(), y = v.yf(), z = v.zf();
-            if (x < boundingBox[0]) boundingBox[0] = x;
-            if (y < boundingBox[1]) boundingBox[1] = y;
-            if (z < boundingBox[2]) boundingBox[2] = z;
-            if (x > boundingBox[3]) boundingBox[3] = x;
-            if (y > boundingBox[4]) boundingBox[4] = y;
-            if (z > boundingBox[5]) boundingBox[5] = z;
+        final double[] bounds = GeometricFeatures.of(mesh).bounds();
+        final float[] boundingBox = new float[6];
+        for (int d = 0; d < 6; d++) {
+            boundingBox[d] = (float) bounds[d];
         }
         return boundingBox;
     }
 
     /**
-     * Copies a mesh into another mesh.
+     * Computes the surface area, enclosed volume, centroids, second moments
+     * and bounds of a mesh, in a single parallel pass over its triangles and
+     * vertices. The features are cached, and updated only once the mesh has
+     * changed.
+     *
+     * @param mesh Source mesh
+     * @return the geometric features of the mesh
+     * @see GeometricFeatures#of(Mesh)
+     */
+    public static GeometricFeatures geometricFeatures(final Mesh mesh) {
+        return GeometricFeatures.of(mesh);
+    }
+
+    /**
+     * Gets a read-only view of a mesh through an affine transform, e.g. to
+     * translate, scale or rotate it without copying. Positions and normals are
+     * transformed on each access; normals are normalized again, and mirroring
+     * transforms reverse the triangles, so that they stay counterclockwise
+     * when seen from outside.
+     *
+     * @param mesh The viewed mesh.
+     * @param transform 3D affine transform of the vertex positions.
+     * @return a view reflecting later changes to the vertices of the mesh
+     * @throws IllegalArgumentException If the transform is not 3D, or not invertible.
+     */
+    public static Mesh transformed(final Mesh mesh, final AffineGet transform) {
+        return MeshViews.transform(mesh, VertexTransform.of(transform));
+    }
+
+    /**
+     * Gets a read-only view of some of the triangles of a mesh, without copying.
+     * The view keeps all vertices of the mesh, with the same indices.
+     *
+     * @param mesh The viewed mesh.
+     * @param triangles Indices of the triangles of the view, in order.
+     * @return a view reflecting later changes to the vertices of the mesh
+     * @throws IndexOutOfBoundsException If a triangle index is out of range.
+     */
+    public static Mesh subset(final Mesh mesh, final long... triangles) {
+        return MeshViews.subset(mesh, triangles);
+    }
+
+    /**
+     * Gets a read-only view of the triangles of a mesh which satisfy a
+     * predicate, without copying. The predicate is tested once per triangle,
+     * when the view is created. The view keeps all vertices of the mesh, with
+     * the same indices.
+     *
+     * @param mesh The viewed mesh.
+     * @param triangles Tests the index of each triangle.
+     * @return a view reflecting later changes to the vertices of the mesh
+     */
+    public static Mesh subset(final Mesh mesh, final LongPredicate triangles) {
+        return MeshViews.subset(mesh, triangles);
+    }
+
+    /**
+     * Gets a read-only view of meshes as one mesh, without copying: the
+     * vertices and triangles of each mesh in turn, with the vertex indices of
+     * the triangles offset accordingly.
+     *
+     * @param meshes The viewed meshes.
+     * @return a view of the current vertices and triangles of the meshes,
+     *         reflecting later changes to their vertices
+     */
+    public static Mesh concatenate(final Mesh... meshes) {
+        return concatenate(Arrays.asList(meshes));
+    }
+
+    /**
+     * Gets a read-only view of meshes as one mesh, without copying. See
+     * {@link #concatenate(Mesh...)}.
+     *
+     * @param meshes The viewed meshes.
+     * @return a view of the current vertices and triangles of the meshes,
+     *         reflecting later changes to their vertices
+     */
+    public static Mesh concatenate(final List<? extends Mesh> meshes) {
+        return MeshViews.concatenate(meshes);
+    }
+
+    /**
+     * Copies a mesh into another mesh, including the attribute channels of its
+     * vertices and triangles.
      *
      * @param src  Source mesh, from which data will be copied.
      * @param dest Destination mesh, into which source will be copied.
@@ -87,6 +177,10 @@ public class Meshes {
     public static void copy(final net.imagej.mesh.Mesh src,
                             final net.imagej.mesh.Mesh dest) {
         final Map<Long, Long> vIndexMap = new HashMap<>();
+        final List<Attribute[]> vAttributes = attributePairs(//
+                src.vertices().attributes(), dest.vertices().attributes());
+        final List<Attribute[]> tAttributes = attributePairs(//
+                src.triangles().attributes(), dest.triangles().attributes());
         // Copy the vertices, keeping track when indices change.
         for (final Vertex v: src.vertices()) {
             long srcIndex = v.index();
@@ -94,6 +188,7 @@ public class Meshes {
                     v.x(), v.y(), v.z(), //
                     v.nx(), v.ny(), v.nz(), //
                     v.u(), v.v());
+            copyAttributes(vAttributes, srcIndex, destIndex);
             if (srcIndex != destIndex) {
                 // NB: If the destination vertex index matches the source, we skip
                 // recording the entry, to save space in the map. Later, we leave
@@ -114,7 +209,33 @@ public class Meshes {
             final long v1 = vIndexMap.getOrDefault(v1src, v1src);
             final long v2 = vIndexMap.getOrDefault(v2src, v2src);
 
-            dest.triangles().add(v0, v1, v2, tri.nx(), tri.ny(), tri.nz());
+            final long tIndex = dest.triangles().add(v0, v1, v2, //
+                    tri.nx(), tri.ny(), tri.nz());
+            copyAttributes(tAttributes, tri.index(), tIndex);
+        }
+    }
+
+    /** Adds each source channel to the destination, pairing them up. */
+    private static List<Attribute[]> attributePairs(final Attributes src,
+                                                    final Attributes dest) {
+        final List<Attribute[]> pairs = new ArrayList<>();
+        for (final Attribute channel : src) {
+            pairs.add(new Attribute[]{channel, dest.add(channel.name(),
+                    channel.type(), channel.components())});
+        }
+        return pairs;
+    }
+
+    private static void copyAttributes(final List<Attribute[]> pairs,
+                                       final long srcIndex, final long destIndex) {
+        for (final Attribute[] pair : pairs) {
+            for (int c = 0; c < pair[0].components(); c++) {
+                if (pair[0].type() == Attribute.Type.FLOAT) {
+                    pair[1].setf(destIndex, c, pair[0].getf(srcIndex, c));
+                } else {
+                    pair[1].seti(destIndex, c, pair[0].geti(srcIndex, c));
+                }
+            }
         }
     }
 
@@ -125,10 +246,33 @@ public class Meshes {
      * @param dest Destination mesh, will be populated with src's info plus the calculated normals
      */
     public static void calculateNormals(net.imagej.mesh.Mesh src, net.imagej.mesh.Mesh dest) {
+        calculateNormals(src, dest, MeshTaskMonitor.none());
+    }
+
+    /**
+     * Calculates the normals for a mesh, reporting progress to a monitor.
+     * Creates a new mesh with the calculated normals. Assumes CCW winding order.
+     * If the monitor cancels the calculation, {@code dest} is left unchanged.
+     *
+     * @param src  Source mesh, used for vertex and triangle info
+     * @param dest Destination mesh, will be populated with src's info plus the calculated normals
+     * @param monitor Receives the progress, and may cancel the calculation
+     * @throws java.util.concurrent.CancellationException If the monitor cancels the calculation.
+     */
+    public static void calculateNormals(net.imagej.mesh.Mesh src, net.imagej.mesh.Mesh dest,
+            final MeshTaskMonitor monitor) {
+
+        // NB: Polls the monitor only before dest is touched, to leave it
+        // unchanged on cancellation.
+        final long total = 2 * src.triangles().size();
+        long done = 0;
+        monitor.update(done, total);
 
         // Compute the triangle normals.
+        final PhaseTimer trianglePhase = PhaseTimer.start(monitor, "calculateNormals", "triangleNormals");
         HashMap<Long, float[]> triNormals = new HashMap<>();
         for (final Triangle tri: src.triangles()) {
+            if (++done % NORMALS_POLL_INTERVAL == 0) monitor.update(done, total);
             final int v0 = (int) tri.vertex0();
             final int v1 = (int) tri.vertex1();
             final int v2 = (int) tri.vertex2();
@@ -159,10 +303,14 @@ public class Meshes {
             triNormals.put(tri.index(), new float[]{nx / nmag, ny / nmag, nz / nmag});
         }
 
+        trianglePhase.count("triangles", triNormals.size()).finish();
+
         // Next, compute the normals per vertex based on face normals
+        final PhaseTimer vertexPhase = PhaseTimer.start(monitor, "calculateNormals", "vertexNormals");
         HashMap<Long, float[]> vNormals = new HashMap<>();// Note: these are cumulative until normalized by vNbrCount
         float[] cumNormal, triNormal;
         for (final Triangle tri: src.triangles()) {
+            if (++done % NORMALS_POLL_INTERVAL == 0) monitor.update(done, total);
             triNormal = triNormals.get(tri.index());
             for (long idx: new long[]{tri.vertex0(), tri.vertex1(), tri.vertex2()}) {
                 cumNormal = vNormals.getOrDefault(idx, new float[]{0, 0, 0});
@@ -173,7 +321,11 @@ public class Meshes {
             }
         }
 
+        vertexPhase.count("vertices", vNormals.size()).finish();
+        monitor.update(total, total);
+
         // Now populate dest
+        final PhaseTimer outputPhase = PhaseTimer.start(monitor, "calculateNormals", "output");
         final Map<Long, Long> vIndexMap = new HashMap<>();
         float[] vNormal;
         double vNormalMag;
@@ -208,6 +360,8 @@ public class Meshes {
             triNormal = triNormals.get(tri.index());
             dest.triangles().add(v0, v1, v2, triNormal[0], triNormal[1], triNormal[2]);
         }
+        outputPhase.count("vertices", src.vertices().size())
+                .count("triangles", src.triangles().size()).finish();
     }
 
     /**
@@ -224,6 +378,202 @@ public class Meshes {
         return new SimplifyMesh(mesh).simplify(target_percent, agressiveness);
     }
 
+    /**
+     * Simplifies a given mesh, reporting progress to a monitor once per
+     * iteration. Normals and uv coordinates will be ignored and not added to the output mesh.
+     *
+     * @param mesh Source mesh
+     * @param target_percent the amount in percent to attempt to achieve. For example: 0.25f would result in creating
+     *                       a mesh with 25% of triangles contained in the original.
+     * @param agressiveness sharpness to increase the threshold. 5..8 are good numbers. more iterations yield higher
+     *                      quality. Minimum 4 and maximum 20 are recommended.
+     * @param monitor Receives the progress, and may cancel the simplification
+     * @return the simplified mesh The result will not include normals or uv coordinates.
+     * @throws java.util.concurrent.CancellationException If the monitor cancels the simplification.
+     */
+    public static Mesh simplify(Mesh mesh, float target_percent, float agressiveness,
+            final MeshTaskMonitor monitor) {
+        return new SimplifyMesh(mesh, monitor).simplify(target_percent, agressiveness);
+    }
+
+    /**
+     * Gets the vertex and triangle adjacency index of a mesh. The index is
+     * cached, and rebuilt only once vertices or triangles have been added.
+     *
+     * @param mesh Source mesh
+     * @return the adjacency index of the mesh
+     * @see Adjacency#of(Mesh)
+     */
+    public static Adjacency adjacency(final Mesh mesh) {
+        return Adjacency.of(mesh);
+    }
+
+    /**
+     * Builds a bounding volume hierarchy over the triangles of a mesh, for ray
+     * casting, closest point and signed distance queries.
+     *
+     * @param mesh Source mesh
+     * @return a hierarchy over the current triangles of the mesh
+     * @see BVH#build(Mesh)
+     */
+    public static BVH bvh(final Mesh mesh) {
+        return BVH.build(mesh);
+    }
+
+    /**
+     * Classifies points as inside or outside of a closed mesh, in parallel.
+     * To classify several batches of points against the same mesh, build a
+     * {@link Containment} once and reuse it.
+     *
+     * @param mesh Closed, outward-oriented source mesh
+     * @param points Three coordinates per point
+     * @return whether each point lies inside the mesh
+     * @see Containment
+     */
+    public static boolean[] contains(final Mesh mesh, final double[] points) {
+        return Containment.build(mesh).contains(points);
+    }
+
+    /**
+     * Computes the convex hull of the vertices of a mesh, e.g. for convexity
+     * and solidity shape descriptors.
+     *
+     * @param mesh Source mesh
+     * @return a new mesh of outward-oriented hull triangles, or an empty mesh
+     * if the vertices lie in a common plane
+     */
+    public static Mesh convexHull(final Mesh mesh) {
+        return ConvexHull.calculate(mesh);
+    }
+
+    /**
+     * Computes the convex hull of a point cloud.
+     *
+     * @param points Three coordinates per point
+     * @return a new mesh of outward-oriented hull triangles, or an empty mesh
+     * if the points lie in a common plane
+     */
+    public static Mesh convexHull(final double[] points) {
+        return ConvexHull.calculate(points);
+    }
+
+    /**
+     * Estimates the mean, Gaussian and principal curvatures and the principal
+     * directions at each vertex, in parallel. Use
+     * {@link Curvature#store(Mesh)} to keep them as vertex attributes.
+     *
+     * @param mesh Source mesh
+     * @return the curvatures, indexed like the vertices of the mesh
+     * @see Curvature
+     */
+    public static Curvature curvature(final Mesh mesh) {
+        return Curvature.compute(mesh);
+    }
+
+    /**
+     * Smooths a mesh in place by moving each vertex a fraction of the way
+     * towards the mean of its neighbors, in each of several steps. Shrinks
+     * the mesh; see {@link #smoothTaubin} and {@link #smoothHC} for
+     * alternatives which do not.
+     *
+     * @param mesh Mesh to smooth in place
+     * @param iterations Number of smoothing steps
+     * @param lambda Fraction of the way to the mean moved per step, in (0, 1]
+     * @param pinBoundary Whether vertices on boundary edges keep their position
+     */
+    public static void smoothLaplacian(final Mesh mesh, final int iterations,
+            final double lambda, final boolean pinBoundary) {
+        Smoothing.laplacian(mesh, iterations, lambda, pinBoundary);
+    }
+
+    /**
+     * Smooths a mesh in place by Taubin's &lambda;/&mu; method, which
+     * alternates shrinking and inflating Laplacian steps. Typical values are
+     * {@code lambda = 0.5} and {@code mu = -0.53}.
+     *
+     * @param mesh Mesh to smooth in place
+     * @param iterations Number of pairs of steps
+     * @param lambda Positive factor of the shrinking steps
+     * @param mu Negative factor of the inflating steps, with
+     *          {@code -mu > lambda}
+     * @param pinBoundary Whether vertices on boundary edges keep their position
+     */
+    public static void smoothTaubin(final Mesh mesh, final int iterations,
+            final double lambda, final double mu, final boolean pinBoundary) {
+        Smoothing.taubin(mesh, iterations, lambda, mu, pinBoundary);
+    }
+
+    /**
+     * Smooths a mesh in place by the HC algorithm of Vollmer et al., which
+     * pushes Laplacian-smoothed vertices back towards their original
+     * positions to preserve the volume. Typical values are
+     * {@code alpha = 0.1} and {@code beta = 0.6}.
+     *
+     * @param mesh Mesh to smooth in place
+     * @param iterations Number of smoothing steps
+     * @param alpha Weight of the original positions, in [0, 1]
+     * @param beta Weight of each vertex's own correction against those of its
+     *          neighbors, in [0, 1]
+     * @param pinBoundary Whether vertices on boundary edges keep their position
+     */
+    public static void smoothHC(final Mesh mesh, final int iterations,
+            final double alpha, final double beta, final boolean pinBoundary) {
+        Smoothing.hc(mesh, iterations, alpha, beta, pinBoundary);
+    }
+
+    /**
+     * Splits a mesh into its connected components. Triangles are connected
+     * through shared vertices and through distinct vertices at exactly the same
+     * position, as emitted by {@link #marchingCubes}.
+     *
+     * @param mesh Source mesh
+     * @return one mesh per component, ordered by their smallest vertex index
+     */
+    public static List<Mesh> connectedComponents(final Mesh mesh) {
+        return connectedComponents(mesh, true);
+    }
+
+    /**
+     * Splits a mesh into its connected components.
+     *
+     * @param mesh Source mesh
+     * @param mergeCoincident whether distinct vertices at exactly the same
+     *                        position connect their triangles
+     * @return one mesh per component, ordered by their smallest vertex index
+     */
+    public static List<Mesh> connectedComponents(final Mesh mesh,
+                                                 final boolean mergeCoincident) {
+        return ConnectedComponents.split(mesh, mergeCoincident);
+    }
+
+    /**
+     * Labels the triangles of a mesh by connected component, without copying
+     * the components. Triangles are connected through shared vertices and
+     * through distinct vertices at exactly the same position.
+     *
+     * @param mesh Source mesh
+     * @return the component of each triangle, numbered from 0 in the same
+     * order as by {@link #connectedComponents(Mesh)}
+     */
+    public static int[] componentLabels(final Mesh mesh) {
+        return componentLabels(mesh, true);
+    }
+
+    /**
+     * Labels the triangles of a mesh by connected component, without copying
+     * the components.
+     *
+     * @param mesh Source mesh
+     * @param mergeCoincident whether distinct vertices at exactly the same
+     *                        position connect their triangles
+     * @return the component of each triangle, numbered from 0 in the same
+     * order as by {@link #connectedComponents(Mesh, boolean)}
+     */
+    public static int[] componentLabels(final Mesh mesh,
+                                        final boolean mergeCoincident) {
+        return ConnectedComponents.label(mesh, mergeCoincident);
+    }
+
     /**
      * Creates a new mesh from a given mesh without any duplicate vertices.
      * Normals and uv coordinates will be ignored and not added to the output mesh.
@@ -236,6 +586,49 @@ public class Meshes {
         return RemoveDuplicateVertices.calculate(mesh, precision);
     }
 
+    /**
+     * Creates a new mesh from a given mesh without any duplicate vertices,
+     * reporting progress to a monitor.
+     * Normals and uv coordinates will be ignored and not added to the output mesh.
+     *
+     * @param mesh Source mesh
+     * @param precision decimal digits to take into account when comparing mesh vertices
+     * @param monitor Receives the progress, and may cancel the calculation
+     * @return new mesh without duplicate vertices. The result will not include normals or uv coordinates.
+     * @throws java.util.concurrent.CancellationException If the monitor cancels the calculation.
+     */
+    public static Mesh removeDuplicateVertices(Mesh mesh, int precision,
+            final MeshTaskMonitor monitor) {
+        return RemoveDuplicateVertices.calculate(mesh, precision, monitor);
+    }
+
+    /**
+     * Creates a mesh from a binary image by naive surface nets: one vertex per
+     * cell which the surface crosses, joined by quads split into triangles.
+     * Compared to {@link #marchingCubes(RandomAccessibleInterval)}, vertices
+     * are shared, so there are several times fewer, and triangles are better
+     * shaped.
+     *
+     * @param source The binary input image, processed in parallel slabs.
+     * @return a new mesh with vertex and triangle normals
+     */
+    public static <T extends BooleanType<T>> Mesh surfaceNets(final RandomAccessibleInterval<T> source) {
+        return SurfaceNets.calculate(source);
+    }
+
+    /**
+     * Creates a mesh from an image by naive surface nets, at the given iso
+     * level. See {@link #surfaceNets(RandomAccessibleInterval)}.
+     *
+     * @param source The input image, processed in parallel slabs.
+     * @param isoLevel The threshold to distinguish between foreground and background values.
+     * @return a new mesh with vertex and triangle normals
+     */
+    public static <T extends RealType<T>> Mesh surfaceNets(final RandomAccessibleInterval<T> source,
+            final double isoLevel) {
+        return SurfaceNets.calculate(source, isoLevel);
+    }
+
     /**
      * Creates mesh e.g. from IterableRegion by using the marching cubes algorithm.
      *
@@ -246,6 +639,84 @@ public class Meshes {
         return MarchingCubesBooleanType.calculate(source);
     }
 
+    /**
+     * Creates mesh e.g. from IterableRegion by using the marching cubes
+     * algorithm, reporting progress to a monitor once per slice.
+     *
+     * @param source The binary input image for the marching cubes algorithm.
+     * @param monitor Receives the progress, and may cancel the algorithm.
+     * @return The result mesh of the marching cubes algorithm.
+     * @throws java.util.concurrent.CancellationException If the monitor cancels the algorithm.
+     */
+    public static <T extends BooleanType<T>> Mesh marchingCubes(RandomAccessibleInterval<T> source,
+            final MeshTaskMonitor monitor) {
+        return MarchingCubesBooleanType.calculate(source, monitor);
+    }
+
+    /**
+     * Creates a mesh from a binary image by marching cubes, in physical
+     * coordinates: each vertex is mapped from voxel coordinates by the given
+     * transform as it is emitted, and triangle normals are computed afterwards.
+     *
+     * @param source The binary input image for the marching cubes algorithm.
+     * @param transform 3D affine transform from voxel to physical
+     *          coordinates, e.g. {@code new ScaleAndTranslation(spacing, origin)}
+     *          for anisotropic voxels. Mirroring transforms flip the triangles,
+     *          so they keep facing outwards.
+     * @return The result mesh of the marching cubes algorithm.
+     * @throws IllegalArgumentException If the transform is not 3D, or not invertible.
+     */
+    public static <T extends BooleanType<T>> Mesh marchingCubes(final RandomAccessibleInterval<T> source,
+            final AffineGet transform) {
+        return marchingCubes(source, transform, MeshTaskMonitor.none());
+    }
+
+    /**
+     * Creates a mesh from a binary image by marching cubes, in physical
+     * coordinates, reporting progress to a monitor once per slice. See
+     * {@link #marchingCubes(RandomAccessibleInterval, AffineGet)}.
+     *
+     * @param source The binary input image for the marching cubes algorithm.
+     * @param transform 3D affine transform from voxel to physical coordinates.
+     * @param monitor Receives the progress, and may cancel the algorithm.
+     * @return The result mesh of the marching cubes algorithm.
+     * @throws java.util.concurrent.CancellationException If the monitor cancels the algorithm.
+     */
+    public static <T extends BooleanType<T>> Mesh marchingCubes(final RandomAccessibleInterval<T> source,
+            final AffineGet transform, final MeshTaskMonitor monitor) {
+        return MarchingCubesBooleanType.calculate(source, VertexTransform.of(transform), monitor);
+    }
+
+    /**
+     * Extracts the surface of a binary image by marching cubes into a sink,
+     * batch by batch, without building a mesh: the same triangles as
+     * {@link #marchingCubes(RandomAccessibleInterval)}, in the same order.
+     *
+     * @param source The binary input image for the marching cubes algorithm.
+     * @param sink Receives the triangles.
+     */
+    public static <T extends BooleanType<T>> void marchingCubes(final RandomAccessibleInterval<T> source,
+            final TriangleSink sink) {
+        MarchingCubesBooleanType.calculate(source, VertexTransform.IDENTITY, sink, MeshTaskMonitor.none());
+    }
+
+    /**
+     * Extracts the surface of a binary image by marching cubes into a sink, in
+     * physical coordinates, reporting progress to a monitor once per slice. See
+     * {@link #marchingCubes(RandomAccessibleInterval, AffineGet)}.
+     *
+     * @param source The binary input image for the marching cubes algorithm.
+     * @param transform 3D affine transform from voxel to physical coordinates.
+     * @param sink Receives the triangles.
+     * @param monitor Receives the progress, and may cancel the algorithm.
+     * @throws IllegalArgumentException If the transform is not 3D, or not invertible.
+     * @throws java.util.concurrent.CancellationException If the monitor cancels the algorithm.
+     */
+    public static <T extends BooleanType<T>> void marchingCubes(final RandomAccessibleInterval<T> source,
+            final AffineGet transform, final TriangleSink sink, final MeshTaskMonitor monitor) {
+        MarchingCubesBooleanType.calculate(source, VertexTransform.of(transform), sink, monitor);
+    }
+
     /**
      * Creates mesh e.g. from IterableRegion by using the marching cubes algorithm.
      *
@@ -256,4 +727,303 @@ public class Meshes {
     public static <T extends RealType<T>> Mesh marchingCubes(RandomAccessibleInterval<T> source, double isoLevel) {
         return MarchingCubesRealType.calculate(source, isoLevel);
     }
+
+    /**
+     * Creates mesh e.g. from IterableRegion by using the marching cubes
+     * algorithm, reporting progress to a monitor once per slice.
+     *
+     * @param source  The input image for the marching cubes algorithm.
+     * @param isoLevel The threshold to distinguish between foreground and background values.
+     * @param monitor Receives the progress, and may cancel the algorithm.
+     * @return The result mesh of the marching cubes algorithm.
+     * @throws java.util.concurrent.CancellationException If the monitor cancels the algorithm.
+     */
+    public static <T extends RealType<T>> Mesh marchingCubes(RandomAccessibleInterval<T> source, double isoLevel,
+            final MeshTaskMonitor monitor) {
+        return MarchingCubesRealType.calculate(source, isoLevel, monitor);
+    }
+
+    /**
+     * Creates a mesh from an image by marching cubes, in physical coordinates:
+     * each vertex is mapped from voxel coordinates by the given transform as it
+     * is emitted, and triangle normals are computed afterwards.
+     *
+     * @param source  The input image for the marching cubes algorithm.
+     * @param isoLevel The threshold to distinguish between foreground and background values.
+     * @param transform 3D affine transform from voxel to physical
+     *          coordinates, e.g. {@code new ScaleAndTranslation(spacing, origin)}
+     *          for anisotropic voxels. Mirroring transforms flip the triangles,
+     *          so they keep facing outwards.
+     * @return The result mesh of the marching cubes algorithm.
+     * @throws IllegalArgumentException If the transform is not 3D, or not invertible.
+     */
+    public static <T extends RealType<T>> Mesh marchingCubes(final RandomAccessibleInterval<T> source,
+            final double isoLevel, final AffineGet transform) {
+        return marchingCubes(source, isoLevel, transform, MeshTaskMonitor.none());
+    }
+
+    /**
+     * Creates a mesh from an image by marching cubes, in physical coordinates,
+     * reporting progress to a monitor once per slice. See
+     * {@link #marchingCubes(RandomAccessibleInterval, double, AffineGet)}.
+     *
+     * @param source  The input image for the marching cubes algorithm.
+     * @param isoLevel The threshold to distinguish between foreground and background values.
+     * @param transform 3D affine transform from voxel to physical coordinates.
+     * @param monitor Receives the progress, and may cancel the algorithm.
+     * @return The result mesh of the marching cubes algorithm.
+     * @throws java.util.concurrent.CancellationException If the monitor cancels the algorithm.
+     */
+    public static <T extends RealType<T>> Mesh marchingCubes(final RandomAccessibleInterval<T> source,
+            final double isoLevel, final AffineGet transform, final MeshTaskMonitor monitor) {
+        return MarchingCubesRealType.calculate(source, isoLevel, VertexTransform.of(transform), monitor);
+    }
+
+    /**
+     * Extracts an iso-surface by marching cubes into a sink, batch by batch,
+     * without building a mesh: the same triangles as
+     * {@link #marchingCubes(RandomAccessibleInterval, double)}, in the same
+     * order. Writers and measurements can thus handle surfaces of any size.
+     *
+     * @param source The input image for the marching cubes algorithm.
+     * @param isoLevel The threshold to distinguish between foreground and background values.
+     * @param sink Receives the triangles.
+     */
+    public static <T extends RealType<T>> void marchingCubes(final RandomAccessibleInterval<T> source,
+            final double isoLevel, final TriangleSink sink) {
+        MarchingCubesRealType.calculate(source, isoLevel, VertexTransform.IDENTITY, sink, MeshTaskMonitor.none());
+    }
+
+    /**
+     * Extracts an iso-surface by marching cubes into a sink, in physical
+     * coordinates, reporting progress to a monitor once per slice. See
+     * {@link #marchingCubes(RandomAccessibleInterval, double, AffineGet)}.
+     *
+     * @param source The input image for the marching cubes algorithm.
+     * @param isoLevel The threshold to distinguish between foreground and background values.
+     * @param transform 3D affine transform from voxel to physical coordinates.
+     * @param sink Receives the triangles.
+     * @param monitor Receives the progress, and may cancel the algorithm.
+     * @throws IllegalArgumentException If the transform is not 3D, or not invertible.
+     * @throws java.util.concurrent.CancellationException If the monitor cancels the algorithm.
+     */
+    public static <T extends RealType<T>> void marchingCubes(final RandomAccessibleInterval<T> source,
+            final double isoLevel, final AffineGet transform, final TriangleSink sink,
+            final MeshTaskMonitor monitor) {
+        MarchingCubesRealType.calculate(source, isoLevel, VertexTransform.of(transform), sink, monitor);
+    }
+
+    /**
+     * Creates the same iso-surface as
+     * {@link #marchingCubes(RandomAccessibleInterval, double)}, by the flying
+     * edges algorithm: each voxel is read once, rows of voxels are processed in
+     * parallel, and the output arrays are allocated once at their final size.
+     * Vertices are shared between triangles, and have area-weighted normals.
+     *
+     * @param source The input image.
+     * @param isoLevel The threshold to distinguish between foreground and background values.
+     * @return a new mesh with vertex and triangle normals
+     */
+    public static <T extends RealType<T>> Mesh flyingEdges(final RandomAccessibleInterval<T> source,
+            final double isoLevel) {
+        return FlyingEdges.calculate(source, isoLevel);
+    }
+
+    /**
+     * Creates the same iso-surface as
+     * {@link #marchingCubes(RandomAccessibleInterval, double)} by flying edges,
+     * reporting progress to a monitor between blocks of slices. See
+     * {@link #flyingEdges(RandomAccessibleInterval, double)}.
+     *
+     * @param source The input image.
+     * @param isoLevel The threshold to distinguish between foreground and background values.
+     * @param monitor Receives the progress, and may cancel the algorithm.
+     * @return a new mesh with vertex and triangle normals
+     * @throws java.util.concurrent.CancellationException If the monitor cancels the algorithm.
+     */
+    public static <T extends RealType<T>> Mesh flyingEdges(final RandomAccessibleInterval<T> source,
+            final double isoLevel, final MeshTaskMonitor monitor) {
+        return FlyingEdges.calculate(source, isoLevel, monitor);
+    }
+
+    /**
+     * Creates the same iso-surface as
+     * {@link #marchingCubes(RandomAccessibleInterval, double, AffineGet)} by
+     * flying edges, in physical coordinates. Vertex and triangle normals are
+     * computed after the transform.
+     *
+     * @param source The input image.
+     * @param isoLevel The threshold to distinguish between foreground and background values.
+     * @param transform 3D affine transform from voxel to physical coordinates.
+     * @return a new mesh with vertex and triangle normals
+     * @throws IllegalArgumentException If the transform is not 3D, or not invertible.
+     */
+    public static <T extends RealType<T>> Mesh flyingEdges(final RandomAccessibleInterval<T> source,
+            final double isoLevel, final AffineGet transform) {
+        return flyingEdges(source, isoLevel, transform, MeshTaskMonitor.none());
+    }
+
+    /**
+     * Creates the same iso-surface as
+     * {@link #marchingCubes(RandomAccessibleInterval, double, AffineGet)} by
+     * flying edges, in physical coordinates, reporting progress to a monitor
+     * between blocks of slices.
+     *
+     * @param source The input image.
+     * @param isoLevel The threshold to distinguish between foreground and background values.
+     * @param transform 3D affine transform from voxel to physical coordinates.
+     * @param monitor Receives the progress, and may cancel the algorithm.
+     * @return a new mesh with vertex and triangle normals
+     * @throws java.util.concurrent.CancellationException If the monitor cancels the algorithm.
+     */
+    public static <T extends RealType<T>> Mesh flyingEdges(final RandomAccessibleInterval<T> source,
+            final double isoLevel, final AffineGet transform, final MeshTaskMonitor monitor) {
+        return FlyingEdges.calculate(source, isoLevel, VertexTransform.of(transform), monitor);
+    }
+
+    /**
+     * Meshes an image progressively in the background, for display while it is
+     * being meshed: first a coarse surface from a downsampled copy of the image,
+     * then finer and finer surfaces block by block, down to the full
+     * resolution. See
+     * {@link #meshProgressively(List, double, int, BiConsumer, ExecutorService, MeshTaskMonitor)}.
+     *
+     * @param source The input image.
+     * @param isoLevel The threshold to distinguish between foreground and background values.
+     * @param levelCount Number of levels of resolution, including the image
+     *          itself; each further level halves the previous one by averaging
+     *          blocks of 2 &times; 2 &times; 2 voxels.
+     * @param blockSize Number of voxels per side of the blocks, at each level.
+     * @param consumer Receives each block which replaces a coarser one, on the
+     *          thread of the executor.
+     * @param executor Runs the meshing.
+     * @return the background task, which stops when canceled
+     * @throws IllegalArgumentException If the image is not 3D, or the number of
+     *           levels or the block size is not positive.
+     */
+    public static <T extends RealType<T>> Future<?> meshProgressively(final RandomAccessibleInterval<T> source,
+            final double isoLevel, final int levelCount, final int blockSize,
+            final BiConsumer<MeshBlock, List<MeshBlock>> consumer, final ExecutorService executor) {
+        if (source.numDimensions() != 3) {
+            throw new IllegalArgumentException("Expected a 3D image, not " + source.numDimensions() + "D");
+        }
+        ProgressiveMesher.checkLevelCount(levelCount);
+        ProgressiveMesher.checkBlockSize(blockSize);
+        return executor.submit(() -> new ProgressiveMesher(ProgressiveMesher.pyramid(source, levelCount), isoLevel,
+                blockSize, consumer, MeshTaskMonitor.none()).run());
+    }
+
+    /**
+     * Meshes a multi-scale image progressively in the background, for display
+     * while it is being meshed.
+     * <p>
+     * Each level is cut into blocks of the same number of voxels, so that each
+     * block of a level covers up to eight blocks of the next finer level. The
+     * consumer first receives all blocks of the coarsest level, with a
+     * {@code null} parent. Then, level by level from coarse to fine, it
+     * receives each block of a level, together with the blocks of the next
+     * finer level which replace it. All meshes are in voxel coordinates of the
+     * finest level. The surfaces of the blocks are the same as those of
+     * {@link #flyingEdges(RandomAccessibleInterval, double)} on their level,
+     * and the blocks of a level fit together seamlessly; where blocks of
+     * different levels meet, their skirts cover the cracks.
+     * </p>
+     *
+     * @param levels The levels of resolution, from the finest; each level is
+     *          half the size of the previous one, rounded up or down, with its
+     *          voxels at the centers of the 2 &times; 2 &times; 2 voxels they
+     *          stand for.
+     * @param isoLevel The threshold to distinguish between foreground and background values.
+     * @param blockSize Number of voxels per side of the blocks, at each level.
+     * @param consumer Receives each block and the blocks which replace it, on
+     *          the thread of the executor.
+     * @param executor Runs the meshing.
+     * @param monitor Receives the progress, by blocks meshed, and may cancel the meshing.
+     * @return the background task, which stops when canceled, by the monitor
+     *         or by interrupting it
+     * @throws IllegalArgumentException If there are no levels, they are not
+     *           3D, do not halve from level to level, or the block size is not
+     *           positive.
+     */
+    public static Future<?> meshProgressively(final List<? extends RandomAccessibleInterval<? extends RealType<?>>> levels,
+            final double isoLevel, final int blockSize, final BiConsumer<MeshBlock, List<MeshBlock>> consumer,
+            final ExecutorService executor, final MeshTaskMonitor monitor) {
+        final ProgressiveMesher mesher = new ProgressiveMesher(levels, isoLevel, blockSize, consumer, monitor);
+        return executor.submit(mesher::run);
+    }
+
+    /**
+     * Fills the voxels inside of a closed mesh, the inverse of
+     * {@link #marchingCubes(RandomAccessibleInterval)}. Mesh coordinates are
+     * voxel coordinates; voxels are inside when their centers lie inside or on
+     * the surface. Other voxels are left unchanged.
+     *
+     * @param mesh Closed source mesh
+     * @param target The 3D image to fill
+     */
+    public static <B extends BooleanType<B>> void voxelize(final Mesh mesh,
+            final RandomAccessibleInterval<B> target) {
+        voxelize(mesh, target, false);
+    }
+
+    /**
+     * Fills the voxels inside of a closed mesh, the inverse of
+     * {@link #marchingCubes(RandomAccessibleInterval)}. Mesh coordinates are
+     * voxel coordinates; voxels are inside when their centers lie inside or on
+     * the surface. Other voxels are left unchanged.
+     *
+     * @param mesh Closed source mesh
+     * @param target The 3D image to fill
+     * @param conservative whether to also fill every voxel intersected by the
+     *                     surface
+     */
+    public static <B extends BooleanType<B>> void voxelize(final Mesh mesh,
+            final RandomAccessibleInterval<B> target, final boolean conservative) {
+        Voxelization.fill(mesh, target, b -> b.set(true), conservative);
+    }
+
+    /**
+     * Writes a label into the voxels inside of a closed mesh. Voxels are inside
+     * when their centers lie inside or on the surface. Other voxels are left
+     * unchanged, so several meshes can be written into one label image.
+     *
+     * @param mesh Closed source mesh
+     * @param target The 3D label image to fill
+     * @param label The label to write
+     * @param conservative whether to also label every voxel intersected by the
+     *                     surface
+     */
+    public static <T extends IntegerType<T>> void voxelize(final Mesh mesh,
+            final RandomAccessibleInterval<T> target, final long label,
+            final boolean conservative) {
+        Voxelization.fill(mesh, target, t -> t.setInteger(label), conservative);
+    }
+
+    /**
+     * Writes the signed distance field of a closed mesh into an image: the
+     * distance of each voxel center to the surface, negative inside. Mesh
+     * coordinates are voxel coordinates.
+     *
+     * @param mesh Closed, outward-oriented source mesh
+     * @param target The 3D image to write, e.g. of {@code FloatType}
+     */
+    public static <T extends RealType<T>> void signedDistanceField(
+            final Mesh mesh, final RandomAccessibleInterval<T> target) {
+        SignedDistanceField.compute(mesh, target, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Writes the signed distance field of a closed mesh into an image, within
+     * a narrow band around the surface. Distances beyond the band are clamped
+     * to plus or minus the band, and cost little more than an inside test.
+     *
+     * @param mesh Closed, outward-oriented source mesh
+     * @param target The 3D image to write, e.g. of {@code FloatType}
+     * @param band Half width of the band, in voxels
+     */
+    public static <T extends RealType<T>> void signedDistanceField(
+            final Mesh mesh, final RandomAccessibleInterval<T> target,
+            final double band) {
+        SignedDistanceField.compute(mesh, target, band);
+    }
 }
@@ -0,0 +1,115 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures one phase of an operation and reports it to a
+ * {@link MeshTaskMonitor}, if it {@link MeshTaskMonitor#measuresPhases()
+ * measures phases}. Otherwise, all methods do nothing.
+ */
+class PhaseTimer {
+
+	/** Thread allocation counter, or null if unsupported. */
+	private static final com.sun.management.ThreadMXBean ALLOCATIONS =
+		allocations();
+
+	private static final PhaseTimer NONE = new PhaseTimer(null, null, null);
+
+	private final MeshTaskMonitor monitor;
+	private final String operation;
+	private final String name;
+	private final Map<String, Number> counts;
+	private final long startNanos;
+	private final long startBytes;
+
+	private PhaseTimer(final MeshTaskMonitor monitor, final String operation,
+		final String name)
+	{
+		this.monitor = monitor;
+		this.operation = operation;
+		this.name = name;
+		counts = monitor == null ? null : new LinkedHashMap<>();
+		startBytes = monitor == null ? 0 : allocatedBytes();
+		startNanos = monitor == null ? 0 : System.nanoTime();
+	}
+
+	/** Starts measuring a phase, if the monitor asks for it. */
+	static PhaseTimer start(final MeshTaskMonitor monitor,
+		final String operation, final String name)
+	{
+		return monitor.measuresPhases() ? new PhaseTimer(monitor, operation,
+			name) : NONE;
+	}
+
+	/** Records work done, or a parameter, of the phase. */
+	PhaseTimer count(final String key, final Number value) {
+		if (counts != null) counts.put(key, value);
+		return this;
+	}
+
+	/** Ends the phase, and reports it. */
+	void finish() {
+		if (monitor == null) return;
+		final long nanos = System.nanoTime() - startNanos;
+		final long endBytes = startBytes < 0 ? -1 : allocatedBytes();
+		final long bytes = endBytes < 0 ? -1 : endBytes - startBytes;
+		monitor.phase(new MeshPhase(operation, name, nanos, bytes, counts));
+	}
+
+	// -- Helper methods --
+
+	/** Bytes allocated by the current thread, or -1 if not measured. */
+	private static long allocatedBytes() {
+		return ALLOCATIONS == null ? -1 : ALLOCATIONS.getThreadAllocatedBytes(
+			Thread.currentThread().getId());
+	}
+
+	private static com.sun.management.ThreadMXBean allocations() {
+		try {
+			final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+			final com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) bean;
+			// NB: Measuring is enabled by default. If the application disabled
+			// it, leave it so; the counter then reports -1.
+			return threads.isThreadAllocatedMemorySupported() ? threads : null;
+		}
+		catch (final LinkageError | RuntimeException exc) {
+			// NB: Not a HotSpot-like JVM; allocations are not measured.
+			return null;
+		}
+	}
+}
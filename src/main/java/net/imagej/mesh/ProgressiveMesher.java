@@ -0,0 +1,402 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.realtransform.ScaleAndTranslation;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+/**
+ * Meshes an image pyramid progressively: first the coarsest level, then each
+ * finer level block by block, so that a viewer can show a rough surface at
+ * once and refine it as the finer blocks arrive.
+ * <p>
+ * Each level is cut into blocks of the same number of voxels per side, so the
+ * blocks form an octree: each block of a level covers up to eight blocks of
+ * the next finer one. Blocks are meshed by {@link FlyingEdges}, each from the
+ * cubes it owns, and mapped to voxel coordinates of the finest level. The
+ * blocks of a level thus fit together exactly, while blocks of different
+ * levels get skirts to cover the cracks between them. This is simpler than
+ * transition cells (Lengyel's Transvoxel), which would have to know the
+ * levels of all neighbors of a block before meshing it.
+ * </p>
+ */
+class ProgressiveMesher {
+
+	private final List<? extends RandomAccessibleInterval<? extends RealType<?>>> levels;
+	private final double isoLevel;
+	private final int blockSize;
+	private final BiConsumer<MeshBlock, List<MeshBlock>> consumer;
+	private final MeshTaskMonitor monitor;
+
+	/** Number of blocks per dimension, per level. */
+	private final long[][] blockCounts;
+
+	/** Total number of blocks, and the number meshed so far. */
+	private final long total;
+	private long done;
+
+	ProgressiveMesher(
+		final List<? extends RandomAccessibleInterval<? extends RealType<?>>> levels,
+		final double isoLevel, final int blockSize,
+		final BiConsumer<MeshBlock, List<MeshBlock>> consumer,
+		final MeshTaskMonitor monitor)
+	{
+		checkLevels(levels);
+		checkBlockSize(blockSize);
+		this.levels = levels;
+		this.isoLevel = isoLevel;
+		this.blockSize = blockSize;
+		this.consumer = consumer;
+		this.monitor = monitor;
+		blockCounts = new long[levels.size()][3];
+		long count = 0;
+		for (int l = 0; l < levels.size(); l++) {
+			long blocks = 1;
+			for (int d = 0; d < 3; d++) {
+				blockCounts[l][d] = (levels.get(l).dimension(d) + blockSize - 1) /
+					blockSize;
+				blocks *= blockCounts[l][d];
+			}
+			if (blocks > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Too many blocks at level " + l +
+					": " + blocks);
+			}
+			count += blocks;
+		}
+		total = count;
+	}
+
+	/**
+	 * Delivers the blocks of the coarsest level together, with a {@code null}
+	 * parent, then, from coarse to fine, the blocks of each finer level which
+	 * replace one block of the coarser level.
+	 *
+	 * @throws CancellationException If the monitor cancels the meshing, or the
+	 *           thread is interrupted.
+	 */
+	void run() {
+		final int coarsest = levels.size() - 1;
+		final List<MeshBlock> coarse = new ArrayList<>();
+		forEachBlock(blockCounts[coarsest], (x, y, z) -> coarse.add(block(
+			coarsest, x, y, z)));
+		consumer.accept(null, coarse);
+
+		List<MeshBlock> parents = coarse;
+		for (int l = coarsest - 1; l >= 0; l--) {
+			final int level = l;
+			final long[] counts = blockCounts[l];
+			// NB: Children are delivered by parent, but stored in the order of
+			// the blocks, to be found as parents in turn.
+			final MeshBlock[] blocks = new MeshBlock[(int) (counts[0] * counts[1] *
+				counts[2])];
+			final List<MeshBlock> previous = parents;
+			final int[] p = { 0 };
+			forEachBlock(blockCounts[l + 1], (px, py, pz) -> {
+				final List<MeshBlock> children = new ArrayList<>();
+				final long[] first = new long[3], last = new long[3];
+				childRange(level, new long[] { px, py, pz }, first, last);
+				for (long z = first[2]; z <= last[2]; z++) {
+					for (long y = first[1]; y <= last[1]; y++) {
+						for (long x = first[0]; x <= last[0]; x++) {
+							final MeshBlock block = block(level, x, y, z);
+							blocks[(int) (x + counts[0] * (y + counts[1] * z))] = block;
+							children.add(block);
+						}
+					}
+				}
+				consumer.accept(previous.get(p[0]++), children);
+			});
+			parents = Arrays.asList(blocks);
+		}
+		monitor.update(total, total);
+	}
+
+	/**
+	 * Builds a pyramid by averaging blocks of 2 &times; 2 &times; 2 voxels,
+	 * from the source as the finest level.
+	 */
+	static List<RandomAccessibleInterval<? extends RealType<?>>> pyramid(
+		final RandomAccessibleInterval<? extends RealType<?>> source,
+		final int levelCount)
+	{
+		checkLevelCount(levelCount);
+		final List<RandomAccessibleInterval<? extends RealType<?>>> levels =
+			new ArrayList<>();
+		levels.add(source);
+		for (int l = 1; l < levelCount; l++) {
+			levels.add(downsample(levels.get(l - 1)));
+		}
+		return levels;
+	}
+
+	static void checkLevelCount(final int levelCount) {
+		if (levelCount < 1) {
+			throw new IllegalArgumentException("Invalid number of levels: " +
+				levelCount);
+		}
+	}
+
+	static void checkBlockSize(final int blockSize) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Invalid block size: " + blockSize);
+		}
+	}
+
+	// -- Helper methods --
+
+	private static void checkLevels(
+		final List<? extends RandomAccessibleInterval<? extends RealType<?>>> levels)
+	{
+		if (levels.isEmpty()) {
+			throw new IllegalArgumentException("No levels given");
+		}
+		for (int l = 0; l < levels.size(); l++) {
+			final RandomAccessibleInterval<?> level = levels.get(l);
+			if (level.numDimensions() != 3) {
+				throw new IllegalArgumentException("Level " + l + " is " + level
+					.numDimensions() + "D, not 3D");
+			}
+			if (l == 0) continue;
+			for (int d = 0; d < 3; d++) {
+				final long finer = levels.get(l - 1).dimension(d);
+				final long size = level.dimension(d);
+				if (size != finer / 2 && size != (finer + 1) / 2 || size == 0) {
+					throw new IllegalArgumentException("Level " + l +
+						" is not half the size of level " + (l - 1) + " in dimension " +
+						d + ": " + size + " vs. " + finer);
+				}
+			}
+		}
+	}
+
+	/** Visits the blocks of a level, in the order of their voxels. */
+	private static void forEachBlock(final long[] counts,
+		final BlockTask task)
+	{
+		for (long z = 0; z < counts[2]; z++) {
+			for (long y = 0; y < counts[1]; y++) {
+				for (long x = 0; x < counts[0]; x++) {
+					task.run(x, y, z);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the blocks of a level covered by one block of the next coarser
+	 * level. The last blocks along each dimension also take the blocks which
+	 * stick out of the coarser level, if it was rounded down.
+	 */
+	private void childRange(final int level, final long[] parent,
+		final long[] first, final long[] last)
+	{
+		final long[] counts = blockCounts[level];
+		final long[] parentCounts = blockCounts[level + 1];
+		for (int d = 0; d < 3; d++) {
+			first[d] = 2 * parent[d];
+			last[d] = parent[d] == parentCounts[d] - 1 ? counts[d] - 1 : Math.min(
+				first[d] + 1, counts[d] - 1);
+		}
+	}
+
+	/** Meshes one block of a level, and its skirt. */
+	private MeshBlock block(final int level, final long x, final long y,
+		final long z)
+	{
+		if (Thread.currentThread().isInterrupted()) {
+			throw new CancellationException();
+		}
+		monitor.update(done++, total);
+		final RandomAccessibleInterval<? extends RealType<?>> image = levels.get(
+			level);
+		final RandomAccessibleInterval<? extends RealType<?>> finest = levels.get(
+			0);
+		final long[] index = { x, y, z };
+		final long[] imageMin = new long[3], imageMax = new long[3];
+		final long[] cubeMin = new long[3], cubeMax = new long[3];
+		final long[] blockMin = new long[3], blockMax = new long[3];
+		final double[] scale = new double[3], translation = new double[3];
+		final long factor = 1L << level;
+		for (int d = 0; d < 3; d++) {
+			// NB: The first block also owns the cubes reaching into the padding
+			// before the image, and the last block those after it.
+			final long start = index[d] * blockSize;
+			final long end = Math.min(start + blockSize, image.dimension(d)) - 1;
+			cubeMin[d] = image.min(d) + (index[d] == 0 ? -1 : start);
+			cubeMax[d] = image.min(d) + end;
+			imageMin[d] = image.min(d) + start;
+			imageMax[d] = Math.min(image.max(d), image.min(d) + end + 1);
+			blockMin[d] = finest.min(d) + factor * start;
+			blockMax[d] = Math.min(finest.max(d), finest.min(d) + factor * (end +
+				1) - 1);
+			// NB: Voxels of a coarser level lie at the centers of the voxels of
+			// the finest level which they average.
+			scale[d] = factor;
+			translation[d] = finest.min(d) - factor * image.min(d) + (factor - 1) /
+				2.0;
+		}
+		final MeshArrays arrays = FlyingEdges.extract(Views.interval(image,
+			imageMin, imageMax), isoLevel, VertexTransform.of(
+				new ScaleAndTranslation(scale, translation)), new FinalInterval(
+					cubeMin, cubeMax), blockMonitor());
+		final Mesh mesh = arrays.toMesh();
+		final Mesh skirt = skirt(arrays, mesh, 2.0 * factor);
+		return new MeshBlock(level, new FinalInterval(blockMin, blockMax), mesh,
+			skirt);
+	}
+
+	/**
+	 * Gets a monitor for meshing one block, which cancels with the overall
+	 * monitor, but leaves the progress to the blocks done.
+	 */
+	private MeshTaskMonitor blockMonitor() {
+		return new MeshTaskMonitor() {
+
+			@Override
+			public boolean isCanceled() {
+				return monitor.isCanceled() || Thread.currentThread().isInterrupted();
+			}
+		};
+	}
+
+	/**
+	 * Hangs a strip of triangles from each open edge of a block's mesh, against
+	 * the vertex normals, i.e. into the object.
+	 */
+	private static Mesh skirt(final MeshArrays arrays, final Mesh mesh,
+		final double depth)
+	{
+		final int vertexCount = arrays.positions.length / 3;
+		final Adjacency.HalfEdges halfEdges = new Adjacency(vertexCount,
+			arrays.triangles).halfEdges();
+		final Vertices vertices = mesh.vertices();
+		final int[] ids = new int[vertexCount];
+		final List<double[]> points = new ArrayList<>();
+		final List<int[]> quads = new ArrayList<>();
+		for (int h = 0; h < arrays.triangles.length; h++) {
+			if (halfEdges.twin(h) >= 0) continue;
+			final int a = halfEdges.origin(h), b = halfEdges.target(h);
+			for (final int v : new int[] { a, b }) {
+				if (ids[v] > 0) continue;
+				// NB: Stores each skirt vertex at 2 * i, and its lowered copy at
+				// 2 * i + 1; ids are offset by one to tell unset ones apart.
+				ids[v] = points.size() / 2 + 1;
+				points.add(new double[] { vertices.x(v), vertices.y(v), vertices.z(
+					v) });
+				points.add(new double[] { vertices.x(v) - depth * vertices.nx(v),
+					vertices.y(v) - depth * vertices.ny(v), vertices.z(v) - depth *
+						vertices.nz(v) });
+			}
+			quads.add(new int[] { ids[a] - 1, ids[b] - 1 });
+		}
+		final double[] positions = new double[3 * points.size()];
+		for (int i = 0; i < points.size(); i++) {
+			System.arraycopy(points.get(i), 0, positions, 3 * i, 3);
+		}
+		final int[] triangles = new int[6 * quads.size()];
+		for (int q = 0; q < quads.size(); q++) {
+			final int a = 2 * quads.get(q)[0], b = 2 * quads.get(q)[1];
+			// NB: Runs against the open edge a-b, so that the skirt continues
+			// the surface outwards.
+			final int[] quad = { b, a, a + 1, b, a + 1, b + 1 };
+			System.arraycopy(quad, 0, triangles, 6 * q, 6);
+		}
+		return new MeshArrays(positions, triangles).toMesh();
+	}
+
+	/**
+	 * Halves an image by averaging blocks of 2 &times; 2 &times; 2 voxels,
+	 * rounding the size up: blocks at the far border average the voxels they
+	 * have.
+	 */
+	private static Img<FloatType> downsample(
+		final RandomAccessibleInterval<? extends RealType<?>> source)
+	{
+		final long[] size = new long[3];
+		for (int d = 0; d < 3; d++) {
+			size[d] = (source.dimension(d) + 1) / 2;
+		}
+		final Img<FloatType> target = ArrayImgs.floats(size);
+		IntStream.range(0, (int) size[2]).parallel().forEach(z -> {
+			final RandomAccess<? extends RealType<?>> in = source.randomAccess();
+			final RandomAccess<FloatType> out = target.randomAccess();
+			for (long y = 0; y < size[1]; y++) {
+				for (long x = 0; x < size[0]; x++) {
+					double sum = 0;
+					int count = 0;
+					for (long k = 2L * z; k <= Math.min(2L * z + 1, source.dimension(
+						2) - 1); k++)
+					{
+						for (long j = 2 * y; j <= Math.min(2 * y + 1, source.dimension(
+							1) - 1); j++)
+						{
+							for (long i = 2 * x; i <= Math.min(2 * x + 1, source.dimension(
+								0) - 1); i++)
+							{
+								in.setPosition(source.min(0) + i, 0);
+								in.setPosition(source.min(1) + j, 1);
+								in.setPosition(source.min(2) + k, 2);
+								sum += in.get().getRealDouble();
+								count++;
+							}
+						}
+					}
+					out.setPosition(x, 0);
+					out.setPosition(y, 1);
+					out.setPosition(z, 2);
+					out.get().setReal(sum / count);
+				}
+			}
+		});
+		return target;
+	}
+
+	// -- Helper classes --
+
+	private interface BlockTask {
+
+		void run(long x, long y, long z);
+	}
+}
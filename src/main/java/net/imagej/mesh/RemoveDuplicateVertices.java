@@ -34,6 +34,7 @@ import net.imagej.mesh.nio.BufferMesh;
 import net.imglib2.RealLocalizable;
 import net.imglib2.RealPoint;
 
+import java.nio.ByteBuffer;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -42,12 +43,23 @@ import java.util.Map;
  */
 class RemoveDuplicateVertices {
 
+	/** Number of triangles between polls of the monitor. */
+	private static final int POLL_INTERVAL = 1 << 12;
+
 	static Mesh calculate(Mesh mesh, int precision) {
+		return calculate(mesh, precision, MeshTaskMonitor.none());
+	}
+
+	static Mesh calculate(Mesh mesh, int precision, MeshTaskMonitor monitor) {
+		PhaseTimer weldPhase = PhaseTimer.start(monitor, "removeDuplicateVertices", "weld");
 		Map<String, IndexedVertex> vertices = new LinkedHashMap<>();
 		int[][] triangles = new int[(int) mesh.triangles().size()][3];
 
 		int trianglesCount = 0;
 		for (net.imagej.mesh.Triangle triangle : mesh.triangles()) {
+			if (trianglesCount % POLL_INTERVAL == 0) {
+				monitor.update(trianglesCount, triangles.length);
+			}
 			RealPoint p1 = new RealPoint(triangle.v0x(), triangle.v0y(), triangle.v0z());
 			RealPoint p2 = new RealPoint(triangle.v1x(), triangle.v1y(), triangle.v1z());
 			RealPoint p3 = new RealPoint(triangle.v2x(), triangle.v2y(), triangle.v2z());
@@ -56,7 +68,14 @@ class RemoveDuplicateVertices {
 			triangles[trianglesCount][2] = getVertex(vertices, p3, precision);
 			trianglesCount++;
 		}
-		Mesh res = new BufferMesh(vertices.size(), triangles.length);
+		monitor.update(trianglesCount, triangles.length);
+		weldPhase.count("vertices", mesh.vertices().size())
+				.count("triangles", trianglesCount)
+				.count("uniqueVertices", vertices.size()).finish();
+
+		PhaseTimer outputPhase = PhaseTimer.start(monitor, "removeDuplicateVertices", "output");
+		Mesh res = new BufferMesh(vertices.size(), triangles.length,
+			ByteBuffer::allocateDirect, true);
 		vertices.values().forEach(vertex -> {
 			res.vertices().add(vertex.point.getFloatPosition(0), vertex.point.getFloatPosition(1), vertex.point.getFloatPosition(2));
 		});
@@ -64,6 +83,8 @@ class RemoveDuplicateVertices {
 		for (int[] triangle : triangles) {
 			res.triangles().add(triangle[0], triangle[1], triangle[2]);
 		}
+		outputPhase.count("vertices", res.vertices().size())
+				.count("triangles", res.triangles().size()).finish();
 		return res;
 	}
 
@@ -0,0 +1,407 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Computes the signed distance field of a closed mesh: the distance of each
+ * voxel center to the surface, negative inside.
+ * <p>
+ * Mesh coordinates are voxel coordinates. Near the surface, each voxel is an
+ * exact signed distance query against the mesh's {@link BVH}. The image is
+ * processed in blocks, in parallel, and blocks away from the surface are
+ * skipped as a whole. Within a block, each query is bounded by the distance
+ * to the triangle closest to the previous voxel, which prunes the search to a
+ * few nodes.
+ * </p>
+ * <p>
+ * With a narrow band, voxels outside of the band are only classified as
+ * inside or outside, and clamped to the band. For the whole field, queries
+ * far from the surface would visit much of the hierarchy, so the closest
+ * triangles found near the surface are instead propagated outwards by fast
+ * sweeping: passes through the image plane by plane, along each axis in both
+ * directions, offer each voxel the closest triangles of its nine neighbors in
+ * the previous plane, in parallel within a plane. Such far distances are the
+ * distances to real triangles, so never too small, but may occasionally be
+ * slightly too large; their signs come from a {@link Containment} test.
+ * </p>
+ */
+class SignedDistanceField {
+
+	/** Edge length of the blocks processed in parallel. */
+	private static final int BLOCK_SIZE = 16;
+
+	/** Distance up to which the whole field is computed exactly. */
+	private static final double EXACT_BAND = 2;
+
+	/** Slack added to bounds derived from earlier distances, for rounding. */
+	private static final double SLACK = 1e-6;
+
+	private SignedDistanceField() {
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Writes the signed distance field of a mesh into an image.
+	 *
+	 * @param mesh Closed, outward-oriented source mesh, in voxel coordinates.
+	 * @param target Three-dimensional image to write.
+	 * @param band Distances beyond this are clamped to it; infinite for the
+	 *          whole field.
+	 */
+	static <T extends RealType<T>> void compute(final Mesh mesh,
+		final RandomAccessibleInterval<T> target, final double band)
+	{
+		if (target.numDimensions() != 3) {
+			throw new IllegalArgumentException("Expected a 3D image, not " + target
+				.numDimensions() + "D");
+		}
+		if (!(band > 0)) {
+			throw new IllegalArgumentException("Band must be positive: " + band);
+		}
+		final BVH bvh = BVH.build(mesh);
+		final Containment containment = Containment.build(bvh);
+		final long voxels = target.dimension(0) * target.dimension(1) * target
+			.dimension(2);
+		// NB: Fast sweeping needs two arrays over the whole image.
+		if (Double.isInfinite(band) && bvh.triangleCount() > 0 &&
+			voxels < Integer.MAX_VALUE - 8)
+		{
+			new Sweeping<>(bvh, containment, target).compute();
+		}
+		else {
+			forEachBlock(target, (start, end) -> new Block<>(bvh, containment,
+				target.randomAccess(), band, start, end, null).compute());
+		}
+	}
+
+	// -- Helper methods --
+
+	private interface BlockTask {
+
+		void run(long[] start, long[] end);
+	}
+
+	/** Runs a task for each block of an image, in parallel. */
+	private static void forEachBlock(final RandomAccessibleInterval<?> target,
+		final BlockTask task)
+	{
+		final int[] blocks = new int[3];
+		for (int d = 0; d < 3; d++)
+			blocks[d] = (int) ((target.dimension(d) - 1) / BLOCK_SIZE + 1);
+		IntStream.range(0, blocks[0] * blocks[1] * blocks[2]).parallel().forEach(
+			b -> {
+				final long[] start = new long[3], end = new long[3];
+				int index = b;
+				for (int d = 0; d < 3; d++) {
+					start[d] = target.min(d) + (long) (index % blocks[d]) * BLOCK_SIZE;
+					end[d] = Math.min(target.max(d), start[d] + BLOCK_SIZE - 1);
+					index /= blocks[d];
+				}
+				task.run(start, end);
+			});
+	}
+
+	private static double sq(final double value) {
+		return value * value;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Exact signed distances of the voxels of one block within a band, which
+	 * are either written to the image, or recorded for {@link Sweeping}.
+	 */
+	private static class Block<T extends RealType<T>> {
+
+		private final BVH bvh;
+		private final BVH.Query query;
+		private final Containment containment;
+		private final RandomAccess<T> access;
+		private final double band;
+		private final long[] start, end;
+		private final Sweeping<T> record;
+
+		private Block(final BVH bvh, final Containment containment,
+			final RandomAccess<T> access, final double band, final long[] start,
+			final long[] end, final Sweeping<T> record)
+		{
+			this.bvh = bvh;
+			this.query = bvh.query();
+			this.containment = containment;
+			this.access = access;
+			this.band = band;
+			this.start = start;
+			this.end = end;
+			this.record = record;
+		}
+
+		private void compute() {
+			final double cx = 0.5 * (start[0] + end[0]);
+			final double cy = 0.5 * (start[1] + end[1]);
+			final double cz = 0.5 * (start[2] + end[2]);
+			final double radius = 0.5 * Math.sqrt(sq(end[0] - start[0]) + sq(end[1] -
+				start[1]) + sq(end[2] - start[2]));
+			final double center = query.signedDistance(cx, cy, cz, band + radius);
+			if (center == Double.POSITIVE_INFINITY) {
+				// NB: The block is out of the band, and does not meet the surface.
+				// In an empty mesh, everything is outside.
+				if (record == null) fill(bvh.triangleCount() > 0 && containment
+					.contains(cx, cy, cz) ? -band : band);
+				return;
+			}
+
+			// NB: The triangle closest to a voxel is usually also closest, or
+			// nearly so, to its neighbors. Its distance then tightly bounds the
+			// search for the next voxel in the row, or the first voxel of the next
+			// row or slice. Voxels outside of the band take their side from the
+			// neighbor, unless the surface may pass between them. The first voxel
+			// starts from the triangle closest to the center.
+			int slicePrimitive = query.primitive(), rowPrimitive;
+			double sliceSigned = Double.NaN, rowSigned;
+			for (long z = start[2]; z <= end[2]; z++) {
+				rowPrimitive = slicePrimitive;
+				rowSigned = sliceSigned;
+				for (long y = start[1]; y <= end[1]; y++) {
+					access.setPosition(start[0], 0);
+					access.setPosition(y, 1);
+					access.setPosition(z, 2);
+					int primitive = rowPrimitive;
+					double previous = rowSigned;
+					for (long x = start[0]; x <= end[0]; x++) {
+						final double distance = distance(x, y, z, primitive, previous);
+						primitive = Math.abs(distance) < band ? query.primitive() : -1;
+						if (record == null) {
+							access.get().setReal(distance);
+							access.fwd(0);
+						}
+						else if (primitive >= 0) {
+							record.set(x, y, z, primitive, Math.abs(distance));
+						}
+						previous = distance;
+						if (x == start[0]) {
+							rowPrimitive = primitive;
+							rowSigned = distance;
+							if (y == start[1]) {
+								slicePrimitive = primitive;
+								sliceSigned = distance;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Signed distance of a voxel, clamped to the band. When recording, voxels
+		 * outside of the band are not classified, and are NaN.
+		 *
+		 * @param hint Triangle closest to a voxel one unit away, or -1.
+		 * @param neighbor Signed distance of that voxel, or NaN.
+		 */
+		private double distance(final long x, final long y, final long z,
+			final int hint, final double neighbor)
+		{
+			final double bound = hint < 0 ? band : Math.min(band, query.distanceTo(
+				hint, x, y, z) + SLACK);
+			final double distance = query.signedDistance(x, y, z, bound);
+			if (distance != Double.POSITIVE_INFINITY) return distance;
+			if (record != null) return Double.NaN;
+			// NB: Beyond the band. The surface can only pass between this voxel
+			// and its neighbor if their distances add up to at most one unit.
+			final boolean inside = Math.abs(neighbor) + band > 1 ? neighbor < 0
+				: containment.contains(x, y, z);
+			return inside ? -band : band;
+		}
+
+		private void fill(final double value) {
+			for (long z = start[2]; z <= end[2]; z++) {
+				for (long y = start[1]; y <= end[1]; y++) {
+					access.setPosition(start[0], 0);
+					access.setPosition(y, 1);
+					access.setPosition(z, 2);
+					for (long x = start[0]; x <= end[0]; x++) {
+						access.get().setReal(value);
+						access.fwd(0);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The whole field: exact near the surface, and propagated outwards from
+	 * there by fast sweeping.
+	 */
+	private static class Sweeping<T extends RealType<T>> {
+
+		private final BVH bvh;
+		private final Containment containment;
+		private final RandomAccessibleInterval<T> target;
+		private final long[] min;
+		private final int[] size;
+		private final int[] stride;
+
+		/** Closest known triangle of each voxel, in internal order, or -1. */
+		private final int[] closest;
+
+		/** Distance of each voxel to its closest known triangle. */
+		private final float[] distances;
+
+		private Sweeping(final BVH bvh, final Containment containment,
+			final RandomAccessibleInterval<T> target)
+		{
+			this.bvh = bvh;
+			this.containment = containment;
+			this.target = target;
+			min = new long[] { target.min(0), target.min(1), target.min(2) };
+			size = new int[] { (int) target.dimension(0), (int) target.dimension(
+				1), (int) target.dimension(2) };
+			stride = new int[] { 1, size[0], size[0] * size[1] };
+			closest = new int[size[0] * size[1] * size[2]];
+			distances = new float[closest.length];
+			Arrays.fill(closest, -1);
+			Arrays.fill(distances, Float.POSITIVE_INFINITY);
+		}
+
+		private void compute() {
+			forEachBlock(target, (start, end) -> new Block<>(bvh, containment, target
+				.randomAccess(), EXACT_BAND, start, end, this).compute());
+			if (Arrays.stream(closest).parallel().noneMatch(primitive -> primitive >=
+				0))
+			{
+				// NB: The surface is far from all voxels, e.g. outside of the image,
+				// so there is nothing to sweep from. Query each voxel instead.
+				forEachBlock(target, (start, end) -> new Block<>(bvh, containment,
+					target.randomAccess(), Double.POSITIVE_INFINITY, start, end, null)
+						.compute());
+				return;
+			}
+			for (int axis = 0; axis < 3; axis++) {
+				sweep(axis, true);
+				sweep(axis, false);
+			}
+			write();
+		}
+
+		private void set(final long x, final long y, final long z,
+			final int primitive, final double distance)
+		{
+			final int index = index(x, y, z);
+			closest[index] = primitive;
+			distances[index] = (float) distance;
+		}
+
+		/**
+		 * Sweeps the planes perpendicular to an axis in order, offering the
+		 * closest triangles of the nine nearest voxels in each plane to each
+		 * voxel of the next plane. Voxels of one plane only read from the one
+		 * before, so each plane is processed in parallel.
+		 */
+		private void sweep(final int axis, final boolean forward) {
+			final int a1 = (axis + 1) % 3, a2 = (axis + 2) % 3;
+			final int step = forward ? stride[axis] : -stride[axis];
+			for (int i = 1; i < size[axis]; i++) {
+				final int plane = forward ? i : size[axis] - 1 - i;
+				IntStream.range(0, size[a2]).parallel().forEach(j2 -> {
+					final BVH.Query query = bvh.query();
+					final long[] position = new long[3];
+					position[axis] = min[axis] + plane;
+					position[a2] = min[a2] + j2;
+					for (int j1 = 0; j1 < size[a1]; j1++) {
+						position[a1] = min[a1] + j1;
+						final int index = plane * stride[axis] + j2 * stride[a2] + j1 *
+							stride[a1];
+						int tested = closest[index];
+						for (int d2 = Math.max(0, j2 - 1); d2 <= Math.min(size[a2] - 1, j2 +
+							1); d2++)
+						{
+							for (int d1 = Math.max(0, j1 - 1); d1 <= Math.min(size[a1] - 1,
+								j1 + 1); d1++)
+							{
+								final int primitive = closest[index - step + (d2 - j2) *
+									stride[a2] + (d1 - j1) * stride[a1]];
+								// NB: Neighbors mostly share their closest triangle.
+								if (primitive < 0 || primitive == tested) continue;
+								tested = primitive;
+								final double distance = query.distanceTo(primitive,
+									position[0], position[1], position[2]);
+								if (distance < distances[index]) {
+									closest[index] = primitive;
+									distances[index] = (float) distance;
+								}
+							}
+						}
+					}
+				});
+			}
+		}
+
+		/**
+		 * Writes the signed distances, with exact signs near the surface, and
+		 * signs from the inside test away from it.
+		 */
+		private void write() {
+			IntStream.range(0, size[2]).parallel().forEach(slice -> {
+				final BVH.Query query = bvh.query();
+				final RandomAccess<T> access = target.randomAccess();
+				final long z = min[2] + slice;
+				for (long y = min[1]; y < min[1] + size[1]; y++) {
+					access.setPosition(min[0], 0);
+					access.setPosition(y, 1);
+					access.setPosition(z, 2);
+					for (long x = min[0]; x < min[0] + size[0]; x++) {
+						final int index = index(x, y, z);
+						final double distance = distances[index];
+						final double value;
+						if (distance <= EXACT_BAND) {
+							value = query.signedDistanceTo(closest[index], x, y, z);
+						}
+						else value = containment.contains(x, y, z) ? -distance : distance;
+						access.get().setReal(value);
+						access.fwd(0);
+					}
+				}
+			});
+		}
+
+		private int index(final long x, final long y, final long z) {
+			return (int) ((z - min[2]) * stride[2] + (y - min[1]) * stride[1] + x -
+				min[0]);
+		}
+	}
+}
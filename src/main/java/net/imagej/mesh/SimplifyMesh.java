@@ -47,6 +47,7 @@ package net.imagej.mesh;
 import net.imagej.mesh.nio.BufferMesh;
 import net.imglib2.RealPoint;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -192,11 +193,17 @@ class SimplifyMesh {
 	private Vector<Vertex> vertices = new Vector<>();
 	private Vector<Ref> refs = new Vector<>();
 	private final Mesh inMesh;
+	private final MeshTaskMonitor monitor;
 
 	private final Point p = new Point();
 
 	SimplifyMesh(Mesh mesh) {
+		this(mesh, MeshTaskMonitor.none());
+	}
+
+	SimplifyMesh(Mesh mesh, MeshTaskMonitor monitor) {
 		this.inMesh = mesh;
+		this.monitor = monitor;
 	}
 
 	private void readMesh() {
@@ -265,7 +272,9 @@ class SimplifyMesh {
 		// init
 
 		// re-read the mesh every time we simplify to start with the original data.
+		final PhaseTimer readPhase = PhaseTimer.start(monitor, "simplify", "read");
 		readMesh();
+		readPhase.count("vertices", vertices.size()).count("triangles", triangles.size()).finish();
 
         /*
         System.out.println(String.format("Simplify Target: %d of %d (%d%%)",
@@ -303,11 +312,18 @@ class SimplifyMesh {
             */
 
 
+			// report progress, and stop if canceled
+			monitor.update(deleted_triangles, triangle_count - target_count);
+
 			// target number of triangles reached ? Then break
 			if (triangle_count - deleted_triangles <= target_count) {
 				break;
 			}
 
+			final PhaseTimer iterationPhase = PhaseTimer.start(monitor, "simplify", "iteration");
+			final int deleted_before = deleted_triangles;
+			int collapses = 0;
+
 			// update mesh once in a while
 			if (iteration % 5 == 0) {
 				update_mesh(iteration);
@@ -380,6 +396,7 @@ class SimplifyMesh {
 
 					v0.tstart = tstart;
 					v0.tcount = tcount;
+					collapses++;
 
 					break;
 				}
@@ -391,10 +408,19 @@ class SimplifyMesh {
 
 			}
 
+			iterationPhase.count("iteration", iteration)
+					.count("threshold", threshold)
+					.count("collapses", collapses)
+					.count("deletedTriangles", deleted_triangles - deleted_before)
+					.count("remainingTriangles", triangle_count - deleted_triangles)
+					.finish();
 		}
 
 		// clean up mesh
+		final PhaseTimer compactPhase = PhaseTimer.start(monitor, "simplify", "compact");
 		compact_mesh();
+		compactPhase.count("vertices", vertices.size()).count("triangles", triangles.size()).finish();
+		monitor.update(1, 1);
 
 		// ready
         /*
@@ -407,7 +433,11 @@ class SimplifyMesh {
                 timeEnd-timeStart));
         */
 
-		return createSimplifiedMesh();
+		final PhaseTimer outputPhase = PhaseTimer.start(monitor, "simplify", "output");
+		final Mesh simplified = createSimplifiedMesh();
+		outputPhase.count("vertices", simplified.vertices().size())
+				.count("triangles", simplified.triangles().size()).finish();
+		return simplified;
 	}
 
 	// Check if a triangle flips when this edge is removed
@@ -729,7 +759,8 @@ class SimplifyMesh {
 			indexList.add(t.v[2]);
 		});
 
-		Mesh mesh = new BufferMesh(vertArray.length, triangles.size());
+		Mesh mesh = new BufferMesh(vertArray.length, triangles.size(),
+			ByteBuffer::allocateDirect, true);
 
 		for (int i = 0; i < vertArray.length; i++) {
 			mesh.vertices().add(vertArray[i].getFloatPosition(0), vertArray[i].getFloatPosition(1), vertArray[i].getFloatPosition(2));
@@ -0,0 +1,298 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.stream.IntStream;
+
+/**
+ * Smooths the vertex positions of a mesh in place: Laplacian, Taubin
+ * (&lambda;/&mu;) and HC (Vollmer et al. 1999) smoothing with uniform
+ * weights.
+ * <p>
+ * Vertices at the same position, such as the copies emitted by marching
+ * cubes, move together. Their neighbors are taken from a CSR
+ * {@link Adjacency} over one representative per position. Positions are
+ * double-buffered in {@code float} arrays, allocated once up front, and each
+ * iteration updates all vertices in parallel over ranges of vertices. Only
+ * the final positions are written back to the mesh, through
+ * {@link Vertices#setPositionf}.
+ * </p>
+ * <p>
+ * Vertices on the boundary of an open mesh can optionally be pinned, so that
+ * holes do not shrink. Vertices without neighbors never move.
+ * </p>
+ */
+class Smoothing {
+
+	/** Number of vertices per parallel task. */
+	private static final int CHUNK_SIZE = 1 << 12;
+
+	private final Mesh mesh;
+
+	/** Dense index of each mesh vertex's position. */
+	private final int[] ids;
+	private final int count;
+	private final int[] offsets;
+	private final int[] neighbors;
+
+	/** Whether each position is kept. */
+	private final boolean[] fixed;
+
+	/** Current positions, three per dense index, and the next ones. */
+	private float[] positions;
+	private float[] next;
+
+	private Smoothing(final Mesh mesh, final boolean pinBoundary) {
+		this.mesh = mesh;
+		final Vertices vertices = mesh.vertices();
+		final Triangles triangles = mesh.triangles();
+		// NB: Number the distinct positions densely, so that iterations
+		// touch only these and their neighbors lie close in memory.
+		final int[] representatives = CoincidentVertices.representatives(
+			vertices);
+		ids = new int[representatives.length];
+		int n = 0;
+		for (int v = 0; v < ids.length; v++) {
+			if (representatives[v] == v) ids[v] = n++;
+		}
+		for (int v = 0; v < ids.length; v++) {
+			ids[v] = ids[representatives[v]];
+		}
+		count = n;
+		if (triangles.size() > Integer.MAX_VALUE / 3) {
+			throw new IllegalArgumentException("Too many triangles: " + triangles
+				.size());
+		}
+		final int[] indices = new int[3 * (int) triangles.size()];
+		IntStream.range(0, indices.length / 3).parallel().forEach(t -> {
+			indices[3 * t] = ids[(int) triangles.vertex0(t)];
+			indices[3 * t + 1] = ids[(int) triangles.vertex1(t)];
+			indices[3 * t + 2] = ids[(int) triangles.vertex2(t)];
+		});
+		final Adjacency adjacency = new Adjacency(count, indices);
+		offsets = adjacency.neighborOffsets();
+		neighbors = adjacency.neighbors();
+		final Adjacency.HalfEdges halfEdges = pinBoundary ? adjacency
+			.halfEdges() : null;
+		fixed = new boolean[count];
+		IntStream.range(0, count).parallel().forEach(i -> fixed[i] =
+			offsets[i + 1] == offsets[i] || //
+				halfEdges != null && halfEdges.isBoundary(i));
+		positions = new float[3 * count];
+		IntStream.range(0, ids.length).parallel().forEach(v -> {
+			final int p = 3 * ids[v];
+			if (representatives[v] != v) return;
+			positions[p] = vertices.xf(v);
+			positions[p + 1] = vertices.yf(v);
+			positions[p + 2] = vertices.zf(v);
+		});
+		// NB: Fixed positions are never written, so both buffers hold them.
+		next = positions.clone();
+	}
+
+	/**
+	 * Moves each vertex towards the mean of its neighbors.
+	 *
+	 * @param mesh Mesh to smooth in place
+	 * @param iterations Number of smoothing steps
+	 * @param lambda Fraction of the way to the mean moved per step, in (0, 1]
+	 * @param pinBoundary Whether vertices on boundary edges keep their position
+	 */
+	static void laplacian(final Mesh mesh, final int iterations,
+		final double lambda, final boolean pinBoundary)
+	{
+		checkIterations(iterations);
+		final Smoothing smoothing = new Smoothing(mesh, pinBoundary);
+		for (int i = 0; i < iterations; i++) {
+			smoothing.step((float) lambda);
+		}
+		smoothing.write();
+	}
+
+	/**
+	 * Alternates a shrinking Laplacian step with an inflating one, which
+	 * smooths without the shrinkage of plain Laplacian smoothing.
+	 *
+	 * @param mesh Mesh to smooth in place
+	 * @param iterations Number of pairs of steps
+	 * @param lambda Positive factor of the shrinking steps
+	 * @param mu Negative factor of the inflating steps, with
+	 *          {@code -mu > lambda}
+	 * @param pinBoundary Whether vertices on boundary edges keep their position
+	 */
+	static void taubin(final Mesh mesh, final int iterations,
+		final double lambda, final double mu, final boolean pinBoundary)
+	{
+		checkIterations(iterations);
+		final Smoothing smoothing = new Smoothing(mesh, pinBoundary);
+		for (int i = 0; i < iterations; i++) {
+			smoothing.step((float) lambda);
+			smoothing.step((float) mu);
+		}
+		smoothing.write();
+	}
+
+	/**
+	 * Laplacian smoothing followed, in each iteration, by pushing the vertices
+	 * back towards their original and previous positions (the "HC" algorithm),
+	 * which preserves the volume.
+	 *
+	 * @param mesh Mesh to smooth in place
+	 * @param iterations Number of smoothing steps
+	 * @param alpha Weight of the original positions, in [0, 1]
+	 * @param beta Weight of each vertex's own correction against those of its
+	 *          neighbors, in [0, 1]
+	 * @param pinBoundary Whether vertices on boundary edges keep their position
+	 */
+	static void hc(final Mesh mesh, final int iterations, final double alpha,
+		final double beta, final boolean pinBoundary)
+	{
+		checkIterations(iterations);
+		final Smoothing smoothing = new Smoothing(mesh, pinBoundary);
+		final float[] original = smoothing.positions.clone();
+		final float[] corrections = new float[original.length];
+		for (int i = 0; i < iterations; i++) {
+			smoothing.hcStep(original, corrections, (float) alpha, (float) beta);
+		}
+		smoothing.write();
+	}
+
+	// -- Helper methods --
+
+	private static void checkIterations(final int iterations) {
+		if (iterations < 0) {
+			throw new IllegalArgumentException("Negative iterations: " +
+				iterations);
+		}
+	}
+
+	/** Runs a task for each range of dense indices, in parallel. */
+	private void forEachRange(final RangeTask task) {
+		IntStream.range(0, (count + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel()
+			.forEach(c -> task.run(c * CHUNK_SIZE, Math.min(count, (c + 1) *
+				CHUNK_SIZE)));
+	}
+
+	/** One Laplacian step: {@code p += factor * (mean of neighbors - p)}. */
+	private void step(final float factor) {
+		final float[] src = positions, dst = next;
+		forEachRange((start, end) -> {
+			for (int v = start; v < end; v++) {
+				if (fixed[v]) continue;
+				final int first = offsets[v], last = offsets[v + 1];
+				float sx = 0, sy = 0, sz = 0;
+				for (int i = first; i < last; i++) {
+					final int n = 3 * neighbors[i];
+					sx += src[n];
+					sy += src[n + 1];
+					sz += src[n + 2];
+				}
+				final float scale = factor / (last - first);
+				final int p = 3 * v;
+				dst[p] = src[p] + scale * sx - factor * src[p];
+				dst[p + 1] = src[p + 1] + scale * sy - factor * src[p + 1];
+				dst[p + 2] = src[p + 2] + scale * sz - factor * src[p + 2];
+			}
+		});
+		positions = dst;
+		next = src;
+	}
+
+	/** One HC step, in two passes over the vertices. */
+	private void hcStep(final float[] original, final float[] corrections,
+		final float alpha, final float beta)
+	{
+		final float[] previous = positions, smoothed = next;
+		// Laplacian step, and each vertex's offset from where it should be.
+		forEachRange((start, end) -> {
+			for (int v = start; v < end; v++) {
+				if (fixed[v]) continue;
+				final int first = offsets[v], last = offsets[v + 1];
+				float sx = 0, sy = 0, sz = 0;
+				for (int i = first; i < last; i++) {
+					final int n = 3 * neighbors[i];
+					sx += previous[n];
+					sy += previous[n + 1];
+					sz += previous[n + 2];
+				}
+				final float scale = 1f / (last - first);
+				final int p = 3 * v;
+				smoothed[p] = scale * sx;
+				smoothed[p + 1] = scale * sy;
+				smoothed[p + 2] = scale * sz;
+				corrections[p] = smoothed[p] - alpha * original[p] - (1 - alpha) *
+					previous[p];
+				corrections[p + 1] = smoothed[p + 1] - alpha * original[p + 1] -
+					(1 - alpha) * previous[p + 1];
+				corrections[p + 2] = smoothed[p + 2] - alpha * original[p + 2] -
+					(1 - alpha) * previous[p + 2];
+			}
+		});
+		// Push back by the own offset and the mean offset of the neighbors.
+		forEachRange((start, end) -> {
+			for (int v = start; v < end; v++) {
+				if (fixed[v]) continue;
+				final int first = offsets[v], last = offsets[v + 1];
+				float sx = 0, sy = 0, sz = 0;
+				for (int i = first; i < last; i++) {
+					final int n = 3 * neighbors[i];
+					sx += corrections[n];
+					sy += corrections[n + 1];
+					sz += corrections[n + 2];
+				}
+				final float scale = (1 - beta) / (last - first);
+				final int p = 3 * v;
+				smoothed[p] -= beta * corrections[p] + scale * sx;
+				smoothed[p + 1] -= beta * corrections[p + 1] + scale * sy;
+				smoothed[p + 2] -= beta * corrections[p + 2] + scale * sz;
+			}
+		});
+		positions = smoothed;
+		next = previous;
+	}
+
+	/** Writes the positions back, including to coincident vertices. */
+	private void write() {
+		final Vertices vertices = mesh.vertices();
+		final float[] result = positions;
+		IntStream.range(0, ids.length).parallel().forEach(v -> {
+			final int p = 3 * ids[v];
+			vertices.setPositionf(v, result[p], result[p + 1], result[p + 2]);
+		});
+	}
+
+	// -- Helper classes --
+
+	private interface RangeTask {
+
+		void run(int start, int end);
+	}
+}
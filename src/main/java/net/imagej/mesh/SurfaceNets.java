@@ -0,0 +1,405 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.BooleanType;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Naive surface nets: extracts an iso-surface with one vertex per cell the
+ * surface passes through, at the mean of the surface's crossings of the
+ * cell's edges, and one quad per crossed edge of the voxel grid, split into
+ * two triangles along its shorter diagonal.
+ * <p>
+ * Unlike marching cubes, vertices are shared between triangles, so there are
+ * several times fewer vertices, and the triangles are better shaped. The
+ * sampling matches {@link MarchingCubesRealType}: voxels at or above the iso
+ * level are inside, and voxels outside of the image count as {@code 0}, so
+ * surfaces are closed at the image border. Triangles are oriented
+ * counterclockwise when seen from outside, and vertices get area-weighted
+ * normals.
+ * </p>
+ * <p>
+ * The image is processed in slabs of slices in parallel. Each slab streams
+ * through its slices, keeping only two planes of voxels and of cell vertices
+ * at a time; the quads between adjacent slabs are added afterwards.
+ * </p>
+ */
+class SurfaceNets {
+
+	/** Minimum number of cell planes per parallel slab. */
+	private static final int MIN_SLAB = 8;
+
+	/** Corner offsets (x, y, z) of the cell corners, by bit of the cell code. */
+	private static final int[][] CORNERS = { { 0, 0, 0 }, { 1, 0, 0 }, { 0, 1,
+		0 }, { 1, 1, 0 }, { 0, 0, 1 }, { 1, 0, 1 }, { 0, 1, 1 }, { 1, 1, 1 } };
+
+	/** Pairs of corners joined by the twelve cell edges. */
+	private static final int[] EDGES = { 0, 1, 2, 3, 4, 5, 6, 7, 0, 2, 1, 3, 4,
+		6, 5, 7, 0, 4, 1, 5, 2, 6, 3, 7 };
+
+	private SurfaceNets() {
+		// NB: Prevent instantiation of utility class.
+	}
+
+	static <T extends BooleanType<T>> Mesh calculate(
+		final RandomAccessibleInterval<T> input)
+	{
+		return calculate(input, 0.5, t -> t.get() ? 1 : 0);
+	}
+
+	static <T extends RealType<T>> Mesh calculate(
+		final RandomAccessibleInterval<T> input, final double isoLevel)
+	{
+		return calculate(input, isoLevel, RealType::getRealDouble);
+	}
+
+	private static <T> Mesh calculate(final RandomAccessibleInterval<T> input,
+		final double isoLevel, final ToDoubleFunction<T> value)
+	{
+		final Grid<T> grid = new Grid<>(input, isoLevel, value);
+		final int slabCount = Math.max(1, Math.min(grid.cz / MIN_SLAB, 4 *
+			ForkJoinPool.getCommonPoolParallelism()));
+		final Slab[] slabs = new Slab[slabCount];
+		IntStream.range(0, slabCount).parallel().forEach(s -> {
+			slabs[s] = new Slab((int) ((long) grid.cz * s / slabCount),
+				(int) ((long) grid.cz * (s + 1) / slabCount));
+			grid.process(slabs[s]);
+		});
+
+		// Number the vertices of all slabs, and join adjacent slabs.
+		final int[] offsets = new int[slabCount + 1];
+		for (int s = 0; s < slabCount; s++) {
+			offsets[s + 1] = offsets[s] + slabs[s].vertexCount;
+		}
+		final Slab[] seams = new Slab[slabCount];
+		IntStream.range(1, slabCount).parallel().forEach(s -> {
+			seams[s] = new Slab(0, 0);
+			grid.quadsBetween(slabs[s - 1].lastIds, offsets[s - 1], slabs[s].firstIds,
+				offsets[s], slabs[s].firstValues, seams[s]);
+		});
+
+		final double[] positions = new double[3 * offsets[slabCount]];
+		int quadCount = 0;
+		for (int s = 0; s < slabCount; s++) {
+			System.arraycopy(slabs[s].positions, 0, positions, 3 * offsets[s], 3 *
+				slabs[s].vertexCount);
+			quadCount += slabs[s].quadCount + (seams[s] == null ? 0
+				: seams[s].quadCount);
+		}
+		final int[] quads = new int[4 * quadCount];
+		int q = 0;
+		for (int s = 0; s < slabCount; s++) {
+			for (int i = 0; i < 4 * slabs[s].quadCount; i++) {
+				quads[q++] = slabs[s].quads[i] + offsets[s];
+			}
+			if (seams[s] != null) {
+				System.arraycopy(seams[s].quads, 0, quads, q, 4 * seams[s].quadCount);
+				q += 4 * seams[s].quadCount;
+			}
+		}
+		return toMesh(positions, quads);
+	}
+
+	/** Splits the quads into triangles along their shorter diagonals. */
+	private static Mesh toMesh(final double[] positions, final int[] quads) {
+		final int[] triangles = new int[quads.length / 2 * 3];
+		IntStream.range(0, quads.length / 4).parallel().forEach(i -> {
+			final int a = quads[4 * i], b = quads[4 * i + 1], c = quads[4 * i + 2],
+					d = quads[4 * i + 3];
+			final int t = 6 * i;
+			if (distanceSq(positions, a, c) <= distanceSq(positions, b, d)) {
+				set(triangles, t, a, b, c);
+				set(triangles, t + 3, a, c, d);
+			}
+			else {
+				set(triangles, t, a, b, d);
+				set(triangles, t + 3, b, c, d);
+			}
+		});
+		return new MeshArrays(positions, triangles).toMesh();
+	}
+
+	// -- Helper methods --
+
+	private static void set(final int[] triangles, final int t, final int a,
+		final int b, final int c)
+	{
+		triangles[t] = a;
+		triangles[t + 1] = b;
+		triangles[t + 2] = c;
+	}
+
+	private static double distanceSq(final double[] p, final int a,
+		final int b)
+	{
+		return sq(p[3 * a] - p[3 * b]) + sq(p[3 * a + 1] - p[3 * b + 1]) + sq(p[3 *
+			a + 2] - p[3 * b + 2]);
+	}
+
+	private static double sq(final double value) {
+		return value * value;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * The sampled image, padded by one voxel of {@code 0} on each side. Cell
+	 * {@code (x, y, z)} spans lattice points {@code (x, y, z)} to
+	 * {@code (x + 1, y + 1, z + 1)}, and lattice point {@code (0, 0, 0)} lies
+	 * at image position {@code min - 1}.
+	 */
+	private static class Grid<T> {
+
+		private final RandomAccessibleInterval<T> input;
+		private final double isoLevel;
+		private final ToDoubleFunction<T> value;
+
+		/** Lattice points per row and plane, and cells per row, column, stack. */
+		private final int lx, ly, cx, cy, cz;
+		private final long minX, minY, minZ;
+
+		private Grid(final RandomAccessibleInterval<T> input,
+			final double isoLevel, final ToDoubleFunction<T> value)
+		{
+			this.input = input;
+			this.isoLevel = isoLevel;
+			this.value = value;
+			lx = (int) input.dimension(0) + 2;
+			ly = (int) input.dimension(1) + 2;
+			cx = lx - 1;
+			cy = ly - 1;
+			cz = (int) input.dimension(2) + 1;
+			if ((long) lx * ly > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Slices too large");
+			}
+			minX = input.min(0) - 1;
+			minY = input.min(1) - 1;
+			minZ = input.min(2) - 1;
+		}
+
+		/** Finds the vertices and quads of a slab's cells. */
+		private void process(final Slab slab) {
+			final RandomAccess<T> access = input.randomAccess();
+			double[] lower = new double[lx * ly];
+			double[] upper = new double[lx * ly];
+			int[] below = new int[cx * cy];
+			int[] ids = new int[cx * cy];
+			read(access, slab.start, lower);
+			slab.firstValues = lower.clone();
+			for (int z = slab.start; z < slab.end; z++) {
+				read(access, z + 1, upper);
+				vertices(z, lower, upper, ids, slab);
+				quadsAlongZ(ids, lower, upper, slab);
+				if (z == slab.start) slab.firstIds = ids.clone();
+				else quadsBetween(below, 0, ids, 0, lower, slab);
+				final double[] values = lower;
+				lower = upper;
+				upper = values;
+				final int[] cells = below;
+				below = ids;
+				ids = cells;
+			}
+			slab.lastIds = below;
+		}
+
+		/** Reads a plane of lattice points, padding with {@code 0}. */
+		private void read(final RandomAccess<T> access, final int z,
+			final double[] plane)
+		{
+			Arrays.fill(plane, 0);
+			if (z == 0 || z == cz) return;
+			final int width = lx - 2;
+			access.setPosition(minZ + z, 2);
+			for (int y = 1; y < ly - 1; y++) {
+				access.setPosition(minX + 1, 0);
+				access.setPosition(minY + y, 1);
+				int i = y * lx + 1;
+				for (int x = 0; x < width; x++) {
+					plane[i++] = value.applyAsDouble(access.get());
+					access.fwd(0);
+				}
+			}
+		}
+
+		/** Places a vertex in each cell of plane z which the surface crosses. */
+		private void vertices(final int z, final double[] lower,
+			final double[] upper, final int[] ids, final Slab slab)
+		{
+			final double[] corner = new double[8];
+			for (int y = 0; y < cy; y++) {
+				for (int x = 0; x < cx; x++) {
+					final int p = y * lx + x;
+					corner[0] = lower[p];
+					corner[1] = lower[p + 1];
+					corner[2] = lower[p + lx];
+					corner[3] = lower[p + lx + 1];
+					corner[4] = upper[p];
+					corner[5] = upper[p + 1];
+					corner[6] = upper[p + lx];
+					corner[7] = upper[p + lx + 1];
+					int code = 0;
+					for (int c = 0; c < 8; c++) {
+						if (corner[c] >= isoLevel) code |= 1 << c;
+					}
+					if (code == 0 || code == 0xff) {
+						ids[y * cx + x] = -1;
+						continue;
+					}
+					double sx = 0, sy = 0, sz = 0;
+					int crossings = 0;
+					for (int e = 0; e < EDGES.length; e += 2) {
+						final int c0 = EDGES[e], c1 = EDGES[e + 1];
+						if ((code >> c0 & 1) == (code >> c1 & 1)) continue;
+						final double t = crossing(corner[c0], corner[c1]);
+						sx += CORNERS[c0][0] + t * (CORNERS[c1][0] - CORNERS[c0][0]);
+						sy += CORNERS[c0][1] + t * (CORNERS[c1][1] - CORNERS[c0][1]);
+						sz += CORNERS[c0][2] + t * (CORNERS[c1][2] - CORNERS[c0][2]);
+						crossings++;
+					}
+					ids[y * cx + x] = slab.addVertex(minX + x + sx / crossings, minY +
+						y + sy / crossings, minZ + z + sz / crossings);
+				}
+			}
+		}
+
+		/** Position of the iso level between two values, in [0, 1]. */
+		private double crossing(final double v0, final double v1) {
+			final double t = (isoLevel - v0) / (v1 - v0);
+			return t >= 0 && t <= 1 ? t : 0.5;
+		}
+
+		/**
+		 * Adds the quads of the z-edges of a cell plane, from the lattice
+		 * points of plane z to those of plane z + 1.
+		 */
+		private void quadsAlongZ(final int[] ids, final double[] lower,
+			final double[] upper, final Slab slab)
+		{
+			for (int y = 1; y < cy; y++) {
+				for (int x = 1; x < cx; x++) {
+					final int p = y * lx + x;
+					final boolean in0 = lower[p] >= isoLevel;
+					if (in0 == upper[p] >= isoLevel) continue;
+					final int c = y * cx + x;
+					// NB: Cells around the edge, counterclockwise about +z.
+					slab.addQuad(in0, ids[c - cx - 1], ids[c - cx], ids[c], ids[c - 1]);
+				}
+			}
+		}
+
+		/**
+		 * Adds the quads of the x- and y-edges in the lattice plane between
+		 * two cell planes.
+		 */
+		private void quadsBetween(final int[] below, final int belowOffset,
+			final int[] above, final int aboveOffset, final double[] values,
+			final Slab slab)
+		{
+			for (int y = 1; y < cy; y++) {
+				for (int x = 0; x < cx; x++) {
+					final int p = y * lx + x;
+					final boolean in0 = values[p] >= isoLevel;
+					if (in0 == values[p + 1] >= isoLevel) continue;
+					final int c = y * cx + x;
+					// NB: Cells around the x-edge, counterclockwise about +x.
+					slab.addQuad(in0, below[c - cx] + belowOffset, below[c] +
+						belowOffset, above[c] + aboveOffset, above[c - cx] + aboveOffset);
+				}
+			}
+			for (int y = 0; y < cy; y++) {
+				for (int x = 1; x < cx; x++) {
+					final int p = y * lx + x;
+					final boolean in0 = values[p] >= isoLevel;
+					if (in0 == values[p + lx] >= isoLevel) continue;
+					final int c = y * cx + x;
+					// NB: Cells around the y-edge, counterclockwise about +y.
+					slab.addQuad(in0, below[c - 1] + belowOffset, above[c - 1] +
+						aboveOffset, above[c] + aboveOffset, below[c] + belowOffset);
+				}
+			}
+		}
+	}
+
+	/** Vertices and quads of a range of cell planes. */
+	private static class Slab {
+
+		private final int start, end;
+
+		private double[] positions = new double[3 * 64];
+		private int vertexCount;
+		private int[] quads = new int[4 * 64];
+		private int quadCount;
+
+		/** Lattice values of the first plane, and vertices of the first and last cell planes. */
+		private double[] firstValues;
+		private int[] firstIds, lastIds;
+
+		private Slab(final int start, final int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		private int addVertex(final double x, final double y, final double z) {
+			if (3 * vertexCount == positions.length) {
+				positions = Arrays.copyOf(positions, 2 * positions.length);
+			}
+			positions[3 * vertexCount] = x;
+			positions[3 * vertexCount + 1] = y;
+			positions[3 * vertexCount + 2] = z;
+			return vertexCount++;
+		}
+
+		/**
+		 * Adds a quad of cells listed counterclockwise about the direction of
+		 * its edge, facing along the edge if its start is inside.
+		 */
+		private void addQuad(final boolean forward, final int a, final int b,
+			final int c, final int d)
+		{
+			if (4 * quadCount == quads.length) {
+				quads = Arrays.copyOf(quads, 2 * quads.length);
+			}
+			final int q = 4 * quadCount++;
+			quads[q] = a;
+			quads[q + 2] = c;
+			quads[q + 1] = forward ? b : d;
+			quads[q + 3] = forward ? d : b;
+		}
+	}
+}
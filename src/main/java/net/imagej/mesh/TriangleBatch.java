@@ -0,0 +1,88 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+/**
+ * Collects triangles into fixed-size arrays, and hands them to a
+ * {@link TriangleSink} whenever they are full. Each triangle gets vertices of
+ * its own, as marching cubes emits them.
+ */
+class TriangleBatch {
+
+	/** Number of triangles per batch. */
+	static final int SIZE = 1 << 12;
+
+	private final TriangleSink sink;
+	private final double[] positions = new double[9 * SIZE];
+	private final int[] indices = new int[3 * SIZE];
+
+	/** Number of triangles in the current batch, and in all batches. */
+	private int count;
+	private long total;
+
+	TriangleBatch(final TriangleSink sink) {
+		this.sink = sink;
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = i;
+		}
+	}
+
+	void add(final double v0x, final double v0y, final double v0z, //
+		final double v1x, final double v1y, final double v1z, //
+		final double v2x, final double v2y, final double v2z)
+	{
+		final int p = 9 * count;
+		positions[p] = v0x;
+		positions[p + 1] = v0y;
+		positions[p + 2] = v0z;
+		positions[p + 3] = v1x;
+		positions[p + 4] = v1y;
+		positions[p + 5] = v1z;
+		positions[p + 6] = v2x;
+		positions[p + 7] = v2y;
+		positions[p + 8] = v2z;
+		if (++count == SIZE) flush();
+	}
+
+	/** Hands the triangles collected so far to the sink. */
+	void flush() {
+		if (count == 0) return;
+		total += count;
+		final int triangleCount = count;
+		count = 0;
+		sink.accept(positions, 3 * triangleCount, indices, triangleCount);
+	}
+
+	/** Number of triangles handed to the sink. */
+	long total() {
+		return total;
+	}
+}
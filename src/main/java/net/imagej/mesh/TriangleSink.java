@@ -0,0 +1,76 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+/**
+ * Receives a surface in batches of triangles as an extractor such as
+ * {@link Meshes#marchingCubes(net.imglib2.RandomAccessibleInterval, double, TriangleSink)}
+ * generates it, instead of a whole {@link Mesh}. Consumers which write the
+ * triangles out, or reduce them to measurements, thus need memory for one
+ * batch only, whatever the size of the surface.
+ * <p>
+ * The arrays of a batch are only valid during the call: the extractor reuses
+ * them for the next batch. Batches are delivered from the thread which runs
+ * the extractor.
+ * </p>
+ */
+public interface TriangleSink {
+
+	/**
+	 * Receives one batch of triangles.
+	 *
+	 * @param positions Coordinates of the vertices of the batch, three per
+	 *          vertex.
+	 * @param vertexCount Number of vertices in the batch.
+	 * @param indices Indices of the vertices of the triangles within the batch,
+	 *          three per triangle, counterclockwise when seen from outside.
+	 * @param triangleCount Number of triangles in the batch.
+	 */
+	void accept(double[] positions, int vertexCount, int[] indices,
+		int triangleCount);
+
+	/**
+	 * Gets a sink which adds the triangles to a mesh, with their normals, each
+	 * with vertices of its own.
+	 */
+	static TriangleSink of(final Mesh mesh) {
+		final Triangles triangles = mesh.triangles();
+		return (positions, vertexCount, indices, triangleCount) -> {
+			for (int t = 0; t < 3 * triangleCount; t += 3) {
+				final int a = 3 * indices[t], b = 3 * indices[t + 1], c = 3 *
+					indices[t + 2];
+				triangles.add(positions[a], positions[a + 1], positions[a + 2],
+					positions[b], positions[b + 1], positions[b + 2], //
+					positions[c], positions[c + 1], positions[c + 2]);
+			}
+		};
+	}
+}
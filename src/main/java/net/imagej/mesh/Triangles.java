@@ -79,6 +79,23 @@ public interface Triangles extends Iterable<Triangle> {
      */
     float nzf(long tIndex);
 
+    /**
+     * Whether triangle normals are stored. Implementations may leave the
+     * normals out until a nonzero normal is written, in which case they all
+     * read as {@code 0}.
+     */
+    default boolean hasNormals() {
+        return true;
+    }
+
+    /**
+     * Named attribute channels holding additional values per triangle. By
+     * default, there are none and none can be added.
+     */
+    default Attributes attributes() {
+        return Attributes.none();
+    }
+
     /**
      * Adds a triangle to the mesh's triangles list.
      *
@@ -0,0 +1,172 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import net.imglib2.realtransform.AffineGet;
+
+/**
+ * Affine transform from voxel to physical coordinates, which the iso-surface
+ * extractors apply to each vertex as they emit it, e.g. to account for
+ * anisotropic voxels.
+ * <p>
+ * A mirroring transform would turn the triangles inside out, so triangles
+ * are flipped under such transforms to stay counterclockwise when seen from
+ * outside.
+ * </p>
+ */
+class VertexTransform {
+
+	/** Keeps voxel coordinates. */
+	static final VertexTransform IDENTITY = new VertexTransform(1, 0, 0, 0, 0,
+		1, 0, 0, 0, 0, 1, 0);
+
+	private final double m00, m01, m02, m03;
+	private final double m10, m11, m12, m13;
+	private final double m20, m21, m22, m23;
+	private final boolean flips;
+
+	/**
+	 * Inverse transpose of the linear part, times the absolute value of the
+	 * determinant, which maps normals.
+	 */
+	private final double n00, n01, n02, n10, n11, n12, n20, n21, n22;
+
+	private VertexTransform(final double m00, final double m01,
+		final double m02, final double m03, final double m10, final double m11,
+		final double m12, final double m13, final double m20, final double m21,
+		final double m22, final double m23)
+	{
+		this.m00 = m00;
+		this.m01 = m01;
+		this.m02 = m02;
+		this.m03 = m03;
+		this.m10 = m10;
+		this.m11 = m11;
+		this.m12 = m12;
+		this.m13 = m13;
+		this.m20 = m20;
+		this.m21 = m21;
+		this.m22 = m22;
+		this.m23 = m23;
+		final double det = m00 * (m11 * m22 - m12 * m21) - m01 * (m10 * m22 -
+			m12 * m20) + m02 * (m10 * m21 - m11 * m20);
+		if (det == 0 || Double.isNaN(det)) {
+			throw new IllegalArgumentException("Transform is not invertible");
+		}
+		flips = det < 0;
+		final double sign = flips ? -1 : 1;
+		n00 = sign * (m11 * m22 - m12 * m21);
+		n01 = sign * (m12 * m20 - m10 * m22);
+		n02 = sign * (m10 * m21 - m11 * m20);
+		n10 = sign * (m02 * m21 - m01 * m22);
+		n11 = sign * (m00 * m22 - m02 * m20);
+		n12 = sign * (m01 * m20 - m00 * m21);
+		n20 = sign * (m01 * m12 - m02 * m11);
+		n21 = sign * (m02 * m10 - m00 * m12);
+		n22 = sign * (m00 * m11 - m01 * m10);
+	}
+
+	/**
+	 * Gets the transform of a 3D affine, such as
+	 * {@code new ScaleAndTranslation(spacing, origin)} for voxels of the given
+	 * spacing, with voxel {@code (0, 0, 0)} at the origin.
+	 *
+	 * @throws IllegalArgumentException If the affine is not 3D, or not
+	 *           invertible.
+	 */
+	static VertexTransform of(final AffineGet affine) {
+		if (affine.numSourceDimensions() != 3 || affine
+			.numTargetDimensions() != 3)
+		{
+			throw new IllegalArgumentException("Expected a 3D transform, not " +
+				affine.numSourceDimensions() + "D to " + affine
+					.numTargetDimensions() + "D");
+		}
+		return new VertexTransform( //
+			affine.get(0, 0), affine.get(0, 1), affine.get(0, 2), affine.get(0, 3),
+			affine.get(1, 0), affine.get(1, 1), affine.get(1, 2), affine.get(1, 3),
+			affine.get(2, 0), affine.get(2, 1), affine.get(2, 2), affine.get(2, 3));
+	}
+
+	double x(final double x, final double y, final double z) {
+		return m00 * x + m01 * y + m02 * z + m03;
+	}
+
+	double y(final double x, final double y, final double z) {
+		return m10 * x + m11 * y + m12 * z + m13;
+	}
+
+	double z(final double x, final double y, final double z) {
+		return m20 * x + m21 * y + m22 * z + m23;
+	}
+
+	/**
+	 * Maps the x-coordinate of a normal, which keeps pointing to the same side
+	 * of the surface, but needs to be normalized again.
+	 */
+	double nx(final double nx, final double ny, final double nz) {
+		return n00 * nx + n01 * ny + n02 * nz;
+	}
+
+	double ny(final double nx, final double ny, final double nz) {
+		return n10 * nx + n11 * ny + n12 * nz;
+	}
+
+	double nz(final double nx, final double ny, final double nz) {
+		return n20 * nx + n21 * ny + n22 * nz;
+	}
+
+	/** Whether the transform mirrors, which reverses the triangles. */
+	boolean flips() {
+		return flips;
+	}
+
+	/**
+	 * Adds a triangle given in voxel coordinates, counterclockwise when seen
+	 * from outside, so that it stays counterclockwise after the transform.
+	 */
+	void addTriangle(final TriangleBatch triangles, //
+		final double v0x, final double v0y, final double v0z, //
+		final double v1x, final double v1y, final double v1z, //
+		final double v2x, final double v2y, final double v2z)
+	{
+		if (flips) {
+			triangles.add(x(v0x, v0y, v0z), y(v0x, v0y, v0z), z(v0x, v0y, v0z), //
+				x(v2x, v2y, v2z), y(v2x, v2y, v2z), z(v2x, v2y, v2z), //
+				x(v1x, v1y, v1z), y(v1x, v1y, v1z), z(v1x, v1y, v1z));
+		}
+		else {
+			triangles.add(x(v0x, v0y, v0z), y(v0x, v0y, v0z), z(v0x, v0y, v0z), //
+				x(v1x, v1y, v1z), y(v1x, v1y, v1z), z(v1x, v1y, v1z), //
+				x(v2x, v2y, v2z), y(v2x, v2y, v2z), z(v2x, v2y, v2z));
+		}
+	}
+}
@@ -132,6 +132,32 @@ public interface Vertices extends Iterable<Vertex> {
 	 */
 	void setTexturef(long vIndex, float u, float v);
 
+	/**
+	 * Whether vertex normals are stored. Implementations may leave the normals
+	 * out until a nonzero normal is written, in which case they all read as
+	 * {@code 0}.
+	 */
+	default boolean hasNormals() {
+		return true;
+	}
+
+	/**
+	 * Whether texture coordinates are stored. Implementations may leave the
+	 * texture coordinates out until a nonzero value is written, in which case
+	 * they all read as {@code 0}.
+	 */
+	default boolean hasTexture() {
+		return true;
+	}
+
+	/**
+	 * Named attribute channels holding additional values per vertex. By
+	 * default, there are none and none can be added.
+	 */
+	default Attributes attributes() {
+		return Attributes.none();
+	}
+
 	/**
 	 * Adds a vertex.
 	 *
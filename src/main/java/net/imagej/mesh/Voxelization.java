@@ -0,0 +1,419 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Intervals;
+
+/**
+ * Rasterizes a closed mesh back into an image, the inverse of
+ * {@link Meshes#marchingCubes}.
+ * <p>
+ * Mesh coordinates are voxel coordinates. Each image row along X is treated as
+ * a scanline through the voxel centers: its crossings with the surface are
+ * collected and sorted, and the voxels between pairs of crossings are inside.
+ * Crossings exactly on edges or vertices are counted once, using the top-left
+ * rule of triangle rasterization on the YZ plane. Voxels whose centers lie
+ * exactly on the surface are also filled, so voxelizing marching cubes output
+ * of a mask restores the mask. Optionally, every voxel intersected by the
+ * surface is filled as well, found with the separating axis test of
+ * Akenine-M&ouml;ller, "Fast 3D triangle-box overlap testing", 2001.
+ * </p>
+ * <p>
+ * Z-slices are processed concurrently, writing through one
+ * {@link RandomAccess} per slice, so any storage such as {@code ArrayImg} or
+ * {@code CellImg} is filled in place. Slices of packed types such as
+ * {@code BitType} are only processed concurrently in an {@code ArrayImg},
+ * whose storage layout is known.
+ * </p>
+ */
+class Voxelization {
+
+	private Voxelization() {
+		// NB: Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Fills the voxels inside of a closed mesh.
+	 *
+	 * @param mesh Closed source mesh, in voxel coordinates.
+	 * @param target Three-dimensional image to fill. Voxels outside of the mesh
+	 *          are left unchanged.
+	 * @param fill Sets one voxel.
+	 * @param conservative Whether to also fill every voxel intersected by the
+	 *          surface.
+	 */
+	static <T> void fill(final Mesh mesh,
+		final RandomAccessibleInterval<T> target, final Consumer<T> fill,
+		final boolean conservative)
+	{
+		if (target.numDimensions() != 3) {
+			throw new IllegalArgumentException("Expected a 3D image, not " + target
+				.numDimensions() + "D");
+		}
+		if (mesh.triangles().size() > Integer.MAX_VALUE / 9) {
+			throw new IllegalArgumentException("Too many triangles: " + mesh
+				.triangles().size());
+		}
+		final int triangleCount = (int) mesh.triangles().size();
+		final double[] coords = new double[9 * triangleCount];
+		final Vertices vertices = mesh.vertices();
+		final Triangles triangles = mesh.triangles();
+		IntStream.range(0, triangleCount).parallel().forEach(t -> {
+			final long[] corners = { triangles.vertex0(t), triangles.vertex1(t),
+				triangles.vertex2(t) };
+			for (int k = 0; k < 3; k++) {
+				coords[9 * t + 3 * k] = vertices.x(corners[k]);
+				coords[9 * t + 3 * k + 1] = vertices.y(corners[k]);
+				coords[9 * t + 3 * k + 2] = vertices.z(corners[k]);
+			}
+		});
+
+		// Sort the triangles into the slices they touch.
+		final long minZ = target.min(2);
+		final int depth = (int) target.dimension(2);
+		final double pad = conservative ? 0.5 : 0;
+		final int[] offsets = new int[depth + 1];
+		final int[] ranges = new int[2 * triangleCount];
+		for (int t = 0; t < triangleCount; t++) {
+			final double z0 = Math.min(coords[9 * t + 2], Math.min(coords[9 * t + 5],
+				coords[9 * t + 8]));
+			final double z1 = Math.max(coords[9 * t + 2], Math.max(coords[9 * t + 5],
+				coords[9 * t + 8]));
+			ranges[2 * t] = (int) Math.max(0, Math.ceil(z0 - pad) - minZ);
+			ranges[2 * t + 1] = (int) Math.min(depth - 1, Math.floor(z1 + pad) -
+				minZ);
+			for (int s = ranges[2 * t]; s <= ranges[2 * t + 1]; s++)
+				offsets[s + 1]++;
+		}
+		for (int s = 0; s < depth; s++)
+			offsets[s + 1] += offsets[s];
+		final int[] sliceTriangles = new int[offsets[depth]];
+		final int[] next = Arrays.copyOf(offsets, depth);
+		for (int t = 0; t < triangleCount; t++) {
+			for (int s = ranges[2 * t]; s <= ranges[2 * t + 1]; s++)
+				sliceTriangles[next[s]++] = t;
+		}
+
+		// NB: Packed types such as BitType share storage words between
+		// neighboring voxels, so neighboring slices are never written at the
+		// same time: first all even slices, then all odd ones. In an ArrayImg,
+		// slices two apart share no word unless a slice holds fewer than 64
+		// voxels. Other storage, such as a CellImg with small cells, may share
+		// words between any slices, so those are filled one at a time.
+		final boolean serial = isPacked(target) && !(target instanceof ArrayImg &&
+			target.dimension(0) * target.dimension(1) >= 64);
+		for (int phase = 0; phase < 2; phase++) {
+			final int first = phase;
+			IntStream slices = IntStream.range(0, (depth - first + 1) / 2).map(
+				i -> first + 2 * i);
+			if (!serial) slices = slices.parallel();
+			slices.forEach(s -> {
+				final Slice<T> slice = new Slice<>(coords, target, fill, minZ + s,
+					Arrays.copyOfRange(sliceTriangles, offsets[s], offsets[s + 1]));
+				slice.fillInterior();
+				if (conservative) slice.fillSurface();
+			});
+		}
+	}
+
+	// -- Helper classes --
+
+	/** Rasterization of one z-slice. */
+	private static class Slice<T> {
+
+		private final double[] coords;
+		private final RandomAccess<T> access;
+		private final Consumer<T> fill;
+		private final long z;
+		private final int[] triangles;
+		private final long minX, maxX, minY, maxY;
+
+		private Slice(final double[] coords,
+			final RandomAccessibleInterval<T> target, final Consumer<T> fill,
+			final long z, final int[] triangles)
+		{
+			this.coords = coords;
+			this.access = target.randomAccess();
+			this.fill = fill;
+			this.z = z;
+			this.triangles = triangles;
+			minX = target.min(0);
+			maxX = target.max(0);
+			minY = target.min(1);
+			maxY = target.max(1);
+		}
+
+		/** Fills the voxels between pairs of crossings along each row. */
+		private void fillInterior() {
+			// Sort the triangles spanning this slice into the rows they touch.
+			final int height = (int) (maxY - minY + 1);
+			final int[] offsets = new int[height + 1];
+			final int[] ranges = new int[2 * triangles.length];
+			for (int i = 0; i < triangles.length; i++) {
+				final int c = 9 * triangles[i];
+				final double z0 = Math.min(coords[c + 2], Math.min(coords[c + 5],
+					coords[c + 8]));
+				final double z1 = Math.max(coords[c + 2], Math.max(coords[c + 5],
+					coords[c + 8]));
+				final double y0 = Math.min(coords[c + 1], Math.min(coords[c + 4],
+					coords[c + 7]));
+				final double y1 = Math.max(coords[c + 1], Math.max(coords[c + 4],
+					coords[c + 7]));
+				ranges[2 * i] = (int) Math.max(0, Math.ceil(y0) - minY);
+				ranges[2 * i + 1] = z0 <= z && z <= z1 ? (int) Math.min(height - 1,
+					Math.floor(y1) - minY) : -1;
+				for (int r = ranges[2 * i]; r <= ranges[2 * i + 1]; r++)
+					offsets[r + 1]++;
+			}
+			for (int r = 0; r < height; r++)
+				offsets[r + 1] += offsets[r];
+			final int[] rowTriangles = new int[offsets[height]];
+			final int[] next = Arrays.copyOf(offsets, height);
+			for (int i = 0; i < triangles.length; i++) {
+				for (int r = ranges[2 * i]; r <= ranges[2 * i + 1]; r++)
+					rowTriangles[next[r]++] = triangles[i];
+			}
+
+			double[] crossings = new double[16];
+			for (int r = 0; r < height; r++) {
+				final long y = minY + r;
+				int count = 0;
+				for (int i = offsets[r]; i < offsets[r + 1]; i++) {
+					fillTouching(rowTriangles[i], y);
+					final double x = crossing(rowTriangles[i], y, z);
+					if (Double.isNaN(x)) continue;
+					if (count == crossings.length) crossings = Arrays.copyOf(crossings,
+						2 * count);
+					crossings[count++] = x;
+				}
+				Arrays.sort(crossings, 0, count);
+				// NB: An unpaired last crossing means the mesh is not closed.
+				for (int i = 0; i + 1 < count; i += 2) {
+					fillRow(y, (long) Math.ceil(crossings[i]), (long) Math.floor(
+						crossings[i + 1]));
+				}
+			}
+		}
+
+		/** Fills the voxels in a row whose centers lie on a triangle. */
+		private void fillTouching(final int t, final long y) {
+			final int c = 9 * t;
+			final double ay = coords[c + 1], az = coords[c + 2];
+			final double area = edge(ay, az, coords[c + 4], coords[c + 5],
+				coords[c + 7], coords[c + 8]);
+			if (area != 0) {
+				// The row meets the plane of the triangle in one point.
+				final double x = (edge(coords[c + 4], coords[c + 5], coords[c + 7],
+					coords[c + 8], y, z) * coords[c] + edge(coords[c + 7], coords[c + 8],
+						ay, az, y, z) * coords[c + 3] + edge(ay, az, coords[c + 4],
+							coords[c + 5], y, z) * coords[c + 6]) / area;
+				if (x == Math.rint(x) && overlaps(c, (long) x, y, z, 0)) {
+					fillRow(y, (long) x, (long) x);
+				}
+				return;
+			}
+			// The row may lie in the plane of the triangle.
+			final long start = (long) Math.ceil(Math.min(coords[c], Math.min(
+				coords[c + 3], coords[c + 6])));
+			final long end = (long) Math.floor(Math.max(coords[c], Math.max(
+				coords[c + 3], coords[c + 6])));
+			for (long x = start; x <= end; x++) {
+				if (overlaps(c, x, y, z, 0)) fillRow(y, x, x);
+			}
+		}
+
+		/** Fills the voxels whose boxes intersect a triangle. */
+		private void fillSurface() {
+			for (final int t : triangles) {
+				final int c = 9 * t;
+				final double x0 = Math.min(coords[c], Math.min(coords[c + 3],
+					coords[c + 6]));
+				final double x1 = Math.max(coords[c], Math.max(coords[c + 3],
+					coords[c + 6]));
+				final double y0 = Math.min(coords[c + 1], Math.min(coords[c + 4],
+					coords[c + 7]));
+				final double y1 = Math.max(coords[c + 1], Math.max(coords[c + 4],
+					coords[c + 7]));
+				final long xStart = Math.max(minX, (long) Math.ceil(x0 - 0.5));
+				final long xEnd = Math.min(maxX, (long) Math.floor(x1 + 0.5));
+				final long yStart = Math.max(minY, (long) Math.ceil(y0 - 0.5));
+				final long yEnd = Math.min(maxY, (long) Math.floor(y1 + 0.5));
+				for (long y = yStart; y <= yEnd; y++) {
+					for (long x = xStart; x <= xEnd; x++) {
+						if (overlaps(c, x, y, z, 0.5)) fillRow(y, x, x);
+					}
+				}
+			}
+		}
+
+		private void fillRow(final long y, final long start, final long end) {
+			final long from = Math.max(minX, start), to = Math.min(maxX, end);
+			if (from > to) return;
+			access.setPosition(from, 0);
+			access.setPosition(y, 1);
+			access.setPosition(z, 2);
+			for (long x = from; x <= to; x++) {
+				fill.accept(access.get());
+				access.fwd(0);
+			}
+		}
+
+		/**
+		 * X coordinate at which the scanline through {@code (y, z)} crosses a
+		 * triangle, or NaN if it misses.
+		 */
+		private double crossing(final int t, final double y, final double z) {
+			final int c = 9 * t;
+			final double ay = coords[c + 1], az = coords[c + 2];
+			final double by = coords[c + 4], bz = coords[c + 5];
+			final double cy = coords[c + 7], cz = coords[c + 8];
+			final double area = edge(ay, az, by, bz, cy, cz);
+			// NB: Triangles parallel to the scanline never cross it.
+			if (area == 0) return Double.NaN;
+			final double sign = Math.signum(area);
+			final double wa = sign * edge(by, bz, cy, cz, y, z);
+			final double wb = sign * edge(cy, cz, ay, az, y, z);
+			final double wc = sign * edge(ay, az, by, bz, y, z);
+			if (!covers(wa, sign * (cy - by), sign * (cz - bz)) || //
+				!covers(wb, sign * (ay - cy), sign * (az - cz)) || //
+				!covers(wc, sign * (by - ay), sign * (bz - az)))
+			{
+				return Double.NaN;
+			}
+			return (wa * coords[c] + wb * coords[c + 3] + wc * coords[c + 6]) /
+				(sign * area);
+		}
+
+		/**
+		 * Whether a triangle intersects the box of the given half size around a
+		 * voxel center. With a half size of 0, whether it contains the center.
+		 */
+		private boolean overlaps(final int c, final long x, final long y,
+			final long z, final double h)
+		{
+			final double v0x = coords[c] - x, v0y = coords[c + 1] - y,
+					v0z = coords[c + 2] - z;
+			final double v1x = coords[c + 3] - x, v1y = coords[c + 4] - y,
+					v1z = coords[c + 5] - z;
+			final double v2x = coords[c + 6] - x, v2y = coords[c + 7] - y,
+					v2z = coords[c + 8] - z;
+			// Box axes.
+			if (Math.min(v0x, Math.min(v1x, v2x)) > h || Math.max(v0x, Math.max(
+				v1x, v2x)) < -h) return false;
+			if (Math.min(v0y, Math.min(v1y, v2y)) > h || Math.max(v0y, Math.max(
+				v1y, v2y)) < -h) return false;
+			if (Math.min(v0z, Math.min(v1z, v2z)) > h || Math.max(v0z, Math.max(
+				v1z, v2z)) < -h) return false;
+			// Triangle normal.
+			final double e0x = v1x - v0x, e0y = v1y - v0y, e0z = v1z - v0z;
+			final double e1x = v2x - v1x, e1y = v2y - v1y, e1z = v2z - v1z;
+			final double e2x = v0x - v2x, e2y = v0y - v2y, e2z = v0z - v2z;
+			final double nx = e0y * e1z - e0z * e1y, ny = e0z * e1x - e0x * e1z,
+					nz = e0x * e1y - e0y * e1x;
+			if (Math.abs(nx * v0x + ny * v0y + nz * v0z) > h * (Math.abs(nx) + Math
+				.abs(ny) + Math.abs(nz))) return false;
+			// Cross products of the edges and the box axes.
+			return !separates(e0x, e0y, e0z, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y,
+				v2z, h) && !separates(e1x, e1y, e1z, v0x, v0y, v0z, v1x, v1y, v1z, v2x,
+					v2y, v2z, h) && !separates(e2x, e2y, e2z, v0x, v0y, v0z, v1x, v1y,
+						v1z, v2x, v2y, v2z, h);
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Whether neighboring voxels of the image may share storage words. Types of
+	 * unknown storage, such as converted views, are assumed to be packed.
+	 */
+	private static boolean isPacked(final RandomAccessibleInterval<?> image) {
+		if (Intervals.isEmpty(image)) return false;
+		final Object type = image.getType();
+		return !(type instanceof NativeType) || ((NativeType<?>) type)
+			.getEntitiesPerPixel().getRatio() < 1;
+	}
+
+	/** Twice the signed area of the triangle {@code (a, b, p)}. */
+	private static double edge(final double ay, final double az,
+		final double by, final double bz, final double py, final double pz)
+	{
+		return (by - ay) * (pz - az) - (bz - az) * (py - ay);
+	}
+
+	/**
+	 * Whether a point is on the inner side of an edge. Points exactly on it are
+	 * only covered for edges pointing into one half-plane of directions, so
+	 * that of two triangles sharing the edge, exactly one covers them.
+	 */
+	private static boolean covers(final double weight, final double dy,
+		final double dz)
+	{
+		return weight > 0 || weight == 0 && (dz > 0 || dz == 0 && dy > 0);
+	}
+
+	/**
+	 * Whether one of the cross products of an edge with the box axes separates
+	 * a triangle from the box of half size {@code h} around the origin.
+	 */
+	private static boolean separates(final double ex, final double ey,
+		final double ez, final double v0x, final double v0y, final double v0z,
+		final double v1x, final double v1y, final double v1z, final double v2x,
+		final double v2y, final double v2z, final double h)
+	{
+		// Edge x X axis = (0, ez, -ey), and so on.
+		return separatesAlong(0, ez, -ey, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y,
+			v2z, h) || separatesAlong(-ez, 0, ex, v0x, v0y, v0z, v1x, v1y, v1z, v2x,
+				v2y, v2z, h) || separatesAlong(ey, -ex, 0, v0x, v0y, v0z, v1x, v1y,
+					v1z, v2x, v2y, v2z, h);
+	}
+
+	/** Whether an axis separates a triangle from the box of half size h. */
+	private static boolean separatesAlong(final double ax, final double ay,
+		final double az, final double v0x, final double v0y, final double v0z,
+		final double v1x, final double v1y, final double v1z, final double v2x,
+		final double v2y, final double v2z, final double h)
+	{
+		final double p0 = ax * v0x + ay * v0y + az * v0z;
+		final double p1 = ax * v1x + ay * v1y + az * v1z;
+		final double p2 = ax * v2x + ay * v2y + az * v2z;
+		final double r = h * (Math.abs(ax) + Math.abs(ay) + Math.abs(az));
+		return Math.min(p0, Math.min(p1, p2)) > r || Math.max(p0, Math.max(p1,
+			p2)) < -r;
+	}
+}
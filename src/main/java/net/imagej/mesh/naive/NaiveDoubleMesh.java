@@ -30,6 +30,7 @@
 
 package net.imagej.mesh.naive;
 
+import net.imagej.mesh.ArrayAttributes;
 import net.imagej.mesh.Mesh;
 
 import org.scijava.util.DoubleArray;
@@ -40,6 +41,9 @@ public class NaiveDoubleMesh implements Mesh {
 	private final Vertices vertices;
 	private final Triangles triangles;
 
+	/** NB: Concurrent setters may lose increments, but still change it. */
+	private volatile long stamp;
+
 	public NaiveDoubleMesh() {
 		vertices = new Vertices();
 		triangles = new Triangles();
@@ -55,23 +59,26 @@ public class NaiveDoubleMesh implements Mesh {
 		return triangles;
 	}
 
+	@Override
+	public long stamp() {
+		return stamp;
+	}
+
 	// -- Inner classes --
 
 	public class Vertices implements net.imagej.mesh.Vertices {
 
 		private final DoubleArray xs, ys, zs;
-		private final DoubleArray nxs, nys, nzs;
-		private final DoubleArray us, vs;
+		// NB: Normals and texture coordinates are allocated on first nonzero write.
+		private DoubleArray nxs, nys, nzs;
+		private DoubleArray us, vs;
+
+		private final ArrayAttributes attributes = new ArrayAttributes(this::size);
 
 		public Vertices() {
 			xs = new DoubleArray();
 			ys = new DoubleArray();
 			zs = new DoubleArray();
-			nxs = new DoubleArray();
-			nys = new DoubleArray();
-			nzs = new DoubleArray();
-			us = new DoubleArray();
-			vs = new DoubleArray();
 		}
 
 		@Override
@@ -101,42 +108,48 @@ public class NaiveDoubleMesh implements Mesh {
 
 		@Override
 		public double nx(long vIndex) {
-			return nxs.get(safeIndex(vIndex));
+			return nxs == null ? zero(vIndex) : nxs.get(safeIndex(vIndex));
 		}
 
 		@Override
 		public double ny(long vIndex) {
-			return nys.get(safeIndex(vIndex));
+			return nys == null ? zero(vIndex) : nys.get(safeIndex(vIndex));
 		}
 
 		@Override
 		public double nz(long vIndex) {
-			return nzs.get(safeIndex(vIndex));
+			return nzs == null ? zero(vIndex) : nzs.get(safeIndex(vIndex));
 		}
 
 		@Override
 		public double u(long vIndex) {
-			return us.get(safeIndex(vIndex));
+			return us == null ? zero(vIndex) : us.get(safeIndex(vIndex));
 		}
 
 		@Override
 		public double v(long vIndex) {
-			return vs.get(safeIndex(vIndex));
+			return vs == null ? zero(vIndex) : vs.get(safeIndex(vIndex));
 		}
 
 		@Override
 		public long add(double x, double y, double z, double nx, double ny, double nz,
 			double u, double v)
 		{
+			if (nxs == null && (nx != 0 || ny != 0 || nz != 0)) allocateNormals();
+			if (us == null && (u != 0 || v != 0)) allocateTexture();
 			final int index = xs.size();
 			xs.add(x);
 			ys.add(y);
 			zs.add(z);
-			nxs.add(nx);
-			nys.add(ny);
-			nzs.add(nz);
-			us.add(u);
-			vs.add(v);
+			if (nxs != null) {
+				nxs.add(nx);
+				nys.add(ny);
+				nzs.add(nz);
+			}
+			if (us != null) {
+				us.add(u);
+				vs.add(v);
+			}
 			return index;
 		}
 
@@ -144,15 +157,9 @@ public class NaiveDoubleMesh implements Mesh {
 		public void set(long vIndex, double x, double y, double z, double nx, double ny,
 			double nz, double u, double v)
 		{
-			final int index = safeIndex(vIndex);
-			xs.set(index, x);
-			ys.set(index, y);
-			zs.set(index, z);
-			nxs.set(index, nx);
-			nys.set(index, ny);
-			nzs.set(index, nz);
-			us.set(index, u);
-			vs.set(index, v);
+			setPosition(vIndex, x, y, z);
+			setNormal(vIndex, nx, ny, nz);
+			setTexture(vIndex, u, v);
 		}
 
 		@Override
@@ -163,6 +170,7 @@ public class NaiveDoubleMesh implements Mesh {
 			xs.set(index, x);
 			ys.set(index, y);
 			zs.set(index, z);
+			stamp++;
 		}
 
 		@Override
@@ -170,9 +178,17 @@ public class NaiveDoubleMesh implements Mesh {
 			final double ny, final double nz)
 		{
 			final int index = safeIndex(vIndex);
+			if (nxs == null) {
+				if (nx == 0 && ny == 0 && nz == 0) {
+					checkIndex(index);
+					return;
+				}
+				allocateNormals();
+			}
 			nxs.set(index, nx);
 			nys.set(index, ny);
 			nzs.set(index, nz);
+			stamp++;
 		}
 
 		@Override
@@ -180,8 +196,53 @@ public class NaiveDoubleMesh implements Mesh {
 			final double v)
 		{
 			final int index = safeIndex(vIndex);
+			if (us == null) {
+				if (u == 0 && v == 0) {
+					checkIndex(index);
+					return;
+				}
+				allocateTexture();
+			}
 			us.set(index, u);
 			vs.set(index, v);
+			stamp++;
+		}
+
+		@Override
+		public boolean hasNormals() {
+			return nxs != null;
+		}
+
+		@Override
+		public boolean hasTexture() {
+			return us != null;
+		}
+
+		@Override
+		public ArrayAttributes attributes() {
+			return attributes;
+		}
+
+		private void allocateNormals() {
+			nxs = zeros(xs.size());
+			nys = zeros(xs.size());
+			nzs = zeros(xs.size());
+		}
+
+		private void allocateTexture() {
+			us = zeros(xs.size());
+			vs = zeros(xs.size());
+		}
+
+		private double zero(final long vIndex) {
+			checkIndex(safeIndex(vIndex));
+			return 0;
+		}
+
+		private void checkIndex(final int index) {
+			if (index < 0 || index >= xs.size()) {
+				throw new IndexOutOfBoundsException("Invalid vertex index: " + index);
+			}
 		}
 
 		private int safeIndex(final long index) {
@@ -269,15 +330,15 @@ public class NaiveDoubleMesh implements Mesh {
 	public class Triangles implements net.imagej.mesh.Triangles {
 
 		private final IntArray v0s, v1s, v2s;
-		private final DoubleArray nxs, nys, nzs;
+		// NB: Normals are allocated on first nonzero write.
+		private DoubleArray nxs, nys, nzs;
+
+		private final ArrayAttributes attributes = new ArrayAttributes(this::size);
 
 		public Triangles() {
 			v0s = new IntArray();
 			v1s = new IntArray();
 			v2s = new IntArray();
-			nxs = new DoubleArray();
-			nys = new DoubleArray();
-			nzs = new DoubleArray();
 		}
 
 		@Override
@@ -307,31 +368,58 @@ public class NaiveDoubleMesh implements Mesh {
 
 		@Override
 		public double nx(long tIndex) {
-			return nxs.get(safeIndex(tIndex));
+			return nxs == null ? zero(tIndex) : nxs.get(safeIndex(tIndex));
 		}
 
 		@Override
 		public double ny(long tIndex) {
-			return nys.get(safeIndex(tIndex));
+			return nys == null ? zero(tIndex) : nys.get(safeIndex(tIndex));
 		}
 
 		@Override
 		public double nz(long tIndex) {
-			return nzs.get(safeIndex(tIndex));
+			return nzs == null ? zero(tIndex) : nzs.get(safeIndex(tIndex));
 		}
 
 		@Override
 		public long add(long v0, long v1, long v2, double nx, double ny, double nz) {
+			if (nxs == null && (nx != 0 || ny != 0 || nz != 0)) allocateNormals();
 			final int index = v0s.size();
 			v0s.add(safeIndex(v0));
 			v1s.add(safeIndex(v1));
 			v2s.add(safeIndex(v2));
-			nxs.add(nx);
-			nys.add(ny);
-			nzs.add(nz);
+			if (nxs != null) {
+				nxs.add(nx);
+				nys.add(ny);
+				nzs.add(nz);
+			}
 			return index;
 		}
 
+		@Override
+		public boolean hasNormals() {
+			return nxs != null;
+		}
+
+		@Override
+		public ArrayAttributes attributes() {
+			return attributes;
+		}
+
+		private void allocateNormals() {
+			nxs = zeros(v0s.size());
+			nys = zeros(v0s.size());
+			nzs = zeros(v0s.size());
+		}
+
+		private double zero(final long tIndex) {
+			final int index = safeIndex(tIndex);
+			if (index < 0 || index >= v0s.size()) {
+				throw new IndexOutOfBoundsException("Invalid triangle index: " + index);
+			}
+			return 0;
+		}
+
 		private int safeIndex(final long index) {
 			if (index > Integer.MAX_VALUE) {
 				throw new IndexOutOfBoundsException("Index too large: " + index);
@@ -359,4 +447,10 @@ public class NaiveDoubleMesh implements Mesh {
 			return add(v0, v1, v2, nx, ny, nz);
 		}
 	}
+
+	// -- Helper methods --
+
+	private static DoubleArray zeros(final int size) {
+		return new DoubleArray(new double[size]);
+	}
 }
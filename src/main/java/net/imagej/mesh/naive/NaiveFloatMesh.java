@@ -30,6 +30,7 @@
 
 package net.imagej.mesh.naive;
 
+import net.imagej.mesh.ArrayAttributes;
 import net.imagej.mesh.Mesh;
 
 import org.scijava.util.FloatArray;
@@ -40,6 +41,9 @@ public class NaiveFloatMesh implements Mesh {
 	private final Vertices vertices;
 	private final Triangles triangles;
 
+	/** NB: Concurrent setters may lose increments, but still change it. */
+	private volatile long stamp;
+
 	public NaiveFloatMesh() {
 		vertices = new Vertices();
 		triangles = new Triangles();
@@ -55,23 +59,26 @@ public class NaiveFloatMesh implements Mesh {
 		return triangles;
 	}
 
+	@Override
+	public long stamp() {
+		return stamp;
+	}
+
 	// -- Inner classes --
 
 	public class Vertices implements net.imagej.mesh.Vertices {
 
 		private final FloatArray xs, ys, zs;
-		private final FloatArray nxs, nys, nzs;
-		private final FloatArray us, vs;
+		// NB: Normals and texture coordinates are allocated on first nonzero write.
+		private FloatArray nxs, nys, nzs;
+		private FloatArray us, vs;
+
+		private final ArrayAttributes attributes = new ArrayAttributes(this::size);
 
 		public Vertices() {
 			xs = new FloatArray();
 			ys = new FloatArray();
 			zs = new FloatArray();
-			nxs = new FloatArray();
-			nys = new FloatArray();
-			nzs = new FloatArray();
-			us = new FloatArray();
-			vs = new FloatArray();
 		}
 
 		@Override
@@ -101,42 +108,48 @@ public class NaiveFloatMesh implements Mesh {
 
 		@Override
 		public float nxf(long vIndex) {
-			return nxs.get(safeIndex(vIndex));
+			return nxs == null ? zero(vIndex) : nxs.get(safeIndex(vIndex));
 		}
 
 		@Override
 		public float nyf(long vIndex) {
-			return nys.get(safeIndex(vIndex));
+			return nys == null ? zero(vIndex) : nys.get(safeIndex(vIndex));
 		}
 
 		@Override
 		public float nzf(long vIndex) {
-			return nzs.get(safeIndex(vIndex));
+			return nzs == null ? zero(vIndex) : nzs.get(safeIndex(vIndex));
 		}
 
 		@Override
 		public float uf(long vIndex) {
-			return us.get(safeIndex(vIndex));
+			return us == null ? zero(vIndex) : us.get(safeIndex(vIndex));
 		}
 
 		@Override
 		public float vf(long vIndex) {
-			return vs.get(safeIndex(vIndex));
+			return vs == null ? zero(vIndex) : vs.get(safeIndex(vIndex));
 		}
 
 		@Override
 		public long addf(float x, float y, float z, float nx, float ny, float nz,
 			float u, float v)
 		{
+			if (nxs == null && (nx != 0 || ny != 0 || nz != 0)) allocateNormals();
+			if (us == null && (u != 0 || v != 0)) allocateTexture();
 			final int index = xs.size();
 			xs.add(x);
 			ys.add(y);
 			zs.add(z);
-			nxs.add(nx);
-			nys.add(ny);
-			nzs.add(nz);
-			us.add(u);
-			vs.add(v);
+			if (nxs != null) {
+				nxs.add(nx);
+				nys.add(ny);
+				nzs.add(nz);
+			}
+			if (us != null) {
+				us.add(u);
+				vs.add(v);
+			}
 			return index;
 		}
 
@@ -144,15 +157,9 @@ public class NaiveFloatMesh implements Mesh {
 		public void setf(long vIndex, float x, float y, float z, float nx, float ny,
 			float nz, float u, float v)
 		{
-			final int index = safeIndex(vIndex);
-			xs.set(index, x);
-			ys.set(index, y);
-			zs.set(index, z);
-			nxs.set(index, nx);
-			nys.set(index, ny);
-			nzs.set(index, nz);
-			us.set(index, u);
-			vs.set(index, v);
+			setPositionf(vIndex, x, y, z);
+			setNormalf(vIndex, nx, ny, nz);
+			setTexturef(vIndex, u, v);
 		}
 
 		@Override
@@ -163,7 +170,7 @@ public class NaiveFloatMesh implements Mesh {
 			xs.set(index, x);
 			ys.set(index, y);
 			zs.set(index, z);
-
+			stamp++;
 		}
 
 		@Override
@@ -171,17 +178,70 @@ public class NaiveFloatMesh implements Mesh {
 			final float ny, final float nz)
 		{
 			final int index = safeIndex(vIndex);
+			if (nxs == null) {
+				if (nx == 0 && ny == 0 && nz == 0) {
+					checkIndex(index);
+					return;
+				}
+				allocateNormals();
+			}
 			nxs.set(index, nx);
 			nys.set(index, ny);
 			nzs.set(index, nz);
+			stamp++;
 		}
 
 		@Override
 		public void setTexturef(final long vIndex, final float u, final float v)
 		{
 			final int index = safeIndex(vIndex);
+			if (us == null) {
+				if (u == 0 && v == 0) {
+					checkIndex(index);
+					return;
+				}
+				allocateTexture();
+			}
 			us.set(index, u);
 			vs.set(index, v);
+			stamp++;
+		}
+
+		@Override
+		public boolean hasNormals() {
+			return nxs != null;
+		}
+
+		@Override
+		public boolean hasTexture() {
+			return us != null;
+		}
+
+		@Override
+		public ArrayAttributes attributes() {
+			return attributes;
+		}
+
+		private void allocateNormals() {
+			nxs = zeros(xs.size());
+			nys = zeros(xs.size());
+			nzs = zeros(xs.size());
+		}
+
+		private void allocateTexture() {
+			us = zeros(xs.size());
+			vs = zeros(xs.size());
+		}
+
+		private float zero(final long vIndex) {
+			checkIndex(safeIndex(vIndex));
+			return 0;
+		}
+
+		private void checkIndex(final int index) {
+			if (index < 0 || index >= xs.size()) {
+				throw new IndexOutOfBoundsException("Invalid vertex index: " + index);
+			}
 		}
 
 		private int safeIndex(final long index) {
@@ -195,15 +255,15 @@ public class NaiveFloatMesh implements Mesh {
 	public class Triangles implements net.imagej.mesh.Triangles {
 
 		private final IntArray v0s, v1s, v2s;
-		private final FloatArray nxs, nys, nzs;
+		// NB: Normals are allocated on first nonzero write.
+		private FloatArray nxs, nys, nzs;
+
+		private final ArrayAttributes attributes = new ArrayAttributes(this::size);
 
 		public Triangles() {
 			v0s = new IntArray();
 			v1s = new IntArray();
 			v2s = new IntArray();
-			nxs = new FloatArray();
-			nys = new FloatArray();
-			nzs = new FloatArray();
 		}
 
 		@Override
@@ -233,31 +293,58 @@ public class NaiveFloatMesh implements Mesh {
 
 		@Override
 		public float nxf(long tIndex) {
-			return nxs.get(safeIndex(tIndex));
+			return nxs == null ? zero(tIndex) : nxs.get(safeIndex(tIndex));
 		}
 
 		@Override
 		public float nyf(long tIndex) {
-			return nys.get(safeIndex(tIndex));
+			return nys == null ? zero(tIndex) : nys.get(safeIndex(tIndex));
 		}
 
 		@Override
 		public float nzf(long tIndex) {
-			return nzs.get(safeIndex(tIndex));
+			return nzs == null ? zero(tIndex) : nzs.get(safeIndex(tIndex));
 		}
 
 		@Override
 		public long addf(long v0, long v1, long v2, float nx, float ny, float nz) {
+			if (nxs == null && (nx != 0 || ny != 0 || nz != 0)) allocateNormals();
 			final int index = v0s.size();
 			v0s.add(safeIndex(v0));
 			v1s.add(safeIndex(v1));
 			v2s.add(safeIndex(v2));
-			nxs.add(nx);
-			nys.add(ny);
-			nzs.add(nz);
+			if (nxs != null) {
+				nxs.add(nx);
+				nys.add(ny);
+				nzs.add(nz);
+			}
 			return index;
 		}
 
+		@Override
+		public boolean hasNormals() {
+			return nxs != null;
+		}
+
+		@Override
+		public ArrayAttributes attributes() {
+			return attributes;
+		}
+
+		private void allocateNormals() {
+			nxs = zeros(v0s.size());
+			nys = zeros(v0s.size());
+			nzs = zeros(v0s.size());
+		}
+
+		private float zero(final long tIndex) {
+			final int index = safeIndex(tIndex);
+			if (index < 0 || index >= v0s.size()) {
+				throw new IndexOutOfBoundsException("Invalid triangle index: " + index);
+			}
+			return 0;
+		}
+
 		private int safeIndex(final long index) {
 			if (index > Integer.MAX_VALUE) {
 				throw new IndexOutOfBoundsException("Index too large: " + index);
@@ -265,4 +352,10 @@ public class NaiveFloatMesh implements Mesh {
 			return (int) index;
 		}
 	}
+
+	// -- Helper methods --
+
+	private static FloatArray zeros(final int size) {
+		return new FloatArray(new float[size]);
+	}
 }
@@ -0,0 +1,138 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import net.imagej.mesh.AbstractAttribute;
+import net.imagej.mesh.AbstractAttributes;
+import net.imagej.mesh.Attribute;
+
+/**
+ * {@link net.imagej.mesh.Attributes} of a {@link BufferMesh}, each channel
+ * stored in one {@link ByteBuffer} sized for the mesh's maximum number of
+ * elements.
+ */
+public class BufferAttributes extends AbstractAttributes {
+
+	private final Function<Integer, ByteBuffer> creator;
+	private final int capacity;
+	private final LongSupplier size;
+
+	BufferAttributes(final Function<Integer, ByteBuffer> creator,
+		final int capacity, final LongSupplier size)
+	{
+		this.creator = creator;
+		this.capacity = capacity;
+		this.size = size;
+	}
+
+	@Override
+	protected BufferAttribute create(final String name,
+		final Attribute.Type type, final int components)
+	{
+		final long bytes = (long) capacity * components * type.bytes();
+		if (bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Attribute too large: " + bytes +
+				" bytes");
+		}
+		final ByteBuffer buffer = creator.apply((int) bytes).order(ByteOrder
+			.nativeOrder());
+		// NB: Custom creators need not hand out zeroed memory.
+		for (int i = 0; i < bytes; i++)
+			buffer.put(i, (byte) 0);
+		return new BufferAttribute(name, type, components, size, buffer);
+	}
+
+	// -- Inner classes --
+
+	/**
+	 * Attribute channel backed by a {@link ByteBuffer} of consecutive elements
+	 * in native byte order.
+	 */
+	public static class BufferAttribute extends AbstractAttribute {
+
+		private final ByteBuffer buffer;
+		private final int stride;
+
+		private BufferAttribute(final String name, final Type type,
+			final int components, final LongSupplier size, final ByteBuffer buffer)
+		{
+			super(name, type, components, size);
+			this.buffer = buffer;
+			stride = components * type.bytes();
+		}
+
+		/** Gets the buffer holding the values, e.g. for uploading to the GPU. */
+		public ByteBuffer buffer() {
+			return buffer;
+		}
+
+		@Override
+		protected float readFloat(final long index, final int component) {
+			return buffer.getFloat(offset(index, component));
+		}
+
+		@Override
+		protected int readInt(final long index, final int component) {
+			final int offset = offset(index, component);
+			return type() == Type.INT ? buffer.getInt(offset) : //
+				buffer.get(offset) & 0xff;
+		}
+
+		@Override
+		protected void writeFloat(final long index, final int component,
+			final float value)
+		{
+			buffer.putFloat(offset(index, component), value);
+		}
+
+		@Override
+		protected void writeInt(final long index, final int component,
+			final int value)
+		{
+			final int offset = offset(index, component);
+			if (type() == Type.INT) buffer.putInt(offset, value);
+			else buffer.put(offset, (byte) value);
+		}
+
+		private int offset(final long index, final int component) {
+			final long offset = index * stride + component * type().bytes();
+			if (offset > Integer.MAX_VALUE) {
+				throw new IndexOutOfBoundsException("Index too large: " + index);
+			}
+			return (int) offset;
+		}
+	}
+}
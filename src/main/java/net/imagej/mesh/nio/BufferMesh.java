@@ -46,9 +46,42 @@ import net.imagej.mesh.Mesh;
  */
 public class BufferMesh implements Mesh {
 
+	/** Memory layout of the per-vertex data. */
+	public enum Layout {
+
+		/**
+		 * Positions, normals and texture coordinates in three separate buffers
+		 * (structure of arrays).
+		 */
+		SEPARATE,
+
+		/**
+		 * Positions, normals and texture coordinates interleaved per vertex in a
+		 * single buffer (array of structures), as {@code x, y, z, nx, ny, nz, u,
+		 * v}. See {@link #INTERLEAVED_STRIDE}, {@link #POSITION_OFFSET},
+		 * {@link #NORMAL_OFFSET} and {@link #TEXTURE_OFFSET}.
+		 */
+		INTERLEAVED
+	}
+
+	/** Number of floats per vertex in the {@link Layout#INTERLEAVED} layout. */
+	public static final int INTERLEAVED_STRIDE = 8;
+
+	/** Offset of the position within an interleaved vertex, in floats. */
+	public static final int POSITION_OFFSET = 0;
+
+	/** Offset of the normal within an interleaved vertex, in floats. */
+	public static final int NORMAL_OFFSET = 3;
+
+	/** Offset of the texture coordinates within an interleaved vertex, in floats. */
+	public static final int TEXTURE_OFFSET = 6;
+
 	private final Vertices vertices;
 	private final Triangles triangles;
 
+	/** NB: Concurrent setters may lose increments, but still change it. */
+	private volatile long stamp;
+
 	public BufferMesh(final int vertexMax, final int triangleMax) {
 		this(vertexMax, triangleMax, true);
 	}
@@ -63,13 +96,68 @@ public class BufferMesh implements Mesh {
 	public BufferMesh(final int vertexMax, final int triangleMax,
 		final Function<Integer, ByteBuffer> creator)
 	{
-		this(floats(create(creator, vertexMax * 12)), //
-			floats(create(creator, vertexMax * 12)), //
-			floats(create(creator, vertexMax * 8)), //
-			ints(create(creator, triangleMax * 12)), //
-			floats(create(creator, triangleMax * 12)));
+		this(vertexMax, triangleMax, creator, Layout.SEPARATE);
+	}
+
+	public BufferMesh(final int vertexMax, final int triangleMax,
+		final Layout layout)
+	{
+		this(vertexMax, triangleMax, ByteBuffer::allocateDirect, layout);
+	}
+
+	public BufferMesh(final int vertexMax, final int triangleMax,
+		final Function<Integer, ByteBuffer> creator, final Layout layout)
+	{
+		this(vertexMax, triangleMax, creator, layout, false);
+	}
+
+	/**
+	 * Creates a mesh with the {@link Layout#SEPARATE} layout whose vertex
+	 * normals, texture coordinates and triangle normals are optionally
+	 * allocated only once a nonzero value is written to them. This saves most
+	 * of the memory of meshes that only need positions.
+	 *
+	 * @param vertexMax Maximum number of vertices.
+	 * @param triangleMax Maximum number of triangles.
+	 * @param creator Allocates the buffers, given their size in bytes.
+	 * @param lazyAttributes Whether to defer allocation of the normal and
+	 *          texture coordinate buffers.
+	 */
+	public BufferMesh(final int vertexMax, final int triangleMax,
+		final Function<Integer, ByteBuffer> creator,
+		final boolean lazyAttributes)
+	{
+		this(vertexMax, triangleMax, creator, Layout.SEPARATE, lazyAttributes);
 	}
 
+	private BufferMesh(final int vertexMax, final int triangleMax,
+		final Function<Integer, ByteBuffer> creator, final Layout layout,
+		final boolean lazyAttributes)
+	{
+		if (layout == Layout.INTERLEAVED) {
+			vertices = new Vertices(floats(create(creator, //
+				vertexMax * INTERLEAVED_STRIDE * 4)));
+		}
+		else if (lazyAttributes) {
+			vertices = new Vertices(floats(create(creator, vertexMax * 12)), //
+				null, null, creator);
+		}
+		else {
+			vertices = new Vertices(floats(create(creator, vertexMax * 12)), //
+				floats(create(creator, vertexMax * 12)), //
+				floats(create(creator, vertexMax * 8)), creator);
+		}
+		triangles = new Triangles(ints(create(creator, triangleMax * 12)), //
+			lazyAttributes ? null : floats(create(creator, triangleMax * 12)),
+			creator);
+	}
+
+	/**
+	 * Creates a mesh with {@link Layout#SEPARATE} vertex data, wrapping the
+	 * given buffers. The normal and texture coordinate buffers may be
+	 * {@code null}, in which case they are allocated once a nonzero value is
+	 * written to them.
+	 */
 	public BufferMesh(final FloatBuffer verts, final FloatBuffer vNormals,
 		final FloatBuffer texCoords, final IntBuffer indices,
 		final FloatBuffer tNormals)
@@ -78,6 +166,21 @@ public class BufferMesh implements Mesh {
 		triangles = new Triangles(indices, tNormals);
 	}
 
+	/**
+	 * Creates a mesh with {@link Layout#INTERLEAVED} vertex data.
+	 *
+	 * @param interleaved Vertex data, {@link #INTERLEAVED_STRIDE} floats per
+	 *          vertex. The limit marks the end of the existing vertices.
+	 * @param indices Triangle vertex indices, three per triangle.
+	 * @param tNormals Triangle normals, three per triangle.
+	 */
+	public BufferMesh(final FloatBuffer interleaved, final IntBuffer indices,
+		final FloatBuffer tNormals)
+	{
+		vertices = new Vertices(interleaved);
+		triangles = new Triangles(indices, tNormals);
+	}
+
 	@Override
 	public Vertices vertices() {
 		return vertices;
@@ -88,6 +191,11 @@ public class BufferMesh implements Mesh {
 		return triangles;
 	}
 
+	@Override
+	public long stamp() {
+		return stamp;
+	}
+
 	// -- Inner classes --
 
 	public class Vertices implements net.imagej.mesh.Vertices {
@@ -96,30 +204,127 @@ public class BufferMesh implements Mesh {
 		private static final int N_STRIDE = 3;
 		private static final int T_STRIDE = 2;
 
+		private final Layout layout;
+
 		private FloatBuffer verts;
 		private FloatBuffer normals;
 		private FloatBuffer texCoords;
 
+		private final int vStride, vOffset;
+		private final int nStride, nOffset;
+		private final int tStride, tOffset;
+
+		private final Function<Integer, ByteBuffer> creator;
+
+		private final BufferAttributes attributes;
+
+		/**
+		 * Creates vertices backed by separate buffers. The normal and texture
+		 * coordinate buffers may be {@code null}, in which case they are
+		 * allocated once a nonzero value is written to them.
+		 */
 		public Vertices(final FloatBuffer verts, final FloatBuffer normals,
 			final FloatBuffer texCoords)
 		{
+			this(verts, normals, texCoords, creator(verts));
+		}
+
+		private Vertices(final FloatBuffer verts, final FloatBuffer normals,
+			final FloatBuffer texCoords,
+			final Function<Integer, ByteBuffer> creator)
+		{
+			layout = Layout.SEPARATE;
+			this.creator = creator;
 			this.verts = verts;
 			this.normals = normals;
 			this.texCoords = texCoords;
-		}
-
+			vStride = V_STRIDE;
+			nStride = N_STRIDE;
+			tStride = T_STRIDE;
+			vOffset = nOffset = tOffset = 0;
+			attributes = new BufferAttributes(creator, verts.capacity() / vStride,
+				this::size);
+		}
+
+		/**
+		 * Creates vertices backed by one buffer in the
+		 * {@link Layout#INTERLEAVED} layout.
+		 */
+		public Vertices(final FloatBuffer interleaved) {
+			layout = Layout.INTERLEAVED;
+			creator = creator(interleaved);
+			verts = normals = texCoords = interleaved;
+			vStride = nStride = tStride = INTERLEAVED_STRIDE;
+			vOffset = POSITION_OFFSET;
+			nOffset = NORMAL_OFFSET;
+			tOffset = TEXTURE_OFFSET;
+			attributes = new BufferAttributes(creator, verts.capacity() / vStride,
+				this::size);
+		}
+
+		public Layout layout() {
+			return layout;
+		}
+
+		/**
+		 * Gets the buffer of positions. For the {@link Layout#INTERLEAVED}
+		 * layout, this is the {@link #interleaved()} buffer.
+		 */
 		public FloatBuffer verts() {
 			return verts;
 		}
 
+		/**
+		 * Gets the buffer of normals, allocating it if there is none yet. For the
+		 * {@link Layout#INTERLEAVED} layout, this is the {@link #interleaved()}
+		 * buffer.
+		 */
 		public FloatBuffer normals() {
+			if (normals == null) normals = allocate(N_STRIDE);
 			return normals;
 		}
 
+		/**
+		 * Gets the buffer of texture coordinates, allocating it if there is none
+		 * yet. For the {@link Layout#INTERLEAVED} layout, this is the
+		 * {@link #interleaved()} buffer.
+		 */
 		public FloatBuffer texCoords() {
+			if (texCoords == null) texCoords = allocate(T_STRIDE);
 			return texCoords;
 		}
 
+		@Override
+		public boolean hasNormals() {
+			return normals != null;
+		}
+
+		@Override
+		public boolean hasTexture() {
+			return texCoords != null;
+		}
+
+		/**
+		 * Gets the attribute channels, each backed by a buffer with room for as
+		 * many vertices as the position buffer.
+		 */
+		@Override
+		public BufferAttributes attributes() {
+			return attributes;
+		}
+
+		/**
+		 * Gets the raw vertex data of the {@link Layout#INTERLEAVED} layout, e.g.
+		 * for uploading to the GPU without copying. Its limit marks the end of
+		 * the vertices.
+		 *
+		 * @return The interleaved buffer, or null for the
+		 *         {@link Layout#SEPARATE} layout.
+		 */
+		public FloatBuffer interleaved() {
+			return layout == Layout.INTERLEAVED ? verts : null;
+		}
+
 		@Override
 		public Mesh mesh() {
 			return BufferMesh.this;
@@ -127,47 +332,52 @@ public class BufferMesh implements Mesh {
 
 		@Override
 		public long size() {
-			return verts.limit() / V_STRIDE;
+			return verts.limit() / vStride;
 		}
 
 		@Override
 		public float xf(long vIndex) {
-			return verts.get(safeIndex(vIndex, V_STRIDE, 0));
+			return verts.get(safeIndex(vIndex, vStride, vOffset));
 		}
 
 		@Override
 		public float yf(long vIndex) {
-			return verts.get(safeIndex(vIndex, V_STRIDE, 1));
+			return verts.get(safeIndex(vIndex, vStride, vOffset + 1));
 		}
 
 		@Override
 		public float zf(long vIndex) {
-			return verts.get(safeIndex(vIndex, V_STRIDE, 2));
+			return verts.get(safeIndex(vIndex, vStride, vOffset + 2));
 		}
 
 		@Override
 		public float nxf(long vIndex) {
-			return normals.get(safeIndex(vIndex, N_STRIDE, 0));
+			return normals == null ? zero(vIndex) : normals.get(safeIndex(
+				vIndex, nStride, nOffset));
 		}
 
 		@Override
 		public float nyf(long vIndex) {
-			return normals.get(safeIndex(vIndex, N_STRIDE, 1));
+			return normals == null ? zero(vIndex) : normals.get(safeIndex(
+				vIndex, nStride, nOffset + 1));
 		}
 
 		@Override
 		public float nzf(long vIndex) {
-			return normals.get(safeIndex(vIndex, N_STRIDE, 2));
+			return normals == null ? zero(vIndex) : normals.get(safeIndex(
+				vIndex, nStride, nOffset + 2));
 		}
 
 		@Override
 		public float uf(long vIndex) {
-			return texCoords.get(safeIndex(vIndex, T_STRIDE, 0));
+			return texCoords == null ? zero(vIndex) : texCoords.get(safeIndex(
+				vIndex, tStride, tOffset));
 		}
 
 		@Override
 		public float vf(long vIndex) {
-			return texCoords.get(safeIndex(vIndex, T_STRIDE, 1));
+			return texCoords == null ? zero(vIndex) : texCoords.get(safeIndex(
+				vIndex, tStride, tOffset + 1));
 		}
 
 		@Override
@@ -175,17 +385,39 @@ public class BufferMesh implements Mesh {
 			float u, float v)
 		{
 			final long index = size();
+			if (layout == Layout.INTERLEAVED) {
+				grow(verts, INTERLEAVED_STRIDE);
+				verts.put(x);
+				verts.put(y);
+				verts.put(z);
+				verts.put(nx);
+				verts.put(ny);
+				verts.put(nz);
+				verts.put(u);
+				verts.put(v);
+				return index;
+			}
+			if (normals == null && (nx != 0 || ny != 0 || nz != 0)) {
+				normals = allocate(N_STRIDE);
+			}
+			if (texCoords == null && (u != 0 || v != 0)) {
+				texCoords = allocate(T_STRIDE);
+			}
 			grow(verts, V_STRIDE);
 			verts.put(x);
 			verts.put(y);
 			verts.put(z);
-			grow(normals, N_STRIDE);
-			normals.put(nx);
-			normals.put(ny);
-			normals.put(nz);
-			grow(texCoords, T_STRIDE);
-			texCoords.put(u);
-			texCoords.put(v);
+			if (normals != null) {
+				grow(normals, N_STRIDE);
+				normals.put(nx);
+				normals.put(ny);
+				normals.put(nz);
+			}
+			if (texCoords != null) {
+				grow(texCoords, T_STRIDE);
+				texCoords.put(u);
+				texCoords.put(v);
+			}
 			return index;
 		}
 
@@ -194,39 +426,66 @@ public class BufferMesh implements Mesh {
 			float nx, float ny, float nz, //
 			float u, float v)
 		{
-			verts.put(safeIndex(vIndex, V_STRIDE, 0), x);
-			verts.put(safeIndex(vIndex, V_STRIDE, 1), y);
-			verts.put(safeIndex(vIndex, V_STRIDE, 2), z);
-			normals.put(safeIndex(vIndex, N_STRIDE, 0), nx);
-			normals.put(safeIndex(vIndex, N_STRIDE, 1), ny);
-			normals.put(safeIndex(vIndex, N_STRIDE, 2), nz);
-			texCoords.put(safeIndex(vIndex, T_STRIDE, 0), u);
-			texCoords.put(safeIndex(vIndex, T_STRIDE, 1), v);
+			setPositionf(vIndex, x, y, z);
+			setNormalf(vIndex, nx, ny, nz);
+			setTexturef(vIndex, u, v);
 		}
 
 		@Override
 		public void setPositionf(final long vIndex, final float x,
 			final float y, final float z)
 		{
-			verts.put(safeIndex(vIndex, V_STRIDE, 0), x);
-			verts.put(safeIndex(vIndex, V_STRIDE, 1), y);
-			verts.put(safeIndex(vIndex, V_STRIDE, 2), z);
+			final int i = safeIndex(vIndex, vStride, vOffset);
+			verts.put(i, x);
+			verts.put(i + 1, y);
+			verts.put(i + 2, z);
+			stamp++;
 		}
 
 		@Override
 		public void setNormalf(final long vIndex, final float nx,
 			final float ny, final float nz)
 		{
-			normals.put(safeIndex(vIndex, N_STRIDE, 0), nx);
-			normals.put(safeIndex(vIndex, N_STRIDE, 1), ny);
-			normals.put(safeIndex(vIndex, N_STRIDE, 2), nz);
+			if (normals == null) {
+				if (nx == 0 && ny == 0 && nz == 0) {
+					zero(vIndex);
+					return;
+				}
+				normals = allocate(N_STRIDE);
+			}
+			final int i = safeIndex(vIndex, nStride, nOffset);
+			normals.put(i, nx);
+			normals.put(i + 1, ny);
+			normals.put(i + 2, nz);
+			stamp++;
 		}
 
 		@Override
 		public void setTexturef(final long vIndex, final float u, final float v)
 		{
-			texCoords.put(safeIndex(vIndex, T_STRIDE, 0), u);
-			texCoords.put(safeIndex(vIndex, T_STRIDE, 1), v);
+			if (texCoords == null) {
+				if (u == 0 && v == 0) {
+					zero(vIndex);
+					return;
+				}
+				texCoords = allocate(T_STRIDE);
+			}
+			final int i = safeIndex(vIndex, tStride, tOffset);
+			texCoords.put(i, u);
+			texCoords.put(i + 1, v);
+			stamp++;
+		}
+
+		/** Allocates a zeroed buffer for an absent channel. */
+		private FloatBuffer allocate(final int stride) {
+			return zeros(creator, verts.capacity() / V_STRIDE, (int) size(),
+				stride);
+		}
+
+		/** Value of an absent channel, after checking the index. */
+		private float zero(final long vIndex) {
+			checkIndex(vIndex, size());
+			return 0;
 		}
 	}
 
@@ -238,19 +497,56 @@ public class BufferMesh implements Mesh {
 		private IntBuffer indices;
 		private FloatBuffer normals;
 
+		private final Function<Integer, ByteBuffer> creator;
+
+		private final BufferAttributes attributes;
+
+		/**
+		 * Creates triangles backed by the given buffers. The normal buffer may be
+		 * {@code null}, in which case it is allocated once a nonzero normal is
+		 * written.
+		 */
 		public Triangles(final IntBuffer indices, final FloatBuffer normals) {
+			this(indices, normals, creator(indices));
+		}
+
+		private Triangles(final IntBuffer indices, final FloatBuffer normals,
+			final Function<Integer, ByteBuffer> creator)
+		{
 			this.indices = indices;
 			this.normals = normals;
+			this.creator = creator;
+			attributes = new BufferAttributes(creator, indices.capacity() /
+				I_STRIDE, this::size);
 		}
 
 		public IntBuffer indices() {
 			return indices;
 		}
 
+		/** Gets the buffer of normals, allocating it if there is none yet. */
 		public FloatBuffer normals() {
+			if (normals == null) {
+				normals = zeros(creator, indices.capacity() / I_STRIDE, (int) size(),
+					N_STRIDE);
+			}
 			return normals;
 		}
 
+		@Override
+		public boolean hasNormals() {
+			return normals != null;
+		}
+
+		/**
+		 * Gets the attribute channels, each backed by a buffer with room for as
+		 * many triangles as the index buffer.
+		 */
+		@Override
+		public BufferAttributes attributes() {
+			return attributes;
+		}
+
 		@Override
 		public Mesh mesh() {
 			return BufferMesh.this;
@@ -278,32 +574,73 @@ public class BufferMesh implements Mesh {
 
 		@Override
 		public float nxf(long tIndex) {
-			return normals.get(safeIndex(tIndex, N_STRIDE, 0));
+			return normals == null ? zero(tIndex) : normals.get(safeIndex(tIndex,
+				N_STRIDE, 0));
 		}
 
 		@Override
 		public float nyf(long tIndex) {
-			return normals.get(safeIndex(tIndex, N_STRIDE, 1));
+			return normals == null ? zero(tIndex) : normals.get(safeIndex(tIndex,
+				N_STRIDE, 1));
 		}
 
 		@Override
 		public float nzf(long tIndex) {
-			return normals.get(safeIndex(tIndex, N_STRIDE, 2));
+			return normals == null ? zero(tIndex) : normals.get(safeIndex(tIndex,
+				N_STRIDE, 2));
 		}
 
 		@Override
 		public long addf(long v0, long v1, long v2, float nx, float ny, float nz) {
+			if (normals == null && (nx != 0 || ny != 0 || nz != 0)) normals();
 			final long index = size();
 			grow(indices, I_STRIDE);
 			indices.put(safeInt(v0));
 			indices.put(safeInt(v1));
 			indices.put(safeInt(v2));
-			grow(normals, N_STRIDE);
-			normals.put(nx);
-			normals.put(ny);
-			normals.put(nz);
+			if (normals != null) {
+				grow(normals, N_STRIDE);
+				normals.put(nx);
+				normals.put(ny);
+				normals.put(nz);
+			}
 			return index;
 		}
+
+		/** Value of an absent normal, after checking the index. */
+		private float zero(final long tIndex) {
+			checkIndex(tIndex, size());
+			return 0;
+		}
+	}
+
+	// -- Helper methods --
+
+	private static void checkIndex(final long index, final long size) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Invalid index: " + index);
+		}
+	}
+
+	private static Function<Integer, ByteBuffer> creator(final Buffer buffer) {
+		return buffer.isDirect() ? ByteBuffer::allocateDirect
+			: ByteBuffer::allocate;
+	}
+
+	/**
+	 * Allocates a buffer for an absent channel, holding {@code size} zeroed
+	 * elements.
+	 */
+	private static FloatBuffer zeros(
+		final Function<Integer, ByteBuffer> creator, final int capacity,
+		final int size, final int stride)
+	{
+		final FloatBuffer buffer = floats(create(creator, capacity * stride * 4));
+		grow(buffer, size * stride);
+		// NB: Custom creators need not hand out zeroed memory.
+		for (int i = 0; i < size * stride; i++)
+			buffer.put(0f);
+		return buffer;
 	}
 
 	private static int safeIndex(final long index, final int span,
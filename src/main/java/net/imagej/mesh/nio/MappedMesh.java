@@ -0,0 +1,262 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh.nio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Mesh backed by memory-mapped files, for meshes larger than the heap.
+ * <p>
+ * The mesh lives in a directory holding one file of vertices and one file of
+ * triangles. Each file is a small header followed by fixed-size records, which
+ * are addressed with {@code long} indices across multiple mapped segments. The
+ * files grow one segment at a time as elements are appended, and opening an
+ * existing directory maps the stored mesh again without any parsing.
+ * </p>
+ * <p>
+ * Records use the {@link SegmentedMesh} layout, with all values stored
+ * little-endian. Attribute channels are held in memory only, and are not
+ * written to the files.
+ * </p>
+ */
+public class MappedMesh extends SegmentedMesh implements Closeable {
+
+	/** Default base-2 logarithm of the number of records per segment. */
+	public static final int DEFAULT_SEGMENT_SHIFT = 20;
+
+	private static final String VERTICES_FILE = "vertices.bin";
+	private static final String TRIANGLES_FILE = "triangles.bin";
+
+	private final MappedFile vertexFile;
+	private final MappedFile triangleFile;
+
+	/**
+	 * Opens the mesh stored in the given directory, or creates an empty one if
+	 * there is none yet.
+	 *
+	 * @param directory Directory holding the mesh files.
+	 */
+	public MappedMesh(final Path directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_SHIFT);
+	}
+
+	/**
+	 * Opens the mesh stored in the given directory, or creates an empty one if
+	 * there is none yet.
+	 *
+	 * @param directory Directory holding the mesh files.
+	 * @param segmentShift Base-2 logarithm of the number of vertices (or
+	 *          triangles) per mapped segment, used when creating new files. The
+	 *          files are extended by one segment at a time. Existing files keep
+	 *          the segment size they were created with.
+	 */
+	public MappedMesh(final Path directory, final int segmentShift)
+		throws IOException
+	{
+		this(open(directory, segmentShift));
+	}
+
+	private MappedMesh(final MappedFile[] files) {
+		super(files[0].data, files[1].data);
+		vertexFile = files[0];
+		triangleFile = files[1];
+	}
+
+	/** Writes all changes through to the storage device. */
+	public void force() {
+		vertexFile.force();
+		triangleFile.force();
+	}
+
+	/**
+	 * Writes all changes through to the storage device and unmaps the files.
+	 * The mesh must not be used afterwards.
+	 */
+	@Override
+	public void close() throws IOException {
+		releaseAttributes();
+		try {
+			vertexFile.close();
+		}
+		finally {
+			triangleFile.close();
+		}
+	}
+
+	// -- Helper methods --
+
+	private static MappedFile[] open(final Path directory,
+		final int segmentShift) throws IOException
+	{
+		Files.createDirectories(directory);
+		final MappedFile vertexFile = new MappedFile(directory.resolve(
+			VERTICES_FILE), Vertices.STRIDE, segmentShift);
+		try {
+			final MappedFile triangleFile = new MappedFile(directory.resolve(
+				TRIANGLES_FILE), Triangles.STRIDE, segmentShift);
+			return new MappedFile[] { vertexFile, triangleFile };
+		}
+		catch (final IOException exc) {
+			vertexFile.close();
+			throw exc;
+		}
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * One mesh file: a header holding the record layout and element count,
+	 * followed by the segments of records.
+	 */
+	private static class MappedFile {
+
+		private static final int MAGIC = 0x494a4d4d; // "IJMM"
+		private static final int VERSION = 1;
+		private static final int HEADER_SIZE = 64;
+
+		private static final int MAGIC_OFFSET = 0;
+		private static final int VERSION_OFFSET = 4;
+		private static final int STRIDE_OFFSET = 8;
+		private static final int SHIFT_OFFSET = 12;
+		private static final int SIZE_OFFSET = 16;
+
+		private final Path path;
+		private final FileChannel channel;
+		private final MappedByteBuffer header;
+		private final SegmentedBuffer data;
+
+		private MappedFile(final Path path, final int stride, final int shift)
+			throws IOException
+		{
+			this.path = path;
+			channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+			try {
+				final boolean existing = channel.size() > 0;
+				final long size;
+				if (existing && channel.size() < HEADER_SIZE) {
+					throw new IOException("Truncated mesh file: " + path);
+				}
+				header = map(0, HEADER_SIZE);
+				if (existing) {
+					checkHeader(stride);
+					size = header.getLong(SIZE_OFFSET);
+				}
+				else {
+					size = 0;
+					header.putInt(MAGIC_OFFSET, MAGIC);
+					header.putInt(VERSION_OFFSET, VERSION);
+					header.putInt(STRIDE_OFFSET, stride);
+					header.putInt(SHIFT_OFFSET, shift);
+					header.putLong(SIZE_OFFSET, 0);
+				}
+				data = new SegmentedBuffer(stride, header.getInt(SHIFT_OFFSET),
+					this::mapSegment)
+				{
+
+					@Override
+					void setSize(final long newSize) {
+						super.setSize(newSize);
+						header.putLong(SIZE_OFFSET, newSize);
+					}
+				};
+				data.ensureCapacity(size);
+				data.setSize(size);
+			}
+			catch (final IOException | RuntimeException exc) {
+				channel.close();
+				throw exc;
+			}
+		}
+
+		private void force() {
+			if (!channel.isOpen()) return;
+			for (final ByteBuffer segment : data.segments()) {
+				((MappedByteBuffer) segment).force();
+			}
+			header.force();
+		}
+
+		private void close() throws IOException {
+			if (!channel.isOpen()) return;
+			try {
+				force();
+			}
+			finally {
+				data.release();
+				SegmentedBuffer.free(header);
+				channel.close();
+			}
+		}
+
+		private void checkHeader(final int stride) throws IOException {
+			if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+				throw new IOException("Not a mesh file: " + path);
+			}
+			if (header.getInt(VERSION_OFFSET) != VERSION) {
+				throw new IOException("Unsupported mesh file version " + //
+					header.getInt(VERSION_OFFSET) + ": " + path);
+			}
+			if (header.getInt(STRIDE_OFFSET) != stride) {
+				throw new IOException("Unexpected record size " + //
+					header.getInt(STRIDE_OFFSET) + ": " + path);
+			}
+		}
+
+		private ByteBuffer mapSegment(final int segment, final int bytes) {
+			try {
+				// NB: Mapping beyond the end of the file extends the file.
+				return map(HEADER_SIZE + (long) segment * bytes, bytes);
+			}
+			catch (final IOException exc) {
+				throw new UncheckedIOException(exc);
+			}
+		}
+
+		private MappedByteBuffer map(final long position, final long length)
+			throws IOException
+		{
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+				position, length);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			return buffer;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Mesh stored outside the Java heap, with {@code long} indices throughout.
+ * <p>
+ * Storage is allocated in direct buffer segments as elements are appended, so
+ * large meshes neither hit the 2^31 element limit of {@link BufferMesh} nor
+ * occupy garbage-collected memory. Call {@link #close()} to free the memory
+ * deterministically once the mesh is no longer needed; otherwise, it is freed
+ * when the mesh is garbage collected.
+ * </p>
+ */
+public class OffHeapMesh extends SegmentedMesh implements AutoCloseable {
+
+	/** Default base-2 logarithm of the number of records per segment. */
+	public static final int DEFAULT_SEGMENT_SHIFT = 16;
+
+	private final SegmentedBuffer vertexData;
+	private final SegmentedBuffer triangleData;
+
+	public OffHeapMesh() {
+		this(DEFAULT_SEGMENT_SHIFT);
+	}
+
+	/**
+	 * @param segmentShift Base-2 logarithm of the number of vertices (or
+	 *          triangles) per segment. Storage grows by one segment at a time.
+	 */
+	public OffHeapMesh(final int segmentShift) {
+		this(direct(Vertices.STRIDE, segmentShift), //
+			direct(Triangles.STRIDE, segmentShift));
+	}
+
+	private OffHeapMesh(final SegmentedBuffer vertexData,
+		final SegmentedBuffer triangleData)
+	{
+		super(vertexData, triangleData);
+		this.vertexData = vertexData;
+		this.triangleData = triangleData;
+	}
+
+	/**
+	 * Frees the mesh's memory immediately. Afterwards, reading or writing
+	 * elements fails with an exception. The mesh must not be accessed by other
+	 * threads while it is being closed.
+	 */
+	@Override
+	public void close() {
+		releaseAttributes();
+		vertexData.release();
+		triangleData.release();
+	}
+
+	// -- Helper methods --
+
+	private static SegmentedBuffer direct(final int stride, final int shift) {
+		return new SegmentedBuffer(stride, shift, (segment, bytes) -> ByteBuffer
+			.allocateDirect(bytes).order(ByteOrder.nativeOrder()));
+	}
+}
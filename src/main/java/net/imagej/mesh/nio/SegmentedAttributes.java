@@ -0,0 +1,144 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import net.imagej.mesh.AbstractAttribute;
+import net.imagej.mesh.AbstractAttributes;
+import net.imagej.mesh.Attribute;
+
+/**
+ * {@link net.imagej.mesh.Attributes} of a {@link SegmentedMesh}, each channel
+ * stored off-heap in direct buffer segments which are allocated as elements
+ * are written.
+ */
+class SegmentedAttributes extends AbstractAttributes {
+
+	private final int shift;
+	private final LongSupplier size;
+	private final List<SegmentedBuffer> buffers = new ArrayList<>();
+
+	SegmentedAttributes(final int shift, final LongSupplier size) {
+		this.shift = shift;
+		this.size = size;
+	}
+
+	/**
+	 * Frees the memory of all channels. Afterwards, accessing them fails with
+	 * an {@link IllegalStateException}.
+	 */
+	void release() {
+		for (final SegmentedBuffer buffer : buffers)
+			buffer.release();
+	}
+
+	/**
+	 * Removes a channel and frees its memory. Afterwards, accessing it fails
+	 * with an {@link IllegalStateException}.
+	 */
+	@Override
+	public boolean remove(final String name) {
+		final Attribute channel = get(name);
+		if (!super.remove(name)) return false;
+		final SegmentedBuffer data = ((SegmentedAttribute) channel).data;
+		buffers.remove(data);
+		data.release();
+		return true;
+	}
+
+	@Override
+	protected Attribute create(final String name, final Attribute.Type type,
+		final int components)
+	{
+		final SegmentedBuffer data = new SegmentedBuffer(components * type
+			.bytes(), shift, (segment, bytes) -> ByteBuffer.allocateDirect(bytes)
+				.order(ByteOrder.nativeOrder()));
+		buffers.add(data);
+		return new SegmentedAttribute(name, type, components, size, data);
+	}
+
+	// -- Helper classes --
+
+	private static class SegmentedAttribute extends AbstractAttribute {
+
+		private final SegmentedBuffer data;
+
+		private SegmentedAttribute(final String name, final Type type,
+			final int components, final LongSupplier size,
+			final SegmentedBuffer data)
+		{
+			super(name, type, components, size);
+			this.data = data;
+		}
+
+		@Override
+		protected float readFloat(final long index, final int component) {
+			if (index >= data.capacity()) return unwritten();
+			return data.getFloat(index, component * 4);
+		}
+
+		@Override
+		protected int readInt(final long index, final int component) {
+			if (index >= data.capacity()) return unwritten();
+			return type() == Type.INT ? data.getInt(index, component * 4) : //
+				data.get(index, component) & 0xff;
+		}
+
+		@Override
+		protected void writeFloat(final long index, final int component,
+			final float value)
+		{
+			data.ensureCapacity(index + 1);
+			data.putFloat(index, component * 4, value);
+		}
+
+		@Override
+		protected void writeInt(final long index, final int component,
+			final int value)
+		{
+			data.ensureCapacity(index + 1);
+			if (type() == Type.INT) data.putInt(index, component * 4, value);
+			else data.put(index, component, (byte) value);
+		}
+
+		/** Value of elements beyond the allocated segments. */
+		private int unwritten() {
+			// NB: A released channel has no segments at all.
+			data.checkNotReleased();
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh.nio;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Growable storage of fixed-size records with {@code long} indices, composed
+ * of equally sized {@link ByteBuffer} segments.
+ * <p>
+ * Each segment holds a power-of-two number of records, so locating a record
+ * is a shift and a mask, and no record ever straddles two segments. The buffer
+ * also tracks how many records are in use.
+ * </p>
+ */
+class SegmentedBuffer {
+
+	private static final Consumer<ByteBuffer> FREE = createFree();
+
+	/** Provides the backing buffer for a newly needed segment. */
+	interface Allocator {
+
+		ByteBuffer allocate(int segment, int bytes);
+	}
+
+	private final int stride;
+	private final int shift;
+	private final long mask;
+	private final Allocator allocator;
+
+	private ByteBuffer[] segments = new ByteBuffer[0];
+	private int segmentCount;
+	private long size;
+	private boolean released;
+
+	/**
+	 * @param stride Size of one record, in bytes.
+	 * @param shift Base-2 logarithm of the number of records per segment.
+	 * @param allocator Source of the segment buffers.
+	 */
+	SegmentedBuffer(final int stride, final int shift,
+		final Allocator allocator)
+	{
+		if (shift < 0 || ((long) stride << shift) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Segment too large: " + stride +
+				" bytes x 2^" + shift + " records");
+		}
+		this.stride = stride;
+		this.shift = shift;
+		this.mask = (1L << shift) - 1;
+		this.allocator = allocator;
+	}
+
+	/** Size of one record, in bytes. */
+	int stride() {
+		return stride;
+	}
+
+	/** Base-2 logarithm of the number of records per segment. */
+	int shift() {
+		return shift;
+	}
+
+	/** Number of records in use. */
+	long size() {
+		return size;
+	}
+
+	/** Sets the number of records in use. */
+	void setSize(final long size) {
+		this.size = size;
+	}
+
+	/** Number of records which fit into the currently allocated segments. */
+	long capacity() {
+		return (long) segmentCount << shift;
+	}
+
+	/** Allocates segments until at least the given number of records fit. */
+	void ensureCapacity(final long records) {
+		checkNotReleased();
+		while (capacity() < records) {
+			if (segmentCount == segments.length) {
+				segments = Arrays.copyOf(segments, Math.max(4, 2 * segmentCount));
+			}
+			segments[segmentCount] = allocator.allocate(segmentCount, stride << shift);
+			segmentCount++;
+		}
+	}
+
+	/**
+	 * Drops all segments, freeing the memory of direct and mapped segments
+	 * immediately rather than when they are garbage collected. Any later access
+	 * fails with an exception.
+	 */
+	void release() {
+		final ByteBuffer[] dropped = segments();
+		// NB: Forget the segments before freeing them, so that
+		// accessors fail cleanly instead of touching freed memory.
+		segments = new ByteBuffer[0];
+		segmentCount = 0;
+		released = true;
+		for (final ByteBuffer segment : dropped) {
+			free(segment);
+		}
+	}
+
+	/** Fails with an {@link IllegalStateException} if the buffer was released. */
+	void checkNotReleased() {
+		if (released) throw new IllegalStateException("Buffer was released");
+	}
+
+	/** The allocated segments, in order. */
+	ByteBuffer[] segments() {
+		return Arrays.copyOf(segments, segmentCount);
+	}
+
+	byte get(final long index, final int offset) {
+		return segment(index).get(position(index, offset));
+	}
+
+	void put(final long index, final int offset, final byte value) {
+		segment(index).put(position(index, offset), value);
+	}
+
+	int getInt(final long index, final int offset) {
+		return segment(index).getInt(position(index, offset));
+	}
+
+	void putInt(final long index, final int offset, final int value) {
+		segment(index).putInt(position(index, offset), value);
+	}
+
+	long getLong(final long index, final int offset) {
+		return segment(index).getLong(position(index, offset));
+	}
+
+	void putLong(final long index, final int offset, final long value) {
+		segment(index).putLong(position(index, offset), value);
+	}
+
+	float getFloat(final long index, final int offset) {
+		return segment(index).getFloat(position(index, offset));
+	}
+
+	void putFloat(final long index, final int offset, final float value) {
+		segment(index).putFloat(position(index, offset), value);
+	}
+
+	/**
+	 * Frees the memory of a direct or mapped buffer now. Falls back to leaving
+	 * it to the garbage collector when the running JVM offers no way to do so.
+	 */
+	static void free(final ByteBuffer buffer) {
+		if (buffer.isDirect()) FREE.accept(buffer);
+	}
+
+	// -- Helper methods --
+
+	private ByteBuffer segment(final long index) {
+		return segments[(int) (index >>> shift)];
+	}
+
+	private int position(final long index, final int offset) {
+		return (int) (index & mask) * stride + offset;
+	}
+
+	private static Consumer<ByteBuffer> createFree() {
+		try {
+			// Java 9+: sun.misc.Unsafe#invokeCleaner(ByteBuffer)
+			final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			final Method invokeCleaner = //
+				unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			final Object unsafe = theUnsafe.get(null);
+			return buffer -> invoke(invokeCleaner, unsafe, buffer);
+		}
+		catch (final ReflectiveOperationException | RuntimeException exc) {
+			// NB: Not available; try the next approach.
+		}
+		try {
+			// Java 8: ((sun.nio.ch.DirectBuffer) buffer).cleaner().clean()
+			final Method cleaner = //
+				Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+			final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+			return buffer -> {
+				final Object c = invoke(cleaner, buffer);
+				if (c != null) invoke(clean, c);
+			};
+		}
+		catch (final ReflectiveOperationException | RuntimeException exc) {
+			// NB: Not available; leave it to the garbage collector.
+		}
+		return buffer -> {};
+	}
+
+	private static Object invoke(final Method method, final Object target,
+		final Object... args)
+	{
+		try {
+			return method.invoke(target, args);
+		}
+		catch (final ReflectiveOperationException exc) {
+			throw new IllegalStateException(exc);
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh.nio;
+
+import net.imagej.mesh.Attributes;
+import net.imagej.mesh.Mesh;
+
+/**
+ * Mesh stored in {@link java.nio.ByteBuffer} segments, with {@code long}
+ * indices throughout.
+ * <p>
+ * Vertices are stored interleaved as eight floats (position, normal, texture
+ * coordinates); triangles as three {@code long} vertex indices followed by
+ * three normal floats. Storage grows one segment at a time as elements are
+ * appended, so neither vertex nor triangle counts are limited to 2^31.
+ * </p>
+ * <p>
+ * {@link Attributes} channels are stored off-heap in direct buffer segments
+ * of the same size.
+ * </p>
+ *
+ * @see MappedMesh
+ * @see OffHeapMesh
+ */
+public abstract class SegmentedMesh implements Mesh {
+
+	private final Vertices vertices;
+	private final Triangles triangles;
+
+	/** NB: Concurrent setters may lose increments, but still change it. */
+	private volatile long stamp;
+
+	SegmentedMesh(final SegmentedBuffer vertexData,
+		final SegmentedBuffer triangleData)
+	{
+		vertices = new Vertices(vertexData);
+		triangles = new Triangles(triangleData);
+	}
+
+	/** Frees the memory of all attribute channels. */
+	void releaseAttributes() {
+		vertices.attributes.release();
+		triangles.attributes.release();
+	}
+
+	@Override
+	public Vertices vertices() {
+		return vertices;
+	}
+
+	@Override
+	public Triangles triangles() {
+		return triangles;
+	}
+
+	@Override
+	public long stamp() {
+		return stamp;
+	}
+
+	// -- Inner classes --
+
+	public class Vertices implements net.imagej.mesh.Vertices {
+
+		static final int STRIDE = 32;
+		private static final int X = 0, Y = 4, Z = 8;
+		private static final int NX = 12, NY = 16, NZ = 20;
+		private static final int U = 24, V = 28;
+
+		private final SegmentedBuffer data;
+		private final SegmentedAttributes attributes;
+
+		private Vertices(final SegmentedBuffer data) {
+			this.data = data;
+			attributes = new SegmentedAttributes(data.shift(), this::size);
+		}
+
+		@Override
+		public Mesh mesh() {
+			return SegmentedMesh.this;
+		}
+
+		@Override
+		public Attributes attributes() {
+			return attributes;
+		}
+
+		@Override
+		public long size() {
+			return data.size();
+		}
+
+		@Override
+		public float xf(final long vIndex) {
+			return data.getFloat(vIndex, X);
+		}
+
+		@Override
+		public float yf(final long vIndex) {
+			return data.getFloat(vIndex, Y);
+		}
+
+		@Override
+		public float zf(final long vIndex) {
+			return data.getFloat(vIndex, Z);
+		}
+
+		@Override
+		public float nxf(final long vIndex) {
+			return data.getFloat(vIndex, NX);
+		}
+
+		@Override
+		public float nyf(final long vIndex) {
+			return data.getFloat(vIndex, NY);
+		}
+
+		@Override
+		public float nzf(final long vIndex) {
+			return data.getFloat(vIndex, NZ);
+		}
+
+		@Override
+		public float uf(final long vIndex) {
+			return data.getFloat(vIndex, U);
+		}
+
+		@Override
+		public float vf(final long vIndex) {
+			return data.getFloat(vIndex, V);
+		}
+
+		@Override
+		public long addf(final float x, final float y, final float z,
+			final float nx, final float ny, final float nz, final float u,
+			final float v)
+		{
+			final long index = data.size();
+			data.ensureCapacity(index + 1);
+			put(index, x, y, z, nx, ny, nz, u, v);
+			data.setSize(index + 1);
+			return index;
+		}
+
+		@Override
+		public void setf(final long vIndex, final float x, final float y,
+			final float z, final float nx, final float ny, final float nz,
+			final float u, final float v)
+		{
+			put(vIndex, x, y, z, nx, ny, nz, u, v);
+			stamp++;
+		}
+
+		@Override
+		public void setPositionf(final long vIndex, final float x,
+			final float y, final float z)
+		{
+			data.putFloat(vIndex, X, x);
+			data.putFloat(vIndex, Y, y);
+			data.putFloat(vIndex, Z, z);
+			stamp++;
+		}
+
+		@Override
+		public void setNormalf(final long vIndex, final float nx,
+			final float ny, final float nz)
+		{
+			data.putFloat(vIndex, NX, nx);
+			data.putFloat(vIndex, NY, ny);
+			data.putFloat(vIndex, NZ, nz);
+			stamp++;
+		}
+
+		@Override
+		public void setTexturef(final long vIndex, final float u, final float v) {
+			data.putFloat(vIndex, U, u);
+			data.putFloat(vIndex, V, v);
+			stamp++;
+		}
+
+		/** Writes a vertex record, without changing the stamp. */
+		private void put(final long vIndex, final float x, final float y,
+			final float z, final float nx, final float ny, final float nz,
+			final float u, final float v)
+		{
+			data.putFloat(vIndex, X, x);
+			data.putFloat(vIndex, Y, y);
+			data.putFloat(vIndex, Z, z);
+			data.putFloat(vIndex, NX, nx);
+			data.putFloat(vIndex, NY, ny);
+			data.putFloat(vIndex, NZ, nz);
+			data.putFloat(vIndex, U, u);
+			data.putFloat(vIndex, V, v);
+		}
+	}
+
+	public class Triangles implements net.imagej.mesh.Triangles {
+
+		static final int STRIDE = 36;
+		private static final int V0 = 0, V1 = 8, V2 = 16;
+		private static final int NX = 24, NY = 28, NZ = 32;
+
+		private final SegmentedBuffer data;
+		private final SegmentedAttributes attributes;
+
+		private Triangles(final SegmentedBuffer data) {
+			this.data = data;
+			attributes = new SegmentedAttributes(data.shift(), this::size);
+		}
+
+		@Override
+		public Mesh mesh() {
+			return SegmentedMesh.this;
+		}
+
+		@Override
+		public Attributes attributes() {
+			return attributes;
+		}
+
+		@Override
+		public long size() {
+			return data.size();
+		}
+
+		@Override
+		public long vertex0(final long tIndex) {
+			return data.getLong(tIndex, V0);
+		}
+
+		@Override
+		public long vertex1(final long tIndex) {
+			return data.getLong(tIndex, V1);
+		}
+
+		@Override
+		public long vertex2(final long tIndex) {
+			return data.getLong(tIndex, V2);
+		}
+
+		@Override
+		public float nxf(final long tIndex) {
+			return data.getFloat(tIndex, NX);
+		}
+
+		@Override
+		public float nyf(final long tIndex) {
+			return data.getFloat(tIndex, NY);
+		}
+
+		@Override
+		public float nzf(final long tIndex) {
+			return data.getFloat(tIndex, NZ);
+		}
+
+		@Override
+		public long addf(final long v0, final long v1, final long v2,
+			final float nx, final float ny, final float nz)
+		{
+			final long index = data.size();
+			data.ensureCapacity(index + 1);
+			data.putLong(index, V0, v0);
+			data.putLong(index, V1, v1);
+			data.putLong(index, V2, v2);
+			data.putFloat(index, NX, nx);
+			data.putFloat(index, NY, ny);
+			data.putFloat(index, NZ, nz);
+			data.setSize(index + 1);
+			return index;
+		}
+	}
+}
@@ -41,7 +41,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for {@link Mesh}.
@@ -147,6 +149,81 @@ public abstract class AbstractMeshTest {
 
     }
 
+    @Test
+    public void testOptionalAttributes() {
+        final Mesh mesh = createMesh();
+        final Vertices vertices = mesh.vertices();
+        vertices.addf(1, 2, 3);
+        vertices.addf(4, 5, 6);
+        mesh.triangles().addf(0, 1, 0, 0, 0, 0);
+        assertEquals(0, vertices.nxf(1), 0);
+        assertEquals(0, vertices.vf(1), 0);
+        assertEquals(0, mesh.triangles().nzf(0), 0);
+
+        // Write nonzero attributes after position-only vertices.
+        vertices.setNormalf(1, 0, 0, 1);
+        vertices.addf(7, 8, 9, 0, 1, 0, 0.5f, 0.25f);
+        mesh.triangles().addf(1, 2, 0, 1, 0, 0);
+        assertEquals(0, vertices.nzf(0), 0);
+        assertEquals(1, vertices.nzf(1), 0);
+        assertEquals(1, vertices.nyf(2), 0);
+        assertEquals(0, vertices.uf(1), 0);
+        assertEquals(0.25f, vertices.vf(2), 0);
+        assertEquals(0, mesh.triangles().nxf(0), 0);
+        assertEquals(1, mesh.triangles().nxf(1), 0);
+        assertEquals(9, vertices.zf(2), 0);
+    }
+
+    @Test
+    public void testAttributes() {
+        final Mesh mesh = createMesh();
+        mesh.vertices().addf(1, 2, 3);
+        final Attribute curvature = mesh.vertices().attributes().add(//
+                "curvature", Attribute.Type.FLOAT, 1);
+        final Attribute color = mesh.vertices().attributes().add(//
+                "color", Attribute.Type.BYTE, 3);
+        final Attribute label = mesh.triangles().attributes().add(//
+                "label", Attribute.Type.INT, 1);
+        assertSame(curvature, mesh.vertices().attributes().get("curvature"));
+        assertSame(curvature, mesh.vertices().attributes().add(//
+                "curvature", Attribute.Type.FLOAT, 1));
+        assertEquals(2, mesh.vertices().attributes().size());
+
+        // Channels cover elements appended later.
+        mesh.vertices().addf(4, 5, 6);
+        mesh.triangles().addf(0, 1, 0, 0, 0, 1);
+        assertEquals(0, curvature.getf(1), 0);
+        assertEquals(0, color.geti(1, 2));
+        assertEquals(0, label.geti(0));
+
+        curvature.setf(1, 0.5f);
+        color.seti(1, 2, 200);
+        label.seti(0, -7);
+        assertEquals(0.5f, curvature.getf(1), 0);
+        assertEquals(0, curvature.getf(0), 0);
+        assertEquals(200, color.geti(1, 2));
+        assertEquals(0, color.geti(1, 1));
+        assertEquals(-7, label.geti(0));
+        assertEquals(-7, label.getf(0), 0);
+
+        assertTrue(mesh.vertices().attributes().remove("color"));
+        assertNull(mesh.vertices().attributes().get("color"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testAttributeBounds() {
+        final Mesh mesh = createMesh();
+        mesh.vertices().addf(1, 2, 3);
+        mesh.vertices().attributes().add("a", Attribute.Type.FLOAT, 1).getf(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAttributeTypeClash() {
+        final Mesh mesh = createMesh();
+        mesh.vertices().attributes().add("a", Attribute.Type.FLOAT, 1);
+        mesh.vertices().attributes().add("a", Attribute.Type.INT, 1);
+    }
+
     @Test
     public void testTriangleNormal() throws URISyntaxException, IOException {
 
@@ -0,0 +1,141 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import net.imagej.mesh.naive.NaiveFloatMesh;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Adjacency}.
+ */
+public class AdjacencyTest {
+
+	@Test
+	public void testTetrahedron() {
+		final Adjacency adjacency = Adjacency.build(tetrahedron());
+		assertEquals(4, adjacency.vertexCount());
+		assertEquals(4, adjacency.triangleCount());
+		for (int v = 0; v < 4; v++) {
+			assertEquals(3, adjacency.triangleCount(v));
+			assertEquals(3, adjacency.degree(v));
+		}
+		assertArrayEquals(new int[] { 1, 2, 3 }, neighbors(adjacency, 0));
+		assertArrayEquals(new int[] { 0, 2, 3 }, triangles(adjacency, 2));
+
+		final Adjacency.HalfEdges halfEdges = adjacency.halfEdges();
+		assertEquals(0, halfEdges.boundaryEdgeCount());
+		for (int h = 0; h < 12; h++) {
+			final int twin = halfEdges.twin(h);
+			assertEquals(h, halfEdges.twin(twin));
+			assertEquals(halfEdges.origin(h), halfEdges.target(twin));
+			assertEquals(halfEdges.target(h), halfEdges.origin(twin));
+		}
+		assertFalse(halfEdges.isBoundary(0));
+	}
+
+	@Test
+	public void testBoundary() {
+		// A square of two triangles, plus a vertex used by no triangle.
+		final Mesh mesh = new NaiveFloatMesh();
+		mesh.vertices().addf(0, 0, 0);
+		mesh.vertices().addf(1, 0, 0);
+		mesh.vertices().addf(1, 1, 0);
+		mesh.vertices().addf(0, 1, 0);
+		mesh.vertices().addf(5, 5, 5);
+		mesh.triangles().addf(0, 1, 2);
+		mesh.triangles().addf(0, 2, 3);
+
+		final Adjacency adjacency = Adjacency.build(mesh);
+		assertArrayEquals(new int[] { 1, 2, 3 }, neighbors(adjacency, 0));
+		assertArrayEquals(new int[] { 0, 2 }, neighbors(adjacency, 1));
+		assertEquals(0, adjacency.degree(4));
+		assertEquals(0, adjacency.triangleCount(4));
+
+		final Adjacency.HalfEdges halfEdges = adjacency.halfEdges();
+		assertEquals(4, halfEdges.boundaryEdgeCount());
+		// The diagonal 2 -> 0 of the first triangle is shared.
+		assertEquals(3, halfEdges.twin(2));
+		assertEquals(-1, halfEdges.twin(0));
+		assertTrue(halfEdges.isBoundary(1));
+		assertFalse(halfEdges.isBoundary(4));
+		assertEquals(0, Adjacency.next(2));
+		assertEquals(5, Adjacency.prev(3));
+	}
+
+	@Test
+	public void testCache() {
+		final Mesh mesh = tetrahedron();
+		final Adjacency adjacency = Meshes.adjacency(mesh);
+		assertSame(adjacency, Meshes.adjacency(mesh));
+		mesh.vertices().addf(2, 2, 2);
+		mesh.triangles().addf(0, 1, 4);
+		final Adjacency rebuilt = Meshes.adjacency(mesh);
+		assertNotSame(adjacency, rebuilt);
+		assertEquals(4, rebuilt.degree(0));
+	}
+
+	// -- Helper methods --
+
+	private static Mesh tetrahedron() {
+		final Mesh mesh = new NaiveFloatMesh();
+		mesh.vertices().addf(0, 0, 0);
+		mesh.vertices().addf(1, 0, 0);
+		mesh.vertices().addf(0, 1, 0);
+		mesh.vertices().addf(0, 0, 1);
+		mesh.triangles().addf(0, 2, 1);
+		mesh.triangles().addf(0, 1, 3);
+		mesh.triangles().addf(0, 3, 2);
+		mesh.triangles().addf(1, 2, 3);
+		return mesh;
+	}
+
+	private static int[] neighbors(final Adjacency adjacency, final int v) {
+		final int[] result = new int[adjacency.degree(v)];
+		for (int i = 0; i < result.length; i++)
+			result[i] = adjacency.neighbor(v, i);
+		return result;
+	}
+
+	private static int[] triangles(final Adjacency adjacency, final int v) {
+		final int[] result = new int[adjacency.triangleCount(v)];
+		for (int i = 0; i < result.length; i++)
+			result[i] = adjacency.triangle(v, i);
+		return result;
+	}
+}
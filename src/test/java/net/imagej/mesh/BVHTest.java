@@ -0,0 +1,262 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.logic.BitType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link BVH}.
+ */
+public class BVHTest {
+
+	@Test
+	public void testEmpty() {
+		final BVH bvh = Meshes.bvh(new NaiveDoubleMesh());
+		assertEquals(0, bvh.triangleCount());
+		assertFalse(bvh.intersect(0, 0, 0, 1, 0, 0, Double.POSITIVE_INFINITY,
+			new BVH.Hit()));
+		assertEquals(-1, bvh.closestPoint(0, 0, 0, null));
+		assertEquals(Double.POSITIVE_INFINITY, bvh.distance(0, 0, 0), 0);
+	}
+
+	@Test
+	public void testRayHit() {
+		final Mesh mesh = new NaiveDoubleMesh();
+		mesh.vertices().add(0, 0, 2);
+		mesh.vertices().add(1, 0, 2);
+		mesh.vertices().add(0, 1, 2);
+		mesh.triangles().add(0, 1, 2);
+		final BVH bvh = Meshes.bvh(mesh);
+
+		final BVH.Hit hit = new BVH.Hit();
+		assertTrue(bvh.intersect(0.25, 0.5, 0, 0, 0, 1, Double.POSITIVE_INFINITY,
+			hit));
+		assertEquals(0, hit.triangle);
+		assertEquals(2, hit.t, 1e-12);
+		assertEquals(0.25, hit.u, 1e-12);
+		assertEquals(0.5, hit.v, 1e-12);
+		assertFalse(bvh.intersect(0.25, 0.5, 0, 0, 0, 1, 1, hit));
+		assertFalse(bvh.intersect(0.75, 0.5, 0, 0, 0, 1, Double.POSITIVE_INFINITY,
+			hit));
+		assertFalse(bvh.intersect(0.25, 0.5, 0, 0, 0, -1, Double.POSITIVE_INFINITY,
+			hit));
+	}
+
+	@Test
+	public void testAgainstBruteForce() {
+		final Mesh mesh = blob();
+		final BVH bvh = Meshes.bvh(mesh);
+		assertEquals(mesh.triangles().size(), bvh.triangleCount());
+
+		final Random random = new Random(42);
+		final int count = 200;
+		final double[] origins = new double[3 * count];
+		final double[] directions = new double[3 * count];
+		for (int i = 0; i < 3 * count; i++) {
+			origins[i] = 20 * random.nextDouble() - 2;
+			directions[i] = random.nextGaussian();
+		}
+		final double[] distances = new double[count];
+		final long[] hits = new long[count];
+		bvh.intersect(origins, directions, distances, hits);
+		final double[] closest = new double[3];
+		for (int i = 0; i < count; i++) {
+			final double x = origins[3 * i], y = origins[3 * i + 1], z = origins[3 *
+				i + 2];
+			final double[] expected = bruteForce(mesh, x, y, z, directions[3 * i],
+				directions[3 * i + 1], directions[3 * i + 2]);
+			assertEquals(expected[0], distances[i], 1e-9);
+			if (hits[i] >= 0) {
+				assertEquals(expected[1], hits[i], 0);
+			}
+
+			// NB: Sampling only bounds the exact distance from above.
+			final double sampled = closestDistance(mesh, x, y, z);
+			final double distance = bvh.distance(x, y, z);
+			assertTrue(distance <= sampled + 1e-9);
+			assertTrue(distance >= sampled - 0.1);
+			final long t = bvh.closestPoint(x, y, z, closest);
+			assertTrue(t >= 0);
+			assertEquals(distance, Math.sqrt(sq(closest[0] - x) + sq(closest[1] -
+				y) + sq(closest[2] - z)), 1e-6);
+		}
+	}
+
+	@Test
+	public void testSignedDistance() {
+		final Mesh mesh = blob();
+		final BVH bvh = Meshes.bvh(mesh);
+		final Random random = new Random(7);
+		final int count = 500;
+		final double[] points = new double[3 * count];
+		for (int i = 0; i < 3 * count; i++)
+			points[i] = 16 * random.nextDouble();
+		final double[] signed = new double[count];
+		bvh.signedDistance(points, signed);
+		final double[] unsigned = new double[count];
+		bvh.distance(points, unsigned);
+		for (int i = 0; i < count; i++) {
+			final double x = points[3 * i], y = points[3 * i + 1], z = points[3 * i +
+				2];
+			assertEquals(unsigned[i], Math.abs(signed[i]), 0);
+			// NB: Skip points too close to the surface to classify robustly.
+			if (unsigned[i] < 1e-3) continue;
+			final boolean inside = inside(mesh, x, y, z);
+			assertEquals("point " + x + ", " + y + ", " + z, inside, signed[i] < 0);
+		}
+		// Voxel centers well inside and outside.
+		assertTrue(bvh.signedDistance(5, 5, 5) < -1);
+		assertTrue(bvh.signedDistance(0, 0, 0) > 1);
+	}
+
+	@Test
+	public void testSignedDistanceAfterMeshChange() {
+		final Mesh mesh = blob();
+		final BVH bvh = Meshes.bvh(mesh);
+		// NB: Mirroring the mesh flips its normals. The hierarchy must keep
+		// using the surface it was built from.
+		final Vertices vertices = mesh.vertices();
+		for (long v = 0; v < vertices.size(); v++)
+			vertices.setPosition(v, -vertices.x(v), vertices.y(v), vertices.z(v));
+		assertTrue(bvh.signedDistance(5, 5, 5) < -1);
+		assertTrue(bvh.signedDistance(0, 0, 0) > 1);
+	}
+
+	// -- Helper methods --
+
+	/** A cube with a smaller cube stacked on one of its faces. */
+	private static Mesh blob() {
+		final Img<BitType> mask = ArrayImgs.bits(16, 16, 16);
+		final RandomAccess<BitType> access = mask.randomAccess();
+		for (int z = 0; z < 16; z++) {
+			for (int y = 0; y < 16; y++) {
+				for (int x = 0; x < 16; x++) {
+					access.setPosition(new long[] { x, y, z });
+					access.get().set(inBlob(x, y, z));
+				}
+			}
+		}
+		return Meshes.marchingCubes(mask);
+	}
+
+	private static boolean inBlob(final int x, final int y, final int z) {
+		return (x >= 2 && x <= 9 && y >= 2 && y <= 9 && z >= 2 && z <= 9) ||
+			(x >= 4 && x <= 7 && y >= 4 && y <= 7 && z >= 10 && z <= 12);
+	}
+
+	/**
+	 * Whether a point lies inside a closed mesh, decided by casting a ray with an
+	 * irrational direction and counting crossings.
+	 */
+	private static boolean inside(final Mesh mesh, final double x,
+		final double y, final double z)
+	{
+		int crossings = 0;
+		for (final Triangle t : mesh.triangles()) {
+			if (!Double.isInfinite(intersect(t, x, y, z, 0.5773, 0.5801, 0.5749)))
+				crossings++;
+		}
+		return crossings % 2 == 1;
+	}
+
+	private static double[] bruteForce(final Mesh mesh, final double ox,
+		final double oy, final double oz, final double dx, final double dy,
+		final double dz)
+	{
+		double best = Double.POSITIVE_INFINITY;
+		long index = -1;
+		for (final Triangle t : mesh.triangles()) {
+			final double d = intersect(t, ox, oy, oz, dx, dy, dz);
+			if (d < best) {
+				best = d;
+				index = t.index();
+			}
+		}
+		return new double[] { best, index };
+	}
+
+	private static double intersect(final Triangle t, final double ox,
+		final double oy, final double oz, final double dx, final double dy,
+		final double dz)
+	{
+		final double e1x = t.v1x() - t.v0x(), e1y = t.v1y() - t.v0y(), e1z = t
+			.v1z() - t.v0z();
+		final double e2x = t.v2x() - t.v0x(), e2y = t.v2y() - t.v0y(), e2z = t
+			.v2z() - t.v0z();
+		final double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx *
+			e2y - dy * e2x;
+		final double det = e1x * px + e1y * py + e1z * pz;
+		if (det == 0) return Double.POSITIVE_INFINITY;
+		final double sx = ox - t.v0x(), sy = oy - t.v0y(), sz = oz - t.v0z();
+		final double u = (sx * px + sy * py + sz * pz) / det;
+		final double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx *
+			e1y - sy * e1x;
+		final double v = (dx * qx + dy * qy + dz * qz) / det;
+		final double d = (e2x * qx + e2y * qy + e2z * qz) / det;
+		return u < 0 || v < 0 || u + v > 1 || d < 0 ? Double.POSITIVE_INFINITY : d;
+	}
+
+	/** Distance to the mesh, sampling each triangle densely. */
+	private static double closestDistance(final Mesh mesh, final double x,
+		final double y, final double z)
+	{
+		double best = Double.POSITIVE_INFINITY;
+		final int n = 16;
+		for (final Triangle t : mesh.triangles()) {
+			for (int i = 0; i <= n; i++) {
+				for (int j = 0; i + j <= n; j++) {
+					final double u = (double) i / n, v = (double) j / n, w = 1 - u - v;
+					final double px = w * t.v0x() + u * t.v1x() + v * t.v2x();
+					final double py = w * t.v0y() + u * t.v1y() + v * t.v2y();
+					final double pz = w * t.v0z() + u * t.v1z() + v * t.v2z();
+					best = Math.min(best, sq(px - x) + sq(py - y) + sq(pz - z));
+				}
+			}
+		}
+		return Math.sqrt(best);
+	}
+
+	private static double sq(final double value) {
+		return value * value;
+	}
+}
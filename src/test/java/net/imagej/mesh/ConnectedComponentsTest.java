@@ -0,0 +1,111 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.logic.BitType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Meshes#connectedComponents} and {@link Meshes#componentLabels}.
+ */
+public class ConnectedComponentsTest {
+
+	@Test
+	public void testSharedVertices() {
+		final Mesh mesh = new NaiveDoubleMesh();
+		for (int i = 0; i < 7; i++)
+			mesh.vertices().add(i, i % 2, 0);
+		mesh.triangles().add(0, 1, 2);
+		mesh.triangles().add(4, 5, 6);
+		mesh.triangles().add(2, 3, 1);
+
+		final int[] labels = Meshes.componentLabels(mesh, false);
+		assertEquals(0, labels[0]);
+		assertEquals(1, labels[1]);
+		assertEquals(0, labels[2]);
+
+		final List<Mesh> components = Meshes.connectedComponents(mesh, false);
+		assertEquals(2, components.size());
+		assertEquals(4, components.get(0).vertices().size());
+		assertEquals(2, components.get(0).triangles().size());
+		assertEquals(3, components.get(1).vertices().size());
+		assertEquals(5, components.get(1).vertices().x(1), 0);
+	}
+
+	@Test
+	public void testMarchingCubesShells() {
+		// A hollow cube, whose cavity is a second shell, and a separate blob.
+		final Img<BitType> mask = ArrayImgs.bits(16, 12, 12);
+		final RandomAccess<BitType> access = mask.randomAccess();
+		for (int z = 1; z < 10; z++) {
+			for (int y = 1; y < 10; y++) {
+				for (int x = 1; x < 10; x++) {
+					final boolean cavity = x > 3 && x < 7 && y > 3 && y < 7 && z > 3 &&
+						z < 7;
+					access.setPosition(new long[] { x, y, z });
+					access.get().set(!cavity);
+				}
+			}
+		}
+		for (int z = 2; z < 5; z++) {
+			for (int y = 2; y < 5; y++) {
+				for (int x = 12; x < 15; x++) {
+					access.setPosition(new long[] { x, y, z });
+					access.get().set(true);
+				}
+			}
+		}
+		final Mesh mesh = Meshes.marchingCubes(mask);
+
+		// Marching cubes shares no vertices, so every triangle stands alone.
+		assertEquals(mesh.triangles().size(), Meshes.connectedComponents(mesh,
+			false).size());
+
+		final List<Mesh> components = Meshes.connectedComponents(mesh);
+		assertEquals(3, components.size());
+		long triangles = 0;
+		for (final Mesh component : components) {
+			assertTrue(component.triangles().size() > 0);
+			triangles += component.triangles().size();
+		}
+		assertEquals(mesh.triangles().size(), triangles);
+	}
+}
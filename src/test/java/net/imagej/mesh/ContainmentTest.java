@@ -0,0 +1,156 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.logic.BitType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Containment} and {@link Meshes#contains}.
+ */
+public class ContainmentTest {
+
+	@Test
+	public void testEmpty() {
+		final Containment containment = Containment.build(new NaiveDoubleMesh());
+		assertFalse(containment.contains(0, 0, 0));
+		assertArrayEquals(new boolean[2], containment.contains(new double[6]));
+	}
+
+	@Test
+	public void testHollowCube() {
+		// A cube with a cavity, in which points are outside.
+		final Img<BitType> mask = ArrayImgs.bits(12, 12, 12);
+		final RandomAccess<BitType> access = mask.randomAccess();
+		for (int z = 0; z < 12; z++) {
+			for (int y = 0; y < 12; y++) {
+				for (int x = 0; x < 12; x++) {
+					access.setPosition(new long[] { x, y, z });
+					access.get().set(solid(x, y, z));
+				}
+			}
+		}
+		final Mesh mesh = Meshes.marchingCubes(mask);
+		final Containment containment = Containment.build(mesh);
+
+		// NB: The surface of a bit mask passes through the centers of its
+		// boundary voxels, so only test voxels off the surface.
+		final double[] points = new double[3 * 12 * 12 * 12];
+		int i = 0;
+		for (int z = 0; z < 12; z++) {
+			for (int y = 0; y < 12; y++) {
+				for (int x = 0; x < 12; x++) {
+					points[i++] = x;
+					points[i++] = y;
+					points[i++] = z;
+				}
+			}
+		}
+		final boolean[] inside = Meshes.contains(mesh, points);
+		int tested = 0;
+		for (int p = 0; p < inside.length; p++) {
+			final int x = (int) points[3 * p], y = (int) points[3 * p + 1],
+					z = (int) points[3 * p + 2];
+			assertEquals(inside[p], containment.contains(x, y, z));
+			if (!solid(x, y, z)) assertFalse(inside[p]);
+			else if (interior(x, y, z)) assertTrue(inside[p]);
+			else continue;
+			tested++;
+		}
+		assertTrue(tested > 1000);
+		assertFalse(containment.contains(-5, 5, 5));
+		assertFalse(containment.contains(Double.NaN, 5, 5));
+	}
+
+	@Test
+	public void testAgainstSignedDistance() {
+		final Img<BitType> mask = ArrayImgs.bits(20, 20, 20);
+		final RandomAccess<BitType> access = mask.randomAccess();
+		for (int z = 0; z < 20; z++) {
+			for (int y = 0; y < 20; y++) {
+				for (int x = 0; x < 20; x++) {
+					access.setPosition(new long[] { x, y, z });
+					final double r = Math.sqrt((x - 9.5) * (x - 9.5) + (y - 9.5) * (y -
+						9.5) + (z - 9.5) * (z - 9.5));
+					access.get().set(r < 7);
+				}
+			}
+		}
+		final Mesh mesh = Meshes.marchingCubes(mask);
+		final BVH bvh = Meshes.bvh(mesh);
+		final Containment containment = Containment.build(bvh);
+
+		final Random random = new Random(3);
+		final double[] points = new double[3 * 10000];
+		for (int i = 0; i < points.length; i++)
+			points[i] = 22 * random.nextDouble() - 1;
+		final boolean[] inside = containment.contains(points);
+		final double[] distances = new double[inside.length];
+		bvh.signedDistance(points, distances);
+		int count = 0;
+		for (int i = 0; i < inside.length; i++) {
+			assertEquals(distances[i] < 0, inside[i]);
+			if (inside[i]) count++;
+		}
+		assertTrue(count > 0 && count < inside.length);
+	}
+
+	private static boolean interior(final int x, final int y, final int z) {
+		for (int dz = -1; dz <= 1; dz++) {
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if (!solid(x + dx, y + dy, z + dz)) return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean solid(final int x, final int y, final int z) {
+		final boolean box = x >= 2 && x <= 9 && y >= 2 && y <= 9 && z >= 2 &&
+			z <= 9;
+		final boolean cavity = x >= 5 && x <= 6 && y >= 5 && y <= 6 && z >= 5 &&
+			z <= 6;
+		return box && !cavity;
+	}
+}
@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.logic.BitType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ConvexHull}.
+ */
+public class ConvexHullTest {
+
+	@Test
+	public void testCube() {
+		final Random random = new Random(0xc0be);
+		final double[] points = new double[3 * 1000];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = random.nextDouble();
+		}
+		// Corners, then points on the faces and edges, which are not vertices.
+		for (int c = 0; c < 8; c++) {
+			points[3 * c] = c & 1;
+			points[3 * c + 1] = (c >> 1) & 1;
+			points[3 * c + 2] = (c >> 2) & 1;
+		}
+		for (int p = 8; p < 100; p++) {
+			points[3 * p + p % 3] = p % 2;
+			if (p % 5 == 0) points[3 * p + (p + 1) % 3] = 1;
+		}
+		final Mesh hull = Meshes.convexHull(points);
+		assertEquals(8, hull.vertices().size());
+		assertEquals(12, hull.triangles().size());
+		assertEquals(1, GeometricFeatures.compute(hull).volume(), 1e-12);
+		assertEquals(6, GeometricFeatures.compute(hull).area(), 1e-12);
+		assertContains(hull, points);
+	}
+
+	@Test
+	public void testRandomPoints() {
+		final Random random = new Random(0x4011);
+		final double[] points = new double[3 * 20000];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = random.nextGaussian() + 100;
+		}
+		final Mesh hull = Meshes.convexHull(points);
+		assertClosedSphere(hull);
+		assertContains(hull, points);
+	}
+
+	@Test
+	public void testMarchingCubes() {
+		final Img<BitType> mask = ArrayImgs.bits(40, 40, 40);
+		final RandomAccess<BitType> access = mask.randomAccess();
+		for (int z = 0; z < 40; z++) {
+			for (int y = 0; y < 40; y++) {
+				for (int x = 0; x < 40; x++) {
+					// A ball with a notch, so that the hull is larger.
+					final double dx = x - 20, dy = y - 20, dz = z - 20;
+					access.setPosition(new long[] { x, y, z });
+					access.get().set(dx * dx + dy * dy + dz * dz < 225 && !(dx > 5 &&
+						Math.abs(dy) < 3));
+				}
+			}
+		}
+		final Mesh mesh = Meshes.marchingCubes(mask);
+		final Mesh hull = Meshes.convexHull(mesh);
+		assertClosedSphere(hull);
+		final double[] points = new double[3 * (int) mesh.vertices().size()];
+		for (int v = 0; v < points.length / 3; v++) {
+			points[3 * v] = mesh.vertices().x(v);
+			points[3 * v + 1] = mesh.vertices().y(v);
+			points[3 * v + 2] = mesh.vertices().z(v);
+		}
+		assertContains(hull, points);
+		assertTrue(GeometricFeatures.compute(hull).volume() > GeometricFeatures
+			.compute(mesh).volume());
+	}
+
+	@Test
+	public void testFlat() {
+		final double[] points = { 0, 0, 0, 1, 0, 0, 0, 1, 0, 1, 1, 0, 0.5, 0.5,
+			0 };
+		assertEquals(0, Meshes.convexHull(points).triangles().size());
+		assertEquals(0, Meshes.convexHull(new double[0]).triangles().size());
+	}
+
+	/** Checks that the hull is a closed, outward-oriented triangulated sphere. */
+	private static void assertClosedSphere(final Mesh hull) {
+		assertEquals(2 * hull.vertices().size() - 4, hull.triangles().size());
+		final Adjacency adjacency = Adjacency.build(hull);
+		final int[] twins = adjacency.halfEdges().twins();
+		for (final int twin : twins) {
+			assertTrue(twin >= 0);
+		}
+		assertTrue(GeometricFeatures.compute(hull).volume() > 0);
+	}
+
+	/** Checks that all points lie inside of or on all hull planes. */
+	private static void assertContains(final Mesh hull, final double[] points) {
+		for (final Triangle t : hull.triangles()) {
+			final double offset = t.nx() * t.v0x() + t.ny() * t.v0y() + t.nz() * t
+				.v0z();
+			for (int p = 0; p < points.length; p += 3) {
+				assertTrue(t.nx() * points[p] + t.ny() * points[p + 1] + t.nz() *
+					points[p + 2] - offset < 1e-9);
+			}
+		}
+	}
+}
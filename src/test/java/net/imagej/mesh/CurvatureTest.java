@@ -0,0 +1,221 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Curvature}.
+ */
+public class CurvatureTest {
+
+	@Test
+	public void testSphere() {
+		final double radius = 5;
+		final Mesh mesh = sphere(radius, 4);
+		final Curvature curvature = Meshes.curvature(mesh);
+		final Vertices vertices = mesh.vertices();
+		for (int v = 0; v < vertices.size(); v++) {
+			assertEquals(1 / radius, curvature.mean()[v], 0.02 / radius);
+			assertEquals(1 / (radius * radius), curvature.gaussian()[v], 0.05 /
+				(radius * radius));
+			assertEquals(1 / radius, curvature.maximum()[v], 0.05 / radius);
+			assertEquals(1 / radius, curvature.minimum()[v], 0.05 / radius);
+			// The principal directions are (nearly) tangent and perpendicular.
+			final double[] n = { vertices.x(v) / radius, vertices.y(v) / radius,
+				vertices.z(v) / radius };
+			final float[] d1 = direction(curvature.maximumDirection(), v);
+			final float[] d2 = direction(curvature.minimumDirection(), v);
+			assertEquals(0, dot(n, d1), 0.01);
+			assertEquals(0, dot(n, d2), 0.01);
+			assertEquals(0, dot(d1, d2), 1e-5);
+			assertEquals(1, dot(d1, d1), 1e-5);
+		}
+	}
+
+	@Test
+	public void testCylinder() {
+		// An open cylinder of radius 2 along z, with outward normals.
+		final double radius = 2;
+		final int segments = 64, rings = 20;
+		final Mesh mesh = new NaiveDoubleMesh();
+		for (int r = 0; r <= rings; r++) {
+			for (int s = 0; s < segments; s++) {
+				final double angle = 2 * Math.PI * (s + 0.5 * r) / segments;
+				mesh.vertices().add(radius * Math.cos(angle), radius * Math.sin(
+					angle), 0.2 * r, 0, 0, 0, 0, 0);
+			}
+		}
+		for (int r = 0; r < rings; r++) {
+			for (int s = 0; s < segments; s++) {
+				final long a = r * segments + s, b = r * segments + (s + 1) %
+					segments;
+				mesh.triangles().add(a, b, a + segments);
+				mesh.triangles().add(b, b + segments, a + segments);
+			}
+		}
+		final Curvature curvature = Meshes.curvature(mesh);
+		for (int v = 0; v < mesh.vertices().size(); v++) {
+			final int ring = v / segments;
+			if (ring == 0 || ring == rings) {
+				assertTrue(Float.isNaN(curvature.mean()[v]));
+				assertTrue(Float.isNaN(curvature.maximumDirection()[3 * v]));
+				continue;
+			}
+			assertEquals(0.5 / radius, curvature.mean()[v], 0.01 / radius);
+			assertEquals(0, curvature.gaussian()[v], 1e-4);
+			assertEquals(1 / radius, curvature.maximum()[v], 0.03 / radius);
+			assertEquals(0, curvature.minimum()[v], 0.03 / radius);
+			// Maximum curvature around the axis, minimum along it.
+			final float[] d1 = direction(curvature.maximumDirection(), v);
+			final float[] d2 = direction(curvature.minimumDirection(), v);
+			assertEquals(0, d1[2], 0.05);
+			assertEquals(1, Math.abs(d2[2]), 0.01);
+		}
+	}
+
+	@Test
+	public void testCoincidentVertices() {
+		// The same sphere, with one copy of each vertex per triangle.
+		final Mesh shared = sphere(3, 3);
+		final Mesh split = new NaiveDoubleMesh();
+		for (final Triangle t : shared.triangles()) {
+			final long a = split.vertices().add(t.v0x(), t.v0y(), t.v0z(), 0, 0, 0,
+				0, 0);
+			final long b = split.vertices().add(t.v1x(), t.v1y(), t.v1z(), 0, 0, 0,
+				0, 0);
+			final long c = split.vertices().add(t.v2x(), t.v2y(), t.v2z(), 0, 0, 0,
+				0, 0);
+			split.triangles().add(a, b, c);
+		}
+		final Curvature expected = Meshes.curvature(shared);
+		final Curvature actual = Meshes.curvature(split);
+		int v = 0;
+		for (final Triangle t : shared.triangles()) {
+			assertEquals(expected.mean()[(int) t.vertex0()], actual.mean()[v++], 0);
+			assertEquals(expected.mean()[(int) t.vertex1()], actual.mean()[v++], 0);
+			assertEquals(expected.mean()[(int) t.vertex2()], actual.mean()[v++], 0);
+		}
+	}
+
+	@Test
+	public void testStore() {
+		final Mesh mesh = sphere(1, 2);
+		final Curvature curvature = Meshes.curvature(mesh);
+		curvature.store(mesh);
+		final Attributes attributes = mesh.vertices().attributes();
+		final Attribute mean = attributes.get(Curvature.MEAN);
+		final Attribute direction = attributes.get(Curvature.MINIMUM_DIRECTION);
+		assertEquals(3, direction.components());
+		for (int v = 0; v < mesh.vertices().size(); v++) {
+			assertEquals(curvature.mean()[v], mean.getf(v), 0);
+			assertEquals(curvature.minimumDirection()[3 * v + 2], direction.getf(v,
+				2), 0);
+		}
+		// NB: Storing again reuses the channels.
+		curvature.store(mesh);
+		assertEquals(6, attributes.size());
+	}
+
+	// -- Helper methods --
+
+	/** A subdivided icosahedron, projected onto a sphere about the origin. */
+	private static Mesh sphere(final double radius, final int subdivisions) {
+		final double g = (1 + Math.sqrt(5)) / 2;
+		final double[][] corners = { { -1, g, 0 }, { 1, g, 0 }, { -1, -g, 0 }, {
+			1, -g, 0 }, { 0, -1, g }, { 0, 1, g }, { 0, -1, -g }, { 0, 1, -g }, { g,
+				0, -1 }, { g, 0, 1 }, { -g, 0, -1 }, { -g, 0, 1 } };
+		int[] faces = { 0, 11, 5, 0, 5, 1, 0, 1, 7, 0, 7, 10, 0, 10, 11, 1, 5, 9,
+			5, 11, 4, 11, 10, 2, 10, 7, 6, 7, 1, 8, 3, 9, 4, 3, 4, 2, 3, 2, 6, 3, 6,
+			8, 3, 8, 9, 4, 9, 5, 2, 4, 11, 6, 2, 10, 8, 6, 7, 9, 8, 1 };
+		final Mesh mesh = new NaiveDoubleMesh();
+		for (final double[] c : corners) {
+			add(mesh, c[0], c[1], c[2], radius);
+		}
+		for (int s = 0; s < subdivisions; s++) {
+			final Map<Long, Integer> midpoints = new HashMap<>();
+			final int[] finer = new int[4 * faces.length];
+			for (int f = 0; f < faces.length; f += 3) {
+				final int a = faces[f], b = faces[f + 1], c = faces[f + 2];
+				final int ab = midpoint(mesh, midpoints, a, b, radius);
+				final int bc = midpoint(mesh, midpoints, b, c, radius);
+				final int ca = midpoint(mesh, midpoints, c, a, radius);
+				System.arraycopy(new int[] { a, ab, ca, b, bc, ab, c, ca, bc, ab, bc,
+					ca }, 0, finer, 4 * f, 12);
+			}
+			faces = finer;
+		}
+		for (int f = 0; f < faces.length; f += 3) {
+			mesh.triangles().add(faces[f], faces[f + 1], faces[f + 2]);
+		}
+		return mesh;
+	}
+
+	private static int midpoint(final Mesh mesh, final Map<Long, Integer> cache,
+		final int a, final int b, final double radius)
+	{
+		final long key = (long) Math.min(a, b) << 32 | Math.max(a, b);
+		return cache.computeIfAbsent(key, k -> {
+			final Vertices v = mesh.vertices();
+			return add(mesh, v.x(a) + v.x(b), v.y(a) + v.y(b), v.z(a) + v.z(b),
+				radius);
+		});
+	}
+
+	private static int add(final Mesh mesh, final double x, final double y,
+		final double z, final double radius)
+	{
+		final double scale = radius / Math.sqrt(x * x + y * y + z * z);
+		return (int) mesh.vertices().add(scale * x, scale * y, scale * z, 0, 0, 0,
+			0, 0);
+	}
+
+	private static float[] direction(final float[] directions, final int v) {
+		return new float[] { directions[3 * v], directions[3 * v + 1],
+			directions[3 * v + 2] };
+	}
+
+	private static double dot(final double[] a, final float[] b) {
+		return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+	}
+
+	private static double dot(final float[] a, final float[] b) {
+		return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+	}
+}
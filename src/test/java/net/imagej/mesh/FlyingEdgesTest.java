@@ -0,0 +1,176 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link FlyingEdges}.
+ */
+public class FlyingEdgesTest {
+
+	@Test
+	public void testSameSurfaceAsMarchingCubes() {
+		for (final SyntheticVolume volume : SyntheticVolume.values()) {
+			final Img<FloatType> image = volume.create(volume ==
+				SyntheticVolume.NOISE ? 16 : 40);
+			assertSameTriangles(Meshes.marchingCubes(image, 0.5), Meshes
+				.flyingEdges(image, 0.5));
+		}
+	}
+
+	@Test
+	public void testCroppedImage() {
+		// NB: Nonzero minimum, and the surface is cut open at the crop.
+		final RandomAccessibleInterval<FloatType> image = Views.interval(
+			SyntheticVolume.BLOBS.create(48), new long[] { 5, 11, 17 }, new long[] {
+				40, 29, 47 });
+		assertSameTriangles(Meshes.marchingCubes(image, 0.5), Meshes.flyingEdges(
+			image, 0.5));
+	}
+
+	@Test
+	public void testSnappedCrossings() {
+		// Values on the iso level snap to lattice points, which leaves
+		// triangles without area for marching cubes to drop.
+		final Img<DoubleType> image = ArrayImgs.doubles(6, 5, 4);
+		int i = 0;
+		for (final DoubleType value : image) {
+			value.set(i++ % 3 * 0.5);
+		}
+		assertSameTriangles(Meshes.marchingCubes(image, 0.5), Meshes.flyingEdges(
+			image, 0.5));
+	}
+
+	@Test
+	public void testSharedVertices() {
+		final Mesh mesh = Meshes.flyingEdges(SyntheticVolume.SPHERE.create(32),
+			0.5);
+		assertEquals(0, Adjacency.build(mesh).halfEdges().boundaryEdgeCount());
+		assertEquals(2, mesh.vertices().size() - mesh.triangles().size() / 2);
+		assertTrue(GeometricFeatures.compute(mesh).volume() > 0);
+		final Vertices vertices = mesh.vertices();
+		for (long v = 0; v < vertices.size(); v++) {
+			final double dx = vertices.x(v) - 15.5, dy = vertices.y(v) - 15.5,
+					dz = vertices.z(v) - 15.5;
+			final double dot = dx * vertices.nx(v) + dy * vertices.ny(v) + dz *
+				vertices.nz(v);
+			assertTrue(dot > 0.9 * Math.sqrt(dx * dx + dy * dy + dz * dz));
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		final Img<FloatType> image = ArrayImgs.floats(7, 1, 5);
+		assertEquals(0, Meshes.flyingEdges(image, 0.5).triangles().size());
+		image.firstElement().set(1);
+		final Mesh mesh = Meshes.flyingEdges(image, 0.5);
+		assertSameTriangles(Meshes.marchingCubes(image, 0.5), mesh);
+		assertEquals(6, mesh.vertices().size());
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Checks that two meshes have the same triangles, with the same
+	 * orientation, up to the precision of {@code float} positions.
+	 */
+	private static void assertSameTriangles(final Mesh expected,
+		final Mesh actual)
+	{
+		assertEquals(expected.triangles().size(), actual.triangles().size());
+		final double[][] a = triangles(expected), b = triangles(actual);
+		final boolean[] matched = new boolean[b.length];
+		int from = 0;
+		for (final double[] t : a) {
+			while (b[from][0] < t[0] - 1e-4)
+				from++;
+			boolean found = false;
+			for (int i = from; i < b.length && b[i][0] <= t[0] + 1e-4; i++) {
+				if (!matched[i] && close(t, b[i])) {
+					matched[i] = found = true;
+					break;
+				}
+			}
+			if (!found) fail("Missing triangle " + Arrays.toString(t));
+		}
+	}
+
+	/**
+	 * Gets the corners of all triangles, each rotated to start at its corner of
+	 * least x, sorted by that coordinate.
+	 */
+	private static double[][] triangles(final Mesh mesh) {
+		final double[][] result = new double[(int) mesh.triangles().size()][];
+		int i = 0;
+		for (final Triangle t : mesh.triangles()) {
+			final double[] corners = { t.v0x(), t.v0y(), t.v0z(), t.v1x(), t.v1y(),
+				t.v1z(), t.v2x(), t.v2y(), t.v2z() };
+			int first = 0;
+			for (int c = 1; c < 3; c++) {
+				if (corners[3 * c] < corners[3 * first]) first = c;
+			}
+			final double[] rotated = new double[9];
+			for (int c = 0; c < 3; c++) {
+				System.arraycopy(corners, 3 * ((first + c) % 3), rotated, 3 * c, 3);
+			}
+			result[i++] = rotated;
+		}
+		Arrays.sort(result, Comparator.comparingDouble(t -> t[0]));
+		return result;
+	}
+
+	/** Whether two triangles match, for any start corner of equal x. */
+	private static boolean close(final double[] s, final double[] t) {
+		for (int shift = 0; shift < 3; shift++) {
+			boolean same = true;
+			for (int j = 0; j < 9 && same; j++) {
+				same = Math.abs(s[j] - t[(j + 3 * shift) % 9]) < 1e-4;
+			}
+			if (same) return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,213 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+import net.imagej.mesh.naive.NaiveFloatMesh;
+import net.imagej.mesh.nio.BufferMesh;
+import net.imagej.mesh.nio.OffHeapMesh;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.logic.BitType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link GeometricFeatures}.
+ */
+public class GeometricFeaturesTest {
+
+	@Test
+	public void testBox() {
+		// NB: Far from the origin, to exercise the cancellation of large terms.
+		final double ox = 1e6, oy = -2e6, oz = 3e6;
+		final Mesh mesh = new NaiveDoubleMesh();
+		for (int k = 0; k < 2; k++) {
+			for (int j = 0; j < 2; j++) {
+				for (int i = 0; i < 2; i++) {
+					mesh.vertices().add(ox + 2 * i, oy + 3 * j, oz + 4 * k);
+				}
+			}
+		}
+		quad(mesh, 0, 2, 3, 1);
+		quad(mesh, 4, 5, 7, 6);
+		quad(mesh, 0, 1, 5, 4);
+		quad(mesh, 2, 6, 7, 3);
+		quad(mesh, 0, 4, 6, 2);
+		quad(mesh, 1, 3, 7, 5);
+
+		final GeometricFeatures features = Meshes.geometricFeatures(mesh);
+		assertEquals(52, features.area(), 1e-9);
+		assertEquals(24, features.volume(), 1e-9);
+		final double[] center = { ox + 1, oy + 1.5, oz + 2 };
+		assertArrayEquals(center, features.centroid(), 1e-9);
+		assertArrayEquals(center, features.surfaceCentroid(), 1e-9);
+		assertArrayEquals(new double[] { 8, 0, 0, 0, 18, 0, 0, 0, 32 }, features
+			.secondMoments(), 1e-6);
+		assertArrayEquals(new double[] { ox, oy, oz, ox + 2, oy + 3, oz + 4 },
+			features.bounds(), 0);
+	}
+
+	@Test
+	public void testAgainstSequentialSums() {
+		final Img<BitType> mask = ArrayImgs.bits(90, 80, 70);
+		final RandomAccess<BitType> access = mask.randomAccess();
+		for (int z = 0; z < 70; z++) {
+			for (int y = 0; y < 80; y++) {
+				for (int x = 0; x < 90; x++) {
+					final double dx = (x - 44) / 40.0, dy = (y - 39) / 35.0, dz = (z -
+						34) / 30.0;
+					access.setPosition(new long[] { x, y, z });
+					access.get().set(dx * dx + dy * dy + dz * dz < 1);
+				}
+			}
+		}
+		final Mesh mesh = Meshes.marchingCubes(mask);
+		// NB: Spans several chunks.
+		assertTrue(mesh.triangles().size() > 20000);
+
+		double area = 0, volume = 0;
+		final double[] centroid = new double[3];
+		final double[] bounds = { Double.POSITIVE_INFINITY,
+			Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+			Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+			Double.NEGATIVE_INFINITY };
+		for (final Triangle t : mesh.triangles()) {
+			final double[] a = { t.v0x(), t.v0y(), t.v0z() };
+			final double[] b = { t.v1x(), t.v1y(), t.v1z() };
+			final double[] c = { t.v2x(), t.v2y(), t.v2z() };
+			final double v = (a[0] * (b[1] * c[2] - b[2] * c[1]) + a[1] * (b[2] *
+				c[0] - b[0] * c[2]) + a[2] * (b[0] * c[1] - b[1] * c[0])) / 6;
+			final double[] u = { b[0] - a[0], b[1] - a[1], b[2] - a[2] };
+			final double[] w = { c[0] - a[0], c[1] - a[1], c[2] - a[2] };
+			final double nx = u[1] * w[2] - u[2] * w[1];
+			final double ny = u[2] * w[0] - u[0] * w[2];
+			final double nz = u[0] * w[1] - u[1] * w[0];
+			area += Math.sqrt(nx * nx + ny * ny + nz * nz) / 2;
+			volume += v;
+			for (int d = 0; d < 3; d++) {
+				centroid[d] += v * (a[d] + b[d] + c[d]) / 4;
+				bounds[d] = Math.min(bounds[d], Math.min(a[d], Math.min(b[d], c[d])));
+				bounds[d + 3] = Math.max(bounds[d + 3], Math.max(a[d], Math.max(b[d],
+					c[d])));
+			}
+		}
+		for (int d = 0; d < 3; d++) {
+			centroid[d] /= volume;
+		}
+
+		final GeometricFeatures features = Meshes.geometricFeatures(mesh);
+		assertEquals(area, features.area(), 1e-9 * area);
+		assertEquals(volume, features.volume(), 1e-9 * volume);
+		assertArrayEquals(centroid, features.centroid(), 1e-9);
+		assertArrayEquals(new double[] { 44, 39, 34 }, features.surfaceCentroid(),
+			1e-6);
+		assertArrayEquals(bounds, features.bounds(), 0);
+
+		// NB: The ellipsoid's second moments are V a^2 / 5 along its axes.
+		final double[] moments = features.secondMoments();
+		assertEquals(volume * 40 * 40 / 5, moments[0], 0.05 * moments[0]);
+		assertEquals(volume * 35 * 35 / 5, moments[4], 0.05 * moments[4]);
+		assertEquals(volume * 30 * 30 / 5, moments[8], 0.05 * moments[8]);
+		assertEquals(moments[1], moments[3], 0);
+	}
+
+	@Test
+	public void testEmpty() {
+		final GeometricFeatures features = Meshes.geometricFeatures(
+			new NaiveDoubleMesh());
+		assertEquals(0, features.area(), 0);
+		assertEquals(0, features.volume(), 0);
+		assertTrue(Double.isNaN(features.centroid()[0]));
+	}
+
+	@Test
+	public void testCache() {
+		final Mesh mesh = new NaiveFloatMesh();
+		mesh.vertices().add(0, 0, 0);
+		mesh.vertices().add(2, 0, 0);
+		mesh.vertices().add(0, 2, 0);
+		mesh.triangles().add(0, 1, 2);
+		final GeometricFeatures features = Meshes.geometricFeatures(mesh);
+		assertSame(features, Meshes.geometricFeatures(mesh));
+		assertEquals(2, features.area(), 0);
+
+		// Appending updates the sums incrementally.
+		mesh.vertices().add(2, 2, -4);
+		mesh.triangles().add(1, 3, 2);
+		final GeometricFeatures appended = Meshes.geometricFeatures(mesh);
+		assertNotSame(features, appended);
+		assertEquals(GeometricFeatures.compute(mesh).area(), appended.area(),
+			1e-12);
+		assertArrayEquals(new double[] { 0, 0, -4, 2, 2, 0 }, appended.bounds(),
+			0);
+		final double[] center = new double[3];
+		Meshes.center(mesh).localize(center);
+		assertArrayEquals(new double[] { 1, 1, -1 }, center, 0);
+
+		// Modifying a vertex recomputes everything.
+		mesh.vertices().setPosition(3, 2, 2, 0);
+		final GeometricFeatures modified = Meshes.geometricFeatures(mesh);
+		assertEquals(4, modified.area(), 1e-12);
+		assertArrayEquals(new float[] { 0, 0, 0, 2, 2, 0 }, Meshes.boundingBox(
+			mesh), 0);
+	}
+
+	@Test
+	public void testStamp() {
+		final Mesh[] meshes = { new NaiveFloatMesh(), new NaiveDoubleMesh(),
+			new BufferMesh(4, 4), new OffHeapMesh() };
+		for (final Mesh mesh : meshes) {
+			final long stamp = mesh.stamp();
+			assertNotEquals(Mesh.UNTRACKED, stamp);
+			mesh.vertices().add(1, 2, 3);
+			mesh.triangles().add(0, 0, 0);
+			assertEquals(stamp, mesh.stamp());
+			mesh.vertices().setPosition(0, 3, 2, 1);
+			assertNotEquals(stamp, mesh.stamp());
+		}
+	}
+
+	private static void quad(final Mesh mesh, final long a, final long b,
+		final long c, final long d)
+	{
+		mesh.triangles().add(a, b, c);
+		mesh.triangles().add(a, c, d);
+	}
+}
@@ -0,0 +1,148 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link MeshMetrics}.
+ */
+public class MeshMetricsTest {
+
+	@Test
+	public void testMarchingCubes() {
+		final MeshMetrics metrics = new MeshMetrics();
+		final Mesh mesh = Meshes.marchingCubes(SyntheticVolume.SPHERE.create(20),
+			0.5, metrics);
+		final List<MeshPhase> phases = metrics.phases();
+		assertEquals(2, phases.size());
+		final MeshPhase mask = phases.get(0);
+		assertEquals("marchingCubes", mask.operation());
+		assertEquals("mask", mask.name());
+		assertEquals(8000L, mask.counts().get("voxels"));
+		final MeshPhase cubes = phases.get(1);
+		assertEquals("cubes", cubes.name());
+		assertEquals(21L * 21 * 21, cubes.counts().get("cubes"));
+		final long active = cubes.counts().get("activeCubes").longValue();
+		assertTrue(active > 0 && active < 21 * 21 * 21);
+		assertEquals(mesh.triangles().size(), cubes.counts().get("triangles"));
+		assertTrue(cubes.nanos() > 0);
+		assertTrue(cubes.allocatedBytes() != 0);
+		assertTrue(metrics.nanos("marchingCubes", "cubes") == cubes.nanos());
+
+		metrics.clear();
+		Meshes.marchingCubes(SyntheticVolume.SPHERE.createMask(20), metrics);
+		assertEquals(2, metrics.phases().size());
+	}
+
+	@Test
+	public void testFlyingEdges() {
+		final MeshMetrics metrics = new MeshMetrics();
+		final Mesh mesh = Meshes.flyingEdges(SyntheticVolume.SPHERE.create(20),
+			0.5, metrics);
+		final String[] expected = { "classify", "count", "generate", "output" };
+		assertEquals(expected.length, metrics.phases().size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals("flyingEdges", metrics.phases().get(i).operation());
+			assertEquals(expected[i], metrics.phases().get(i).name());
+		}
+		assertEquals(8000L, metrics.phases().get(0).counts().get("voxels"));
+		final MeshPhase output = metrics.phases().get(3);
+		assertEquals(mesh.vertices().size(), output.counts().get("vertices")
+			.longValue());
+		assertEquals(mesh.triangles().size(), output.counts().get("triangles")
+			.longValue());
+	}
+
+	@Test
+	public void testPipeline() {
+		final MeshMetrics metrics = new MeshMetrics();
+		final Mesh mesh = Meshes.marchingCubes(SyntheticVolume.BLOBS.create(48),
+			0.5);
+		final Mesh merged = Meshes.removeDuplicateVertices(mesh, 4, metrics);
+		final Mesh simplified = Meshes.simplify(merged, 0.5f, 7, metrics);
+		Meshes.calculateNormals(simplified, new NaiveDoubleMesh(), metrics);
+
+		double threshold = 0;
+		long deleted = 0;
+		int iterations = 0;
+		for (final MeshPhase phase : metrics.phases()) {
+			if (!phase.name().equals("iteration")) continue;
+			final double t = phase.counts().get("threshold").doubleValue();
+			assertTrue(t > threshold);
+			threshold = t;
+			deleted += phase.counts().get("deletedTriangles").longValue();
+			iterations++;
+		}
+		assertTrue(iterations > 0);
+		assertEquals(merged.triangles().size() - simplified.triangles().size(),
+			deleted);
+
+		final String[] expected = { "removeDuplicateVertices.weld",
+			"removeDuplicateVertices.output", "simplify.read", "simplify.compact",
+			"simplify.output", "calculateNormals.triangleNormals",
+			"calculateNormals.vertexNormals", "calculateNormals.output" };
+		int found = 0;
+		for (final MeshPhase phase : metrics.phases()) {
+			final String name = phase.operation() + "." + phase.name();
+			if (found < expected.length && name.equals(expected[found])) found++;
+		}
+		assertEquals(expected.length, found);
+		final MeshPhase weld = metrics.phases().get(0);
+		assertEquals(merged.vertices().size(), weld.counts().get(
+			"uniqueVertices").longValue());
+		assertTrue(metrics.toString().contains("simplify.iteration: "));
+	}
+
+	@Test
+	public void testDelegate() {
+		final boolean[] canceled = { false };
+		final MeshMetrics metrics = new MeshMetrics(new MeshTaskMonitor() {
+
+			@Override
+			public boolean isCanceled() {
+				return canceled[0];
+			}
+		});
+		assertTrue(metrics.measuresPhases());
+		assertTrue(!metrics.isCanceled());
+		canceled[0] = true;
+		assertTrue(metrics.isCanceled());
+		assertTrue(!MeshTaskMonitor.none().measuresPhases());
+	}
+}
@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+import net.imagej.mesh.naive.NaiveFloatMesh;
+import net.imagej.mesh.nio.BufferMesh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the mesh operations of {@link Meshes} which follow surface
+ * extraction, on the marching cubes mesh of a {@link SyntheticVolume} copied
+ * into each mesh backend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class MeshProcessingBenchmark {
+
+	/** The mesh implementations to compare. */
+	public enum Backend {
+		BUFFER, NAIVE_FLOAT, NAIVE_DOUBLE
+	}
+
+	@Param({ "BUFFER", "NAIVE_FLOAT", "NAIVE_DOUBLE" })
+	public Backend backend;
+
+	@Param({ "SPHERE", "BLOBS" })
+	public SyntheticVolume volume;
+
+	@Param({ "64", "128", "256" })
+	public int size;
+
+	private Mesh mesh;
+
+	private Mesh merged;
+
+	private Supplier<Mesh> empty;
+
+	@Setup
+	public void setup() {
+		final Mesh source = Meshes.marchingCubes(volume.create(size), 0.5);
+		final Mesh mergedSource = Meshes.removeDuplicateVertices(source, 4);
+		empty = () -> create(source);
+		mesh = empty.get();
+		Meshes.copy(source, mesh);
+		merged = create(mergedSource);
+		Meshes.copy(mergedSource, merged);
+	}
+
+	@Benchmark
+	public Mesh calculateNormals() {
+		final Mesh dest = empty.get();
+		Meshes.calculateNormals(mesh, dest);
+		return dest;
+	}
+
+	@Benchmark
+	public Mesh removeDuplicateVertices() {
+		return Meshes.removeDuplicateVertices(mesh, 4);
+	}
+
+	@Benchmark
+	public Mesh simplify() {
+		return Meshes.simplify(merged, 0.25f, 7);
+	}
+
+	@Benchmark
+	public GeometricFeatures geometricFeatures() {
+		return GeometricFeatures.compute(mesh);
+	}
+
+	@Benchmark
+	public Adjacency adjacency() {
+		return Adjacency.build(merged);
+	}
+
+	private Mesh create(final Mesh source) {
+		switch (backend) {
+			case BUFFER:
+				return new BufferMesh((int) source.vertices().size(), (int) source
+					.triangles().size());
+			case NAIVE_FLOAT:
+				return new NaiveFloatMesh();
+			default:
+				return new NaiveDoubleMesh();
+		}
+	}
+
+	public static void main(final String... args) throws RunnerException {
+		final Options options = new OptionsBuilder().include(
+			MeshProcessingBenchmark.class.getSimpleName()).addProfiler(
+				GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,176 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+import net.imglib2.img.Img;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests progress reporting and cancellation through {@link MeshTaskMonitor}.
+ */
+public class MeshTaskMonitorTest {
+
+	@Test
+	public void testMarchingCubesProgress() {
+		final Img<FloatType> volume = SyntheticVolume.SPHERE.create(24);
+		final Recorder recorder = new Recorder(Double.POSITIVE_INFINITY);
+		final Mesh mesh = Meshes.marchingCubes(volume, 0.5, recorder);
+		recorder.assertComplete();
+		// One update per slice of the mask and of the cubes, and the last one.
+		assertEquals(2 * 24 + 2, recorder.fractions.size());
+		assertEquals(Meshes.marchingCubes(volume, 0.5).triangles().size(), mesh
+			.triangles().size());
+
+		final Recorder edgesRecorder = new Recorder(Double.POSITIVE_INFINITY);
+		final Mesh edges = Meshes.flyingEdges(volume, 0.5, edgesRecorder);
+		edgesRecorder.assertComplete();
+		assertEquals(mesh.triangles().size(), edges.triangles().size());
+
+		final Img<BitType> mask = SyntheticVolume.SPHERE.createMask(24);
+		final Recorder booleanRecorder = new Recorder(Double.POSITIVE_INFINITY);
+		Meshes.marchingCubes(mask, booleanRecorder);
+		booleanRecorder.assertComplete();
+	}
+
+	@Test
+	public void testOperationsProgress() {
+		final Mesh mesh = Meshes.marchingCubes(SyntheticVolume.SPHERE.create(32),
+			0.5);
+		final Recorder duplicates = new Recorder(Double.POSITIVE_INFINITY);
+		final Mesh merged = Meshes.removeDuplicateVertices(mesh, 4, duplicates);
+		duplicates.assertComplete();
+
+		final Recorder simplify = new Recorder(Double.POSITIVE_INFINITY);
+		final Mesh simplified = Meshes.simplify(merged, 0.25f, 7, simplify);
+		simplify.assertComplete();
+		assertTrue(simplified.triangles().size() <= merged.triangles().size() /
+			4);
+
+		final Recorder normals = new Recorder(Double.POSITIVE_INFINITY);
+		Meshes.calculateNormals(merged, new NaiveDoubleMesh(), normals);
+		normals.assertComplete();
+	}
+
+	@Test
+	public void testCancel() {
+		final Img<FloatType> volume = SyntheticVolume.SPHERE.create(32);
+		assertCanceled(monitor -> Meshes.marchingCubes(volume, 0.5, monitor));
+		assertCanceled(monitor -> Meshes.marchingCubes(SyntheticVolume.SPHERE
+			.createMask(32), monitor));
+		assertCanceled(monitor -> Meshes.flyingEdges(volume, 0.5, monitor));
+		final Mesh mesh = Meshes.marchingCubes(volume, 0.5);
+		assertCanceled(monitor -> Meshes.removeDuplicateVertices(mesh, 4,
+			monitor));
+		final Mesh merged = Meshes.removeDuplicateVertices(mesh, 4);
+		assertCanceled(monitor -> Meshes.simplify(merged, 0.1f, 7, monitor));
+	}
+
+	@Test
+	public void testCancelNormals() {
+		final Mesh mesh = Meshes.marchingCubes(SyntheticVolume.SPHERE.create(32),
+			0.5);
+		final Mesh dest = new NaiveDoubleMesh();
+		try {
+			Meshes.calculateNormals(mesh, dest, new Recorder(0.5));
+			fail("Expected cancellation");
+		}
+		catch (final CancellationException exc) {
+			// NB: Expected.
+		}
+		assertEquals(0, dest.vertices().size());
+		assertEquals(0, dest.triangles().size());
+	}
+
+	// -- Helper methods --
+
+	private interface Task {
+
+		void run(MeshTaskMonitor monitor);
+	}
+
+	/** Checks that a task stops once canceled halfway. */
+	private static void assertCanceled(final Task task) {
+		final Recorder recorder = new Recorder(0.5);
+		try {
+			task.run(recorder);
+			fail("Expected cancellation");
+		}
+		catch (final CancellationException exc) {
+			// NB: Expected.
+		}
+		final double last = recorder.fractions.get(recorder.fractions.size() - 1);
+		assertTrue(last >= 0.5 && last < 1);
+	}
+
+	// -- Helper classes --
+
+	/** Records the progress, and cancels once a fraction has been reached. */
+	private static class Recorder implements MeshTaskMonitor {
+
+		private final double cancelAt;
+		private final List<Double> fractions = new ArrayList<>();
+
+		private Recorder(final double cancelAt) {
+			this.cancelAt = cancelAt;
+		}
+
+		@Override
+		public void progress(final double fraction) {
+			fractions.add(fraction);
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return fractions.get(fractions.size() - 1) >= cancelAt;
+		}
+
+		private void assertComplete() {
+			assertTrue(fractions.size() > 1);
+			assertEquals(0, fractions.get(0), 0.1);
+			for (int i = 1; i < fractions.size(); i++) {
+				assertTrue(fractions.get(i) >= fractions.get(i - 1));
+			}
+			assertEquals(1, fractions.get(fractions.size() - 1), 0);
+		}
+	}
+}
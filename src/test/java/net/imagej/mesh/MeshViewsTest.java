@@ -0,0 +1,213 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+import net.imglib2.realtransform.AffineTransform3D;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link MeshViews}.
+ */
+public class MeshViewsTest {
+
+	@Test
+	public void testTransformed() {
+		final Mesh mesh = Meshes.flyingEdges(SyntheticVolume.SPHERE.create(16),
+			0.5);
+		final AffineTransform3D transform = new AffineTransform3D();
+		transform.set(0, -2, 0, 1, 1, 0, 0, 2, 0, 0, 3, -4);
+		final Mesh view = Meshes.transformed(mesh, transform);
+		final Vertices vertices = mesh.vertices(), viewed = view.vertices();
+		assertEquals(vertices.size(), viewed.size());
+		for (long v = 0; v < vertices.size(); v++) {
+			assertEquals(-2 * vertices.y(v) + 1, viewed.x(v), 1e-12);
+			assertEquals(vertices.x(v) + 2, viewed.y(v), 1e-12);
+			assertEquals(3 * vertices.z(v) - 4, viewed.z(v), 1e-12);
+			assertUnitNormal(viewed.nx(v), viewed.ny(v), viewed.nz(v));
+		}
+		assertSameTopology(mesh, view);
+		final double volume = GeometricFeatures.compute(mesh).volume();
+		assertEquals(6 * volume, GeometricFeatures.compute(view).volume(), 1e-6 *
+			volume);
+
+		// NB: Changes to the mesh show through.
+		vertices.setPosition(0, 1, 2, 3);
+		assertEquals(-3, viewed.x(0), 0);
+		assertEquals(3, viewed.y(0), 0);
+		assertEquals(5, viewed.z(0), 0);
+	}
+
+	@Test
+	public void testMirrored() {
+		final Mesh mesh = Meshes.flyingEdges(SyntheticVolume.SPHERE.create(16),
+			0.5);
+		final AffineTransform3D mirror = new AffineTransform3D();
+		mirror.set(-1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0);
+		final Mesh view = Meshes.transformed(mesh, mirror);
+		// NB: Triangles are reversed, and normals still point outwards.
+		final double volume = GeometricFeatures.compute(mesh).volume();
+		assertEquals(volume, GeometricFeatures.compute(view).volume(), 1e-6 *
+			volume);
+		final Triangles triangles = mesh.triangles(), viewed = view.triangles();
+		for (long t = 0; t < triangles.size(); t++) {
+			assertEquals(triangles.vertex1(t), viewed.vertex2(t));
+			assertEquals(-triangles.nx(t), viewed.nx(t), 1e-6);
+			assertEquals(triangles.ny(t), viewed.ny(t), 1e-6);
+		}
+		final Vertices vertices = view.vertices();
+		for (long v = 0; v < vertices.size(); v++) {
+			final double dx = vertices.x(v) + 7.5, dy = vertices.y(v) - 7.5,
+					dz = vertices.z(v) - 7.5;
+			assertTrue(dx * vertices.nx(v) + dy * vertices.ny(v) + dz * vertices.nz(
+				v) > 0);
+		}
+	}
+
+	@Test
+	public void testSubset() {
+		final Mesh mesh = Meshes.marchingCubes(SyntheticVolume.BLOBS.create(24),
+			0.5);
+		final Mesh view = Meshes.subset(mesh, 5, 2, 5);
+		assertEquals(mesh.vertices().size(), view.vertices().size());
+		assertEquals(3, view.triangles().size());
+		assertEquals(mesh.triangles().vertex0(2), view.triangles().vertex0(1));
+		assertEquals(mesh.triangles().nz(5), view.triangles().nz(2), 0);
+
+		// Keeps the triangles facing up.
+		final Mesh up = Meshes.subset(mesh, t -> mesh.triangles().nz(t) > 0.5);
+		assertTrue(up.triangles().size() > 0);
+		long count = 0;
+		for (final Triangle triangle : up.triangles()) {
+			assertTrue(triangle.nz() > 0.5);
+			count++;
+		}
+		for (long t = 0; t < mesh.triangles().size(); t++) {
+			if (mesh.triangles().nz(t) > 0.5) count--;
+		}
+		assertEquals(0, count);
+
+		try {
+			Meshes.subset(mesh, mesh.triangles().size());
+			fail("Expected an exception");
+		}
+		catch (final IndexOutOfBoundsException exc) {
+			// NB: Expected.
+		}
+	}
+
+	@Test
+	public void testConcatenate() {
+		final Mesh a = Meshes.flyingEdges(SyntheticVolume.SPHERE.create(12), 0.5);
+		final Mesh b = Meshes.flyingEdges(SyntheticVolume.SPHERE.create(8), 0.5);
+		final Mesh view = Meshes.concatenate(a, new NaiveDoubleMesh(), b,
+			new NaiveDoubleMesh());
+		final long na = a.vertices().size(), ta = a.triangles().size();
+		assertEquals(na + b.vertices().size(), view.vertices().size());
+		assertEquals(ta + b.triangles().size(), view.triangles().size());
+		assertEquals(a.vertices().x(na - 1), view.vertices().x(na - 1), 0);
+		assertEquals(b.vertices().y(0), view.vertices().y(na), 0);
+		assertEquals(na + b.triangles().vertex2(0), view.triangles().vertex2(ta));
+		assertEquals(b.triangles().nx(0), view.triangles().nx(ta), 0);
+
+		// Two closed surfaces, and their volumes add up.
+		assertEquals(2, Meshes.connectedComponents(view).size());
+		assertEquals(GeometricFeatures.compute(a).volume() + GeometricFeatures
+			.compute(b).volume(), GeometricFeatures.compute(view).volume(), 1e-6);
+
+		try {
+			view.vertices().x(view.vertices().size());
+			fail("Expected an exception");
+		}
+		catch (final IndexOutOfBoundsException exc) {
+			// NB: Expected.
+		}
+	}
+
+	@Test
+	public void testReadOnly() {
+		final Mesh mesh = Meshes.flyingEdges(SyntheticVolume.SPHERE.create(8),
+			0.5);
+		for (final Mesh view : Arrays.asList(Meshes.transformed(mesh,
+			new AffineTransform3D()), Meshes.subset(mesh, 0), Meshes.concatenate(
+				mesh)))
+		{
+			try {
+				view.vertices().add(0, 0, 0);
+				fail("Expected an exception");
+			}
+			catch (final UnsupportedOperationException exc) {
+				// NB: Expected.
+			}
+			try {
+				view.triangles().add(0, 1, 2);
+				fail("Expected an exception");
+			}
+			catch (final UnsupportedOperationException exc) {
+				// NB: Expected.
+			}
+			try {
+				view.vertices().setPosition(0, 1, 2, 3);
+				fail("Expected an exception");
+			}
+			catch (final UnsupportedOperationException exc) {
+				// NB: Expected.
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	private static void assertUnitNormal(final double nx, final double ny,
+		final double nz)
+	{
+		assertEquals(1, Math.sqrt(nx * nx + ny * ny + nz * nz), 1e-9);
+	}
+
+	private static void assertSameTopology(final Mesh expected,
+		final Mesh actual)
+	{
+		final Triangles a = expected.triangles(), b = actual.triangles();
+		assertEquals(a.size(), b.size());
+		for (long t = 0; t < a.size(); t++) {
+			assertEquals(a.vertex0(t), b.vertex0(t));
+			assertEquals(a.vertex1(t), b.vertex1(t));
+			assertEquals(a.vertex2(t), b.vertex2(t));
+		}
+	}
+}
@@ -31,11 +31,14 @@ package net.imagej.mesh;
 
 import io.scif.img.IO;
 import net.imagej.mesh.naive.NaiveDoubleMesh;
+import net.imagej.mesh.nio.BufferMesh;
 import net.imglib2.Point;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.ScaleAndTranslation;
 import net.imglib2.roi.labeling.ImgLabeling;
 import net.imglib2.roi.labeling.LabelRegion;
 import net.imglib2.roi.labeling.LabelRegions;
@@ -97,6 +100,27 @@ public class MeshesTest {
 		assertEquals(6, res.vertices().size());
 	}
 
+	@Test
+	public void testCopyAttributes() {
+		final Mesh src = new NaiveDoubleMesh();
+		src.vertices().add(0, 0, 0);
+		src.vertices().add(1, 0, 0);
+		src.vertices().add(0, 1, 0);
+		src.triangles().add(0, 1, 2);
+		final Attribute normal = src.vertices().attributes().add("n",
+			Attribute.Type.FLOAT, 3);
+		normal.setf(2, 1, 0.5f);
+		src.triangles().attributes().add("id", Attribute.Type.INT, 1).seti(0, 42);
+
+		final Mesh dest = new BufferMesh(3, 1);
+		Meshes.copy(src, dest);
+		final Attribute copied = dest.vertices().attributes().get("n");
+		assertEquals(3, copied.components());
+		assertEquals(0.5f, copied.getf(2, 1), 0);
+		assertEquals(0, copied.getf(1, 1), 0);
+		assertEquals(42, dest.triangles().attributes().get("id").geti(0));
+	}
+
 	@Test
 	public void testMarchingCubesBooleanType() {
 		LabelRegion<String> ROI = createLabelRegion(getTestImage3D(), 1, 255);
@@ -145,6 +169,65 @@ public class MeshesTest {
 		assertTrue(!expectedFacets.hasNext() && !actualFacets.hasNext());
 	}
 
+	@Test
+	public void testMarchingCubesCalibrated() {
+		final Img<FloatType> image = SyntheticVolume.BLOBS.create(24);
+		final double[] spacing = { 0.1, 0.2, 0.5 }, origin = { 3, -2, 7 };
+		final Mesh voxels = Meshes.marchingCubes(image, 0.5);
+		final Mesh physical = Meshes.marchingCubes(image, 0.5,
+			new ScaleAndTranslation(spacing, origin));
+		assertEquals(voxels.vertices().size(), physical.vertices().size());
+		for (long v = 0; v < voxels.vertices().size(); v++) {
+			assertEquals(spacing[0] * voxels.vertices().x(v) + origin[0], physical
+				.vertices().x(v), 1e-5);
+			assertEquals(spacing[1] * voxels.vertices().y(v) + origin[1], physical
+				.vertices().y(v), 1e-5);
+			assertEquals(spacing[2] * voxels.vertices().z(v) + origin[2], physical
+				.vertices().z(v), 1e-5);
+		}
+		assertEquals(0.1 * 0.2 * 0.5 * GeometricFeatures.compute(voxels).volume(),
+			GeometricFeatures.compute(physical).volume(), 1e-3);
+		// Normals are those of the calibrated triangles.
+		for (final Triangle t : physical.triangles()) {
+			final Vector3D normal = new Vector3D(t.v1x() - t.v0x(), t.v1y() - t
+				.v0y(), t.v1z() - t.v0z()).crossProduct(new Vector3D(t.v2x() - t
+					.v0x(), t.v2y() - t.v0y(), t.v2z() - t.v0z())).normalize();
+			assertEquals(normal.getX(), t.nx(), 1e-3);
+			assertEquals(normal.getY(), t.ny(), 1e-3);
+			assertEquals(normal.getZ(), t.nz(), 1e-3);
+		}
+
+		final Mesh mask = Meshes.marchingCubes(SyntheticVolume.BLOBS.createMask(
+			24), new ScaleAndTranslation(spacing, origin));
+		assertTrue(GeometricFeatures.compute(mask).volume() > 0);
+
+		final Mesh edges = Meshes.flyingEdges(image, 0.5, new ScaleAndTranslation(
+			spacing, origin));
+		assertEquals(physical.triangles().size(), edges.triangles().size());
+		assertEquals(GeometricFeatures.compute(physical).volume(),
+			GeometricFeatures.compute(edges).volume(), 1e-3);
+	}
+
+	@Test
+	public void testMarchingCubesMirrored() {
+		final Img<FloatType> image = SyntheticVolume.SPHERE.create(16);
+		final AffineTransform3D mirror = new AffineTransform3D();
+		mirror.set(-1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 2, 0);
+		final double volume = GeometricFeatures.compute(Meshes.marchingCubes(image,
+			0.5)).volume();
+		// NB: Triangles are flipped, so that they still face outwards.
+		assertEquals(2 * volume, GeometricFeatures.compute(Meshes.marchingCubes(
+			image, 0.5, mirror)).volume(), 1e-3);
+		assertEquals(2 * volume, GeometricFeatures.compute(Meshes.flyingEdges(
+			image, 0.5, mirror)).volume(), 1e-3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMarchingCubesSingularTransform() {
+		Meshes.marchingCubes(SyntheticVolume.SPHERE.create(8), 0.5,
+			new ScaleAndTranslation(new double[] { 1, 0, 1 }, new double[3]));
+	}
+
 	private static Mesh createMeshWithNoise() {
 		Mesh mesh = new NaiveDoubleMesh();
 
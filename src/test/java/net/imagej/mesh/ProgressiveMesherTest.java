@@ -0,0 +1,243 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link ProgressiveMesher}.
+ */
+public class ProgressiveMesherTest {
+
+	private final ExecutorService executor = Executors
+		.newSingleThreadExecutor();
+
+	@After
+	public void shutDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testFinestLevel() throws Exception {
+		final Img<FloatType> image = SyntheticVolume.BLOBS.create(40);
+		final List<MeshBlock> finest = new ArrayList<>();
+		Meshes.meshProgressively(image, 0.5, 3, 8, (parent, blocks) -> {
+			for (final MeshBlock block : blocks) {
+				if (block.level() == 0) finest.add(block);
+			}
+		}, executor).get();
+		assertEquals(125, finest.size());
+
+		// NB: The blocks together make up the surface of the whole image.
+		final Mesh expected = Meshes.flyingEdges(image, 0.5);
+		long triangles = 0;
+		double area = 0;
+		for (final MeshBlock block : finest) {
+			triangles += block.mesh().triangles().size();
+			area += GeometricFeatures.compute(block.mesh()).area();
+		}
+		final double expectedArea = GeometricFeatures.compute(expected).area();
+		assertEquals(expected.triangles().size(), triangles);
+		assertEquals(expectedArea, area, 1e-6 * expectedArea);
+	}
+
+	@Test
+	public void testRefinement() throws Exception {
+		final Img<FloatType> image = SyntheticVolume.SPHERE.create(37);
+		final Set<MeshBlock> shown = new HashSet<>();
+		final List<Integer> levels = new ArrayList<>();
+		Meshes.meshProgressively(image, 0.5, 3, 5, (parent, blocks) -> {
+			if (parent == null) assertTrue(shown.isEmpty());
+			else {
+				assertTrue(shown.remove(parent));
+				for (final MeshBlock block : blocks) {
+					assertEquals(parent.level() - 1, block.level());
+					assertTrue(Intervals.contains(parent.interval(), block.interval()));
+				}
+			}
+			shown.addAll(blocks);
+			levels.add(blocks.get(0).level());
+		}, executor).get();
+
+		// Coarse to fine, ending with the full resolution.
+		assertEquals(2, (int) levels.get(0));
+		for (int i = 1; i < levels.size(); i++) {
+			assertTrue(levels.get(i) <= levels.get(i - 1));
+		}
+		long voxels = 0;
+		for (final MeshBlock block : shown) {
+			assertEquals(0, block.level());
+			voxels += Intervals.numElements(block.interval());
+		}
+		assertEquals(Intervals.numElements(image), voxels);
+	}
+
+	@Test
+	public void testCoarseLevel() throws Exception {
+		final List<MeshBlock> coarse = new ArrayList<>();
+		Meshes.meshProgressively(SyntheticVolume.SPHERE.create(32), 0.5, 3, 64, (
+			parent, blocks) -> {
+			if (parent == null) coarse.addAll(blocks);
+		}, executor).get();
+		assertEquals(1, coarse.size());
+
+		// NB: A single block is closed, and in voxels of the finest level.
+		final MeshBlock block = coarse.get(0);
+		final Mesh mesh = block.mesh();
+		assertEquals(2, block.level());
+		assertEquals(0, block.skirt().triangles().size());
+		assertEquals(0, Adjacency.build(mesh).halfEdges().boundaryEdgeCount());
+		final double[] centroid = GeometricFeatures.compute(mesh).centroid();
+		for (int d = 0; d < 3; d++) {
+			assertEquals(15.5, centroid[d], 0.1);
+		}
+		final Vertices vertices = mesh.vertices();
+		for (long v = 0; v < vertices.size(); v++) {
+			final double r = Math.sqrt(sq(vertices.x(v) - 15.5) + sq(vertices.y(v) -
+				15.5) + sq(vertices.z(v) - 15.5));
+			assertEquals(12.8, r, 2);
+		}
+	}
+
+	@Test
+	public void testSkirts() throws Exception {
+		final List<MeshBlock> finest = new ArrayList<>();
+		Meshes.meshProgressively(SyntheticVolume.SPHERE.create(32), 0.5, 2, 16, (
+			parent, blocks) -> {
+			if (parent != null) finest.addAll(blocks);
+		}, executor).get();
+		assertEquals(8, finest.size());
+		for (final MeshBlock block : finest) {
+			// Each octant of the sphere is open where it meets the others, and
+			// each open edge gets a quad of skirt.
+			final int open = Adjacency.build(block.mesh()).halfEdges()
+				.boundaryEdgeCount();
+			assertTrue(open > 0);
+			assertEquals(2 * open, block.skirt().triangles().size());
+			// NB: The skirt hangs into the sphere.
+			final Vertices vertices = block.skirt().vertices();
+			for (long v = 0; v < vertices.size(); v++) {
+				final double r = Math.sqrt(sq(vertices.x(v) - 15.5) + sq(vertices.y(
+					v) - 15.5) + sq(vertices.z(v) - 15.5));
+				assertTrue(r < 13.5);
+			}
+		}
+	}
+
+	@Test
+	public void testLevels() throws Exception {
+		// NB: Existing pyramids may round the sizes down.
+		final Img<FloatType> image = SyntheticVolume.BLOBS.create(41);
+		final List<RandomAccessibleInterval<? extends RealType<?>>> levels =
+			new ArrayList<>();
+		levels.add(image);
+		levels.add(ArrayImgs.floats(20, 20, 20));
+		final List<MeshBlock> finest = new ArrayList<>();
+		Meshes.meshProgressively(levels, 0.5, 8, (parent, blocks) -> {
+			if (parent != null) finest.addAll(blocks);
+		}, executor, MeshTaskMonitor.none()).get();
+		long triangles = 0;
+		for (final MeshBlock block : finest) {
+			triangles += block.mesh().triangles().size();
+		}
+		assertEquals(Meshes.flyingEdges(image, 0.5).triangles().size(),
+			triangles);
+
+		levels.set(1, ArrayImgs.floats(20, 22, 20));
+		try {
+			Meshes.meshProgressively(levels, 0.5, 8, (parent, blocks) -> {},
+				executor, MeshTaskMonitor.none());
+			fail("Expected an exception");
+		}
+		catch (final IllegalArgumentException exc) {
+			// NB: Expected.
+		}
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		final boolean[] canceled = { false };
+		final MeshTaskMonitor monitor = new MeshTaskMonitor() {
+
+			@Override
+			public boolean isCanceled() {
+				return canceled[0];
+			}
+		};
+		final List<MeshBlock> delivered = new ArrayList<>();
+		final BiConsumer<MeshBlock, List<MeshBlock>> consumer = (parent,
+			blocks) -> {
+			assertNull(parent);
+			delivered.addAll(blocks);
+			canceled[0] = true;
+		};
+		try {
+			Meshes.meshProgressively(Arrays.asList(SyntheticVolume.SPHERE.create(
+				32), SyntheticVolume.SPHERE.create(16)), 0.5, 8, consumer, executor,
+				monitor).get();
+			fail("Expected cancellation");
+		}
+		catch (final ExecutionException exc) {
+			assertTrue(exc.getCause() instanceof CancellationException);
+		}
+		assertEquals(8, delivered.size());
+	}
+
+	// -- Helper methods --
+
+	private static double sq(final double value) {
+		return value * value;
+	}
+}
@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Meshes#signedDistanceField}.
+ */
+public class SignedDistanceFieldTest {
+
+	@Test
+	public void testAgainstBVH() {
+		final Mesh mesh = blob();
+		final Img<FloatType> field = ArrayImgs.floats(40, 36, 34);
+		Meshes.signedDistanceField(mesh, field);
+
+		final BVH bvh = Meshes.bvh(mesh);
+		final RandomAccess<FloatType> access = field.randomAccess();
+		for (int z = 0; z < 34; z++) {
+			for (int y = 0; y < 36; y++) {
+				for (int x = 0; x < 40; x++) {
+					assertEquals(bvh.signedDistance(x, y, z), access.setPositionAndGet(x,
+						y, z).get(), 1e-4);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNarrowBand() {
+		final Mesh mesh = blob();
+		final Img<FloatType> full = ArrayImgs.floats(40, 36, 34);
+		final Img<FloatType> band = ArrayImgs.floats(40, 36, 34);
+		Meshes.signedDistanceField(mesh, full);
+		Meshes.signedDistanceField(mesh, band, 2.5);
+
+		final RandomAccess<FloatType> a = full.randomAccess();
+		final RandomAccess<FloatType> b = band.randomAccess();
+		for (int z = 0; z < 34; z++) {
+			for (int y = 0; y < 36; y++) {
+				for (int x = 0; x < 40; x++) {
+					final float expected = Math.max(-2.5f, Math.min(2.5f, a
+						.setPositionAndGet(x, y, z).get()));
+					assertEquals(expected, b.setPositionAndGet(x, y, z).get(), 1e-4);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMeshOutside() {
+		// NB: No voxel center is near the surface, a cube at (30..35)^3.
+		final Img<BitType> mask = ArrayImgs.bits(40, 40, 40);
+		final RandomAccess<BitType> access = mask.randomAccess();
+		for (int z = 30; z < 36; z++) {
+			for (int y = 30; y < 36; y++) {
+				for (int x = 30; x < 36; x++) {
+					access.setPositionAndGet(x, y, z).set(true);
+				}
+			}
+		}
+		final Mesh mesh = Meshes.marchingCubes(mask);
+		final Img<FloatType> field = ArrayImgs.floats(10, 10, 10);
+		Meshes.signedDistanceField(mesh, field);
+
+		final BVH bvh = Meshes.bvh(mesh);
+		final RandomAccess<FloatType> f = field.randomAccess();
+		for (int z = 0; z < 10; z++) {
+			for (int y = 0; y < 10; y++) {
+				for (int x = 0; x < 10; x++) {
+					assertEquals(bvh.signedDistance(x, y, z), f.setPositionAndGet(x, y,
+						z).get(), 1e-4);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		final Img<FloatType> field = ArrayImgs.floats(4, 4, 4);
+		Meshes.signedDistanceField(new NaiveDoubleMesh(), field, 3);
+		assertEquals(3, field.randomAccess().setPositionAndGet(1, 2, 3).get(), 0);
+	}
+
+	/** A few random balls, well inside a 40 x 36 x 34 image. */
+	private static Mesh blob() {
+		final Img<BitType> mask = ArrayImgs.bits(40, 36, 34);
+		final RandomAccess<BitType> access = mask.randomAccess();
+		final Random random = new Random(5);
+		for (int i = 0; i < 4; i++) {
+			final double cx = 12 + 16 * random.nextDouble();
+			final double cy = 12 + 12 * random.nextDouble();
+			final double cz = 12 + 10 * random.nextDouble();
+			final double r = 3 + 5 * random.nextDouble();
+			for (int z = 0; z < 34; z++) {
+				for (int y = 0; y < 36; y++) {
+					for (int x = 0; x < 40; x++) {
+						if ((x - cx) * (x - cx) + (y - cy) * (y - cy) + (z - cz) * (z -
+							cz) <= r * r) access.setPositionAndGet(x, y, z).set(true);
+					}
+				}
+			}
+		}
+		return Meshes.marchingCubes(mask);
+	}
+}
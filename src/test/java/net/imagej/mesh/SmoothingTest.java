@@ -0,0 +1,194 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.imagej.mesh.naive.NaiveDoubleMesh;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.logic.BitType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Smoothing}.
+ */
+public class SmoothingTest {
+
+	private static final double RADIUS = 10;
+	private static final double CENTER = 16;
+
+	@Test
+	public void testLaplacian() {
+		final Mesh mesh = ball();
+		final double volume = GeometricFeatures.compute(mesh).volume();
+		final double roughness = roughness(mesh);
+		Meshes.smoothLaplacian(mesh, 10, 0.5, false);
+		assertTrue(roughness(mesh) < roughness / 2);
+		assertTrue(GeometricFeatures.compute(mesh).volume() < 0.97 * volume);
+		assertCoincident(mesh);
+	}
+
+	@Test
+	public void testTaubin() {
+		final Mesh mesh = ball();
+		final double volume = GeometricFeatures.compute(mesh).volume();
+		final double roughness = roughness(mesh);
+		Meshes.smoothTaubin(mesh, 10, 0.5, -0.53, false);
+		assertTrue(roughness(mesh) < roughness / 2);
+		assertEquals(volume, GeometricFeatures.compute(mesh).volume(), 0.01 *
+			volume);
+		assertCoincident(mesh);
+	}
+
+	@Test
+	public void testHC() {
+		final Mesh mesh = ball();
+		final double volume = GeometricFeatures.compute(mesh).volume();
+		final double roughness = roughness(mesh);
+		Meshes.smoothHC(mesh, 10, 0.1, 0.6, false);
+		assertTrue(roughness(mesh) < roughness / 2);
+		assertEquals(volume, GeometricFeatures.compute(mesh).volume(), 0.01 *
+			volume);
+		assertCoincident(mesh);
+	}
+
+	@Test
+	public void testPinBoundary() {
+		// A bumpy square patch, with its border at z = 0.
+		final int size = 20;
+		final Random random = new Random(0x5300);
+		final Mesh mesh = new NaiveDoubleMesh();
+		for (int y = 0; y <= size; y++) {
+			for (int x = 0; x <= size; x++) {
+				final boolean border = x == 0 || y == 0 || x == size || y == size;
+				mesh.vertices().add(x, y, border ? 0 : random.nextDouble(), 0, 0, 1,
+					0, 0);
+			}
+		}
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				final long v = y * (size + 1) + x;
+				mesh.triangles().add(v, v + 1, v + size + 2);
+				mesh.triangles().add(v, v + size + 2, v + size + 1);
+			}
+		}
+		Meshes.smoothLaplacian(mesh, 50, 0.5, true);
+		double maxZ = 0;
+		for (int y = 0; y <= size; y++) {
+			for (int x = 0; x <= size; x++) {
+				final long v = y * (size + 1) + x;
+				if (x == 0 || y == 0 || x == size || y == size) {
+					assertEquals(x, mesh.vertices().x(v), 0);
+					assertEquals(y, mesh.vertices().y(v), 0);
+					assertEquals(0, mesh.vertices().z(v), 0);
+				}
+				maxZ = Math.max(maxZ, mesh.vertices().z(v));
+			}
+		}
+		assertTrue(maxZ < 0.5);
+	}
+
+	@Test
+	public void testNoIterations() {
+		final Mesh mesh = ball();
+		final Mesh copy = new NaiveDoubleMesh();
+		Meshes.copy(mesh, copy);
+		Meshes.smoothHC(mesh, 0, 0.1, 0.6, true);
+		for (long v = 0; v < mesh.vertices().size(); v++) {
+			assertEquals(copy.vertices().xf(v), mesh.vertices().xf(v), 0);
+			assertEquals(copy.vertices().yf(v), mesh.vertices().yf(v), 0);
+			assertEquals(copy.vertices().zf(v), mesh.vertices().zf(v), 0);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeIterations() {
+		Meshes.smoothTaubin(ball(), -1, 0.5, -0.53, false);
+	}
+
+	// -- Helper methods --
+
+	/** A voxelized ball, whose marching cubes mesh is jagged. */
+	private static Mesh ball() {
+		final Img<BitType> mask = ArrayImgs.bits(32, 32, 32);
+		final RandomAccess<BitType> access = mask.randomAccess();
+		for (int z = 0; z < 32; z++) {
+			for (int y = 0; y < 32; y++) {
+				for (int x = 0; x < 32; x++) {
+					final double dx = x - CENTER, dy = y - CENTER, dz = z - CENTER;
+					if (dx * dx + dy * dy + dz * dz <= RADIUS * RADIUS) {
+						access.setPositionAndGet(x, y, z).set(true);
+					}
+				}
+			}
+		}
+		return Meshes.marchingCubes(mask);
+	}
+
+	/** Standard deviation of the vertices' distances from the center. */
+	private static double roughness(final Mesh mesh) {
+		final Vertices vertices = mesh.vertices();
+		double sum = 0, sumSq = 0;
+		for (long v = 0; v < vertices.size(); v++) {
+			final double r = Math.sqrt(sq(vertices.x(v) - CENTER) + sq(vertices.y(
+				v) - CENTER) + sq(vertices.z(v) - CENTER));
+			sum += r;
+			sumSq += r * r;
+		}
+		final double mean = sum / vertices.size();
+		return Math.sqrt(sumSq / vertices.size() - mean * mean);
+	}
+
+	/** Checks that copies of a vertex still share the same position. */
+	private static void assertCoincident(final Mesh mesh) {
+		final Vertices vertices = mesh.vertices();
+		final int[] representatives = CoincidentVertices.representatives(
+			vertices);
+		for (int v = 0; v < representatives.length; v++) {
+			assertEquals(vertices.xf(representatives[v]), vertices.xf(v), 0);
+		}
+		// NB: Copies stay together, so the mesh stays closed.
+		final int distinct = (int) Arrays.stream(representatives)
+			.distinct().count();
+		assertTrue(distinct < representatives.length);
+	}
+
+	private static double sq(final double value) {
+		return value * value;
+	}
+}
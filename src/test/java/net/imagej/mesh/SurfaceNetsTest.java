@@ -0,0 +1,142 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link SurfaceNets}.
+ */
+public class SurfaceNetsTest {
+
+	@Test
+	public void testSphere() {
+		final int size = 64;
+		final double radius = 0.4 * size;
+		final Img<FloatType> volume = SyntheticVolume.SPHERE.create(size);
+		final Mesh mesh = Meshes.surfaceNets(volume, 0.5);
+		assertClosedSphere(mesh);
+		final GeometricFeatures features = GeometricFeatures.compute(mesh);
+		assertEquals(4 / 3.0 * Math.PI * radius * radius * radius, features
+			.volume(), 0.005 * features.volume());
+		assertEquals(4 * Math.PI * radius * radius, features.area(), 0.01 *
+			features.area());
+		final double[] centroid = features.centroid();
+		for (int d = 0; d < 3; d++) {
+			assertEquals(0.5 * (size - 1), centroid[d], 1e-3);
+		}
+
+		// One vertex per crossed cell, versus three per marching cubes triangle.
+		final Mesh cubes = Meshes.marchingCubes(volume, 0.5);
+		assertTrue(mesh.vertices().size() < cubes.vertices().size() / 2);
+		assertEquals(GeometricFeatures.compute(cubes).volume(), features.volume(),
+			0.002 * features.volume());
+	}
+
+	@Test
+	public void testNormals() {
+		final int size = 32;
+		final Mesh mesh = Meshes.surfaceNets(SyntheticVolume.SPHERE.create(size),
+			0.5);
+		final double center = 0.5 * (size - 1);
+		final Vertices vertices = mesh.vertices();
+		for (long v = 0; v < vertices.size(); v++) {
+			final double dx = vertices.x(v) - center, dy = vertices.y(v) - center,
+					dz = vertices.z(v) - center;
+			final double r = Math.sqrt(dx * dx + dy * dy + dz * dz);
+			final double dot = (dx * vertices.nx(v) + dy * vertices.ny(v) + dz *
+				vertices.nz(v)) / r;
+			assertTrue(dot > 0.95);
+		}
+		for (final Triangle t : mesh.triangles()) {
+			final double length = Math.sqrt(t.nx() * t.nx() + t.ny() * t.ny() + t
+				.nz() * t.nz());
+			assertEquals(1, length, 1e-9);
+		}
+	}
+
+	@Test
+	public void testBinaryBlobs() {
+		// Two separate boxes, one touching the image border.
+		final Img<BitType> mask = ArrayImgs.bits(40, 30, 50);
+		final RandomAccess<BitType> access = mask.randomAccess();
+		for (int z = 0; z < 50; z++) {
+			for (int y = 0; y < 30; y++) {
+				for (int x = 0; x < 40; x++) {
+					final boolean a = x >= 5 && x < 15 && y >= 5 && y < 15 && z >= 5 &&
+						z < 45;
+					final boolean b = x >= 25 && y >= 10 && y < 20 && z < 20;
+					access.setPositionAndGet(x, y, z).set(a || b);
+				}
+			}
+		}
+		final Mesh mesh = Meshes.surfaceNets(mask);
+		final Adjacency adjacency = Adjacency.build(mesh);
+		assertEquals(0, adjacency.halfEdges().boundaryEdgeCount());
+		assertEquals(2, Meshes.connectedComponents(mesh).size());
+		// Each box is closed, so the Euler characteristic is 2 per box.
+		assertEquals(4, mesh.vertices().size() - mesh.triangles().size() / 2);
+		// Corners are cut, so the volume is below that of the voxels.
+		final double volume = GeometricFeatures.compute(mesh).volume();
+		assertTrue(volume > 0.9 * (10 * 10 * 40 + 15 * 10 * 20));
+		assertTrue(volume < 10 * 10 * 40 + 15 * 10 * 20);
+	}
+
+	@Test
+	public void testEmpty() {
+		assertEquals(0, Meshes.surfaceNets(ArrayImgs.bits(8, 8, 8)).triangles()
+			.size());
+		final Img<FloatType> full = ArrayImgs.floats(3, 3, 3);
+		for (final FloatType value : full) {
+			value.set(1);
+		}
+		// A single voxel layer of cells around the image.
+		final Mesh mesh = Meshes.surfaceNets(full, 0.5);
+		assertClosedSphere(mesh);
+	}
+
+	/** Checks that the mesh is a closed, outward-oriented triangulated sphere. */
+	private static void assertClosedSphere(final Mesh mesh) {
+		assertEquals(2 * mesh.vertices().size() - 4, mesh.triangles().size());
+		final Adjacency adjacency = Adjacency.build(mesh);
+		assertEquals(0, adjacency.halfEdges().boundaryEdgeCount());
+		assertTrue(GeometricFeatures.compute(mesh).volume() > 0);
+	}
+}
@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import java.util.Random;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Reproducible cubic test volumes for the benchmarks, whose surfaces are
+ * extracted at an iso level of {@code 0.5}.
+ */
+public enum SyntheticVolume {
+
+	/** A ball filling most of the volume: a smooth surface. */
+	SPHERE {
+
+		@Override
+		void fill(final Img<FloatType> volume, final int size, final Random random) {
+			final double center = 0.5 * (size - 1), radius = 0.4 * size;
+			final RandomAccess<FloatType> access = volume.randomAccess();
+			for (int z = 0; z < size; z++) {
+				for (int y = 0; y < size; y++) {
+					for (int x = 0; x < size; x++) {
+						final double r = Math.sqrt(sq(x - center) + sq(y - center) + sq(z -
+							center));
+						access.setPositionAndGet(x, y, z).setReal(0.5 + radius - r);
+					}
+				}
+			}
+		}
+	},
+
+	/** Uniform noise: the worst case, with triangles in most cells. */
+	NOISE {
+
+		@Override
+		void fill(final Img<FloatType> volume, final int size, final Random random) {
+			for (final FloatType value : volume) {
+				value.set(random.nextFloat());
+			}
+		}
+	},
+
+	/**
+	 * Labeled, possibly overlapping balls of varied size, holding their label
+	 * from 1: many separate surfaces.
+	 */
+	BLOBS {
+
+		@Override
+		void fill(final Img<FloatType> volume, final int size, final Random random) {
+			final RandomAccess<FloatType> access = volume.randomAccess();
+			final int count = Math.max(1, size * size * size / 8192);
+			for (int label = 1; label <= count; label++) {
+				final double radius = 2 + random.nextDouble() * size / 16.0;
+				final double cx = random.nextDouble() * size;
+				final double cy = random.nextDouble() * size;
+				final double cz = random.nextDouble() * size;
+				final int min = (int) -Math.ceil(radius), max = (int) Math.ceil(radius);
+				for (int dz = min; dz <= max; dz++) {
+					for (int dy = min; dy <= max; dy++) {
+						for (int dx = min; dx <= max; dx++) {
+							final int x = (int) cx + dx, y = (int) cy + dy, z = (int) cz + dz;
+							if (x < 0 || y < 0 || z < 0 || x >= size || y >= size ||
+								z >= size) continue;
+							if (sq(x - cx) + sq(y - cy) + sq(z - cz) > radius * radius) continue;
+							access.setPositionAndGet(x, y, z).set(label);
+						}
+					}
+				}
+			}
+		}
+	};
+
+	/** Creates the volume, with {@code size} voxels along each axis. */
+	Img<FloatType> create(final int size) {
+		final Img<FloatType> volume = ArrayImgs.floats(size, size, size);
+		fill(volume, size, new Random(size));
+		return volume;
+	}
+
+	/** Creates the volume as a mask of the voxels above the iso level. */
+	Img<BitType> createMask(final int size) {
+		final Img<FloatType> volume = create(size);
+		final Img<BitType> mask = ArrayImgs.bits(size, size, size);
+		final Cursor<FloatType> source = volume.cursor();
+		final Cursor<BitType> target = mask.cursor();
+		while (source.hasNext()) {
+			target.next().set(source.next().get() > 0.5f);
+		}
+		return mask;
+	}
+
+	abstract void fill(Img<FloatType> volume, int size, Random random);
+
+	private static double sq(final double value) {
+		return value * value;
+	}
+}
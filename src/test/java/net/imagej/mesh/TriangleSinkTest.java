@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.img.Img;
+import net.imglib2.realtransform.ScaleAndTranslation;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link TriangleSink}.
+ */
+public class TriangleSinkTest {
+
+	@Test
+	public void testMarchingCubes() {
+		final Img<FloatType> image = SyntheticVolume.SPHERE.create(32);
+		final Recorder recorder = new Recorder();
+		Meshes.marchingCubes(image, 0.5, recorder);
+		assertTrue(recorder.batches > 1);
+		assertSameTriangles(Meshes.marchingCubes(image, 0.5), recorder.triangles);
+	}
+
+	@Test
+	public void testMarchingCubesBinary() {
+		final Img<BitType> mask = SyntheticVolume.BLOBS.createMask(24);
+		final Recorder recorder = new Recorder();
+		Meshes.marchingCubes(mask, recorder);
+		assertSameTriangles(Meshes.marchingCubes(mask), recorder.triangles);
+
+		// NB: Mirrored, so the triangles are flipped.
+		final ScaleAndTranslation transform = new ScaleAndTranslation(
+			new double[] { -0.5, 1, 2 }, new double[] { 3, 0, -1 });
+		final Recorder mirrored = new Recorder();
+		Meshes.marchingCubes(mask, transform, mirrored, MeshTaskMonitor.none());
+		assertSameTriangles(Meshes.marchingCubes(mask, transform),
+			mirrored.triangles);
+	}
+
+	@Test
+	public void testArea() {
+		// Reduces the surface to its area, without keeping any triangles.
+		final Img<FloatType> image = SyntheticVolume.BLOBS.create(40);
+		final double[] area = { 0 };
+		Meshes.marchingCubes(image, 0.5, (positions, vertexCount, indices,
+			triangleCount) -> {
+			for (int t = 0; t < 3 * triangleCount; t += 3) {
+				final int a = 3 * indices[t], b = 3 * indices[t + 1], c = 3 *
+					indices[t + 2];
+				final double ux = positions[b] - positions[a], uy = positions[b + 1] -
+					positions[a + 1], uz = positions[b + 2] - positions[a + 2];
+				final double vx = positions[c] - positions[a], vy = positions[c + 1] -
+					positions[a + 1], vz = positions[c + 2] - positions[a + 2];
+				area[0] += 0.5 * Math.sqrt(sq(uy * vz - uz * vy) + sq(uz * vx - ux *
+					vz) + sq(ux * vy - uy * vx));
+			}
+		});
+		final double expected = GeometricFeatures.compute(Meshes.marchingCubes(
+			image, 0.5)).area();
+		assertEquals(expected, area[0], 1e-6 * expected);
+	}
+
+	// -- Helper methods --
+
+	private static void assertSameTriangles(final Mesh expected,
+		final List<double[]> actual)
+	{
+		assertEquals(expected.triangles().size(), actual.size());
+		int i = 0;
+		for (final Triangle t : expected.triangles()) {
+			final double[] corners = { t.v0x(), t.v0y(), t.v0z(), t.v1x(), t.v1y(),
+				t.v1z(), t.v2x(), t.v2y(), t.v2z() };
+			final double[] triangle = actual.get(i++);
+			for (int j = 0; j < 9; j++) {
+				assertEquals(corners[j], triangle[j], 1e-5);
+			}
+		}
+	}
+
+	private static double sq(final double value) {
+		return value * value;
+	}
+
+	// -- Helper classes --
+
+	/** Keeps copies of all triangles, and checks the batches. */
+	private static class Recorder implements TriangleSink {
+
+		private final List<double[]> triangles = new ArrayList<>();
+		private int batches;
+
+		@Override
+		public void accept(final double[] positions, final int vertexCount,
+			final int[] indices, final int triangleCount)
+		{
+			assertTrue(triangleCount > 0);
+			assertTrue(triangleCount <= TriangleBatch.SIZE);
+			batches++;
+			for (int t = 0; t < 3 * triangleCount; t += 3) {
+				final double[] triangle = new double[9];
+				for (int k = 0; k < 3; k++) {
+					assertTrue(indices[t + k] < vertexCount);
+					System.arraycopy(positions, 3 * indices[t + k], triangle, 3 * k, 3);
+				}
+				triangles.add(triangle);
+			}
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.view.Views;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link Meshes#voxelize}.
+ */
+public class VoxelizationTest {
+
+	@Test
+	public void testMarchingCubesRoundTrip() {
+		final Img<BitType> mask = randomBlob(24, 5);
+		final Mesh mesh = Meshes.marchingCubes(mask);
+		final Img<BitType> result = ArrayImgs.bits(24, 24, 24);
+		Meshes.voxelize(mesh, result);
+		assertSame(mask, result);
+	}
+
+	@Test
+	public void testSmallCells() {
+		// NB: Cells of 4x4x4 bits share storage words between z-slices.
+		final Img<BitType> mask = randomBlob(24, 7);
+		final Mesh mesh = Meshes.marchingCubes(mask);
+		final Img<BitType> result = new CellImgFactory<>(new BitType(), 4).create(
+			24, 24, 24);
+		Meshes.voxelize(mesh, result);
+		assertSame(mask, result);
+	}
+
+	@Test
+	public void testOffsetInterval() {
+		final Img<BitType> mask = randomBlob(24, 11);
+		final Mesh mesh = Meshes.marchingCubes(mask);
+		// Fill only the upper half, through a view with a nonzero minimum.
+		final Img<BitType> result = ArrayImgs.bits(24, 24, 24);
+		Meshes.voxelize(mesh, Views.interval(result, new long[] { 0, 0, 12 },
+			new long[] { 23, 23, 23 }));
+		final RandomAccess<BitType> expected = mask.randomAccess();
+		final RandomAccess<BitType> actual = result.randomAccess();
+		for (int z = 0; z < 24; z++) {
+			for (int y = 0; y < 24; y++) {
+				for (int x = 0; x < 24; x++) {
+					final long[] pos = { x, y, z };
+					assertEquals(z >= 12 && expected.setPositionAndGet(pos).get(), actual
+						.setPositionAndGet(pos).get());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLabels() {
+		final Img<BitType> first = ArrayImgs.bits(20, 20, 20);
+		final Img<BitType> second = ArrayImgs.bits(20, 20, 20);
+		fillBox(first, 2, 8);
+		fillBox(second, 11, 17);
+		final Img<IntType> labels = ArrayImgs.ints(20, 20, 20);
+		Meshes.voxelize(Meshes.marchingCubes(first), labels, 3, false);
+		Meshes.voxelize(Meshes.marchingCubes(second), labels, 7, false);
+		final RandomAccess<IntType> access = labels.randomAccess();
+		assertEquals(3, access.setPositionAndGet(5, 5, 5).getInteger());
+		assertEquals(3, access.setPositionAndGet(2, 8, 2).getInteger());
+		assertEquals(7, access.setPositionAndGet(14, 14, 14).getInteger());
+		assertEquals(0, access.setPositionAndGet(10, 10, 10).getInteger());
+		assertEquals(0, access.setPositionAndGet(5, 5, 14).getInteger());
+	}
+
+	@Test
+	public void testConservative() {
+		final Mesh mesh = Meshes.marchingCubes(randomBlob(24, 17), 0.5);
+		final Img<BitType> interior = ArrayImgs.bits(24, 24, 24);
+		final Img<BitType> conservative = ArrayImgs.bits(24, 24, 24);
+		Meshes.voxelize(mesh, interior);
+		Meshes.voxelize(mesh, conservative, true);
+
+		final BVH bvh = Meshes.bvh(mesh);
+		final RandomAccess<BitType> a = interior.randomAccess();
+		final RandomAccess<BitType> b = conservative.randomAccess();
+		int surface = 0;
+		for (int z = 0; z < 24; z++) {
+			for (int y = 0; y < 24; y++) {
+				for (int x = 0; x < 24; x++) {
+					final boolean inside = a.setPositionAndGet(x, y, z).get();
+					final boolean filled = b.setPositionAndGet(x, y, z).get();
+					final double distance = bvh.distance(x, y, z);
+					if (inside) assertTrue(filled);
+					// A surface point within 0.5 of the center is in the voxel.
+					if (distance < 0.5) assertTrue(filled);
+					// The voxel box lies within sqrt(3) / 2 of its center.
+					if (filled && !inside) {
+						assertTrue(distance <= Math.sqrt(3) / 2 + 1e-9);
+						surface++;
+					}
+				}
+			}
+		}
+		assertTrue(surface > 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNot3D() {
+		Meshes.voxelize(Meshes.marchingCubes(randomBlob(8, 1)), ArrayImgs.bits(8,
+			8));
+	}
+
+	// -- Helper methods --
+
+	/** Union of random balls, including some touching the image border. */
+	private static Img<BitType> randomBlob(final int size, final long seed) {
+		final Img<BitType> mask = ArrayImgs.bits(size, size, size);
+		final RandomAccess<BitType> access = mask.randomAccess();
+		final Random random = new Random(seed);
+		for (int i = 0; i < 6; i++) {
+			final double cx = size * random.nextDouble();
+			final double cy = size * random.nextDouble();
+			final double cz = size * random.nextDouble();
+			final double r = 2 + 4 * random.nextDouble();
+			for (int z = 0; z < size; z++) {
+				for (int y = 0; y < size; y++) {
+					for (int x = 0; x < size; x++) {
+						if ((x - cx) * (x - cx) + (y - cy) * (y - cy) + (z - cz) * (z -
+							cz) <= r * r) access.setPositionAndGet(x, y, z).set(true);
+					}
+				}
+			}
+		}
+		return mask;
+	}
+
+	private static void fillBox(final Img<BitType> mask, final int min,
+		final int max)
+	{
+		final RandomAccess<BitType> access = mask.randomAccess();
+		for (int z = min; z <= max; z++) {
+			for (int y = min; y <= max; y++) {
+				for (int x = min; x <= max; x++)
+					access.setPositionAndGet(x, y, z).set(true);
+			}
+		}
+	}
+
+	private static void assertSame(final Img<BitType> expected,
+		final Img<BitType> actual)
+	{
+		final RandomAccess<BitType> e = expected.randomAccess();
+		final RandomAccess<BitType> a = actual.randomAccess();
+		final int size = (int) expected.dimension(0);
+		for (int z = 0; z < size; z++) {
+			for (int y = 0; y < size; y++) {
+				for (int x = 0; x < size; x++) {
+					assertEquals(x + "," + y + "," + z, e.setPositionAndGet(x, y, z)
+						.get(), a.setPositionAndGet(x, y, z).get());
+				}
+			}
+		}
+	}
+}
@@ -30,9 +30,14 @@
 
 package net.imagej.mesh.naive;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import net.imagej.mesh.AbstractMeshTest;
 import net.imagej.mesh.Mesh;
 
+import org.junit.Test;
+
 /**
  * Tests {@link NaiveFloatMesh}.
  *
@@ -44,4 +49,21 @@ public class NaiveFloatMeshTest extends AbstractMeshTest {
 	public Mesh createMesh() {
 		return new NaiveFloatMesh();
 	}
+
+	@Test
+	public void testLazyAttributes() {
+		final NaiveFloatMesh mesh = new NaiveFloatMesh();
+		mesh.vertices().addf(1, 2, 3);
+		mesh.vertices().setNormalf(0, 0, 0, 0);
+		mesh.triangles().addf(0, 0, 0, 0, 0, 0);
+		assertFalse(mesh.vertices().hasNormals());
+		assertFalse(mesh.vertices().hasTexture());
+		assertFalse(mesh.triangles().hasNormals());
+
+		mesh.vertices().setTexturef(0, 1, 0);
+		mesh.triangles().addf(0, 0, 0, 0, 0, 1);
+		assertFalse(mesh.vertices().hasNormals());
+		assertTrue(mesh.vertices().hasTexture());
+		assertTrue(mesh.triangles().hasNormals());
+	}
 }
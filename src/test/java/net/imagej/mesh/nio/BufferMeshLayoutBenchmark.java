@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh.nio;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.imagej.mesh.Vertices;
+import net.imagej.mesh.nio.BufferMesh.Layout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the {@link Layout#SEPARATE} and {@link Layout#INTERLEAVED} vertex
+ * layouts of {@link BufferMesh}, reading position and normal of every vertex
+ * in order and in random order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferMeshLayoutBenchmark {
+
+	@Param({ "SEPARATE", "INTERLEAVED" })
+	public Layout layout;
+
+	@Param({ "1000000" })
+	public int size;
+
+	private Vertices vertices;
+
+	private int[] order;
+
+	@Setup
+	public void setup() {
+		final BufferMesh mesh = new BufferMesh(size, 0, layout);
+		final Random random = new Random(42);
+		for (int i = 0; i < size; i++) {
+			mesh.vertices().addf(random.nextFloat(), random.nextFloat(), random
+				.nextFloat(), random.nextFloat(), random.nextFloat(), random
+					.nextFloat(), random.nextFloat(), random.nextFloat());
+		}
+		vertices = mesh.vertices();
+		order = new int[size];
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		for (int i = size - 1; i > 0; i--) {
+			final int j = random.nextInt(i + 1);
+			final int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+	}
+
+	@Benchmark
+	public float iterate() {
+		float sum = 0;
+		for (int i = 0; i < size; i++)
+			sum += gather(i);
+		return sum;
+	}
+
+	@Benchmark
+	public float randomAccess() {
+		float sum = 0;
+		for (int i = 0; i < size; i++)
+			sum += gather(order[i]);
+		return sum;
+	}
+
+	private float gather(final long v) {
+		return vertices.xf(v) * vertices.nxf(v) + //
+			vertices.yf(v) * vertices.nyf(v) + //
+			vertices.zf(v) * vertices.nzf(v);
+	}
+
+	public static void main(final String... args) throws RunnerException {
+		final Options options = new OptionsBuilder().include(
+			BufferMeshLayoutBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+}
@@ -30,9 +30,17 @@
 
 package net.imagej.mesh.nio;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
 import net.imagej.mesh.AbstractMeshTest;
 import net.imagej.mesh.Mesh;
 
+import org.junit.Test;
+
 /**
  * Tests {@link BufferMesh}.
  *
@@ -44,4 +52,35 @@ public class BufferMeshTest extends AbstractMeshTest {
 	public Mesh createMesh() {
 		return new BufferMesh(100, 100);
 	}
+
+	@Test
+	public void testLazyAttributes() {
+		final BufferMesh mesh = new BufferMesh(10, 10, ByteBuffer::allocate, true);
+		mesh.vertices().addf(1, 2, 3);
+		mesh.vertices().addf(4, 5, 6);
+		mesh.triangles().addf(0, 1, 0, 0, 0, 0);
+		assertFalse(mesh.vertices().hasNormals());
+		assertFalse(mesh.vertices().hasTexture());
+		assertFalse(mesh.triangles().hasNormals());
+
+		mesh.vertices().addf(7, 8, 9, 0, 0, 1, 0, 0);
+		assertTrue(mesh.vertices().hasNormals());
+		assertFalse(mesh.vertices().hasTexture());
+		assertEquals(9, mesh.vertices().normals().limit());
+		assertEquals(1, mesh.vertices().nzf(2), 0);
+
+		// Accessing the buffer of an absent channel allocates it.
+		assertEquals(6, mesh.vertices().texCoords().limit());
+		assertTrue(mesh.vertices().hasTexture());
+		mesh.vertices().addf(1, 1, 1, 0, 0, 0, 1, 1);
+		assertEquals(1, mesh.vertices().uf(3), 0);
+		assertEquals(0, mesh.vertices().uf(2), 0);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testLazyAttributeBounds() {
+		final BufferMesh mesh = new BufferMesh(10, 10, ByteBuffer::allocate, true);
+		mesh.vertices().addf(1, 2, 3);
+		mesh.vertices().nxf(1);
+	}
 }
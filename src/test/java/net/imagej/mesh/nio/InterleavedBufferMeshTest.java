@@ -0,0 +1,93 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import net.imagej.mesh.AbstractMeshTest;
+import net.imagej.mesh.Mesh;
+import net.imagej.mesh.nio.BufferMesh.Layout;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link BufferMesh} with the {@link Layout#INTERLEAVED} layout.
+ */
+public class InterleavedBufferMeshTest extends AbstractMeshTest {
+
+	@Override
+	public Mesh createMesh() {
+		return new BufferMesh(100, 100, Layout.INTERLEAVED);
+	}
+
+	@Test
+	public void testInterleavedBuffer() {
+		final BufferMesh mesh = new BufferMesh(10, 10, Layout.INTERLEAVED);
+		final BufferMesh.Vertices vertices = mesh.vertices();
+		assertSame(Layout.INTERLEAVED, vertices.layout());
+		vertices.addf(1, 2, 3, 4, 5, 6, 7, 8);
+		vertices.addf(9, 10, 11, 12, 13, 14, 15, 16);
+		vertices.setNormalf(1, -1, -2, -3);
+		vertices.setTexturef(0, -4, -5);
+
+		final FloatBuffer data = vertices.interleaved();
+		assertEquals(2 * BufferMesh.INTERLEAVED_STRIDE, data.limit());
+		final float[] expected = { 1, 2, 3, 4, 5, 6, -4, -5, //
+			9, 10, 11, -1, -2, -3, 15, 16 };
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], data.get(i), 0);
+		}
+	}
+
+	@Test
+	public void testWrapInterleaved() {
+		final FloatBuffer data = FloatBuffer.wrap(new float[] { //
+			1, 2, 3, 0, 0, 1, 0.5f, 0.25f });
+		final BufferMesh mesh = new BufferMesh(data, //
+			IntBuffer.allocate(0), FloatBuffer.allocate(0));
+		assertEquals(1, mesh.vertices().size());
+		assertEquals(3, mesh.vertices().zf(0), 0);
+		assertEquals(1, mesh.vertices().nzf(0), 0);
+		assertEquals(0.25f, mesh.vertices().vf(0), 0);
+	}
+
+	@Test
+	public void testSeparateHasNoInterleavedBuffer() {
+		final BufferMesh mesh = new BufferMesh(10, 10);
+		assertSame(Layout.SEPARATE, mesh.vertices().layout());
+		assertNull(mesh.vertices().interleaved());
+	}
+}
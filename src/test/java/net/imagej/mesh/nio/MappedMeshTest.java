@@ -0,0 +1,112 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh.nio;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import net.imagej.mesh.AbstractMeshTest;
+import net.imagej.mesh.Mesh;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link MappedMesh}.
+ */
+public class MappedMeshTest extends AbstractMeshTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Override
+	public Mesh createMesh() {
+		try {
+			// NB: Use tiny segments, to cross segment boundaries.
+			return new MappedMesh(folder.newFolder().toPath(), 2);
+		}
+		catch (final IOException exc) {
+			throw new UncheckedIOException(exc);
+		}
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		final Path dir = folder.newFolder().toPath();
+		try (final MappedMesh mesh = new MappedMesh(dir, 3)) {
+			for (int i = 0; i < 20; i++) {
+				mesh.vertices().addf(i, 2 * i, 3 * i, 0, 0, 1, i / 20f, 1);
+			}
+			for (int i = 0; i < 18; i++) {
+				mesh.triangles().addf(i, i + 1, i + 2, 1, 0, 0);
+			}
+		}
+		// NB: The segment size of existing files takes precedence.
+		try (final MappedMesh mesh = new MappedMesh(dir, 10)) {
+			assertEquals(20, mesh.vertices().size());
+			assertEquals(18, mesh.triangles().size());
+			for (int i = 0; i < 20; i++) {
+				assertEquals(i, mesh.vertices().xf(i), 0);
+				assertEquals(2 * i, mesh.vertices().yf(i), 0);
+				assertEquals(3 * i, mesh.vertices().zf(i), 0);
+				assertEquals(1, mesh.vertices().nzf(i), 0);
+				assertEquals(i / 20f, mesh.vertices().uf(i), 0);
+			}
+			for (int i = 0; i < 18; i++) {
+				assertEquals(i, mesh.triangles().vertex0(i));
+				assertEquals(i + 2, mesh.triangles().vertex2(i));
+				assertEquals(1, mesh.triangles().nxf(i), 0);
+			}
+			// Appending continues where the previous session stopped.
+			assertEquals(20, mesh.vertices().addf(7, 8, 9));
+		}
+		try (final MappedMesh mesh = new MappedMesh(dir)) {
+			assertEquals(21, mesh.vertices().size());
+			assertEquals(8, mesh.vertices().yf(20), 0);
+		}
+	}
+
+	@Test
+	public void testLongIndices() throws IOException {
+		try (final MappedMesh mesh = new MappedMesh(folder.newFolder().toPath())) {
+			final long big = 3L * Integer.MAX_VALUE;
+			mesh.vertices().addf(0, 0, 0);
+			mesh.triangles().addf(big, big + 1, big + 2, 0, 0, 1);
+			assertEquals(big, mesh.triangles().vertex0(0));
+			assertEquals(big + 1, mesh.triangles().vertex1(0));
+			assertEquals(big + 2, mesh.triangles().vertex2(0));
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*-
+ * #%L
+ * 3D mesh structures for ImageJ.
+ * %%
+ * Copyright (C) 2016 - 2024 University of Idaho, Royal Veterinary College, and
+ * Board of Regents of the University of Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.mesh.nio;
+
+import static org.junit.Assert.assertEquals;
+
+import net.imagej.mesh.AbstractMeshTest;
+import net.imagej.mesh.Attribute;
+import net.imagej.mesh.Mesh;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link OffHeapMesh}.
+ */
+public class OffHeapMeshTest extends AbstractMeshTest {
+
+	@Override
+	public Mesh createMesh() {
+		// NB: Use tiny segments, to cross segment boundaries.
+		return new OffHeapMesh(2);
+	}
+
+	@Test
+	public void testLongIndices() {
+		try (final OffHeapMesh mesh = new OffHeapMesh()) {
+			final long big = 3L * Integer.MAX_VALUE;
+			mesh.vertices().addf(0, 0, 0);
+			mesh.triangles().addf(big, big + 1, big + 2, 0, 0, 1);
+			assertEquals(big, mesh.triangles().vertex0(0));
+			assertEquals(big + 1, mesh.triangles().vertex1(0));
+			assertEquals(big + 2, mesh.triangles().vertex2(0));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testAccessAfterClose() {
+		final OffHeapMesh mesh = new OffHeapMesh();
+		mesh.vertices().addf(1, 2, 3);
+		mesh.close();
+		mesh.vertices().xf(0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddAfterClose() {
+		final OffHeapMesh mesh = new OffHeapMesh();
+		mesh.close();
+		mesh.vertices().addf(1, 2, 3);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRemovedAttribute() {
+		try (final OffHeapMesh mesh = new OffHeapMesh()) {
+			mesh.vertices().addf(1, 2, 3);
+			final Attribute curvature = mesh.vertices().attributes().add(
+				"curvature", Attribute.Type.FLOAT, 1);
+			curvature.setf(0, 0.5f);
+			mesh.vertices().attributes().remove("curvature");
+			curvature.getf(0);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAttributeAfterClose() {
+		final OffHeapMesh mesh = new OffHeapMesh();
+		mesh.vertices().addf(1, 2, 3);
+		final Attribute label = mesh.vertices().attributes().add("label",
+			Attribute.Type.INT, 1);
+		mesh.close();
+		label.geti(0);
+	}
+}